@@ -23,6 +23,7 @@ import android.appwidget.AppWidgetHostView;
 import android.appwidget.AppWidgetManager;
 import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
+import android.content.BroadcastReceiver;
 import android.content.ContentProviderOperation;
 import android.content.ContentProviderResult;
 import android.content.ContentResolver;
@@ -207,6 +208,7 @@ import org.robolectric.shadows.ShadowBitmapDrawable;
 import org.robolectric.shadows.ShadowBitmapFactory;
 import org.robolectric.shadows.ShadowBluetoothAdapter;
 import org.robolectric.shadows.ShadowBluetoothDevice;
+import org.robolectric.shadows.ShadowBroadcastReceiver;
 import org.robolectric.shadows.ShadowBundle;
 import org.robolectric.shadows.ShadowCamera;
 import org.robolectric.shadows.ShadowCameraParameters;
@@ -357,11 +359,14 @@ import org.robolectric.shadows.ShadowZoomButtonsController;
 import org.robolectric.tester.org.apache.http.FakeHttpLayer;
 import org.robolectric.tester.org.apache.http.HttpRequestInfo;
 import org.robolectric.tester.org.apache.http.RequestMatcher;
+import org.robolectric.util.RobolectricBackgroundExecutorService;
 import org.robolectric.util.Scheduler;
+import org.robolectric.util.VirtualClock;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class Robolectric {
     public static Application application;
@@ -538,6 +543,10 @@ public class Robolectric {
         return (ShadowBluetoothDevice) Robolectric.shadowOf_(other);
     }
 
+    public static ShadowBroadcastReceiver shadowOf(BroadcastReceiver instance) {
+        return (ShadowBroadcastReceiver) shadowOf_(instance);
+    }
+
     public static ShadowBundle shadowOf(Bundle instance) {
         return (ShadowBundle) shadowOf_(instance);
     }
@@ -1348,6 +1357,13 @@ public class Robolectric {
         return getShadowApplication().getBackgroundScheduler();
     }
 
+    /**
+     * Returns the clock shared by the UI thread scheduler, the background scheduler and every other looper's scheduler.
+     */
+    public static VirtualClock getVirtualClock() {
+        return ShadowLooper.getVirtualClock();
+    }
+
     public static ShadowApplication getShadowApplication() {
         return Robolectric.application == null ? null : shadowOf(Robolectric.application);
     }
@@ -1427,8 +1443,20 @@ public class Robolectric {
 
     public static void reset() {
         Robolectric.getShadowWrangler().silence();
+        ShadowApplication shadowApplication = getShadowApplication();
+        if (shadowApplication != null && shadowApplication.getBackgroundExecutorService().usesRealThreads()) {
+            RobolectricBackgroundExecutorService executorService = shadowApplication.getBackgroundExecutorService();
+            executorService.shutdownNow();
+            try {
+                // give interrupted tasks a moment to stop, so they don't run into the next test
+                executorService.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
         Robolectric.application = null;
         ShadowAccountManager.reset();
+        ShadowBitmap.reset();
         ShadowBitmapFactory.reset();
         ShadowDrawable.reset();
         ShadowMediaStore.reset();
@@ -1439,7 +1467,9 @@ public class Robolectric {
         ShadowContentResolver.reset();
 //        ShadowLocalBroadcastManager.reset();
         ShadowMimeTypeMap.reset();
+        ShadowParcel.reset();
         ShadowPowerManager.reset();
+        ShadowSQLiteDatabase.reset();
         ShadowStatFs.reset();
         ShadowTypeface.reset();
     }
@@ -49,6 +49,7 @@ public class RobolectricBase {
             ShadowBitmapFactory.class,
             ShadowBluetoothAdapter.class,
             ShadowBluetoothDevice.class,
+            ShadowBroadcastReceiver.class,
             ShadowBundle.class,
             ShadowButton.class,
             ShadowCamera.class,
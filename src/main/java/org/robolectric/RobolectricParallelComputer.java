@@ -0,0 +1,99 @@
+package org.robolectric;
+
+import org.junit.runner.Computer;
+import org.junit.runner.Runner;
+import org.junit.runners.ParentRunner;
+import org.junit.runners.model.InitializationError;
+import org.junit.runners.model.RunnerBuilder;
+import org.junit.runners.model.RunnerScheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs test classes concurrently on a fixed pool of worker threads, so a multi-core machine can run a suite N ways
+ * inside a single JVM instead of forking:
+ *
+ * <pre>
+ *     JUnitCore.runClasses(new RobolectricParallelComputer(4), FooActivityTest.class, BarServiceTest.class);
+ * </pre>
+ *
+ * Each worker has its own instrumenting class loader, {@link org.robolectric.bytecode.ShadowWrangler} and
+ * {@link org.robolectric.internal.ParallelUniverse} for each kind of {@link RobolectricTestRunner}, so static state
+ * like {@link Robolectric#application}, loopers, logs and the database map isn't shared between classes that run
+ * at the same time. The tests within a class still run one after another, on the same worker.
+ *
+ * Resources are only loaded once and shared by all workers. Static state in classes which aren't loaded by the
+ * instrumenting class loader (e.g. fields set with {@link org.robolectric.annotation.WithConstantInt}) is shared too,
+ * so tests which change it shouldn't be run in parallel.
+ */
+public class RobolectricParallelComputer extends Computer {
+    private final int threadCount;
+
+    public RobolectricParallelComputer() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public RobolectricParallelComputer(int threadCount) {
+        if (threadCount < 1) throw new IllegalArgumentException("need at least one thread, not " + threadCount);
+        this.threadCount = threadCount;
+    }
+
+    @Override
+    public Runner getSuite(RunnerBuilder builder, Class<?>[] classes) throws InitializationError {
+        Runner suite = super.getSuite(builder, classes);
+        ((ParentRunner<?>) suite).setScheduler(new WorkerPoolScheduler(threadCount));
+        return suite;
+    }
+
+    private static class WorkerPoolScheduler implements RunnerScheduler {
+        private final ExecutorService executorService;
+        private final List<Future<?>> futures = new ArrayList<Future<?>>();
+
+        WorkerPoolScheduler(int threadCount) {
+            executorService = Executors.newFixedThreadPool(threadCount, new WorkerThreadFactory());
+        }
+
+        @Override
+        public void schedule(Runnable childStatement) {
+            futures.add(executorService.submit(childStatement));
+        }
+
+        @Override
+        public void finished() {
+            try {
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                // test failures are reported to the notifier; anything which gets here is a bug in the runner
+                throw new RuntimeException(e.getCause());
+            } finally {
+                executorService.shutdownNow();
+            }
+        }
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    RobolectricTestRunner.runAsWorker(runnable);
+                }
+            }, "robolectric-worker-" + threadNumber.incrementAndGet());
+        }
+    }
+}
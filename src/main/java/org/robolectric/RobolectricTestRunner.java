@@ -20,6 +20,7 @@ import org.robolectric.bytecode.AndroidTranslator;
 import org.robolectric.bytecode.AsmInstrumentingClassLoader;
 import org.robolectric.bytecode.ClassCache;
 import org.robolectric.bytecode.ClassHandler;
+import org.robolectric.bytecode.InstrumentedClassCache;
 import org.robolectric.bytecode.JavassistInstrumentingClassLoader;
 import org.robolectric.bytecode.RobolectricInternals;
 import org.robolectric.bytecode.Setup;
@@ -33,6 +34,7 @@ import org.robolectric.res.OverlayResourceLoader;
 import org.robolectric.res.PackageResourceLoader;
 import org.robolectric.res.ResourceLoader;
 import org.robolectric.res.ResourcePath;
+import org.robolectric.res.ResourceSnapshotCache;
 import org.robolectric.res.RoutingResourceLoader;
 import org.robolectric.shadows.ShadowLog;
 import org.robolectric.util.AnnotationUtil;
@@ -66,6 +68,8 @@ import static org.fest.reflect.core.Reflection.staticField;
  */
 public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
     private static final Map<Class<? extends RobolectricTestRunner>, RobolectricContext> contextsByTestRunner = new WeakHashMap<Class<? extends RobolectricTestRunner>, RobolectricContext>();
+    // set on the worker threads of a RobolectricParallelComputer, each of which gets its own contexts
+    private static final ThreadLocal<Map<Class<? extends RobolectricTestRunner>, RobolectricContext>> workerContextsByTestRunner = new ThreadLocal<Map<Class<? extends RobolectricTestRunner>, RobolectricContext>>();
     private static final Map<AndroidManifest, ResourceLoader> resourceLoadersByAppManifest = new HashMap<AndroidManifest, ResourceLoader>();
     private static final Map<ResourcePath, ResourceLoader> systemResourceLoaders = new HashMap<ResourcePath, ResourceLoader>();
 
@@ -85,20 +89,15 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
     public RobolectricTestRunner(final Class<?> testClass) throws InitializationError {
         super(testClass);
 
-        RobolectricContext robolectricContext;
-        synchronized (contextsByTestRunner) {
-            Class<? extends RobolectricTestRunner> testRunnerClass = getClass();
-            robolectricContext = contextsByTestRunner.get(testRunnerClass);
-            if (robolectricContext == null) {
-                try {
-                    robolectricContext = createRobolectricContext();
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                }
-                contextsByTestRunner.put(testRunnerClass, robolectricContext);
-            }
-        }
-        this.robolectricContext = robolectricContext;
+        databaseMap = setupDatabaseMap(testClass, new SQLiteMap());
+    }
+
+    /*
+     * The context is picked when the class starts running rather than when the runner is created, since with a
+     * RobolectricParallelComputer that depends on which worker thread ends up running it.
+     */
+    private void setupRobolectricContext() {
+        robolectricContext = getRobolectricContext();
 
         try {
             testLifecycle = (TestLifecycle) robolectricContext.getRobolectricClassLoader().loadClass(getTestLifecycleClass().getName()).newInstance();
@@ -111,10 +110,44 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
             throw new RuntimeException(e);
         }
 
-        databaseMap = setupDatabaseMap(testClass, new SQLiteMap());
         Thread.currentThread().setContextClassLoader(robolectricContext.getRobolectricClassLoader());
     }
 
+    private RobolectricContext getRobolectricContext() {
+        Map<Class<? extends RobolectricTestRunner>, RobolectricContext> contexts = workerContextsByTestRunner.get();
+        if (contexts == null) {
+            contexts = contextsByTestRunner;
+        }
+
+        synchronized (contexts) {
+            Class<? extends RobolectricTestRunner> testRunnerClass = getClass();
+            RobolectricContext robolectricContext = contexts.get(testRunnerClass);
+            if (robolectricContext == null) {
+                try {
+                    robolectricContext = createRobolectricContext();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+                contexts.put(testRunnerClass, robolectricContext);
+            }
+            return robolectricContext;
+        }
+    }
+
+    /**
+     * Runs {@code runnable} with its own set of {@link RobolectricContext}s (and so its own instrumenting class loaders,
+     * class handlers and static state), rather than the ones shared by the rest of the JVM. Test classes run on the
+     * same worker reuse its contexts.
+     */
+    static void runAsWorker(Runnable runnable) {
+        workerContextsByTestRunner.set(new HashMap<Class<? extends RobolectricTestRunner>, RobolectricContext>());
+        try {
+            runnable.run();
+        } finally {
+            workerContextsByTestRunner.remove();
+        }
+    }
+
     public RobolectricContext createRobolectricContext() {
         Setup setup = createSetup();
         ClassHandler classHandler = createClassHandler(setup);
@@ -149,7 +182,7 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
         );
         ClassLoader robolectricClassLoader;
         if (useAsm()) {
-            robolectricClassLoader = new AsmInstrumentingClassLoader(setup, urls);
+            robolectricClassLoader = new AsmInstrumentingClassLoader(setup, createInstrumentedClassCache(), urls);
         } else {
             ClassCache classCache = createClassCache();
             AndroidTranslator androidTranslator = createAndroidTranslator(setup, classCache);
@@ -160,15 +193,34 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
     }
 
     public ClassCache createClassCache() {
+        return new ZipClassCache(new File(getClassCacheDirectory(), "cached-robolectric-classes.jar").getAbsolutePath(), AndroidTranslator.CACHE_VERSION);
+    }
+
+    /**
+     * Creates the on-disk cache of instrumented classes used by the ASM classloader, in ~/.robolectric (or the directory
+     * named by "cached.robolectric.classes.path"). Set the system property "robolectric.cacheInstrumentedClasses" to
+     * false to disable it.
+     *
+     * @return the cache, or null if classes should be instrumented from scratch every time
+     */
+    public InstrumentedClassCache createInstrumentedClassCache() {
+        if ("false".equals(System.getProperty("robolectric.cacheInstrumentedClasses"))) {
+            return null;
+        }
+        return new InstrumentedClassCache(new File(perUserCacheDirectory(), "instrumented-classes"));
+    }
+
+    protected File getClassCacheDirectory() {
+        return defaultCacheDirectory();
+    }
+
+    private static File defaultCacheDirectory() {
         final String classCachePath = System.getProperty("cached.robolectric.classes.path");
-        final File classCacheDirectory;
         if (null == classCachePath || "".equals(classCachePath.trim())) {
-            classCacheDirectory = new File("./tmp");
+            return new File("./tmp");
         } else {
-            classCacheDirectory = new File(classCachePath);
+            return new File(classCachePath);
         }
-
-        return new ZipClassCache(new File(classCacheDirectory, "cached-robolectric-classes.jar").getAbsolutePath(), AndroidTranslator.CACHE_VERSION);
     }
 
     public AndroidTranslator createAndroidTranslator(Setup setup, ClassCache classCache) {
@@ -247,6 +299,7 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
             @Override
             public void evaluate() throws Throwable {
                 try {
+                    setupRobolectricContext();
                     statement.evaluate();
                 } finally {
                     afterClass();
@@ -554,21 +607,25 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
     }
 
     public static ResourceLoader getSystemResourceLoader(ResourcePath systemResourcePath) {
-        ResourceLoader systemResourceLoader = systemResourceLoaders.get(systemResourcePath);
-        if (systemResourceLoader == null) {
-            systemResourceLoader = createResourceLoader(systemResourcePath);
-            systemResourceLoaders.put(systemResourcePath, systemResourceLoader);
+        synchronized (systemResourceLoaders) {
+            ResourceLoader systemResourceLoader = systemResourceLoaders.get(systemResourcePath);
+            if (systemResourceLoader == null) {
+                systemResourceLoader = createResourceLoader(systemResourcePath);
+                systemResourceLoaders.put(systemResourcePath, systemResourceLoader);
+            }
+            return systemResourceLoader;
         }
-        return systemResourceLoader;
     }
 
     public static ResourceLoader getAppResourceLoader(ResourceLoader systemResourceLoader, final AndroidManifest appManifest) {
-        ResourceLoader resourceLoader = resourceLoadersByAppManifest.get(appManifest);
-        if (resourceLoader == null) {
-            resourceLoader = createAppResourceLoader(systemResourceLoader, appManifest);
-            resourceLoadersByAppManifest.put(appManifest, resourceLoader);
+        synchronized (resourceLoadersByAppManifest) {
+            ResourceLoader resourceLoader = resourceLoadersByAppManifest.get(appManifest);
+            if (resourceLoader == null) {
+                resourceLoader = createAppResourceLoader(systemResourceLoader, appManifest);
+                resourceLoadersByAppManifest.put(appManifest, resourceLoader);
+            }
+            return resourceLoader;
         }
-        return resourceLoader;
     }
 
     // this method must live on a InstrumentingClassLoader-loaded class, so it can't be on RobolectricContext
@@ -586,7 +643,42 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
     }
 
     public static PackageResourceLoader createResourceLoader(ResourcePath systemResourcePath) {
-        return new PackageResourceLoader(systemResourcePath);
+        return new PackageResourceLoader(systemResourcePath, createResourceSnapshotCache(), getResourceLoadingThreadCount());
+    }
+
+    /**
+     * How many of the system resource directories to parse at once. Set the system property
+     * "robolectric.resourceLoadingThreads" to override the default of one per processor.
+     */
+    protected static int getResourceLoadingThreadCount() {
+        String threadCount = System.getProperty("robolectric.resourceLoadingThreads");
+        if (threadCount == null || "".equals(threadCount.trim())) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        return Integer.parseInt(threadCount.trim());
+    }
+
+    /**
+     * Creates the on-disk cache of parsed system resources, shared by all of the current user's JVMs. It lives in
+     * ~/.robolectric/resources, or in the "resources" directory under "cached.robolectric.classes.path" if that system
+     * property is set. Set the system property "robolectric.cacheResources" to false to disable it.
+     *
+     * @return the cache, or null if resources should be parsed from scratch every time
+     */
+    protected static ResourceSnapshotCache createResourceSnapshotCache() {
+        if ("false".equals(System.getProperty("robolectric.cacheResources"))) {
+            return null;
+        }
+        return new ResourceSnapshotCache(new File(perUserCacheDirectory(), "resources"));
+    }
+
+    private static File perUserCacheDirectory() {
+        final String classCachePath = System.getProperty("cached.robolectric.classes.path");
+        if (null == classCachePath || "".equals(classCachePath.trim())) {
+            return new File(System.getProperty("user.home"), ".robolectric");
+        } else {
+            return new File(classCachePath);
+        }
     }
 
     /*
@@ -22,6 +22,7 @@ import org.objectweb.asm.tree.MethodNode;
 import org.objectweb.asm.tree.TypeInsnNode;
 import org.objectweb.asm.util.CheckClassAdapter;
 import org.objectweb.asm.util.TraceClassVisitor;
+import org.robolectric.util.BuildFingerprint;
 
 import java.io.FileOutputStream;
 import java.io.FileWriter;
@@ -32,6 +33,7 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.Modifier;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -39,6 +41,8 @@ import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 import static org.objectweb.asm.Type.ARRAY;
 import static org.objectweb.asm.Type.OBJECT;
@@ -48,6 +52,9 @@ import static org.robolectric.util.Util.readBytes;
 import static org.robolectric.util.Util.reverse;
 
 public class AsmInstrumentingClassLoader extends ClassLoader implements Opcodes, InstrumentingClassLoader {
+    /** Bump this whenever the generated bytecode changes, so persistently cached classes are invalidated. */
+    public static final int INSTRUMENTOR_VERSION = 3;
+
     private static final String OBJECT_DESC = Type.getDescriptor(Object.class);
     private static final Type OBJECT_TYPE = getType(Object.class);
     private static final Type STRING_TYPE = getType(String.class);
@@ -60,15 +67,56 @@ public class AsmInstrumentingClassLoader extends ClassLoader implements Opcodes,
     private final Map<String, Class> classes = new HashMap<String, Class>();
     private final Set<Setup.MethodRef> methodsToIntercept;
     private final Map<String, String> classesToRemap;
+    private final InstrumentedClassCache instrumentedClassCache;
+    private final String configurationFingerprint;
 
     public static final String DIRECT_OBJECT_MARKER_TYPE_DESC = Type.getObjectType(DirectObjectMarker.class.getName().replace('.', '/')).getDescriptor();
 
     public AsmInstrumentingClassLoader(Setup setup, URL... urls) {
+        this(setup, null, urls);
+    }
+
+    public AsmInstrumentingClassLoader(Setup setup, InstrumentedClassCache instrumentedClassCache, URL... urls) {
         super(AsmInstrumentingClassLoader.class.getClassLoader());
         this.setup = setup;
+        this.instrumentedClassCache = instrumentedClassCache;
         this.urls = new URLClassLoader(urls, null);
         classesToRemap = convertToSlashes(setup.classNameTranslations());
         methodsToIntercept = convertToSlashes(setup.methodsToIntercept());
+        configurationFingerprint = instrumentedClassCache == null ? null : configurationFingerprint();
+    }
+
+    /**
+     * Identifies everything besides the original class bytes that the instrumented bytes depend on: this build of
+     * Robolectric, the code of the {@link Setup} in use (which may come from somewhere else, e.g. the tests), and the
+     * classes and methods it remaps and intercepts.
+     */
+    String configurationFingerprint() {
+        StringBuilder buf = new StringBuilder();
+        buf.append(INSTRUMENTOR_VERSION).append('|').append(BuildFingerprint.get());
+        buf.append('|').append(setup.getClass().getName()).append('|').append(classBytesDigest(setup.getClass()));
+        buf.append('|').append(new TreeMap<String, String>(classesToRemap));
+        Set<String> methodRefs = new TreeSet<String>();
+        for (Setup.MethodRef methodRef : methodsToIntercept) {
+            methodRefs.add(methodRef.className + "." + methodRef.methodName);
+        }
+        buf.append('|').append(methodRefs);
+        return buf.toString();
+    }
+
+    private static String classBytesDigest(Class<?> clazz) {
+        MessageDigest digest = InstrumentedClassCache.newDigest();
+        for (Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass()) {
+            ClassLoader classLoader = c.getClassLoader() == null ? ClassLoader.getSystemClassLoader() : c.getClassLoader();
+            InputStream in = classLoader.getResourceAsStream(c.getName().replace('.', '/') + ".class");
+            if (in == null) continue;
+            try {
+                digest.update(readBytes(in));
+            } catch (IOException e) {
+                throw new RuntimeException("couldn't read " + c.getName(), e);
+            }
+        }
+        return InstrumentedClassCache.toHex(digest.digest());
     }
 
     @Override
@@ -120,6 +168,27 @@ public class AsmInstrumentingClassLoader extends ClassLoader implements Opcodes,
             }
 
             final ClassReader classReader = new ClassReader(origClassBytes);
+
+            String cacheKey = null;
+            if (instrumentedClassCache != null) {
+                ClassNode classInfoNode = new ClassNode();
+                classReader.accept(classInfoNode, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+                AsmClassInfo classInfo = new AsmClassInfo(className, classInfoNode);
+                if (setup.shouldInstrument(classInfo)) {
+                    cacheKey = instrumentedClassCache.keyFor(className, origClassBytes,
+                            configurationFingerprint + "|stubs=" + setup.containsStubs(classInfo));
+                    byte[] cachedBytes = instrumentedClassCache.get(cacheKey);
+                    if (cachedBytes != null) {
+                        try {
+                            return defineClass(className, cachedBytes, 0, cachedBytes.length);
+                        } catch (LinkageError e) {
+                            // truncated or corrupt entry; throw it away and instrument the class again
+                            instrumentedClassCache.remove(cacheKey);
+                        }
+                    }
+                }
+            }
+
             ClassNode classNode = new ClassNode() {
                 @Override
                 public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
@@ -139,6 +208,9 @@ public class AsmInstrumentingClassLoader extends ClassLoader implements Opcodes,
                 AsmClassInfo classInfo = new AsmClassInfo(className, classNode);
                 if (setup.shouldInstrument(classInfo)) {
                     bytes = getInstrumentedBytes(className, classNode, setup.containsStubs(classInfo));
+                    if (cacheKey != null) {
+                        instrumentedClassCache.put(cacheKey, bytes);
+                    }
                 } else {
                     bytes = origClassBytes;
                 }
@@ -327,6 +399,7 @@ public class AsmInstrumentingClassLoader extends ClassLoader implements Opcodes,
         private final String internalClassName;
         private final String className;
         private final Type classType;
+        private final List<String> methodSignatures = new ArrayList<String>();
 
         public ClassInstrumentor(ClassNode classNode, boolean containsStubs) {
             this.classNode = classNode;
@@ -367,7 +440,6 @@ public class AsmInstrumentingClassLoader extends ClassLoader implements Opcodes,
                 m.loadThis();
                 m.visitMethodInsn(INVOKESPECIAL, classNode.superName, "<init>", "()V");
                 generateCallToClassHandler(defaultConstructor, CONSTRUCTOR_METHOD_NAME, m);
-                m.pop();
                 m.returnValue();
                 m.endMethod();
                 classNode.methods.add(defaultConstructor);
@@ -403,6 +475,8 @@ public class AsmInstrumentingClassLoader extends ClassLoader implements Opcodes,
 //                System.out.println("method = " + method.name + method.desc);
 //            }
 
+            classNode.methods.add(generateMethodSignaturesMethod());
+
             if (className.equals("android.os.Build$VERSION")) {
                 for (Object field : classNode.fields) {
                     FieldNode fieldNode = (FieldNode) field;
@@ -721,50 +795,69 @@ public class AsmInstrumentingClassLoader extends ClassLoader implements Opcodes,
             return methodNode;
         }
 
-        private void generateCallToClassHandler(MethodNode method, String originalMethodName, MyGenerator m) {
-            // prepare for call to classHandler.methodInvoked()
-            m.push(classType);                                         // my class
-            m.push(originalMethodName);                                // my class, method name
-            m.loadThisOrNull();                                        // my class, method name, this
-//
-//            // load param types
-            Type[] argumentTypes = Type.getArgumentTypes(method.desc);
-            m.push(argumentTypes.length);
-            m.newArray(STRING_TYPE);                                   // my class, method name, this, String[n]{nulls}
-            for (int i = 0; i < argumentTypes.length; i++) {
-                Type argumentType = argumentTypes[i];
+        private MethodNode generateMethodSignaturesMethod() {
+            MethodNode methodNode = new MethodNode(ACC_PUBLIC | ACC_STATIC | ACC_SYNTHETIC, METHOD_SIGNATURES_METHOD_NAME, "()[Ljava/lang/String;", null, null);
+            MyGenerator m = new MyGenerator(methodNode);
+            m.push(methodSignatures.size());
+            m.newArray(STRING_TYPE);                                   // String[n]{nulls}
+            for (int i = 0; i < methodSignatures.size(); i++) {
                 m.dup();
                 m.push(i);
-                m.push(argumentType.getClassName());
+                m.push(methodSignatures.get(i));
                 m.arrayStore(STRING_TYPE);
             }
-            // my class, method name, this, String[n]{param class names}
+            // String[n]{method signatures}
+            m.returnValue();
+            m.endMethod();
+            return methodNode;
+        }
 
-            m.loadArgArray();
+        private void generateCallToClassHandler(MethodNode method, String originalMethodName, MyGenerator m) {
+            // methods are identified by their index in __robo_method_signatures__(), so no type names are built per call
+            int methodId = methodSignatures.size();
+            methodSignatures.add(originalMethodName + method.desc);
 
-            m.invokeStatic(ROBOLECTRIC_INTERNALS_TYPE, new Method("methodInvoked", "(Ljava/lang/Class;Ljava/lang/String;Ljava/lang/Object;[Ljava/lang/String;[Ljava/lang/Object;)Ljava/lang/Object;"));
+            // prepare for call to classHandler.methodInvoked()
+            m.push(classType);                                         // my class
+            m.push(methodId);                                          // my class, method id
+            m.loadThisOrNull();                                        // my class, method id, this
 
+            Type[] argumentTypes = Type.getArgumentTypes(method.desc);
             Type returnType = m.getReturnType();
-            int sort = returnType.getSort();
-            if (sort != VOID)
-                if (sort == OBJECT || sort == ARRAY) {
-                    m.checkCast(returnType);
-                } else {
-                    Label notNull = m.newLabel();
-                    Label finished = m.newLabel();
-                    m.dup();
-                    m.ifNonNull(notNull);
-//                if (returnType.getSize() == 2) {
-//                    m.pop2();
-//                } else {
-                    m.pop();
-//                }
-                    m.pushZero(returnType);
-                    m.goTo(finished);
-                    m.visitLabel(notNull);
-                    m.unbox(returnType);
-                    m.visitLabel(finished);
+            if (PrimitiveValues.canEncode(argumentTypes, returnType)) {
+                // pass primitives through as longs, so calls like Rect.width() or View.setVisibility(int) don't box
+                StringBuilder desc = new StringBuilder("(Ljava/lang/Class;ILjava/lang/Object;");
+                for (int i = 0; i < argumentTypes.length; i++) {
+                    m.loadArg(i);
+                    PrimitiveValues.encode(m, argumentTypes[i]);       // my class, method id, this, [long args]
+                    desc.append("J");
                 }
+                m.invokeStatic(ROBOLECTRIC_INTERNALS_TYPE, new Method("primitiveMethodInvoked", desc.append(")J").toString()));
+                PrimitiveValues.decode(m, returnType);
+                return;
+            }
+
+            m.loadArgArray();                                          // my class, method id, this, Object[n]{args}
+
+            m.invokeStatic(ROBOLECTRIC_INTERNALS_TYPE, new Method("methodInvoked", "(Ljava/lang/Class;ILjava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;"));
+
+            int sort = returnType.getSort();
+            if (sort == VOID) {
+                m.pop();
+            } else if (sort == OBJECT || sort == ARRAY) {
+                m.checkCast(returnType);
+            } else {
+                Label notNull = m.newLabel();
+                Label finished = m.newLabel();
+                m.dup();
+                m.ifNonNull(notNull);
+                m.pop();
+                m.pushZero(returnType);
+                m.goTo(finished);
+                m.visitLabel(notNull);
+                m.unbox(returnType);
+                m.visitLabel(finished);
+            }
         }
 
         private boolean isEnum() {
@@ -5,6 +5,20 @@ public interface ClassHandler {
 
     Object methodInvoked(Class clazz, String methodName, Object instance, String[] paramTypes, Object[] params) throws Throwable;
 
+    /**
+     * Called by classes instrumented by {@link AsmInstrumentingClassLoader}, which identify methods by an id assigned
+     * at instrumentation time rather than by name and parameter types. Use {@link MethodSignature#allFor(Class)} to
+     * map ids back to methods.
+     */
+    Object methodInvoked(Class clazz, int methodId, Object instance, Object[] params) throws Throwable;
+
+    /**
+     * Like {@link #methodInvoked(Class, int, Object, Object[])}, but for methods with up to three primitive arguments and
+     * a primitive or void return type, whose arguments and return value are packed into longs by {@link PrimitiveValues}.
+     * Unused arguments are 0.
+     */
+    long primitiveMethodInvoked(Class clazz, int methodId, Object instance, long arg0, long arg1, long arg2) throws Throwable;
+
     Object intercept(String className, String methodName, Object instance, Object[] paramTypes, Object[] params) throws Throwable;
 
     // todo: definitely shouldn't live here
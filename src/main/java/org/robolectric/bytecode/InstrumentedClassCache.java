@@ -0,0 +1,121 @@
+package org.robolectric.bytecode;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import static org.robolectric.util.Util.makeOwnerOnly;
+import static org.robolectric.util.Util.readBytes;
+
+/**
+ * Content-addressed, on-disk cache of instrumented class bytes, shared between JVMs.
+ *
+ * Entries are keyed on a digest of the original class bytes plus a fingerprint of the instrumenting
+ * configuration (see {@link AsmInstrumentingClassLoader#configurationFingerprint()}), so a changed android jar,
+ * {@link Setup}, instrumentor or Robolectric build never sees stale bytes. Entries are written to a temp file and
+ * renamed into place, so forks running in parallel can share a cache directory; if two of them race on the same
+ * entry, they'll have written identical bytes anyway. Since the bytes get loaded as code, the directories the cache
+ * creates are readable and writable only by their owner.
+ */
+public class InstrumentedClassCache {
+    private final File cacheDir;
+
+    public InstrumentedClassCache(File cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    public File getCacheDir() {
+        return cacheDir;
+    }
+
+    public String keyFor(String className, byte[] origClassBytes, String configurationFingerprint) {
+        MessageDigest digest = newDigest();
+        digest.update(configurationFingerprint.getBytes());
+        digest.update((byte) 0);
+        digest.update(className.getBytes());
+        digest.update((byte) 0);
+        digest.update(origClassBytes);
+        return toHex(digest.digest());
+    }
+
+    public byte[] get(String key) {
+        File file = fileFor(key);
+        if (!file.exists()) return null;
+
+        try {
+            return readBytes(new FileInputStream(file));
+        } catch (IOException e) {
+            // partially deleted or unreadable; we'll just instrument again
+            return null;
+        }
+    }
+
+    public void put(String key, byte[] classBytes) {
+        File file = fileFor(key);
+        if (file.exists()) return;
+
+        if (!mkdirOwnerOnly(cacheDir)) return;
+        File dir = file.getParentFile();
+        if (!mkdirOwnerOnly(dir)) return;
+
+        File tempFile = null;
+        try {
+            tempFile = File.createTempFile(key, ".tmp", dir);
+            FileOutputStream out = new FileOutputStream(tempFile);
+            try {
+                out.write(classBytes);
+            } finally {
+                out.close();
+            }
+            if (tempFile.renameTo(file)) {
+                tempFile = null;
+            }
+        } catch (IOException e) {
+            // no problem, the cache is only an optimization
+        } finally {
+            if (tempFile != null) {
+                //noinspection ResultOfMethodCallIgnored
+                tempFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Drops an entry, e.g. one that turned out to be truncated or corrupt.
+     */
+    public void remove(String key) {
+        //noinspection ResultOfMethodCallIgnored
+        fileFor(key).delete();
+    }
+
+    private static boolean mkdirOwnerOnly(File dir) {
+        if (dir.exists()) return true;
+        if (!dir.mkdirs() && !dir.exists()) return false;
+        makeOwnerOnly(dir);
+        return true;
+    }
+
+    private File fileFor(String key) {
+        return new File(new File(cacheDir, key.substring(0, 2)), key.substring(2) + ".class");
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder buf = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            buf.append(Character.forDigit((b >> 4) & 0xf, 16));
+            buf.append(Character.forDigit(b & 0xf, 16));
+        }
+        return buf.toString();
+    }
+}
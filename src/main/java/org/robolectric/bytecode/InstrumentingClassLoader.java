@@ -4,4 +4,5 @@ public interface InstrumentingClassLoader {
     String CLASS_HANDLER_DATA_FIELD_NAME = "__robo_data__"; // todo: rename
     String STATIC_INITIALIZER_METHOD_NAME = "__staticInitializer__";
     String CONSTRUCTOR_METHOD_NAME = "__constructor__";
+    String METHOD_SIGNATURES_METHOD_NAME = "__robo_method_signatures__";
 }
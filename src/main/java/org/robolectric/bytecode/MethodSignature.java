@@ -0,0 +1,75 @@
+package org.robolectric.bytecode;
+
+import org.objectweb.asm.Type;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * The name and parameter types of an instrumented method, as identified by the method id baked into its class by
+ * {@link AsmInstrumentingClassLoader}.
+ */
+public class MethodSignature {
+    public final String methodName;
+    public final String[] paramTypes;
+    public final String returnType;
+
+    private MethodSignature(String methodName, String[] paramTypes, String returnType) {
+        this.methodName = methodName;
+        this.paramTypes = paramTypes;
+        this.returnType = returnType;
+    }
+
+    /**
+     * @param signature a method name followed by its descriptor, e.g. "getText()Ljava/lang/CharSequence;"
+     */
+    public static MethodSignature parse(String signature) {
+        int parenIndex = signature.indexOf('(');
+        String desc = signature.substring(parenIndex);
+        Type[] argumentTypes = Type.getArgumentTypes(desc);
+        String[] paramTypes = new String[argumentTypes.length];
+        for (int i = 0; i < argumentTypes.length; i++) {
+            paramTypes[i] = argumentTypes[i].getClassName();
+        }
+        return new MethodSignature(signature.substring(0, parenIndex), paramTypes, Type.getReturnType(desc).getClassName());
+    }
+
+    /**
+     * Reads the signatures of all the instrumented methods of a class, indexed by method id.
+     */
+    public static MethodSignature[] allFor(Class<?> instrumentedClass) {
+        String[] signatures;
+        try {
+            Method method = instrumentedClass.getDeclaredMethod(InstrumentingClassLoader.METHOD_SIGNATURES_METHOD_NAME);
+            method.setAccessible(true);
+            signatures = (String[]) method.invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new RuntimeException(instrumentedClass.getName() + " wasn't instrumented with method ids", e);
+        } catch (InvocationTargetException e) {
+            throw new RuntimeException(e);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+
+        MethodSignature[] methodSignatures = new MethodSignature[signatures.length];
+        for (int i = 0; i < signatures.length; i++) {
+            methodSignatures[i] = parse(signatures[i]);
+        }
+        return methodSignatures;
+    }
+
+    public static MethodSignature forMethodId(Class<?> instrumentedClass, int methodId) {
+        return allFor(instrumentedClass)[methodId];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buf = new StringBuilder();
+        buf.append(methodName).append("(");
+        for (int i = 0; i < paramTypes.length; i++) {
+            if (i > 0) buf.append(", ");
+            buf.append(paramTypes[i]);
+        }
+        return buf.append(")").toString();
+    }
+}
@@ -0,0 +1,150 @@
+package org.robolectric.bytecode;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.GeneratorAdapter;
+
+import java.lang.reflect.Method;
+
+/**
+ * Packs primitive values into longs, so that methods taking up to {@link #MAX_ARGS} primitive arguments and returning
+ * a primitive (or nothing) can be routed to their shadows without boxing.
+ *
+ * Integral values and chars are widened, booleans become 0 or 1, and floats and doubles are passed as their raw bits.
+ */
+public class PrimitiveValues implements Opcodes {
+    public static final int MAX_ARGS = 3;
+
+    private static final Type FLOAT_BOX_TYPE = Type.getType(Float.class);
+    private static final Type DOUBLE_BOX_TYPE = Type.getType(Double.class);
+
+    public static boolean canEncode(Type[] argumentTypes, Type returnType) {
+        if (argumentTypes.length > MAX_ARGS) return false;
+        for (Type argumentType : argumentTypes) {
+            if (!isPrimitive(argumentType)) return false;
+        }
+        return returnType.getSort() == Type.VOID || isPrimitive(returnType);
+    }
+
+    public static boolean canEncode(Method method) {
+        return canEncode(Type.getArgumentTypes(method), Type.getReturnType(method));
+    }
+
+    /**
+     * @return whether values of these types can be decoded, i.e. there are at most {@link #MAX_ARGS} and they're all
+     *     primitive
+     */
+    public static boolean canDecode(Class<?>[] types) {
+        if (types.length > MAX_ARGS) return false;
+        for (Class<?> type : types) {
+            if (!type.isPrimitive() || type == void.class) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the primitive type itself, or void, or the primitive a wrapper type boxes; null for any other type
+     */
+    public static Class<?> primitiveType(Class<?> type) {
+        if (type.isPrimitive()) return type;
+        if (type == Integer.class) return int.class;
+        if (type == Boolean.class) return boolean.class;
+        if (type == Float.class) return float.class;
+        if (type == Long.class) return long.class;
+        if (type == Double.class) return double.class;
+        if (type == Short.class) return short.class;
+        if (type == Byte.class) return byte.class;
+        if (type == Character.class) return char.class;
+        return null;
+    }
+
+    private static boolean isPrimitive(Type type) {
+        return type.getSort() >= Type.BOOLEAN && type.getSort() <= Type.DOUBLE;
+    }
+
+    /**
+     * Generates code to replace a value of the given type on top of the stack with its encoding. Void "values" are
+     * encoded as 0.
+     */
+    static void encode(GeneratorAdapter m, Type type) {
+        switch (type.getSort()) {
+            case Type.VOID:
+                m.push(0L);
+                break;
+            case Type.LONG:
+                break;
+            case Type.FLOAT:
+                m.invokeStatic(FLOAT_BOX_TYPE, new org.objectweb.asm.commons.Method("floatToRawIntBits", "(F)I"));
+                m.visitInsn(I2L);
+                break;
+            case Type.DOUBLE:
+                m.invokeStatic(DOUBLE_BOX_TYPE, new org.objectweb.asm.commons.Method("doubleToRawLongBits", "(D)J"));
+                break;
+            default:
+                m.visitInsn(I2L);
+                break;
+        }
+    }
+
+    /**
+     * Generates code to replace the encoded long on top of the stack with a value of the given type. For void, the long
+     * is just popped.
+     */
+    static void decode(GeneratorAdapter m, Type type) {
+        switch (type.getSort()) {
+            case Type.VOID:
+                m.pop2();
+                break;
+            case Type.LONG:
+                break;
+            case Type.FLOAT:
+                m.visitInsn(L2I);
+                m.invokeStatic(FLOAT_BOX_TYPE, new org.objectweb.asm.commons.Method("intBitsToFloat", "(I)F"));
+                break;
+            case Type.DOUBLE:
+                m.invokeStatic(DOUBLE_BOX_TYPE, new org.objectweb.asm.commons.Method("longBitsToDouble", "(J)D"));
+                break;
+            default:
+                // the value was widened from the same type, so narrowing it back can't lose anything
+                m.visitInsn(L2I);
+                break;
+        }
+    }
+
+    /**
+     * Encodes a boxed value as the given type, converting numbers the same way unboxing in instrumented methods does.
+     * Null is encoded as 0.
+     */
+    public static long encode(Object value, Class<?> type) {
+        if (value == null || type == void.class) return 0;
+        if (type == boolean.class) return (Boolean) value ? 1 : 0;
+        if (type == char.class) return (Character) value;
+        if (type == float.class) return Float.floatToRawIntBits(((Number) value).floatValue());
+        if (type == double.class) return Double.doubleToRawLongBits(((Number) value).doubleValue());
+        if (type == long.class) return ((Number) value).longValue();
+        return ((Number) value).intValue();
+    }
+
+    public static Object decode(Class<?> type, long value) {
+        if (type == int.class) return (int) value;
+        if (type == boolean.class) return value != 0;
+        if (type == float.class) return Float.intBitsToFloat((int) value);
+        if (type == long.class) return value;
+        if (type == double.class) return Double.longBitsToDouble(value);
+        if (type == short.class) return (short) value;
+        if (type == byte.class) return (byte) value;
+        if (type == char.class) return (char) value;
+        throw new IllegalArgumentException(type + " isn't primitive");
+    }
+
+    public static Object[] decode(Class<?>[] types, long arg0, long arg1, long arg2) {
+        Object[] values = new Object[types.length];
+        switch (types.length) {
+            case 3: values[2] = decode(types[2], arg2);
+            case 2: values[1] = decode(types[1], arg1);
+            case 1: values[0] = decode(types[0], arg0);
+            default:
+        }
+        return values;
+    }
+}
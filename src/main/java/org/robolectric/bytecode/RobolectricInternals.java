@@ -124,6 +124,39 @@ public class RobolectricInternals {
         }
     }
 
+    @SuppressWarnings({"UnusedDeclaration"})
+    public static Object methodInvoked(Class clazz, int methodId, Object instance, Object[] params) throws Throwable {
+        try {
+          return classHandler.methodInvoked(clazz, methodId, instance, params);
+        } catch(java.lang.LinkageError e) {
+          throw new Exception(e);
+        }
+    }
+
+    @SuppressWarnings({"UnusedDeclaration"})
+    public static long primitiveMethodInvoked(Class clazz, int methodId, Object instance) throws Throwable {
+        return primitiveMethodInvoked(clazz, methodId, instance, 0, 0, 0);
+    }
+
+    @SuppressWarnings({"UnusedDeclaration"})
+    public static long primitiveMethodInvoked(Class clazz, int methodId, Object instance, long arg0) throws Throwable {
+        return primitiveMethodInvoked(clazz, methodId, instance, arg0, 0, 0);
+    }
+
+    @SuppressWarnings({"UnusedDeclaration"})
+    public static long primitiveMethodInvoked(Class clazz, int methodId, Object instance, long arg0, long arg1) throws Throwable {
+        return primitiveMethodInvoked(clazz, methodId, instance, arg0, arg1, 0);
+    }
+
+    @SuppressWarnings({"UnusedDeclaration"})
+    public static long primitiveMethodInvoked(Class clazz, int methodId, Object instance, long arg0, long arg1, long arg2) throws Throwable {
+        try {
+          return classHandler.primitiveMethodInvoked(clazz, methodId, instance, arg0, arg1, arg2);
+        } catch(java.lang.LinkageError e) {
+          throw new Exception(e);
+        }
+    }
+
     @SuppressWarnings({"UnusedDeclaration"})
     public static Object intercept(String className, String methodName, Object instance, Object[] paramTypes, Object[] params) throws Throwable {
         try {
@@ -53,6 +53,7 @@ public class Setup {
             ResourcePath.class,
             AndroidTranslator.class,
             ClassHandler.class,
+            ShadowInvoker.class,
             Implements.class,
             Implementation.class,
             Instrument.class,
@@ -0,0 +1,43 @@
+package org.robolectric.bytecode;
+
+/**
+ * Calls a single shadow method through a typed call site, without going through {@link java.lang.reflect.Method#invoke}.
+ *
+ * Implementations are generated at runtime by {@link ShadowInvokerFactory}.
+ */
+public abstract class ShadowInvoker {
+    private Class<?>[] parameterTypes;
+    private Class<?> returnType;
+
+    /**
+     * @param shadow the shadow instance, or null for static methods
+     * @param params the boxed arguments
+     * @return the boxed return value, or null for void methods
+     * @throws Throwable whatever the shadow method throws, unwrapped
+     */
+    public abstract Object invoke(Object shadow, Object[] params) throws Throwable;
+
+    /**
+     * Calls the shadow method with arguments and a return value packed into longs by {@link PrimitiveValues}. Invokers
+     * for methods which {@link PrimitiveValues#canEncode} override this to call them without boxing; for others, which
+     * take primitives but return a wrapper type, the values are boxed and go through {@link #invoke}.
+     *
+     * @param shadow the shadow instance, or null for static methods
+     * @return the return value, packed into a long by {@link PrimitiveValues}
+     * @throws UnsupportedOperationException if the method takes anything but up to three primitives, or returns
+     *     anything but a primitive, a wrapper or void
+     * @throws Throwable whatever the shadow method throws, unwrapped
+     */
+    public long invokePrimitive(Object shadow, long arg0, long arg1, long arg2) throws Throwable {
+        if (parameterTypes == null || !PrimitiveValues.canDecode(parameterTypes) || returnType == null) {
+            throw new UnsupportedOperationException("can't pass primitive values to this method");
+        }
+        Object result = invoke(shadow, PrimitiveValues.decode(parameterTypes, arg0, arg1, arg2));
+        return PrimitiveValues.encode(result, returnType);
+    }
+
+    void setSignature(Class<?>[] parameterTypes, Class<?> returnType) {
+        this.parameterTypes = parameterTypes;
+        this.returnType = PrimitiveValues.primitiveType(returnType);
+    }
+}
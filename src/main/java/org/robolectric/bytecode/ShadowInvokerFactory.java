@@ -0,0 +1,188 @@
+package org.robolectric.bytecode;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.GeneratorAdapter;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Generates {@link ShadowInvoker}s which call shadow methods directly, rather than reflectively.
+ */
+public class ShadowInvokerFactory implements Opcodes {
+    public static final String GENERATED_CLASS_MARKER = "$$RoboInvoker$";
+
+    private static final Type SHADOW_INVOKER_TYPE = Type.getType(ShadowInvoker.class);
+    private static final Type OBJECT_TYPE = Type.getType(Object.class);
+    private static final org.objectweb.asm.commons.Method INVOKE_METHOD =
+            org.objectweb.asm.commons.Method.getMethod("Object invoke(Object, Object[])");
+    private static final org.objectweb.asm.commons.Method INVOKE_PRIMITIVE_METHOD =
+            org.objectweb.asm.commons.Method.getMethod("long invokePrimitive(Object, long, long, long)");
+    private static final org.objectweb.asm.commons.Method CONSTRUCTOR =
+            org.objectweb.asm.commons.Method.getMethod("void <init>()");
+
+    private final Map<Method, ShadowInvoker> invokers = new HashMap<Method, ShadowInvoker>();
+    private final Map<ClassLoader, InvokerClassLoader> classLoaders = new WeakHashMap<ClassLoader, InvokerClassLoader>();
+    private int generatedCount = 0;
+
+    /**
+     * Returns an invoker for the given shadow method, or null if the method can't be called directly from generated
+     * code (e.g. because it or its declaring class isn't public), in which case callers should fall back to reflection.
+     */
+    public synchronized ShadowInvoker getInvoker(Method method) {
+        if (invokers.containsKey(method)) {
+            return invokers.get(method);
+        }
+
+        ShadowInvoker invoker = null;
+        if (isAccessible(method)) {
+            try {
+                invoker = generateInvoker(method);
+            } catch (Exception e) {
+                // fall back to reflection
+            } catch (LinkageError e) {
+                // fall back to reflection
+            }
+        }
+        invokers.put(method, invoker);
+        return invoker;
+    }
+
+    private ShadowInvoker generateInvoker(Method method) throws Exception {
+        Class<?> declaringClass = method.getDeclaringClass();
+        String className = declaringClass.getName() + GENERATED_CLASS_MARKER + method.getName() + "$" + (generatedCount++);
+        byte[] bytes = generateInvokerClass(className.replace('.', '/'), method);
+
+        ClassLoader parent = declaringClass.getClassLoader();
+        InvokerClassLoader classLoader = classLoaders.get(parent);
+        if (classLoader == null) {
+            classLoader = new InvokerClassLoader(parent);
+            classLoaders.put(parent, classLoader);
+        }
+        Class<?> invokerClass = classLoader.define(className, bytes);
+        ShadowInvoker invoker = (ShadowInvoker) invokerClass.newInstance();
+        invoker.setSignature(method.getParameterTypes(), method.getReturnType());
+        return invoker;
+    }
+
+    static byte[] generateInvokerClass(String internalClassName, Method method) {
+        ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        classWriter.visit(V1_5, ACC_PUBLIC | ACC_FINAL | ACC_SYNTHETIC, internalClassName, null,
+                SHADOW_INVOKER_TYPE.getInternalName(), null);
+
+        GeneratorAdapter ctor = new GeneratorAdapter(ACC_PUBLIC, CONSTRUCTOR, null, null, classWriter);
+        ctor.loadThis();
+        ctor.invokeConstructor(SHADOW_INVOKER_TYPE, CONSTRUCTOR);
+        ctor.returnValue();
+        ctor.endMethod();
+
+        GeneratorAdapter m = new GeneratorAdapter(ACC_PUBLIC, INVOKE_METHOD, null,
+                new Type[]{Type.getType(Throwable.class)}, classWriter);
+        loadShadow(m, method);
+
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            m.loadArg(1);                                              // [shadow], ..., params
+            m.push(i);
+            m.arrayLoad(OBJECT_TYPE);                                  // [shadow], ..., params[i]
+            m.unbox(Type.getType(parameterTypes[i]));                  // [shadow], ..., (T) params[i]
+        }
+
+        invokeShadowMethod(m, method);
+
+        Type returnType = Type.getReturnType(method);
+        if (returnType.getSort() == Type.VOID) {
+            m.visitInsn(ACONST_NULL);
+        } else {
+            m.box(returnType);
+        }
+        m.returnValue();
+        m.endMethod();
+
+        if (PrimitiveValues.canEncode(method)) {
+            generateInvokePrimitiveMethod(classWriter, method);
+        }
+
+        classWriter.visitEnd();
+        return classWriter.toByteArray();
+    }
+
+    private static void generateInvokePrimitiveMethod(ClassWriter classWriter, Method method) {
+        GeneratorAdapter m = new GeneratorAdapter(ACC_PUBLIC, INVOKE_PRIMITIVE_METHOD, null,
+                new Type[]{Type.getType(Throwable.class)}, classWriter);
+        loadShadow(m, method);
+
+        Type[] argumentTypes = Type.getArgumentTypes(method);
+        for (int i = 0; i < argumentTypes.length; i++) {
+            m.loadArg(1 + i);                                          // [shadow], ..., argi
+            PrimitiveValues.decode(m, argumentTypes[i]);               // [shadow], ..., (T) argi
+        }
+
+        invokeShadowMethod(m, method);
+
+        PrimitiveValues.encode(m, Type.getReturnType(method));
+        m.returnValue();
+        m.endMethod();
+    }
+
+    private static void loadShadow(GeneratorAdapter m, Method method) {
+        if (!Modifier.isStatic(method.getModifiers())) {
+            m.loadArg(0);                                              // shadow
+            m.checkCast(Type.getType(method.getDeclaringClass()));
+        }
+    }
+
+    private static void invokeShadowMethod(GeneratorAdapter m, Method method) {
+        Type ownerType = Type.getType(method.getDeclaringClass());
+        org.objectweb.asm.commons.Method asmMethod = org.objectweb.asm.commons.Method.getMethod(method);
+        if (Modifier.isStatic(method.getModifiers())) {
+            m.invokeStatic(ownerType, asmMethod);
+        } else {
+            m.invokeVirtual(ownerType, asmMethod);
+        }
+    }
+
+    private static boolean isAccessible(Method method) {
+        if (!Modifier.isPublic(method.getModifiers())) return false;
+        if (!isAccessible(method.getDeclaringClass())) return false;
+        for (Class<?> parameterType : method.getParameterTypes()) {
+            if (!isAccessible(parameterType)) return false;
+        }
+        return true;
+    }
+
+    private static boolean isAccessible(Class<?> clazz) {
+        while (clazz.isArray()) {
+            clazz = clazz.getComponentType();
+        }
+        if (clazz.isPrimitive()) return true;
+        for (Class<?> c = clazz; c != null; c = c.getEnclosingClass()) {
+            if (!Modifier.isPublic(c.getModifiers())) return false;
+        }
+        return true;
+    }
+
+    private static class InvokerClassLoader extends ClassLoader {
+        InvokerClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        @Override
+        protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            Class<?> loadedClass = findLoadedClass(name);
+            if (loadedClass != null) return loadedClass;
+
+            // go through the public entry point, which is what InstrumentingClassLoaders override
+            return getParent() == null ? super.loadClass(name, resolve) : getParent().loadClass(name);
+        }
+
+        Class<?> define(String className, byte[] bytes) {
+            return defineClass(className, bytes, 0, bytes.length);
+        }
+    }
+}
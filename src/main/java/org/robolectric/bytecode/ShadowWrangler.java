@@ -17,9 +17,15 @@ import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import static java.util.Arrays.asList;
 
@@ -32,19 +38,22 @@ public class ShadowWrangler implements ClassHandler {
     };
     private static final int MAX_CALL_DEPTH = 200;
     private static final boolean STRIP_SHADOW_STACK_TRACES = true;
+    // hits are counted on every intercepted call, so spread them over padded slots to keep threads off each other's cache lines
+    private static final int HIT_COUNTER_STRIPES = 16;
+    private static final int HIT_COUNTER_STRIDE = 8;
 
     private final Setup setup;
 
     public boolean debug = false;
+    public boolean useGeneratedInvokers = true;
     private boolean strictI18n = false;
 
-    private final Map<InvocationProfile, InvocationPlan> invocationPlans = new LinkedHashMap<InvocationProfile, InvocationPlan>() {
-        @Override
-        protected boolean removeEldestEntry(Map.Entry<InvocationProfile, InvocationPlan> eldest) {
-            return size() > 500;
-        }
-    };
+    private final ConcurrentMap<Class, ClassPlans> classPlans = new ConcurrentHashMap<Class, ClassPlans>();
+    private final AtomicLongArray planCacheHits = new AtomicLongArray(HIT_COUNTER_STRIPES * HIT_COUNTER_STRIDE);
+    private final AtomicLong planCacheMisses = new AtomicLong();
+    private final AtomicLong planCacheEvictions = new AtomicLong();
     private final Map<Class, MetaShadow> metaShadowMap = new HashMap<Class, MetaShadow>();
+    private final ShadowInvokerFactory shadowInvokerFactory = new ShadowInvokerFactory();
     private ShadowMap shadowClassMap = null;
     private boolean logMissingShadowMethods = false;
     private static ThreadLocal<Info> infos = new ThreadLocal<Info>() {
@@ -55,9 +64,29 @@ public class ShadowWrangler implements ClassHandler {
     };
 
     public void setShadowMap(ShadowMap shadowMap) {
+        if (shadowMap != shadowClassMap) {
+            // plans bake in which shadow class declares each method, so they're only good for the map they were made for
+            evictInvocationPlans();
+        }
         this.shadowClassMap = shadowMap;
     }
 
+    private void evictInvocationPlans() {
+        for (Iterator<ClassPlans> iterator = classPlans.values().iterator(); iterator.hasNext(); ) {
+            ClassPlans plans = iterator.next();
+            iterator.remove();
+            planCacheEvictions.addAndGet(plans.size());
+        }
+    }
+
+    public PlanCacheStats getPlanCacheStats() {
+        long hits = 0;
+        for (int i = 0; i < HIT_COUNTER_STRIPES; i++) {
+            hits += planCacheHits.get(i * HIT_COUNTER_STRIDE);
+        }
+        return new PlanCacheStats(hits, planCacheMisses.get(), planCacheEvictions.get());
+    }
+
     private static class Info {
         private int callDepth = 0;
     }
@@ -102,112 +131,152 @@ public class ShadowWrangler implements ClassHandler {
         return buf.toString();
     }
 
-    class InvocationProfile {
-        private final Class clazz;
-        private final Class shadowClass;
-        private final String methodName;
-        private final boolean isStatic;
-        private final String[] paramTypes;
-        private final int hashCode;
-
-        InvocationProfile(Class clazz, Class shadowClass, String methodName, boolean aStatic, String[] paramTypes) {
-            this.clazz = clazz;
-            this.shadowClass = shadowClass;
-            this.methodName = methodName;
-            isStatic = aStatic;
-            this.paramTypes = paramTypes;
-
-            // calculate hashCode early
-            int result = clazz.hashCode();
-            result = 31 * result + (shadowClass != null ? shadowClass.hashCode() : 0);
-            result = 31 * result + methodName.hashCode();
-            result = 31 * result + (isStatic ? 1 : 0);
-            result = 31 * result + Arrays.hashCode(paramTypes);
-            hashCode = result;
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-
-            InvocationProfile that = (InvocationProfile) o;
-
-            if (isStatic != that.isStatic) return false;
-            if (!clazz.equals(that.clazz)) return false;
-            if (!methodName.equals(that.methodName)) return false;
-            if (!Arrays.equals(paramTypes, that.paramTypes)) return false;
-            if (shadowClass != null ? !shadowClass.equals(that.shadowClass) : that.shadowClass != null) return false;
-
-            return true;
+    @Override
+    public Object methodInvoked(Class clazz, String methodName, Object instance, String[] paramTypes, Object[] params) throws Exception {
+        Info info = infos.get();
+        if (info.callDepth > MAX_CALL_DEPTH) throw stripStackTrace(new StackOverflowError("too deep!"));
+        try {
+            info.callDepth++;
+            InvocationPlan invocationPlan = getInvocationPlan(clazz, methodName, instance, paramTypes);
+            return invoke(invocationPlan, clazz, methodName, instance, paramTypes, params, info);
+        } finally {
+            info.callDepth--;
         }
+    }
 
-        @Override
-        public int hashCode() {
-            return hashCode;
+    @Override
+    public Object methodInvoked(Class clazz, int methodId, Object instance, Object[] params) throws Exception {
+        Info info = infos.get();
+        if (info.callDepth > MAX_CALL_DEPTH) throw stripStackTrace(new StackOverflowError("too deep!"));
+        try {
+            info.callDepth++;
+            InvocationPlan invocationPlan = getInvocationPlan(clazz, methodId, instance);
+            return invoke(invocationPlan, clazz, invocationPlan.methodName, instance, invocationPlan.paramTypes, params, info);
+        } finally {
+            info.callDepth--;
         }
     }
 
     @Override
-    public Object methodInvoked(Class clazz, String methodName, Object instance, String[] paramTypes, Object[] params) throws Exception {
+    public long primitiveMethodInvoked(Class clazz, int methodId, Object instance, long arg0, long arg1, long arg2) throws Exception {
         Info info = infos.get();
         if (info.callDepth > MAX_CALL_DEPTH) throw stripStackTrace(new StackOverflowError("too deep!"));
         try {
             info.callDepth++;
-            InvocationPlan invocationPlan = getInvocationPlan(clazz, methodName, instance, paramTypes);
-            try {
-                boolean hasShadowImplementation = invocationPlan.hasShadowImplementation();
-                if (debug) {
-                    System.out.println(indent(info.callDepth) + " -> " +
-                            clazz.getName() + "." + methodName + "(" + Join.join(", ", paramTypes) + "): "
-                            + (hasShadowImplementation ? "shadowed by " + (instance == null ? "?" : invocationPlan.getDeclaredShadowClass().getName()) : "direct"));
+            InvocationPlan invocationPlan = getInvocationPlan(clazz, methodId, instance);
+            if (!debug && invocationPlan.hasShadowImplementation() && invocationPlan.canInvokePrimitive()
+                    && (!strictI18n || invocationPlan.isI18nSafe())) {
+                try {
+                    return invocationPlan.invokePrimitive(instance == null ? null : shadowOf(instance), arg0, arg1, arg2);
+                } catch (IllegalArgumentException e) {
+                    throw notAssignable(invocationPlan, instance, e);
+                } catch (InvocationTargetException e) {
+                    throw unwrap(e);
                 }
+            }
 
-                if (!hasShadowImplementation) {
-                    reportNoShadowMethodFound(clazz, methodName, paramTypes);
-                    if (invocationPlan.shouldDelegateToRealMethodWhenMethodShadowIsMissing()) {
-                        return invocationPlan.callOriginal(instance, params);
-                    } else {
-                        return null;
-                    }
-                }
+            // missing shadows, calls through to the real method, etc. take the usual path
+            Object[] params = PrimitiveValues.decode(invocationPlan.paramClasses, arg0, arg1, arg2);
+            Object result = invoke(invocationPlan, clazz, invocationPlan.methodName, instance, invocationPlan.paramTypes, params, info);
+            return PrimitiveValues.encode(result, invocationPlan.returnClass);
+        } finally {
+            info.callDepth--;
+        }
+    }
 
-                // todo: a little strange that this lives here...
-                if (strictI18n && !invocationPlan.isI18nSafe()) {
-                    throw new I18nException("Method " + methodName + " on class " + clazz.getName() + " is not i18n-safe.");
-                }
+    private Object invoke(InvocationPlan invocationPlan, Class clazz, String methodName, Object instance, String[] paramTypes, Object[] params, Info info) throws Exception {
+        try {
+            boolean hasShadowImplementation = invocationPlan.hasShadowImplementation();
+            if (debug) {
+                System.out.println(indent(info.callDepth) + " -> " +
+                        clazz.getName() + "." + methodName + "(" + Join.join(", ", paramTypes) + "): "
+                        + (hasShadowImplementation ? "shadowed by " + (instance == null ? "?" : invocationPlan.getDeclaredShadowClass().getName()) : "direct"));
+            }
 
-                return invocationPlan.getMethod().invoke(instance == null ? null : shadowOf(instance), params);
-            } catch (IllegalArgumentException e) {
-                Object shadow = instance == null ? null : shadowOf(instance);
-                Class<? extends Object> aClass = shadow == null ? null : shadow.getClass();
-                String aClassName = aClass == null ? "<unknown class>" : aClass.getName();
-                throw new RuntimeException(aClassName + " is not assignable from " +
-                        invocationPlan.getDeclaredShadowClass().getName(), e);
-            } catch (InvocationTargetException e) {
-                Throwable cause = e.getCause();
-                if (cause instanceof Exception) {
-                    throw stripStackTrace((Exception) cause);
+            if (!hasShadowImplementation) {
+                reportNoShadowMethodFound(clazz, methodName, paramTypes);
+                if (invocationPlan.shouldDelegateToRealMethodWhenMethodShadowIsMissing()) {
+                    return invocationPlan.callOriginal(instance, params);
+                } else {
+                    return null;
                 }
-                throw new RuntimeException(cause);
             }
-        } finally {
-            info.callDepth--;
+
+            // todo: a little strange that this lives here...
+            if (strictI18n && !invocationPlan.isI18nSafe()) {
+                throw new I18nException("Method " + methodName + " on class " + clazz.getName() + " is not i18n-safe.");
+            }
+
+            return invocationPlan.invoke(instance == null ? null : shadowOf(instance), params);
+        } catch (IllegalArgumentException e) {
+            throw notAssignable(invocationPlan, instance, e);
+        } catch (InvocationTargetException e) {
+            throw unwrap(e);
         }
     }
 
+    private RuntimeException notAssignable(InvocationPlan invocationPlan, Object instance, IllegalArgumentException e) {
+        Object shadow = instance == null ? null : shadowOf(instance);
+        Class<? extends Object> aClass = shadow == null ? null : shadow.getClass();
+        String aClassName = aClass == null ? "<unknown class>" : aClass.getName();
+        return new RuntimeException(aClassName + " is not assignable from " +
+                invocationPlan.getDeclaredShadowClass().getName(), e);
+    }
+
+    private Exception unwrap(InvocationTargetException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof Exception) {
+            return stripStackTrace((Exception) cause);
+        }
+        return new RuntimeException(cause);
+    }
+
     private InvocationPlan getInvocationPlan(Class clazz, String methodName, Object instance, String[] paramTypes) {
         boolean isStatic = instance == null;
-        Class shadowClass = isStatic ? findDirectShadowClass(clazz) : shadowOf(instance).getClass();
-        InvocationProfile invocationProfile = new InvocationProfile(clazz, shadowClass, methodName, isStatic, paramTypes);
-        synchronized (invocationPlans) {
-            InvocationPlan invocationPlan = invocationPlans.get(invocationProfile);
-            if (invocationPlan == null) {
-                invocationPlan = new InvocationPlan(invocationProfile);
-                invocationPlans.put(invocationProfile, invocationPlan);
-            }
+        // static plans don't depend on the instance, so there's no need to look up the shadow class until we miss
+        Class shadowClass = isStatic ? null : shadowOf(instance).getClass();
+
+        ClassPlans plans = getClassPlans(clazz);
+        InvocationPlan invocationPlan = plans.find(methodName, isStatic, shadowClass, paramTypes);
+        if (invocationPlan != null) {
+            countPlanCacheHit();
             return invocationPlan;
         }
+
+        planCacheMisses.incrementAndGet();
+        if (isStatic) shadowClass = findDirectShadowClass(clazz);
+        return plans.add(methodName, new InvocationPlan(clazz, shadowClass, methodName, isStatic, null, paramTypes));
+    }
+
+    private InvocationPlan getInvocationPlan(Class clazz, int methodId, Object instance) {
+        boolean isStatic = instance == null;
+        Class shadowClass = isStatic ? null : shadowOf(instance).getClass();
+
+        ClassPlans plans = getClassPlans(clazz);
+        InvocationPlan invocationPlan = plans.find(methodId, isStatic, shadowClass);
+        if (invocationPlan != null) {
+            countPlanCacheHit();
+            return invocationPlan;
+        }
+
+        planCacheMisses.incrementAndGet();
+        if (isStatic) shadowClass = findDirectShadowClass(clazz);
+        MethodSignature signature = plans.getSignature(methodId);
+        return plans.add(methodId, new InvocationPlan(clazz, shadowClass, signature.methodName, isStatic, signature.returnType, signature.paramTypes));
+    }
+
+    private ClassPlans getClassPlans(Class clazz) {
+        ClassPlans plans = classPlans.get(clazz);
+        if (plans == null) {
+            ClassPlans newPlans = new ClassPlans(clazz);
+            plans = classPlans.putIfAbsent(clazz, newPlans);
+            if (plans == null) plans = newPlans;
+        }
+        return plans;
+    }
+
+    private void countPlanCacheHit() {
+        planCacheHits.incrementAndGet((int) (Thread.currentThread().getId() & (HIT_COUNTER_STRIPES - 1)) * HIT_COUNTER_STRIDE);
     }
 
     @Override
@@ -241,6 +310,7 @@ public class ShadowWrangler implements ClassHandler {
                 String className = stackTraceElement.getClassName();
                 boolean isInternalCall = className.startsWith("sun.reflect.")
                         || className.startsWith("java.lang.reflect.")
+                        || className.contains(ShadowInvokerFactory.GENERATED_CLASS_MARKER)
                         || className.equals(ShadowWrangler.class.getName())
                         || className.equals(RobolectricInternals.class.getName());
                 if (!isInternalCall) {
@@ -413,19 +483,22 @@ public class ShadowWrangler implements ClassHandler {
         private final String methodName;
         private final boolean isStatic;
         private final String[] paramTypes;
+        private final Class<?> returnClass;
 
         private final ClassLoader classLoader;
         private final boolean hasShadowImplementation;
         private Class<?>[] paramClasses;
         private Class<?> declaredShadowClass;
         private Method method;
-
-        public InvocationPlan(InvocationProfile invocationProfile) {
-            this(invocationProfile.clazz, invocationProfile.shadowClass,
-                    invocationProfile.methodName, invocationProfile.isStatic, invocationProfile.paramTypes);
-        }
-
-        public InvocationPlan(Class clazz, Class shadowClass, String methodName, boolean isStatic, String... paramTypes) {
+        private ShadowInvoker invoker;
+        private boolean invokerResolved;
+        private boolean canEncode;
+
+        /**
+         * @param returnType the name of the method's return type, if known; needed to call methods with primitive
+         *                   return types through {@link #primitiveMethodInvoked}
+         */
+        public InvocationPlan(Class clazz, Class shadowClass, String methodName, boolean isStatic, String returnType, String... paramTypes) {
             this.clazz = clazz;
             this.shadowClass = shadowClass;
             this.methodName = methodName.equals("<init>")
@@ -433,11 +506,18 @@ public class ShadowWrangler implements ClassHandler {
                     : methodName;
             this.isStatic = isStatic;
             this.paramTypes = paramTypes;
+            this.returnClass = returnType == null ? null : RoboType.findPrimitiveClass(returnType);
 
             this.classLoader = clazz.getClassLoader();
             this.hasShadowImplementation = prepare();
         }
 
+        boolean matches(boolean isStatic, Class shadowClass, String[] paramTypes) {
+            return this.isStatic == isStatic
+                    && (isStatic || this.shadowClass == shadowClass)
+                    && (paramTypes == null || Arrays.equals(this.paramTypes, paramTypes));
+        }
+
         public boolean hasShadowImplementation() {
             return hasShadowImplementation;
         }
@@ -450,6 +530,46 @@ public class ShadowWrangler implements ClassHandler {
             return method;
         }
 
+        public Object invoke(Object shadow, Object[] params) throws InvocationTargetException, IllegalAccessException {
+            ShadowInvoker invoker = useGeneratedInvokers ? getInvoker() : null;
+            if (invoker != null) {
+                checkShadow(shadow);
+                try {
+                    return invoker.invoke(shadow, params);
+                } catch (Throwable throwable) {
+                    throw new InvocationTargetException(throwable);
+                }
+            }
+            return method.invoke(shadow, params);
+        }
+
+        public boolean canInvokePrimitive() {
+            return useGeneratedInvokers && canEncode && getInvoker() != null;
+        }
+
+        public long invokePrimitive(Object shadow, long arg0, long arg1, long arg2) throws InvocationTargetException {
+            checkShadow(shadow);
+            try {
+                return invoker.invokePrimitive(shadow, arg0, arg1, arg2);
+            } catch (Throwable throwable) {
+                throw new InvocationTargetException(throwable);
+            }
+        }
+
+        private ShadowInvoker getInvoker() {
+            if (!invokerResolved) {
+                invoker = shadowInvokerFactory.getInvoker(method);
+                invokerResolved = true;
+            }
+            return invoker;
+        }
+
+        private void checkShadow(Object shadow) {
+            if (shadow != null && !method.getDeclaringClass().isInstance(shadow)) {
+                throw new IllegalArgumentException("object is not an instance of declaring class");
+            }
+        }
+
         public boolean isI18nSafe() {
             // method is loaded by another class loader. So do everything reflectively.
             Annotation[] annos = method.getAnnotations();
@@ -506,6 +626,9 @@ public class ShadowWrangler implements ClassHandler {
             }
 
             method.setAccessible(true);
+            // the caller decodes the result as the real method's return type, so the shadow's has to match it
+            canEncode = returnClass != null && PrimitiveValues.canDecode(method.getParameterTypes())
+                    && PrimitiveValues.primitiveType(method.getReturnType()) == returnClass;
 
             return true;
         }
@@ -618,6 +741,107 @@ public class ShadowWrangler implements ClassHandler {
         }
     }
 
+    /**
+     * Invocation plans for the methods of a single instrumented class, found either by the method id assigned at
+     * instrumentation time or by method name and parameter types. Lookups don't lock or allocate; adding a plan
+     * copies the (short) list of plans for that method.
+     */
+    private class ClassPlans {
+        private final Class clazz;
+        private final ConcurrentMap<String, InvocationPlan[]> plansByMethodName = new ConcurrentHashMap<String, InvocationPlan[]>();
+        private volatile AtomicReferenceArray<InvocationPlan[]> plansByMethodId;
+        private MethodSignature[] signatures;
+        private int size;
+
+        ClassPlans(Class clazz) {
+            this.clazz = clazz;
+        }
+
+        InvocationPlan find(String methodName, boolean isStatic, Class shadowClass, String[] paramTypes) {
+            return find(plansByMethodName.get(methodName), isStatic, shadowClass, paramTypes);
+        }
+
+        InvocationPlan find(int methodId, boolean isStatic, Class shadowClass) {
+            AtomicReferenceArray<InvocationPlan[]> plansByMethodId = this.plansByMethodId;
+            if (plansByMethodId == null) return null;
+            // all plans for a method id share its parameter types
+            return find(plansByMethodId.get(methodId), isStatic, shadowClass, null);
+        }
+
+        private InvocationPlan find(InvocationPlan[] plans, boolean isStatic, Class shadowClass, String[] paramTypes) {
+            if (plans != null) {
+                for (InvocationPlan plan : plans) {
+                    if (plan.matches(isStatic, shadowClass, paramTypes)) return plan;
+                }
+            }
+            return null;
+        }
+
+        synchronized MethodSignature getSignature(int methodId) {
+            if (signatures == null) {
+                signatures = MethodSignature.allFor(clazz);
+            }
+            return signatures[methodId];
+        }
+
+        synchronized InvocationPlan add(String methodName, InvocationPlan invocationPlan) {
+            InvocationPlan[] plans = plansByMethodName.get(methodName);
+            InvocationPlan existingPlan = find(plans, invocationPlan.isStatic, invocationPlan.shadowClass, invocationPlan.paramTypes);
+            if (existingPlan != null) return existingPlan;
+
+            plansByMethodName.put(methodName, append(plans, invocationPlan));
+            size++;
+            return invocationPlan;
+        }
+
+        synchronized InvocationPlan add(int methodId, InvocationPlan invocationPlan) {
+            if (plansByMethodId == null) {
+                plansByMethodId = new AtomicReferenceArray<InvocationPlan[]>(signatures.length);
+            }
+            InvocationPlan[] plans = plansByMethodId.get(methodId);
+            InvocationPlan existingPlan = find(plans, invocationPlan.isStatic, invocationPlan.shadowClass, null);
+            if (existingPlan != null) return existingPlan;
+
+            plansByMethodId.set(methodId, append(plans, invocationPlan));
+            size++;
+            return invocationPlan;
+        }
+
+        private InvocationPlan[] append(InvocationPlan[] plans, InvocationPlan invocationPlan) {
+            if (plans == null) {
+                return new InvocationPlan[]{invocationPlan};
+            }
+            InvocationPlan[] newPlans = Arrays.copyOf(plans, plans.length + 1);
+            newPlans[plans.length] = invocationPlan;
+            return newPlans;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+    }
+
+    public static class PlanCacheStats {
+        public final long hits;
+        public final long misses;
+        public final long evictions;
+
+        public PlanCacheStats(long hits, long misses, long evictions) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+        }
+
+        @Override
+        public String toString() {
+            return "PlanCacheStats{" +
+                    "hits=" + hits +
+                    ", misses=" + misses +
+                    ", evictions=" + evictions +
+                    '}';
+        }
+    }
+
     private class MetaShadow {
         List<Field> realObjectFields = new ArrayList<Field>();
 
@@ -10,12 +10,13 @@ import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 import java.io.File;
+import java.io.Serializable;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
-public class AttrResourceLoader extends XmlLoader {
+public class AttrResourceLoader extends XmlLoader implements Serializable {
     Map<String, EnumDef> enums = new HashMap<String, EnumDef>();
     Map<String, EnumRef> enumRefs = new HashMap<String, EnumRef>();
     boolean resolved = false;
@@ -23,14 +24,14 @@ public class AttrResourceLoader extends XmlLoader {
     Map<String, String> classEnumToValue = new HashMap<String, String>();
     Set<String> knownClassEnums = new HashSet<String>();
   
-    static class EnumDef {
+    static class EnumDef implements Serializable {
         final String name;
         final Map<String, String> values = new HashMap<String, String>();
 
         EnumDef(String name) { this.name = name; }
     }
 
-    static class EnumRef {
+    static class EnumRef implements Serializable {
         final String viewName;
         final String enumName;
 
@@ -40,6 +41,17 @@ public class AttrResourceLoader extends XmlLoader {
         }
     }
 
+    void addAll(AttrResourceLoader other) {
+        for (EnumDef enumDef : other.enums.values()) {
+            for (Map.Entry<String, String> entry : enumDef.values.entrySet()) {
+                addGlobalEnumValue(enumDef.name, entry.getKey(), entry.getValue());
+            }
+        }
+        enumRefs.putAll(other.enumRefs);
+        classEnumToValue.putAll(other.classEnumToValue);
+        knownClassEnums.addAll(other.knownClassEnums);
+    }
+
     @Override protected void processResourceXml(File xmlFile, Document document, XmlContext xmlContext) throws Exception {
 
         // Pick up inline enum definitions
@@ -52,8 +64,7 @@ public class AttrResourceLoader extends XmlLoader {
                 String name = node.getAttributes().getNamedItem("name").getNodeValue();
                 String value = node.getAttributes().getNamedItem("value").getNodeValue();
 
-                classEnumToValue.put(key(viewName, enumName, name), value);
-                knownClassEnums.add(key(viewName, enumName));
+                addInlineEnumValue(viewName, enumName, name, value);
             }
         }
 
@@ -64,12 +75,7 @@ public class AttrResourceLoader extends XmlLoader {
                 Node node = nodeList.item(i);
 
                 String enumName = enumName(node.getParentNode().getAttributes().getNamedItem("name").getNodeValue(), xmlContext.packageName);
-                EnumDef enumDef = enums.get(enumName);
-                if (enumDef == null) {
-                    enumDef = new EnumDef(enumName);
-                    enums.put(enumName, enumDef);
-                }
-                enumDef.values.put(node.getAttributes().getNamedItem("name").getNodeValue(),
+                addGlobalEnumValue(enumName, node.getAttributes().getNamedItem("name").getNodeValue(),
                         node.getAttributes().getNamedItem("value").getNodeValue());
             }
         }
@@ -83,9 +89,62 @@ public class AttrResourceLoader extends XmlLoader {
                 String viewName = node.getParentNode().getAttributes().getNamedItem("name").getNodeValue();
                 String enumName = enumName(node.getAttributes().getNamedItem("name").getNodeValue(), xmlContext.packageName);
 
-                enumRefs.put(key(viewName, enumName), new EnumRef(viewName, enumName));
+                addEnumRef(viewName, enumName);
+            }
+        }
+    }
+
+    @Override protected boolean registerElementHandlers(StreamingDocumentLoader documentLoader) {
+        documentLoader.addHandler("resources/declare-styleable", new StreamingDocumentLoader.ElementHandler() {
+            @Override public void handle(XmlElement styleable, XmlContext xmlContext) {
+                String viewName = styleable.getAttribute("name");
+                for (XmlElement attr : styleable.getChildren("attr")) {
+                    String enumName = enumName(attr.getAttribute("name"), xmlContext.packageName);
+                    if (!attr.hasChildNodes()) {
+                        addEnumRef(viewName, enumName);
+                    }
+                    for (XmlElement value : attr.getChildren()) {
+                        if (isEnumOrFlag(value)) {
+                            addInlineEnumValue(viewName, enumName, value.getAttribute("name"), value.getAttribute("value"));
+                        }
+                    }
+                }
+            }
+        });
+
+        documentLoader.addHandler("resources/attr", new StreamingDocumentLoader.ElementHandler() {
+            @Override public void handle(XmlElement attr, XmlContext xmlContext) {
+                String enumName = enumName(attr.getAttribute("name"), xmlContext.packageName);
+                for (XmlElement value : attr.getChildren()) {
+                    if (isEnumOrFlag(value)) {
+                        addGlobalEnumValue(enumName, value.getAttribute("name"), value.getAttribute("value"));
+                    }
+                }
             }
+        });
+        return true;
+    }
+
+    private boolean isEnumOrFlag(XmlElement element) {
+        return element.getName().equals("enum") || element.getName().equals("flag");
+    }
+
+    private void addInlineEnumValue(String viewName, String enumName, String name, String value) {
+        classEnumToValue.put(key(viewName, enumName, name), value);
+        knownClassEnums.add(key(viewName, enumName));
+    }
+
+    private void addGlobalEnumValue(String enumName, String name, String value) {
+        EnumDef enumDef = enums.get(enumName);
+        if (enumDef == null) {
+            enumDef = new EnumDef(enumName);
+            enums.put(enumName, enumDef);
         }
+        enumDef.values.put(name, value);
+    }
+
+    private void addEnumRef(String viewName, String enumName) {
+        enumRefs.put(key(viewName, enumName), new EnumRef(viewName, enumName));
     }
 
     public String convertValueToEnum(Class<? extends View> viewClass, String namespace, String attrName, String attrValue) {
@@ -3,6 +3,7 @@ package org.robolectric.res;
 import org.jetbrains.annotations.NotNull;
 import org.w3c.dom.Node;
 
+import java.io.Serializable;
 import java.net.URLEncoder;
 import java.util.List;
 import java.util.logging.Level;
@@ -10,7 +11,7 @@ import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-public class Attribute {
+public class Attribute implements Serializable {
     private static final Logger LOGGER = Logger.getLogger(Attribute.class.getName());
     private static final Pattern NS_URI_PATTERN = Pattern.compile("^http://schemas.android.com/apk/res/(.*)$");
     private static final String RES_AUTO_NS_URI = "http://schemas.android.com/apk/res-auto";
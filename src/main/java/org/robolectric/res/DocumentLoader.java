@@ -50,7 +50,7 @@ public class DocumentLoader {
         }
     }
 
-    private void loadResourceXmlFile(File file, String packageName) throws Exception {
+    protected void loadResourceXmlFile(File file, String packageName) throws Exception {
         Document document = parse(file);
         for (XmlLoader xmlLoader : xmlLoaders) {
             xmlLoader.processResourceXml(file, document, packageName);
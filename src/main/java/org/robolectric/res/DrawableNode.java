@@ -3,7 +3,9 @@ package org.robolectric.res;
 import org.jetbrains.annotations.NotNull;
 import org.w3c.dom.Document;
 
-public abstract class DrawableNode {
+import java.io.Serializable;
+
+public abstract class DrawableNode implements Serializable {
     public static class Xml extends DrawableNode {
         public final @NotNull Document document;
         public final @NotNull XmlLoader.XmlContext xmlContext;
@@ -51,6 +51,13 @@ public class DrawableResourceLoader extends XmlLoader {
         listNinePatchResources(resourcePath, resourcePath.resourceBase);
     }
 
+    /**
+     * Like {@link #findNinePatchResources(ResourcePath)}, but only looks in a single drawable directory.
+     */
+    public void findNinePatchResources(ResourcePath resourcePath, File drawableDir) {
+        listNinePatchResources(resourcePath, drawableDir);
+    }
+
     private void listNinePatchResources(ResourcePath resourcePath, File dir) {
         DirectoryMatchingFileFilter drawableFilter = new DirectoryMatchingFileFilter("drawable");
         File[] files = dir.listFiles();
@@ -0,0 +1,111 @@
+package org.robolectric.res;
+
+/**
+ * Open-addressing map from int to non-null values, so looking up a resource id doesn't box it.
+ *
+ * Not thread-safe for writes; once it's been filled in and safely published, any number of threads can read it.
+ */
+class IntMap<V> {
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+
+    IntMap() {
+        this(MIN_CAPACITY);
+    }
+
+    IntMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) capacity <<= 1;
+        keys = new int[capacity];
+        values = new Object[capacity];
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            Object value = values[i];
+            if (value == null) return null;
+            if (keys[i] == key) return (V) value;
+        }
+    }
+
+    boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    /**
+     * @return the value previously mapped to the key, or null
+     */
+    @SuppressWarnings("unchecked")
+    V put(int key, V value) {
+        if (value == null) throw new NullPointerException("null values aren't supported");
+
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            Object oldValue = values[i];
+            if (oldValue == null) {
+                keys[i] = key;
+                values[i] = value;
+                if (++size * 2 > keys.length) grow();
+                return null;
+            }
+            if (keys[i] == key) {
+                values[i] = value;
+                return (V) oldValue;
+            }
+        }
+    }
+
+    void putAll(IntMap<? extends V> other) {
+        for (int i = 0; i < other.keys.length; i++) {
+            if (other.values[i] != null) {
+                put(other.keys[i], IntMap.<V>valueAt(other.values, i));
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int maxKey() {
+        if (size == 0) throw new IllegalStateException("empty");
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] != null && keys[i] > max) max = keys[i];
+        }
+        return max;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new Object[oldValues.length * 2];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                put(oldKeys[i], IntMap.<V>valueAt(oldValues, i));
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V valueAt(Object[] values, int i) {
+        return (V) values[i];
+    }
+
+    private static int hash(int key) {
+        // resource ids are 0xPPTTEEEE, so mix the package and type bits into the low ones
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -6,7 +6,7 @@ import java.util.List;
 import java.util.Map;
 
 class OverlayResourceIndex extends ResourceIndex {
-    private final String packageName;
+    private final Map<String, Map<String, Integer>> idsByTypeAndName = new HashMap<String, Map<String, Integer>>();
 
     public OverlayResourceIndex(String packageName, List<PackageResourceLoader> subResourceLoaders) {
         this(packageName, map(subResourceLoaders));
@@ -21,32 +21,40 @@ class OverlayResourceIndex extends ResourceIndex {
     }
 
     public OverlayResourceIndex(String packageName, ResourceIndex... subResourceIndexes) {
-        this.packageName = packageName;
-
         final ResEntries resEntries = new ResEntries();
         for (ResourceIndex subResourceIndex : subResourceIndexes) {
             for (Map.Entry<ResName, Integer> entry : subResourceIndex.resourceNameToId.entrySet()) {
                 ResName resName = entry.getKey();
-                int value = entry.getValue();
+                Integer value = entry.getValue();
                 ResName localResName = resName.withPackageName(packageName);
                 if (OverlayResourceLoader.DEBUG) resEntries.add(localResName, resName, value);
-                resourceNameToId.put(localResName, value);
-                resourceIdToResName.put(value, localResName);
+                put(localResName, value);
+                idsByName(localResName.type).put(localResName.name, resourceNameToId.get(localResName));
             }
         }
 
 //        if (OverlayResourceLoader.DEBUG) resEntries.check(subResourceIndexes);
     }
 
+    private Map<String, Integer> idsByName(String type) {
+        Map<String, Integer> idsByName = idsByTypeAndName.get(type);
+        if (idsByName == null) {
+            idsByName = new HashMap<String, Integer>();
+            idsByTypeAndName.put(type, idsByName);
+        }
+        return idsByName;
+    }
+
     @Override
     public Integer getResourceId(ResName resName) {
-        return resourceNameToId.get(resName.withPackageName(packageName));
+        // everything here belongs to our package, so ignore resName's and don't allocate a copy in ours
+        Map<String, Integer> idsByName = idsByTypeAndName.get(resName.type);
+        return idsByName == null ? null : idsByName.get(resName.name);
     }
 
     @Override
     public ResName getResName(int resourceId) {
-        ResName resName = resourceIdToResName.get(resourceId);
-        return resName == null ? null : resName.withPackageName(packageName);
+        return resourceIdToResName.get(resourceId);
     }
 
     class ResEntries {
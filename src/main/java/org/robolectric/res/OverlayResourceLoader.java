@@ -17,27 +17,21 @@ public class OverlayResourceLoader extends XResourceLoader {
     }
 
     @Override
-    void doInitialize() {
+    void load(ResourceCategory category) {
+        ResBundle<?>[] bundles = bundlesFor(category);
         for (PackageResourceLoader subResourceLoader : subResourceLoaders) {
-            subResourceLoader.initialize();
-
-            booleanResolver.mergeLibraryStyle(subResourceLoader.booleanResolver, packageName);
-            colorResolver.mergeLibraryStyle(subResourceLoader.colorResolver, packageName);
-            dimenResolver.mergeLibraryStyle(subResourceLoader.dimenResolver, packageName);
-            integerResolver.mergeLibraryStyle(subResourceLoader.integerResolver, packageName);
-            pluralsResolver.mergeLibraryStyle(subResourceLoader.pluralsResolver, packageName);
-            stringResolver.mergeLibraryStyle(subResourceLoader.stringResolver, packageName);
-            viewNodes.mergeLibraryStyle(subResourceLoader.viewNodes, packageName);
-            menuNodes.mergeLibraryStyle(subResourceLoader.menuNodes, packageName);
-            drawableNodes.mergeLibraryStyle(subResourceLoader.drawableNodes, packageName);
-            preferenceNodes.mergeLibraryStyle(subResourceLoader.preferenceNodes, packageName);
-            xmlDocuments.mergeLibraryStyle(subResourceLoader.xmlDocuments, packageName);
+            subResourceLoader.initialize(category);
+
+            ResBundle<?>[] subBundles = subResourceLoader.bundlesFor(category);
+            for (int i = 0; i < bundles.length; i++) {
+                ResBundle.mergeLibraryStyle(bundles[i], subBundles[i], packageName);
+            }
         }
     }
 
     @Override
     public boolean hasAttributeFor(Class<? extends View> viewClass, String namespace, String attribute) {
-        initialize();
+        initialize(ResourceCategory.VALUES);
 
         // todo: this sucks
         for (PackageResourceLoader subResourceLoader : subResourceLoaders) {
@@ -49,7 +43,7 @@ public class OverlayResourceLoader extends XResourceLoader {
 
     @Override
     public String convertValueToEnum(Class<? extends View> viewClass, String namespace, String attribute, String part) {
-        initialize();
+        initialize(ResourceCategory.VALUES);
 
         // todo: this sucks
         for (PackageResourceLoader subResourceLoader : subResourceLoaders) {
@@ -2,18 +2,54 @@ package org.robolectric.res;
 
 import org.robolectric.util.I18nException;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 public class PackageResourceLoader extends XResourceLoader {
     ResourcePath resourcePath;
     ResourceIndex resourceIndex;
+    private final ResourceSnapshotCache snapshotCache;
+    private final int loadingThreadCount;
 
     public PackageResourceLoader(ResourcePath resourcePath) {
+        this(resourcePath, null);
+    }
+
+    /**
+     * @param snapshotCache where to keep parsed resources between runs, or null to parse them every time
+     */
+    public PackageResourceLoader(ResourcePath resourcePath, ResourceSnapshotCache snapshotCache) {
+        this(resourcePath, snapshotCache, 1);
+    }
+
+    /**
+     * @param snapshotCache where to keep parsed resources between runs, or null to parse them every time
+     * @param loadingThreadCount how many resource directories (e.g. "values-fr", "layout-land") to parse at once
+     */
+    public PackageResourceLoader(ResourcePath resourcePath, ResourceSnapshotCache snapshotCache, int loadingThreadCount) {
         super(new ResourceExtractor(resourcePath));
+        if (loadingThreadCount < 1) throw new IllegalArgumentException("need at least one thread, not " + loadingThreadCount);
         this.resourcePath = resourcePath;
+        this.snapshotCache = snapshotCache;
+        this.loadingThreadCount = loadingThreadCount;
     }
 
-    void doInitialize() {
+    @Override
+    void load(ResourceCategory category) {
         try {
-            loadEverything();
+            if (category == ResourceCategory.RAW) {
+                rawResourceLoaders.add(new RawResourceLoader(resourceIndex, resourcePath.resourceBase));
+                loadOtherResources(resourcePath);
+            } else {
+                loadXml(category);
+            }
         } catch (I18nException e) {
             throw e;
         } catch (Exception e) {
@@ -21,32 +57,117 @@ public class PackageResourceLoader extends XResourceLoader {
         }
     }
 
-    private void loadEverything() throws Exception {
-        System.out.println("DEBUG: Loading resources for " + resourcePath.getPackageName() + " from " + resourcePath.resourceBase + "...");
+    private void loadXml(ResourceCategory category) throws Exception {
+        AttrResourceLoader attrResourceLoader = category == ResourceCategory.VALUES ? this.attrResourceLoader : null;
+        Map<String, Long> fileTimestamps = null;
+        if (snapshotCache != null) {
+            fileTimestamps = ResourceSnapshot.fileTimestamps(resourcePath, category.folderBaseName);
+            ResourceSnapshot snapshot = snapshotCache.read(resourcePath, category);
+            if (snapshot != null && snapshot.isUpToDate(fileTimestamps)) {
+                snapshot.copyTo(attrResourceLoader, bundlesFor(category));
+                return;
+            }
+        }
+
+        loadDirs(category);
 
-        new DocumentLoader(
-                new ValueResourceLoader(booleanResolver, "bool", false),
-                new ValueResourceLoader(colorResolver, "color", false),
-                new ValueResourceLoader(dimenResolver, "dimen", false),
-                new ValueResourceLoader(integerResolver, "integer", true),
-                new PluralResourceLoader(resourceIndex, pluralsResolver),
-                new ValueResourceLoader(stringResolver, "string", true),
-                attrResourceLoader
-        ).loadResourceXmlSubDirs(resourcePath, "values");
+        if (snapshotCache != null) {
+            snapshotCache.write(resourcePath, category, new ResourceSnapshot(fileTimestamps, attrResourceLoader, bundlesFor(category)));
+        }
+    }
 
-        new DocumentLoader(new ViewLoader(viewNodes)).loadResourceXmlSubDirs(resourcePath, "layout");
-        new DocumentLoader(new MenuLoader(menuNodes)).loadResourceXmlSubDirs(resourcePath, "menu");
-        DrawableResourceLoader drawableResourceLoader = new DrawableResourceLoader(drawableNodes);
-        drawableResourceLoader.findNinePatchResources(resourcePath);
-        new DocumentLoader(drawableResourceLoader).loadResourceXmlSubDirs(resourcePath, "drawable");
-        new DocumentLoader(new PreferenceLoader(preferenceNodes)).loadResourceXmlSubDirs(resourcePath, "xml");
-        new DocumentLoader(new XmlFileLoader(xmlDocuments)).loadResourceXmlSubDirs(resourcePath, "xml");
+    /**
+     * Loads each of the category's resource directories, either right into this loader or, if there's more than one
+     * loading thread, concurrently into a scratch loader per directory. Scratch loaders are merged back in the same
+     * order the directories would have been loaded in sequentially, so the results are the same either way.
+     */
+    private void loadDirs(final ResourceCategory category) throws Exception {
+        final File[] dirs = resourcePath.resourceBase.listFiles(new DirectoryMatchingFileFilter(category.folderBaseName));
+        if (dirs == null) {
+            throw new RuntimeException(resourcePath.resourceBase + " is not a directory");
+        }
 
-        loadOtherResources(resourcePath);
+        if (loadingThreadCount == 1 || dirs.length < 2) {
+            for (File dir : dirs) {
+                loadDir(this, category, dir);
+            }
+            return;
+        }
 
-        rawResourceLoaders.add(new RawResourceLoader(resourceIndex, resourcePath.resourceBase));
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.min(loadingThreadCount, dirs.length));
+        try {
+            List<Future<XResourceLoader>> futures = new ArrayList<Future<XResourceLoader>>();
+            for (final File dir : dirs) {
+                futures.add(executorService.submit(new Callable<XResourceLoader>() {
+                    @Override public XResourceLoader call() throws Exception {
+                        XResourceLoader scratch = new ScratchResourceLoader(getResourceIndex());
+                        loadDir(scratch, category, dir);
+                        return scratch;
+                    }
+                }));
+            }
+
+            for (Future<XResourceLoader> future : futures) {
+                try {
+                    addAll(future.get(), category);
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Exception) throw (Exception) e.getCause();
+                    if (e.getCause() instanceof Error) throw (Error) e.getCause();
+                    throw e;
+                }
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private void loadDir(XResourceLoader target, ResourceCategory category, File dir) throws Exception {
+        switch (category) {
+            case VALUES:
+                new StreamingDocumentLoader(
+                        new ValueResourceLoader(target.booleanResolver, "bool", false),
+                        new ValueResourceLoader(target.colorResolver, "color", false),
+                        new ValueResourceLoader(target.dimenResolver, "dimen", false),
+                        new ValueResourceLoader(target.integerResolver, "integer", true),
+                        new PluralResourceLoader(resourceIndex, target.pluralsResolver),
+                        new ValueResourceLoader(target.stringResolver, "string", true),
+                        target.attrResourceLoader
+                ).loadResourceXmlDir(resourcePath, dir.getName());
+                break;
+            case LAYOUTS:
+                new DocumentLoader(new ViewLoader(target.viewNodes)).loadResourceXmlDir(resourcePath, dir.getName());
+                break;
+            case MENUS:
+                new DocumentLoader(new MenuLoader(target.menuNodes)).loadResourceXmlDir(resourcePath, dir.getName());
+                break;
+            case DRAWABLES:
+                DrawableResourceLoader drawableResourceLoader = new DrawableResourceLoader(target.drawableNodes);
+                drawableResourceLoader.findNinePatchResources(resourcePath, dir);
+                new DocumentLoader(drawableResourceLoader).loadResourceXmlDir(resourcePath, dir.getName());
+                break;
+            case PREFERENCES:
+                new DocumentLoader(new PreferenceLoader(target.preferenceNodes)).loadResourceXmlDir(resourcePath, dir.getName());
+                break;
+            case XML:
+                new DocumentLoader(new XmlFileLoader(target.xmlDocuments)).loadResourceXmlDir(resourcePath, dir.getName());
+                break;
+            default:
+                throw new IllegalArgumentException(category + " isn't loaded from xml");
+        }
+    }
+
+    private static class ScratchResourceLoader extends XResourceLoader {
+        ScratchResourceLoader(ResourceIndex resourceIndex) {
+            super(resourceIndex);
+        }
+
+        @Override void load(ResourceCategory category) {
+        }
     }
 
+    /**
+     * Called the first time raw resources are needed.
+     */
     protected void loadOtherResources(ResourcePath resourcePath) {
     }
 
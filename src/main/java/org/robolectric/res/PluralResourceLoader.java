@@ -7,6 +7,7 @@ import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -31,7 +32,20 @@ public class PluralResourceLoader extends XpathResourceXmlLoader {
         pluralRulesResBundle.put(attrType, name, rules, xmlContext);
     }
 
-    static class PluralRules {
+    @Override protected boolean registerElementHandlers(StreamingDocumentLoader documentLoader) {
+        documentLoader.addHandler("resources/plurals", new StreamingDocumentLoader.ElementHandler() {
+            @Override public void handle(XmlElement element, XmlContext xmlContext) {
+                PluralRules rules = new PluralRules();
+                for (XmlElement item : element.getChildren("item")) {
+                    rules.add(new Plural(item.getAttribute("quantity"), item.getTextContent()));
+                }
+                pluralRulesResBundle.put("plurals", element.getAttribute("name"), rules, xmlContext);
+            }
+        });
+        return true;
+    }
+
+    static class PluralRules implements Serializable {
         List<Plural> plurals = new ArrayList<Plural>();
 
         Plural find(int quantity) {
@@ -49,7 +63,7 @@ public class PluralResourceLoader extends XpathResourceXmlLoader {
         }
     }
 
-    static class Plural {
+    static class Plural implements Serializable {
         final String quantity, string;
         final int num;
 
@@ -1,28 +1,35 @@
 package org.robolectric.res;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class ResBundle<T> implements Serializable {
+    /**
+     * Every qualifier seen so far, numbered so a value's qualifiers can be kept as a bitset. The numbering is only
+     * good for this JVM, so values work their bitsets out again when they're deserialized.
+     */
+    private static final Map<String, Integer> QUALIFIER_IDS = new ConcurrentHashMap<String, Integer>();
 
-public class ResBundle<T> {
     private final ResMap<T> valuesMap = new ResMap<T>();
     private final ResMap<List<T>> valuesArrayMap = new ResMap<List<T>>();
     private String overrideNamespace;
 
     public void put(String attrType, String name, T value, XmlLoader.XmlContext xmlContext) {
         ResName resName = new ResName(maybeOverride(xmlContext.packageName), attrType, name);
-        Values<T> values = valuesMap.find(resName);
-        values.add(new Value<T>(xmlContext.getQualifiers(), value, xmlContext));
-        Collections.sort(values);
+        valuesMap.add(resName, new Value<T>(xmlContext.getQualifiers(), value, xmlContext));
     }
 
     public void putArray(String attrType, String name, List<T> value, XmlLoader.XmlContext xmlContext) {
         ResName resName = new ResName(maybeOverride(xmlContext.packageName), attrType, name);
-        Values<List<T>> values = valuesArrayMap.find(resName);
-        values.add(new Value<List<T>>(xmlContext.getQualifiers(), value, xmlContext));
-        Collections.sort(values);
+        valuesArrayMap.add(resName, new Value<List<T>>(xmlContext.getQualifiers(), value, xmlContext));
     }
 
     public T get(ResName resName, String qualifiers) {
@@ -31,8 +38,7 @@ public class ResBundle<T> {
     }
 
     public Value<T> getValue(ResName resName, String qualifiers) {
-        Values<T> values = valuesMap.find(maybeOverride(resName));
-        return (values != null) ? pick(values, qualifiers) : null;
+        return valuesMap.pick(maybeOverride(resName), qualifiers);
     }
 
     public List<T> getList(ResName resName, String qualifiers) {
@@ -41,44 +47,57 @@ public class ResBundle<T> {
     }
 
     public Value<List<T>> getListValue(ResName resName, String qualifiers) {
-        Values<List<T>> values = valuesArrayMap.find(maybeOverride(resName));
-        return (values != null) ? pick(values, qualifiers) : null;
+        return valuesArrayMap.pick(maybeOverride(resName), qualifiers);
     }
 
+    /**
+     * Picks the value whose qualifiers best match the given ones: for each of the requested qualifiers in turn, values
+     * which don't have it are eliminated, unless none of the remaining values have it.
+     */
     public static <T> Value<T> pick(Values<T> values, String qualifiers) {
         final int count = values.size();
-        if (count >= Long.SIZE) throw new RuntimeException("really, more than " + Long.SIZE + " qualifiers?!?");
         if (count == 0) return null;
 
-        long possibles = 0;
-        for (int i = 0; i < count; i++) possibles |= 1 << i;
-
-        String[] qualifierList = qualifiers.split("-");
-        for (String qualifier : qualifierList) {
-            String paddedQualifier = "-" + qualifier + "-";
-            long matches = 0;
+        BitSet possibles = new BitSet(count);
+        possibles.set(0, count);
+        BitSet matches = new BitSet(count);
 
-            for (int i = 0; i < count; i++) {
-                if ((possibles & (1 << i)) == 0) continue;
+        for (String qualifier : qualifiers.split("-")) {
+            Integer qualifierId = QUALIFIER_IDS.get(qualifier);
+            if (qualifierId == null) continue; // no value anywhere has this qualifier
 
-                if (values.get(i).qualifiers.contains(paddedQualifier)) {
-                    matches |= 1 << i;
+            matches.clear();
+            for (int i = possibles.nextSetBit(0); i >= 0; i = possibles.nextSetBit(i + 1)) {
+                if (values.get(i).qualifierBits.get(qualifierId)) {
+                    matches.set(i);
                 }
             }
 
-            if (matches != 0) {
-                possibles &= matches; // eliminate any that didn't match this qualifier
+            if (!matches.isEmpty()) {
+                possibles.and(matches); // eliminate any that didn't match this qualifier
             }
 
-            if (Long.bitCount(matches) == 1) break;
+            if (matches.cardinality() == 1) break;
         }
 
-        for (int i = 0; i < count; i++) {
-            if ((possibles & (1 << i)) != 0) return values.get(i);
-        }
+        int first = possibles.nextSetBit(0);
+        if (first >= 0) return values.get(first);
         throw new IllegalStateException("couldn't handle qualifiers \"" + qualifiers + "\"");
     }
 
+    private static int qualifierId(String qualifier) {
+        Integer id = QUALIFIER_IDS.get(qualifier);
+        if (id == null) {
+            synchronized (QUALIFIER_IDS) {
+                id = QUALIFIER_IDS.get(qualifier);
+                if (id == null) {
+                    QUALIFIER_IDS.put(qualifier, id = QUALIFIER_IDS.size());
+                }
+            }
+        }
+        return id;
+    }
+
     public int size() {
         return valuesMap.size() + valuesArrayMap.size();
     }
@@ -106,10 +125,26 @@ public class ResBundle<T> {
         valuesArrayMap.merge(packageName, fromResBundle.valuesArrayMap);
     }
 
-    static class Value<T> implements Comparable<Value<T>> {
+    public void addAll(ResBundle<T> fromResBundle) {
+        valuesMap.addAll(fromResBundle.valuesMap);
+        valuesArrayMap.addAll(fromResBundle.valuesArrayMap);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> void addAll(ResBundle<T> toResBundle, ResBundle<?> fromResBundle) {
+        toResBundle.addAll((ResBundle<T>) fromResBundle);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> void mergeLibraryStyle(ResBundle<T> toResBundle, ResBundle<?> fromResBundle, String packageName) {
+        toResBundle.mergeLibraryStyle((ResBundle<T>) fromResBundle, packageName);
+    }
+
+    static class Value<T> implements Comparable<Value<T>>, Serializable {
         final String qualifiers;
         final T value;
         final XmlLoader.XmlContext xmlContext;
+        private transient BitSet qualifierBits;
 
         Value(String qualifiers, T value, XmlLoader.XmlContext xmlContext) {
             if (value == null) {
@@ -119,6 +154,21 @@ public class ResBundle<T> {
             this.xmlContext = xmlContext;
             this.qualifiers = qualifiers == null ? "--" : "-" + qualifiers + "-";
             this.value = value;
+            this.qualifierBits = parseQualifiers();
+        }
+
+        private BitSet parseQualifiers() {
+            BitSet bits = new BitSet();
+            // "-en-port-" has "en" and "port"; "--" has just "", which is what an empty qualifier string asks for
+            for (String qualifier : qualifiers.substring(1, qualifiers.length() - 1).split("-", -1)) {
+                bits.set(qualifierId(qualifier));
+            }
+            return bits;
+        }
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            qualifierBits = parseQualifiers();
         }
 
         @Override
@@ -130,8 +180,9 @@ public class ResBundle<T> {
     static class Values<T> extends ArrayList<Value<T>> {
     }
 
-    private static class ResMap<T> {
+    private static class ResMap<T> implements Serializable {
         private final Map<ResName, Values<T>> map = new HashMap<ResName, Values<T>>();
+        private transient Map<Pick, Value<T>> picks = new ConcurrentHashMap<Pick, Value<T>>();
         private boolean immutable;
 
         public Values<T> find(ResName resName) {
@@ -140,6 +191,25 @@ public class ResBundle<T> {
             return values;
         }
 
+        private void add(ResName resName, Value<T> value) {
+            Values<T> values = find(resName);
+            values.add(value);
+            Collections.sort(values);
+            picks.clear();
+        }
+
+        private Value<T> pick(ResName resName, String qualifiers) {
+            Pick key = new Pick(resName, qualifiers);
+            Value<T> value = picks.get(key);
+            if (value == null) {
+                Values<T> values = map.get(resName);
+                if (values == null) return null;
+                value = ResBundle.pick(values, qualifiers);
+                if (value != null) picks.put(key, value);
+            }
+            return value;
+        }
+
         private void merge(String packageName, ResMap<T> sourceMap) {
             if (immutable) {
                 throw new IllegalStateException("immutable!");
@@ -149,6 +219,20 @@ public class ResBundle<T> {
                 ResName resName = entry.getKey().withPackageName(packageName);
                 find(resName).addAll(entry.getValue());
             }
+            picks.clear();
+        }
+
+        private void addAll(ResMap<T> sourceMap) {
+            if (immutable) {
+                throw new IllegalStateException("immutable!");
+            }
+
+            for (Map.Entry<ResName, Values<T>> entry : sourceMap.map.entrySet()) {
+                Values<T> values = find(entry.getKey());
+                values.addAll(entry.getValue());
+                Collections.sort(values);
+            }
+            picks.clear();
         }
 
         public int size() {
@@ -158,5 +242,33 @@ public class ResBundle<T> {
         public void makeImmutable() {
             immutable = true;
         }
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            picks = new ConcurrentHashMap<Pick, Value<T>>();
+        }
+    }
+
+    private static class Pick {
+        private final ResName resName;
+        private final String qualifiers;
+
+        Pick(ResName resName, String qualifiers) {
+            this.resName = resName;
+            this.qualifiers = qualifiers;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Pick)) return false;
+            Pick pick = (Pick) o;
+            return resName.equals(pick.resName) && qualifiers.equals(pick.qualifiers);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * resName.hashCode() + qualifiers.hashCode();
+        }
     }
 }
@@ -2,10 +2,11 @@ package org.robolectric.res;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.io.Serializable;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-public class ResName {
+public class ResName implements Serializable {
     private static final Pattern FQN_PATTERN = Pattern.compile("^([^:]*):([^/]+)/(.+)$");
     private static final int NAMESPACE = 1;
     private static final int TYPE = 2;
@@ -0,0 +1,23 @@
+package org.robolectric.res;
+
+/**
+ * The kinds of resources a package's resource loader loads separately, the first time one of them is asked for.
+ */
+public enum ResourceCategory {
+    VALUES("values"),
+    LAYOUTS("layout"),
+    MENUS("menu"),
+    DRAWABLES("drawable"),
+    PREFERENCES("xml"),
+    XML("xml"),
+    RAW("raw");
+
+    /**
+     * The name of the resource directories this category is loaded from, minus any qualifiers.
+     */
+    public final String folderBaseName;
+
+    ResourceCategory(String folderBaseName) {
+        this.folderBaseName = folderBaseName;
+    }
+}
@@ -2,9 +2,10 @@ package org.robolectric.res;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
-import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ResourceExtractor extends ResourceIndex {
     private static final ResourceRemapper RESOURCE_REMAPPER = new ResourceRemapper();
@@ -13,6 +14,11 @@ public class ResourceExtractor extends ResourceIndex {
     private Set<Class> processedRFiles = new HashSet<Class>();
     private Integer maxUsedInt = null;
 
+    // ids made up for android resources missing from the R class; everything else is fixed once we're constructed,
+    // so lookups don't need a lock
+    private final Map<ResName, Integer> assignedIds = new ConcurrentHashMap<ResName, Integer>();
+    private final Map<Integer, ResName> assignedResNames = new ConcurrentHashMap<Integer, ResName>();
+
     public ResourceExtractor() {
     }
 
@@ -44,8 +50,6 @@ public class ResourceExtractor extends ResourceIndex {
                     String fieldName = field.getName();
                     ResName resName = new ResName(packageName, section, fieldName);
 
-                    resourceNameToId.put(resName, value);
-
                     if (resourceIdToResName.containsKey(value)) {
                       String message =
                           value + " is already defined with name: " + resourceIdToResName.get(
@@ -57,7 +61,7 @@ public class ResourceExtractor extends ResourceIndex {
                       }
                     }
 
-                    resourceIdToResName.put(value, resName);
+                    put(resName, Integer.valueOf(value));
                   }
                 }
             }
@@ -65,22 +69,35 @@ public class ResourceExtractor extends ResourceIndex {
     }
 
     @Override
-    public synchronized Integer getResourceId(ResName resName) {
+    public Integer getResourceId(ResName resName) {
         Integer id = resourceNameToId.get(resName);
         if (id == null && "android".equals(resName.namespace)) {
+            id = assignedIds.get(resName);
+            if (id == null) id = assignId(resName);
+        }
+        return id;
+    }
+
+    @Override
+    public ResName getResName(int resourceId) {
+        ResName resName = resourceIdToResName.get(resourceId);
+        if (resName == null && !assignedResNames.isEmpty()) {
+            resName = assignedResNames.get(resourceId);
+        }
+        return resName;
+    }
+
+    private synchronized Integer assignId(ResName resName) {
+        Integer id = assignedIds.get(resName);
+        if (id == null) {
             if (maxUsedInt == null) {
-                maxUsedInt = resourceIdToResName.isEmpty() ? 0 : Collections.max(resourceIdToResName.keySet());
+                maxUsedInt = resourceIdToResName.isEmpty() ? 0 : resourceIdToResName.maxKey();
             }
             id = ++maxUsedInt;
-            resourceNameToId.put(resName, id);
-            resourceIdToResName.put(id, resName);
+            assignedResNames.put(id, resName);
+            assignedIds.put(resName, id);
             System.out.println("INFO: no id mapping found for " + resName.getFullyQualifiedName() + "; assigning " + id);
         }
         return id;
     }
-
-    @Override
-    public synchronized ResName getResName(int resourceId) {
-        return resourceIdToResName.get(resourceId);
-    }
-}
\ No newline at end of file
+}
@@ -5,7 +5,7 @@ import java.util.Map;
 
 public abstract class ResourceIndex {
     final Map<ResName, Integer> resourceNameToId = new HashMap<ResName, Integer>();
-    final Map<Integer, ResName> resourceIdToResName = new HashMap<Integer, ResName>();
+    final IntMap<ResName> resourceIdToResName = new IntMap<ResName>();
 
     public abstract Integer getResourceId(ResName resName);
 
@@ -15,4 +15,15 @@ public abstract class ResourceIndex {
     }
 
     public abstract ResName getResName(int resourceId);
+
+    /**
+     * Maps the name to the id both ways, keeping exactly the instances passed in, so lookups in this index hand back
+     * the same ResName and Integer every time and don't allocate. If the mapping is already there (e.g. a library's
+     * resources are overlaid twice), the instances already handed out are kept.
+     */
+    void put(ResName resName, Integer id) {
+        if (id.equals(resourceNameToId.get(resName)) && resName.equals(resourceIdToResName.get(id))) return;
+        resourceNameToId.put(resName, id);
+        resourceIdToResName.put(id, resName);
+    }
 }
@@ -0,0 +1,52 @@
+package org.robolectric.res;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * One category of a package's parsed resources, along with the modification times of the files they were loaded from,
+ * so that when a file changes only its category has to be parsed again.
+ */
+class ResourceSnapshot implements Serializable {
+    private final Map<String, Long> fileTimestamps;
+    private final AttrResourceLoader attrResourceLoader;
+    private final ResBundle<?>[] bundles;
+
+    ResourceSnapshot(Map<String, Long> fileTimestamps, AttrResourceLoader attrResourceLoader, ResBundle<?>[] bundles) {
+        this.fileTimestamps = fileTimestamps;
+        this.attrResourceLoader = attrResourceLoader;
+        this.bundles = bundles;
+    }
+
+    boolean isUpToDate(Map<String, Long> currentFileTimestamps) {
+        return fileTimestamps.equals(currentFileTimestamps);
+    }
+
+    void copyTo(AttrResourceLoader attrResourceLoader, ResBundle<?>[] bundles) {
+        if (bundles.length != this.bundles.length) throw new IllegalArgumentException("snapshot has different bundles");
+
+        if (attrResourceLoader != null && this.attrResourceLoader != null) {
+            attrResourceLoader.addAll(this.attrResourceLoader);
+        }
+        for (int i = 0; i < bundles.length; i++) {
+            ResBundle.addAll(bundles[i], this.bundles[i]);
+        }
+    }
+
+    static Map<String, Long> fileTimestamps(ResourcePath resourcePath, String folderBaseName) {
+        Map<String, Long> fileTimestamps = new TreeMap<String, Long>();
+        File[] dirs = resourcePath.resourceBase.listFiles(new DirectoryMatchingFileFilter(folderBaseName));
+        if (dirs != null) {
+            for (File dir : dirs) {
+                File[] files = dir.listFiles();
+                if (files == null) continue;
+                for (File file : files) {
+                    fileTimestamps.put(dir.getName() + "/" + file.getName(), file.lastModified());
+                }
+            }
+        }
+        return fileTimestamps;
+    }
+}
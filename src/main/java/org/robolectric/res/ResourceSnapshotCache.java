@@ -0,0 +1,250 @@
+package org.robolectric.res;
+
+import org.robolectric.util.BuildFingerprint;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.robolectric.util.Util.makeOwnerOnly;
+
+/**
+ * On-disk cache of parsed resources, so that each JVM doesn't have to parse all of the SDK's resource XML again.
+ *
+ * There's one snapshot file per {@link ResourceCategory} of each resource directory. Snapshots are memory-mapped when
+ * they're read, and written to a temp file and renamed into place, so forks running in parallel can share a cache
+ * directory. A snapshot which can't be read for any reason (e.g. it was written by a different build of Robolectric,
+ * see {@link BuildFingerprint}) is just ignored.
+ *
+ * Snapshots are read with Java serialization, so only Robolectric's resource classes and the JDK value and collection
+ * classes they're made of may appear in them; anything else makes the snapshot unreadable. XML documents are stored
+ * as XML text and parsed again when they're read, rather than as serialized DOM objects.
+ */
+public class ResourceSnapshotCache {
+    private static final int FORMAT_VERSION = 3;
+    private static final Set<String> ALLOWED_JDK_CLASSES = new HashSet<String>(Arrays.asList(
+            "java.lang.Boolean", "java.lang.Enum", "java.lang.Float", "java.lang.Integer", "java.lang.Long",
+            "java.lang.Number", "java.lang.String",
+            "java.io.File",
+            "java.util.ArrayList", "java.util.Collections$EmptyList", "java.util.Collections$UnmodifiableCollection",
+            "java.util.Collections$UnmodifiableList", "java.util.Collections$UnmodifiableRandomAccessList",
+            "java.util.HashMap", "java.util.HashSet", "java.util.LinkedHashMap",
+            "java.util.LinkedHashSet", "java.util.TreeMap"));
+
+    private final File cacheDir;
+
+    public ResourceSnapshotCache(File cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    public File getCacheDir() {
+        return cacheDir;
+    }
+
+    ResourceSnapshot read(ResourcePath resourcePath, ResourceCategory category) {
+        File file = fileFor(resourcePath, category);
+        if (!file.exists()) return null;
+
+        try {
+            RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+            try {
+                FileChannel channel = randomAccessFile.getChannel();
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                ObjectInputStream in = new SnapshotInputStream(new ByteBufferInputStream(buffer));
+                if (in.readInt() != FORMAT_VERSION) return null;
+                if (!in.readUTF().equals(keyFor(resourcePath, category))) return null;
+                return (ResourceSnapshot) in.readObject();
+            } finally {
+                randomAccessFile.close();
+            }
+        } catch (Exception e) {
+            // truncated, written by different classes, or holding classes that don't belong; we'll just parse again
+            return null;
+        }
+    }
+
+    void write(ResourcePath resourcePath, ResourceCategory category, ResourceSnapshot snapshot) {
+        File file = fileFor(resourcePath, category);
+        if (!cacheDir.exists()) {
+            if (!cacheDir.mkdirs() && !cacheDir.exists()) return;
+            makeOwnerOnly(cacheDir);
+        }
+
+        File tempFile = null;
+        try {
+            tempFile = File.createTempFile(file.getName(), ".tmp", cacheDir);
+            ObjectOutputStream out = new SnapshotOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            try {
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(keyFor(resourcePath, category));
+                out.writeObject(snapshot);
+            } finally {
+                out.close();
+            }
+            //noinspection ResultOfMethodCallIgnored
+            file.delete(); // renameTo won't replace an existing file on some platforms
+            if (tempFile.renameTo(file)) {
+                tempFile = null;
+            }
+        } catch (IOException e) {
+            // no problem, the cache is only an optimization
+        } finally {
+            if (tempFile != null) {
+                //noinspection ResultOfMethodCallIgnored
+                tempFile.delete();
+            }
+        }
+    }
+
+    File fileFor(ResourcePath resourcePath, ResourceCategory category) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        byte[] bytes = digest.digest(keyFor(resourcePath, category).getBytes());
+
+        StringBuilder buf = new StringBuilder(category.name().toLowerCase()).append("-");
+        for (byte b : bytes) {
+            buf.append(Character.forDigit((b >> 4) & 0xf, 16));
+            buf.append(Character.forDigit(b & 0xf, 16));
+        }
+        return new File(cacheDir, buf.append(".ser").toString());
+    }
+
+    private static String keyFor(ResourcePath resourcePath, ResourceCategory category) {
+        return resourcePath.getPackageName() + ":" + resourcePath.resourceBase.getAbsolutePath() + ":" + category
+                + ":" + BuildFingerprint.get();
+    }
+
+    static boolean isAllowed(String className) {
+        String name = className;
+        while (name.startsWith("[")) {
+            name = name.substring(1);
+        }
+        if (name.length() == 1) return true; // an array of primitives
+        if (name.startsWith("L") && name.endsWith(";")) {
+            name = name.substring(1, name.length() - 1);
+        }
+        return name.startsWith("org.robolectric.res.") || ALLOWED_JDK_CLASSES.contains(name);
+    }
+
+    private static class SnapshotOutputStream extends ObjectOutputStream {
+        SnapshotOutputStream(OutputStream out) throws IOException {
+            super(out);
+            enableReplaceObject(true);
+        }
+
+        @Override
+        protected Object replaceObject(Object obj) throws IOException {
+            return obj instanceof Document ? new XmlText((Document) obj) : obj;
+        }
+    }
+
+    private static class SnapshotInputStream extends ObjectInputStream {
+        SnapshotInputStream(InputStream in) throws IOException {
+            super(in);
+            enableResolveObject(true);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            if (!isAllowed(desc.getName())) {
+                throw new InvalidClassException(desc.getName(), "not allowed in a resource snapshot");
+            }
+            return super.resolveClass(desc);
+        }
+
+        @Override
+        protected Class<?> resolveProxyClass(String[] interfaces) throws IOException, ClassNotFoundException {
+            throw new InvalidClassException("proxies aren't allowed in a resource snapshot");
+        }
+
+        @Override
+        protected Object resolveObject(Object obj) throws IOException {
+            return obj instanceof XmlText ? ((XmlText) obj).parse() : obj;
+        }
+    }
+
+    /**
+     * Stands in for a DOM {@link Document} in a snapshot. It's parsed with the same settings as
+     * {@link DocumentLoader}.
+     */
+    private static class XmlText implements Serializable {
+        private final String xml;
+
+        XmlText(Document document) throws IOException {
+            try {
+                StringWriter writer = new StringWriter();
+                TransformerFactory.newInstance().newTransformer().transform(new DOMSource(document), new StreamResult(writer));
+                xml = writer.toString();
+            } catch (Exception e) {
+                throw new IOException("couldn't write document: " + e);
+            }
+        }
+
+        Document parse() throws IOException {
+            try {
+                DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+                documentBuilderFactory.setNamespaceAware(true);
+                documentBuilderFactory.setIgnoringComments(true);
+                documentBuilderFactory.setIgnoringElementContentWhitespace(true);
+                return documentBuilderFactory.newDocumentBuilder().parse(new InputSource(new StringReader(xml)));
+            } catch (Exception e) {
+                throw new IOException("couldn't parse document: " + e);
+            }
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) return 0;
+            if (!buffer.hasRemaining()) return -1;
+            length = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, length);
+            return length;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return buffer.remaining();
+        }
+    }
+}
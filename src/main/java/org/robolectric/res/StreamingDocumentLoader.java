@@ -0,0 +1,122 @@
+package org.robolectric.res;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads resource files in a single streaming (StAX) pass, without building a DOM or evaluating any XPath.
+ *
+ * Each {@link XmlLoader} registers {@link ElementHandler}s for the paths of the elements it's interested in (see
+ * {@link XmlLoader#registerElementHandlers(StreamingDocumentLoader)}); handlers are called as each element ends, with
+ * its complete subtree. Children of the document element are dropped once they've been handled, so only one resource
+ * definition is held in memory at a time.
+ */
+public class StreamingDocumentLoader extends DocumentLoader {
+    private final Map<String, List<ElementHandler>> handlersByPath = new HashMap<String, List<ElementHandler>>();
+    private final XMLInputFactory xmlInputFactory;
+
+    public interface ElementHandler {
+        void handle(XmlElement element, XmlLoader.XmlContext xmlContext) throws Exception;
+    }
+
+    public StreamingDocumentLoader(XmlLoader... xmlLoaders) {
+        super(xmlLoaders);
+
+        for (XmlLoader xmlLoader : xmlLoaders) {
+            if (!xmlLoader.registerElementHandlers(this)) {
+                throw new IllegalArgumentException(xmlLoader.getClass().getName() + " can't be used without a DOM");
+            }
+        }
+
+        xmlInputFactory = XMLInputFactory.newInstance();
+        xmlInputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    }
+
+    /**
+     * @param path the names of the element and its ancestors, starting from the document element, e.g. "resources/string"
+     */
+    public void addHandler(String path, ElementHandler handler) {
+        List<ElementHandler> handlers = handlersByPath.get(path);
+        if (handlers == null) handlersByPath.put(path, handlers = new ArrayList<ElementHandler>());
+        handlers.add(handler);
+    }
+
+    @Override
+    protected void loadResourceXmlFile(File file, String packageName) throws Exception {
+        XmlLoader.XmlContext xmlContext = new XmlLoader.XmlContext(packageName, file);
+        InputStream in = new BufferedInputStream(new FileInputStream(file));
+        try {
+            XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(in);
+            try {
+                load(reader, xmlContext);
+            } finally {
+                reader.close();
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private void load(XMLStreamReader reader, XmlLoader.XmlContext xmlContext) throws Exception {
+        List<XmlElement> stack = new ArrayList<XmlElement>();
+        XmlElement current = null;
+
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    if (current != null) current.noteChildNode();
+                    current = new XmlElement(nodeName(reader.getPrefix(), reader.getLocalName()), current);
+                    for (int i = 0; i < reader.getAttributeCount(); i++) {
+                        current.putAttribute(nodeName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)),
+                                reader.getAttributeValue(i));
+                    }
+                    stack.add(current);
+                    break;
+
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if (current != null && stack.size() > 1) {
+                        current.appendText(reader.getText());
+                    } else if (current != null) {
+                        current.noteChildNode();
+                    }
+                    break;
+
+                case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                    if (current != null) current.noteChildNode();
+                    break;
+
+                case XMLStreamConstants.END_ELEMENT:
+                    XmlElement element = stack.remove(stack.size() - 1);
+                    List<ElementHandler> handlers = handlersByPath.get(element.getPath());
+                    if (handlers != null) {
+                        for (ElementHandler handler : handlers) {
+                            handler.handle(element, xmlContext);
+                        }
+                    }
+
+                    current = stack.isEmpty() ? null : stack.get(stack.size() - 1);
+                    // the document element doesn't keep its children, so they can be collected once handled
+                    if (stack.size() > 1) current.addChild(element);
+                    break;
+
+                default:
+            }
+        }
+    }
+
+    private static String nodeName(String prefix, String localName) {
+        return prefix == null || prefix.length() == 0 ? localName : prefix + ":" + localName;
+    }
+}
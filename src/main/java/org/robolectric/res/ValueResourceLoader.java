@@ -49,6 +49,28 @@ class ValueResourceLoader extends XpathResourceXmlLoader {
         }
     }
 
+    @Override
+    protected boolean registerElementHandlers(StreamingDocumentLoader documentLoader) {
+        documentLoader.addHandler("resources/" + attrType, new StreamingDocumentLoader.ElementHandler() {
+            @Override public void handle(XmlElement element, XmlContext xmlContext) {
+                resBundle.put(attrType, element.getAttribute("name"), element.getTextContent(), xmlContext);
+            }
+        });
+
+        if (arraysToo) {
+            documentLoader.addHandler("resources/" + attrType + "-array", new StreamingDocumentLoader.ElementHandler() {
+                @Override public void handle(XmlElement element, XmlContext xmlContext) {
+                    List<String> itemStrings = new ArrayList<String>();
+                    for (XmlElement item : element.getDescendants("item")) {
+                        itemStrings.add(item.getTextContent());
+                    }
+                    resBundle.putArray(attrType + "-array", element.getAttribute("name"), itemStrings, xmlContext);
+                }
+            });
+        }
+        return true;
+    }
+
     @Override
     protected void processNode(Node node, String name, XmlContext xmlContext, String attrType) throws XPathExpressionException {
         resBundle.put(attrType, name, node.getTextContent(), xmlContext);
@@ -1,10 +1,11 @@
 package org.robolectric.res;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
-public class ViewNode {
+public class ViewNode implements Serializable {
     private final String name;
     private final List<Attribute> attributes;
     private final XmlLoader.XmlContext xmlContext;
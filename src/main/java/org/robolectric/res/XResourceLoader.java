@@ -5,14 +5,17 @@ import org.w3c.dom.Document;
 
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 abstract class XResourceLoader implements ResourceLoader {
     private final ResourceIndex resourceIndex;
 
     final List<RawResourceLoader> rawResourceLoaders = new ArrayList<RawResourceLoader>();
 
-    boolean isInitialized = false;
+    // resource loaders are shared by all the tests in the JVM, which may be running in parallel
+    private volatile int loadedCategories;
 
     final AttrResourceLoader attrResourceLoader = new AttrResourceLoader();
     final Resolver<Boolean> booleanResolver = new BooleanResolver();
@@ -31,28 +34,78 @@ abstract class XResourceLoader implements ResourceLoader {
         this.resourceIndex = resourceIndex;
     }
 
-    abstract void doInitialize();
+    /**
+     * Loads one category of resources into this loader's bundles. Called at most once per category, while holding
+     * this loader's lock.
+     */
+    abstract void load(ResourceCategory category);
 
     void initialize() {
-        if (isInitialized) return;
-        doInitialize();
-        isInitialized = true;
+        for (ResourceCategory category : ResourceCategory.values()) {
+            initialize(category);
+        }
+    }
+
+    void initialize(ResourceCategory category) {
+        int bit = 1 << category.ordinal();
+        if ((loadedCategories & bit) != 0) return;
+        synchronized (this) {
+            if ((loadedCategories & bit) != 0) return;
+            load(category);
+            for (ResBundle<?> bundle : bundlesFor(category)) {
+                bundle.makeImmutable();
+            }
+            loadedCategories |= bit;
+        }
+    }
 
-        makeImmutable();
+    /**
+     * @return the categories of resources which have been loaded so far, for diagnostics
+     */
+    public Set<ResourceCategory> getLoadedCategories() {
+        Set<ResourceCategory> categories = EnumSet.noneOf(ResourceCategory.class);
+        int loaded = loadedCategories;
+        for (ResourceCategory category : ResourceCategory.values()) {
+            if ((loaded & (1 << category.ordinal())) != 0) categories.add(category);
+        }
+        return categories;
+    }
+
+    /**
+     * @return the bundles which hold the given category of resources; {@link ResourceCategory#VALUES} also fills in
+     * {@link #attrResourceLoader}
+     */
+    ResBundle<?>[] bundlesFor(ResourceCategory category) {
+        switch (category) {
+            case VALUES:
+                return new ResBundle<?>[]{booleanResolver, colorResolver, dimenResolver, integerResolver, pluralsResolver, stringResolver};
+            case LAYOUTS:
+                return new ResBundle<?>[]{viewNodes};
+            case MENUS:
+                return new ResBundle<?>[]{menuNodes};
+            case DRAWABLES:
+                return new ResBundle<?>[]{drawableNodes};
+            case PREFERENCES:
+                return new ResBundle<?>[]{preferenceNodes};
+            case XML:
+                return new ResBundle<?>[]{xmlDocuments};
+            default:
+                return new ResBundle<?>[0];
+        }
     }
 
-    protected void makeImmutable() {
-        booleanResolver.makeImmutable();
-        colorResolver.makeImmutable();
-        dimenResolver.makeImmutable();
-        integerResolver.makeImmutable();
-        pluralsResolver.makeImmutable();
-        stringResolver.makeImmutable();
-        viewNodes.makeImmutable();
-        menuNodes.makeImmutable();
-        drawableNodes.makeImmutable();
-        preferenceNodes.makeImmutable();
-        xmlDocuments.makeImmutable();
+    /**
+     * Adds one category of the resources loaded by another loader to this one.
+     */
+    void addAll(XResourceLoader other, ResourceCategory category) {
+        if (category == ResourceCategory.VALUES) {
+            attrResourceLoader.addAll(other.attrResourceLoader);
+        }
+        ResBundle<?>[] bundles = bundlesFor(category);
+        ResBundle<?>[] otherBundles = other.bundlesFor(category);
+        for (int i = 0; i < bundles.length; i++) {
+            ResBundle.addAll(bundles[i], otherBundles[i]);
+        }
     }
 
     @Override
@@ -62,20 +115,20 @@ abstract class XResourceLoader implements ResourceLoader {
 
     @Override
     public int getColorValue(ResName resName, String qualifiers) {
-        initialize();
+        initialize(ResourceCategory.VALUES);
         Integer value = colorResolver.resolve(resName, qualifiers);
         return value == null ? -1 : value;
     }
 
     @Override
     public String getStringValue(ResName resName, String qualifiers) {
-        initialize();
+        initialize(ResourceCategory.VALUES);
         return stringResolver.resolve(resName, qualifiers);
     }
 
     @Override
     public String getPluralStringValue(ResName resName, int quantity, String qualifiers) {
-        initialize();
+        initialize(ResourceCategory.VALUES);
         PluralResourceLoader.PluralRules pluralRules = pluralsResolver.get(resName, qualifiers);
         if (pluralRules == null) return null;
 
@@ -86,36 +139,37 @@ abstract class XResourceLoader implements ResourceLoader {
 
     @Override
     public float getDimenValue(ResName resName, String qualifiers) {
-        initialize();
+        initialize(ResourceCategory.VALUES);
         return dimenResolver.resolve(resName, qualifiers);
     }
 
     @Override
     public int getIntegerValue(ResName resName, String qualifiers) {
-        initialize();
+        initialize(ResourceCategory.VALUES);
         return integerResolver.resolve(resName, qualifiers);
     }
 
     @Override
     public boolean getBooleanValue(ResName resName, String qualifiers) {
-        initialize();
+        initialize(ResourceCategory.VALUES);
         return booleanResolver.resolve(resName, qualifiers);
     }
 
     @Override
     public Document getXml(ResName resName, String qualifiers) {
-        initialize();
+        initialize(ResourceCategory.XML);
         return xmlDocuments.get(resName, qualifiers);
     }
 
     @Override
     public DrawableNode getDrawableNode(ResName resName, String qualifiers) {
+        initialize(ResourceCategory.DRAWABLES);
         return drawableNodes.get(resName, qualifiers);
     }
 
     @Override
     public InputStream getRawValue(int id) {
-        initialize();
+        initialize(ResourceCategory.RAW);
 
         for (RawResourceLoader rawResourceLoader : rawResourceLoaders) {
             InputStream stream = rawResourceLoader.getValue(id);
@@ -127,7 +181,7 @@ abstract class XResourceLoader implements ResourceLoader {
 
     @Override
     public String[] getStringArrayValue(ResName resName, String qualifiers) {
-        initialize();
+        initialize(ResourceCategory.VALUES);
 
         if (resName == null) return null;
         resName = new ResName(resName.namespace, "string-array", resName.name); // ugh
@@ -137,7 +191,7 @@ abstract class XResourceLoader implements ResourceLoader {
 
     @Override
     public int[] getIntegerArrayValue(ResName resName, String qualifiers) {
-        initialize();
+        initialize(ResourceCategory.VALUES);
 
         if (resName == null) return null;
         resName = new ResName(resName.namespace, "integer-array", resName.name); // ugh
@@ -156,21 +210,21 @@ abstract class XResourceLoader implements ResourceLoader {
 
     @Override
     public PreferenceNode getPreferenceNode(ResName resName, String qualifiers) {
-        initialize();
+        initialize(ResourceCategory.PREFERENCES);
 
         return preferenceNodes.get(resName, qualifiers);
     }
 
     @Override
     public ViewNode getLayoutViewNode(ResName resName, String qualifiers) {
-        initialize();
+        initialize(ResourceCategory.LAYOUTS);
         if (resName == null) return null;
         return viewNodes.get(resName, qualifiers);
     }
 
     @Override
     public MenuNode getMenuNode(ResName resName, String qualifiers) {
-        initialize();
+        initialize(ResourceCategory.MENUS);
         if (resName == null) return null;
         return menuNodes.get(resName, qualifiers);
     }
@@ -182,13 +236,13 @@ abstract class XResourceLoader implements ResourceLoader {
 
     @Override
     public boolean hasAttributeFor(Class<? extends View> viewClass, String namespace, String attribute) {
-        initialize();
+        initialize(ResourceCategory.VALUES);
         return attrResourceLoader.hasAttributeFor(viewClass, namespace, attribute);
     }
 
     @Override
     public String convertValueToEnum(Class<? extends View> viewClass, String namespace, String attribute, String part) {
-        initialize();
+        initialize(ResourceCategory.VALUES);
         return attrResourceLoader.convertValueToEnum(viewClass, namespace, attribute, part);
     }
 
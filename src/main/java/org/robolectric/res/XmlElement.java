@@ -0,0 +1,98 @@
+package org.robolectric.res;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An element read by {@link StreamingDocumentLoader}, along with its attributes, text and child elements. Only the
+ * subtree of the element currently being handled is kept in memory, not the whole document.
+ */
+public class XmlElement {
+    private final String name;
+    private final String path;
+    private final Map<String, String> attributes = new HashMap<String, String>();
+    private final StringBuilder text = new StringBuilder();
+    private List<XmlElement> children = Collections.emptyList();
+    private boolean hasChildNodes;
+
+    XmlElement(String name, XmlElement parent) {
+        this.name = name;
+        this.path = parent == null ? name : parent.path + "/" + name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the names of this element and its ancestors, starting from the document element, e.g. "resources/string"
+     */
+    public String getPath() {
+        return path;
+    }
+
+    public String getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    /**
+     * @return the text of this element and all its descendants, like {@link org.w3c.dom.Node#getTextContent()}
+     */
+    public String getTextContent() {
+        return text.toString();
+    }
+
+    public List<XmlElement> getChildren() {
+        return children;
+    }
+
+    public List<XmlElement> getChildren(String name) {
+        List<XmlElement> matches = new ArrayList<XmlElement>();
+        for (XmlElement child : children) {
+            if (child.name.equals(name)) matches.add(child);
+        }
+        return matches;
+    }
+
+    public List<XmlElement> getDescendants(String name) {
+        List<XmlElement> matches = new ArrayList<XmlElement>();
+        addDescendants(name, matches);
+        return matches;
+    }
+
+    private void addDescendants(String name, List<XmlElement> matches) {
+        for (XmlElement child : children) {
+            if (child.name.equals(name)) matches.add(child);
+            child.addDescendants(name, matches);
+        }
+    }
+
+    /**
+     * @return true if this element contains any elements or text, even whitespace
+     */
+    public boolean hasChildNodes() {
+        return hasChildNodes;
+    }
+
+    void putAttribute(String name, String value) {
+        attributes.put(name, value);
+    }
+
+    void appendText(CharSequence chars) {
+        text.append(chars);
+        hasChildNodes = true;
+    }
+
+    void addChild(XmlElement child) {
+        if (children.isEmpty()) children = new ArrayList<XmlElement>();
+        children.add(child);
+        text.append(child.text);
+    }
+
+    void noteChildNode() {
+        hasChildNodes = true;
+    }
+}
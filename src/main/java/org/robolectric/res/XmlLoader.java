@@ -3,6 +3,7 @@ package org.robolectric.res;
 import org.w3c.dom.Document;
 
 import java.io.File;
+import java.io.Serializable;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -13,7 +14,17 @@ public abstract class XmlLoader {
 
     protected abstract void processResourceXml(File xmlFile, Document document, XmlContext xmlContext) throws Exception;
 
-    public static class XmlContext {
+    /**
+     * Registers handlers for the elements this loader is interested in, so that it can be used by a
+     * {@link StreamingDocumentLoader}. Loaders which need the whole document don't override this.
+     *
+     * @return true if handlers were registered
+     */
+    protected boolean registerElementHandlers(StreamingDocumentLoader documentLoader) {
+        return false;
+    }
+
+    public static class XmlContext implements Serializable {
         public static final Pattern DIR_QUALIFIER_PATTERN = Pattern.compile("^[^-]+(?:-(.*))?$");
 
         public final String packageName;
@@ -19,12 +19,24 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.robolectric.Robolectric.shadowOf;
 
 public class LayoutBuilder {
     public static final ResName ATTR_LAYOUT = new ResName(":attr/layout");
+    private static final Method ON_FINISH_INFLATE = findOnFinishInflate();
+
+    /**
+     * Compiled layouts for each resource loader, by layout name and qualifiers. Resource loaders are shared between
+     * tests, so the same list item layout is only ever compiled once.
+     */
+    private static final Map<ResourceLoader, Map<String, ViewPlan>> PLANS =
+            Collections.synchronizedMap(new WeakHashMap<ResourceLoader, Map<String, ViewPlan>>());
 
     private final ResourceLoader resourceLoader;
 
@@ -32,47 +44,89 @@ public class LayoutBuilder {
         this.resourceLoader = resourceLoader;
     }
 
-    private View doInflate(Context context, ViewNode viewNode, ViewGroup parent, String qualifiers) {
-        if (viewNode.isInclude()) {
-            List<Attribute> viewNodeAttributes = viewNode.getAttributes();
-            Attribute layoutAttribute = Attribute.find(viewNodeAttributes, ATTR_LAYOUT);
-            ResName resName = new ResName(layoutAttribute.qualifiedValue());
-            return inflateView(context, resName, viewNodeAttributes, parent, qualifiers);
-        } else {
-            View view = create(viewNode, context, parent);
-
-            for (ViewNode child : viewNode.getChildren()) {
-                doInflate(context, child, (ViewGroup) view, qualifiers);
-            }
-
-            if (view != null) {
-                invokeOnFinishInflate(view);
-            }
-            return view;
-        }
-    }
-
     public View inflateView(Context context, int resourceId, ViewGroup parent, String qualifiers) {
-        ViewNode viewNode = resourceLoader.getLayoutViewNode(resourceLoader.getResourceIndex().getResName(resourceId), qualifiers);
-        if (viewNode == null) {
+        ResName resName = resourceLoader.getResourceIndex().getResName(resourceId);
+        ViewPlan plan = resName == null ? null : planFor(resName, qualifiers);
+        if (plan == null) {
             String name = resourceLoader.getNameForId(resourceId);
             throw new RuntimeException("Could not find layout " + (name == null ? resourceId : name));
         }
 
-        View view = doInflate(context, viewNode, parent, qualifiers);
+        View view = plan.inflate(context, parent);
         if (view != null) return view;
 
         throw new RuntimeException("Could not find layout " + resourceId);
     }
 
     public View inflateView(Context context, ResName resName, List<Attribute> attributes, ViewGroup parent, String qualifiers) {
+        ViewPlan plan = compileInclude(resName, attributes, qualifiers);
+        try {
+            return plan.inflate(context, parent);
+        } catch (I18nException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("error inflating " + resName.name, e);
+        }
+    }
+
+    private ViewPlan planFor(ResName resName, String qualifiers) {
+        Map<String, ViewPlan> plans;
+        synchronized (PLANS) {
+            plans = PLANS.get(resourceLoader);
+            if (plans == null) {
+                plans = new ConcurrentHashMap<String, ViewPlan>();
+                PLANS.put(resourceLoader, plans);
+            }
+        }
+
+        String key = resName.getFullyQualifiedName() + "|" + qualifiers;
+        ViewPlan plan = plans.get(key);
+        if (plan == null) {
+            ViewNode viewNode = resourceLoader.getLayoutViewNode(resName, qualifiers);
+            if (viewNode == null) return null;
+            plan = compile(viewNode, qualifiers);
+            plans.put(key, plan);
+        }
+        return plan;
+    }
+
+    private ViewPlan compile(ViewNode viewNode, String qualifiers) {
+        if (viewNode.isInclude()) {
+            List<Attribute> viewNodeAttributes = viewNode.getAttributes();
+            Attribute layoutAttribute = Attribute.find(viewNodeAttributes, ATTR_LAYOUT);
+            ResName resName = new ResName(layoutAttribute.qualifiedValue());
+            return new IncludePlan(resName, compileInclude(resName, viewNodeAttributes, qualifiers));
+        }
+
+        List<ViewPlan> children = new ArrayList<ViewPlan>();
+        for (ViewNode child : viewNode.getChildren()) {
+            children.add(compile(child, qualifiers));
+        }
+
+        if (viewNode.getName().equals("merge")) {
+            return new MergePlan(children);
+        } else if (viewNode.getName().equals("fragment")) {
+            Class<? extends Fragment> clazz = loadFragmentClass(Attribute.find(viewNode.getAttributes(), "android:attr/name").value);
+            return new FragmentPlan(viewNode, clazz, children);
+        } else {
+            return new ViewClassPlan(viewNode, pickViewClass(viewNode),
+                    new RoboAttributeSet.Index(viewNode.getAttributes(), resourceLoader, View.class), children);
+        }
+    }
+
+    private ViewPlan compileInclude(ResName resName, List<Attribute> attributes, String qualifiers) {
         ViewNode viewNode = resourceLoader.getLayoutViewNode(resName, qualifiers);
         if (viewNode == null) {
             throw new RuntimeException("Could not find layout " + resName.name);
         }
 
+        ViewNode withAttributes = plusAttributes(viewNode, attributes);
+        if (withAttributes == viewNode) {
+            return planFor(resName, qualifiers);
+        }
+
         try {
-            return doInflate(context, plusAttributes(viewNode, attributes), parent, qualifiers);
+            return compile(withAttributes, qualifiers);
         } catch (I18nException e) {
             throw e;
         } catch (Exception e) {
@@ -80,44 +134,30 @@ public class LayoutBuilder {
         }
     }
 
-
-    void invokeOnFinishInflate(View view) {
+    private static Method findOnFinishInflate() {
         try {
             Method onFinishInflate = View.class.getDeclaredMethod("onFinishInflate");
             onFinishInflate.setAccessible(true);
-            onFinishInflate.invoke(view);
-        } catch (InvocationTargetException e) {
-            throw new RuntimeException(e);
+            return onFinishInflate;
         } catch (NoSuchMethodException e) {
             throw new RuntimeException(e);
-        } catch (IllegalAccessException e) {
-            throw new RuntimeException(e);
         }
     }
 
-    View create(ViewNode viewNode, Context context, ViewGroup parent) {
-        if (viewNode.isInclude()) {
-            throw new IllegalStateException();
-        } else if (viewNode.getName().equals("merge")) {
-            return parent;
-        } else if (viewNode.getName().equals("fragment")) {
-            View fragment = constructFragment(viewNode, context);
-            addToParent(parent, fragment);
-            return fragment;
-        } else {
-            applyFocusOverride(viewNode, parent);
-            View view = constructView(viewNode, context);
-            addToParent(parent, view);
-            shadowOf(view).applyFocus();
-            return view;
+    static void invokeOnFinishInflate(View view) {
+        try {
+            ON_FINISH_INFLATE.invoke(view);
+        } catch (InvocationTargetException e) {
+            throw new RuntimeException(e);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
         }
     }
 
-    private FrameLayout constructFragment(ViewNode viewNode, Context context) {
+    private static FrameLayout constructFragment(ViewNode viewNode, Class<? extends Fragment> clazz, Context context) {
         List<Attribute> attributes = viewNode.getAttributes();
         AttributeSet attributeSet = shadowOf(context).createAttributeSet(attributes, View.class);
 
-        Class<? extends Fragment> clazz = loadFragmentClass(Attribute.find(attributes, "android:attr/name").value);
         Fragment fragment;
         try {
             fragment = ((Constructor<? extends Fragment>) clazz.getConstructor()).newInstance();
@@ -151,42 +191,18 @@ public class LayoutBuilder {
         return container;
     }
 
-    private void addToParent(ViewGroup parent, View view) {
+    private static void addToParent(ViewGroup parent, View view) {
         if (parent != null && parent != view) {
             parent.addView(view);
         }
     }
 
-    private View constructView(ViewNode viewNode, Context context) {
-        Class<? extends View> clazz = pickViewClass(viewNode);
-        try {
-            try {
-                RoboAttributeSet attributeSet = shadowOf(context).createAttributeSet(viewNode.getAttributes(), View.class);
-                return ((Constructor<? extends View>) clazz.getConstructor(Context.class, AttributeSet.class)).newInstance(context, attributeSet);
-            } catch (NoSuchMethodException e) {
-                try {
-                    return ((Constructor<? extends View>) clazz.getConstructor(Context.class)).newInstance(context);
-                } catch (NoSuchMethodException e1) {
-                    return ((Constructor<? extends View>) clazz.getConstructor(Context.class, String.class)).newInstance(context, "");
-                }
-            }
-        } catch (InstantiationException e) {
-            throw new RuntimeException(e);
-        } catch (IllegalAccessException e) {
-            throw new RuntimeException(e);
-        } catch (InvocationTargetException e) {
-            throw new RuntimeException(e);
-        } catch (NoSuchMethodException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
     private Class<? extends View> pickViewClass(ViewNode viewNode) {
         String name = viewNode.getName();
 
         if ("view".equals(name)) {
             Attribute attribute = Attribute.find(viewNode.getAttributes(), new ResName("", "attr", "class"));
-            if (attribute == null) throw new RuntimeException("no class attr for node " + this);
+            if (attribute == null) throw new RuntimeException("no class attr for node " + viewNode);
             name = attribute.value;
         }
 
@@ -228,7 +244,7 @@ public class LayoutBuilder {
         return (Class<? extends Fragment>) loadClass(className);
     }
 
-    public void applyFocusOverride(ViewNode viewNode, ViewParent parent) {
+    public static void applyFocusOverride(ViewNode viewNode, ViewParent parent) {
         if (viewNode.shouldRequestFocusOverride()) {
             View ancestor = (View) parent;
             while (ancestor.getParent() != null) {
@@ -256,4 +272,146 @@ public class LayoutBuilder {
         return new ViewNode(viewNode.getName(), newAttrs, viewNode.getXmlContext(),
                 viewNode.getChildren(), viewNode.shouldRequestFocusOverride());
     }
+
+    /**
+     * A layout element with everything that doesn't depend on the context or parent worked out ahead of time.
+     */
+    private abstract static class ViewPlan {
+        abstract View inflate(Context context, ViewGroup parent);
+    }
+
+    private static class IncludePlan extends ViewPlan {
+        private final ResName resName;
+        private final ViewPlan included;
+
+        IncludePlan(ResName resName, ViewPlan included) {
+            this.resName = resName;
+            this.included = included;
+        }
+
+        @Override
+        View inflate(Context context, ViewGroup parent) {
+            try {
+                return included.inflate(context, parent);
+            } catch (I18nException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException("error inflating " + resName.name, e);
+            }
+        }
+    }
+
+    private abstract static class ElementPlan extends ViewPlan {
+        private final List<ViewPlan> children;
+
+        ElementPlan(List<ViewPlan> children) {
+            this.children = children;
+        }
+
+        @Override
+        View inflate(Context context, ViewGroup parent) {
+            View view = create(context, parent);
+
+            for (ViewPlan child : children) {
+                child.inflate(context, (ViewGroup) view);
+            }
+
+            if (view != null) {
+                invokeOnFinishInflate(view);
+            }
+            return view;
+        }
+
+        abstract View create(Context context, ViewGroup parent);
+    }
+
+    private static class MergePlan extends ElementPlan {
+        MergePlan(List<ViewPlan> children) {
+            super(children);
+        }
+
+        @Override
+        View create(Context context, ViewGroup parent) {
+            return parent;
+        }
+    }
+
+    private static class FragmentPlan extends ElementPlan {
+        private final ViewNode viewNode;
+        private final Class<? extends Fragment> fragmentClass;
+
+        FragmentPlan(ViewNode viewNode, Class<? extends Fragment> fragmentClass, List<ViewPlan> children) {
+            super(children);
+            this.viewNode = viewNode;
+            this.fragmentClass = fragmentClass;
+        }
+
+        @Override
+        View create(Context context, ViewGroup parent) {
+            View fragment = constructFragment(viewNode, fragmentClass, context);
+            addToParent(parent, fragment);
+            return fragment;
+        }
+    }
+
+    private static class ViewClassPlan extends ElementPlan {
+        private final ViewNode viewNode;
+        private final RoboAttributeSet.Index attributes;
+        private final Constructor<? extends View> constructor;
+        private final boolean takesAttributeSet;
+
+        ViewClassPlan(ViewNode viewNode, Class<? extends View> viewClass, RoboAttributeSet.Index attributes, List<ViewPlan> children) {
+            super(children);
+            this.viewNode = viewNode;
+            this.attributes = attributes;
+
+            Constructor<? extends View> constructor;
+            boolean takesAttributeSet = false;
+            try {
+                try {
+                    constructor = viewClass.getConstructor(Context.class, AttributeSet.class);
+                    takesAttributeSet = true;
+                } catch (NoSuchMethodException e) {
+                    try {
+                        constructor = viewClass.getConstructor(Context.class);
+                    } catch (NoSuchMethodException e1) {
+                        constructor = viewClass.getConstructor(Context.class, String.class);
+                    }
+                }
+            } catch (NoSuchMethodException e) {
+                throw new RuntimeException(e);
+            }
+            this.constructor = constructor;
+            this.takesAttributeSet = takesAttributeSet;
+        }
+
+        @Override
+        View create(Context context, ViewGroup parent) {
+            applyFocusOverride(viewNode, parent);
+            View view = construct(context);
+            addToParent(parent, view);
+            shadowOf(view).applyFocus();
+            return view;
+        }
+
+        private View construct(Context context) {
+            // always build the attribute set, since that's where strict i18n checking happens
+            RoboAttributeSet attributeSet = shadowOf(context).createAttributeSet(attributes);
+            try {
+                if (takesAttributeSet) {
+                    return constructor.newInstance(context, attributeSet);
+                } else if (constructor.getParameterTypes().length == 1) {
+                    return constructor.newInstance(context);
+                } else {
+                    return constructor.newInstance(context, "");
+                }
+            } catch (InstantiationException e) {
+                throw new RuntimeException(e);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(e);
+            } catch (InvocationTargetException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
 }
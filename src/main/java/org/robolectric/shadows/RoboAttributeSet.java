@@ -10,12 +10,20 @@ import org.robolectric.util.I18nException;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class RoboAttributeSet implements AttributeSet {
-    private final List<Attribute> attributes;
+    private static final ResName STYLE = new ResName("", "attr", "style");
+
+    private List<Attribute> attributes;
     private final ResourceLoader resourceLoader;
     private Class<? extends View> viewClass;
+    private Index index;
+    private boolean sharedAttributes;
 
     /**
      * Names of attributes to be validated for i18n-safe values.
@@ -33,12 +41,27 @@ public class RoboAttributeSet implements AttributeSet {
         this.viewClass = viewClass;
     }
 
+    /**
+     * Uses an index built ahead of time, e.g. once per layout element rather than once per inflation. The index's
+     * attribute list is shared, so it's copied before the first {@link #put(Attribute)}.
+     */
+    public RoboAttributeSet(Index index) {
+        this(index.attributes, index.resourceLoader, index.viewClass);
+        this.index = index;
+        this.sharedAttributes = true;
+    }
+
     public RoboAttributeSet put(String fullyQualifiedName, String value, String valuePackage) {
         return put(new Attribute(fullyQualifiedName, value, valuePackage));
     }
 
     public RoboAttributeSet put(Attribute attribute) {
+        if (sharedAttributes) {
+            attributes = new ArrayList<Attribute>(attributes);
+            sharedAttributes = false;
+        }
         attributes.add(attribute);
+        index = null;
         return this;
     }
 
@@ -50,18 +73,26 @@ public class RoboAttributeSet implements AttributeSet {
 
     @Override
     public int getAttributeIntValue(String namespace, String attribute, int defaultValue) {
+        Index index = index();
+        String key = Index.key(namespace, attribute);
+        Integer intValue = index.intValues.get(key);
+        if (intValue != null) return intValue;
+
         Attribute attr = findByName(namespace, attribute);
         if (attr == null) return defaultValue;
         String value = attr.value;
 
         if (isEnum(namespace, attribute)) {
-            return getEnumValue(namespace, attribute, value);
+            intValue = getEnumValue(namespace, attribute, value);
+        } else {
+            intValue = extractInt(value, null);
+            if (intValue == null) return defaultValue;
         }
-
-        return extractInt(value, defaultValue);
+        index.intValues.put(key, intValue);
+        return intValue;
     }
 
-    private int extractInt(String value, int defaultValue) {
+    private Integer extractInt(String value, Integer defaultValue) {
         if (value == null) return defaultValue;
         if (value.startsWith("0x")) return Integer.parseInt(value.substring(2), 16);
       try {
@@ -149,7 +180,7 @@ public class RoboAttributeSet implements AttributeSet {
         Attribute attr = findByName(namespace, attribute);
         if (attr == null) return defaultValue;
 
-        Integer resourceId = ResName.getResourceId(resourceLoader.getResourceIndex(), attr.value, attr.contextPackageName);
+        Integer resourceId = index().resourceIdFor(attr);
         return resourceId == null ? defaultValue : resourceId;
     }
 
@@ -158,7 +189,7 @@ public class RoboAttributeSet implements AttributeSet {
         String attrName = resourceLoader.getResourceIndex().getResourceName(resourceId);
         Attribute attr = findByName(null, attrName);
         if (attr == null) return defaultValue;
-        Integer extracted = ResName.getResourceId(resourceLoader.getResourceIndex(), attr.value, attr.contextPackageName);
+        Integer extracted = index().resourceIdFor(attr);
         return (extracted == null) ? defaultValue : extracted;
     }
 
@@ -193,12 +224,12 @@ public class RoboAttributeSet implements AttributeSet {
     }
 
     @Override public int getStyleAttribute() {
-        Attribute styleAttribute = Attribute.find(attributes, new ResName("", "attr", "style"));
+        Attribute styleAttribute = index().byName.get(STYLE);
         if (styleAttribute == null) {
             // Per Android specifications, return 0 if there is no style.
             return 0;
         }
-        Integer i = ResName.getResourceId(resourceLoader.getResourceIndex(), styleAttribute.value, styleAttribute.contextPackageName);
+        Integer i = index().resourceIdFor(styleAttribute);
         return i != null ? i : 0;
     }
 
@@ -216,24 +247,101 @@ public class RoboAttributeSet implements AttributeSet {
     }
 
     private Attribute findByName(String packageName, String attrName) {
-        String namespace = null;
-        try {
-            namespace = URLEncoder.encode(packageName, "UTF-8");
-        } catch (UnsupportedEncodingException e) {
-            throw new RuntimeException(e);
+        Index index = index();
+        String key = Index.key(packageName, attrName);
+        Object found = index.byNamespaceAndName.get(key);
+        if (found == null) {
+            String namespace = null;
+            try {
+                namespace = URLEncoder.encode(packageName, "UTF-8");
+            } catch (UnsupportedEncodingException e) {
+                throw new RuntimeException(e);
+            }
+            Attribute attribute = findByName(new ResName(namespace, "attr", attrName));
+            found = attribute == null ? Index.NOT_FOUND : attribute;
+            index.byNamespaceAndName.put(key, found);
         }
-        return findByName(new ResName(namespace, "attr", attrName));
+        return found == Index.NOT_FOUND ? null : (Attribute) found;
     }
 
     private Attribute findByName(ResName resName) {
-        ResourceIndex resourceIndex = resourceLoader.getResourceIndex();
-        Integer resourceId = resourceIndex.getResourceId(resName);
+        Index index = index();
+        Integer resourceId = resourceLoader.getResourceIndex().getResourceId(resName);
         // canonicalize the attr name if we can, otherwise don't...
         // todo: this is awful; fix it.
         if (resourceId == null) {
-            return Attribute.find(attributes, resName);
+            return index.byName.get(resName);
         } else {
-            return Attribute.find(attributes, resourceId, resourceIndex);
+            return index.byId.get(resourceId);
+        }
+    }
+
+    private Index index() {
+        if (index == null) {
+            index = new Index(attributes, resourceLoader, viewClass);
+        }
+        return index;
+    }
+
+    /**
+     * Hashed lookups into a list of attributes, plus whatever's been worked out from them so far (parsed ints, enum and
+     * flag values, and resource ids). Build one per layout element and share it between every attribute set inflated
+     * from that element; don't add attributes to the list afterwards.
+     */
+    public static class Index {
+        private static final Object NOT_FOUND = new Object();
+
+        private final List<Attribute> attributes;
+        private final ResourceLoader resourceLoader;
+        private final Class<? extends View> viewClass;
+        private final Map<ResName, Attribute> byName = new HashMap<ResName, Attribute>();
+        private final Map<Integer, Attribute> byId = new HashMap<Integer, Attribute>();
+        private final Map<String, Object> byNamespaceAndName = new ConcurrentHashMap<String, Object>();
+        private final Map<String, Integer> intValues = new ConcurrentHashMap<String, Integer>();
+        private final Map<Attribute, Object> resourceIds = new ConcurrentHashMap<Attribute, Object>();
+
+        public Index(List<Attribute> attributes, ResourceLoader resourceLoader, Class<? extends View> viewClass) {
+            this.attributes = attributes;
+            this.resourceLoader = resourceLoader;
+            this.viewClass = viewClass;
+
+            ResourceIndex resourceIndex = resourceLoader.getResourceIndex();
+            for (Attribute attribute : attributes) {
+                // the first one wins, same as Attribute.find()
+                if (!byName.containsKey(attribute.resName)) {
+                    byName.put(attribute.resName, attribute);
+                }
+                Integer resourceId = resourceIndex.getResourceId(attribute.resName);
+                if (resourceId != null && !byId.containsKey(resourceId)) {
+                    byId.put(resourceId, attribute);
+                }
+            }
+        }
+
+        public List<Attribute> getAttributes() {
+            return attributes;
+        }
+
+        public ResourceLoader getResourceLoader() {
+            return resourceLoader;
+        }
+
+        public Class<? extends View> getViewClass() {
+            return viewClass;
+        }
+
+        private Integer resourceIdFor(Attribute attribute) {
+            Object resourceId = resourceIds.get(attribute);
+            if (resourceId == null) {
+                Integer id = ResName.getResourceId(resourceLoader.getResourceIndex(), attribute.value, attribute.contextPackageName);
+                resourceId = id == null ? NOT_FOUND : id;
+                resourceIds.put(attribute, resourceId);
+            }
+            return resourceId == NOT_FOUND ? null : (Integer) resourceId;
+        }
+
+        private static String key(String namespace, String attribute) {
+            return namespace + "|" + attribute;
         }
     }
 }
@@ -12,6 +12,9 @@ import android.content.ServiceConnection;
 import android.content.res.AssetManager;
 import android.content.res.Configuration;
 import android.content.res.Resources;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.Handler;
 import android.os.IBinder;
 import android.os.Looper;
 import android.os.PowerManager;
@@ -24,13 +27,20 @@ import org.robolectric.internal.Implements;
 import org.robolectric.internal.RealObject;
 import org.robolectric.res.ResourceLoader;
 import org.robolectric.tester.org.apache.http.FakeHttpLayer;
+import org.robolectric.util.RobolectricBackgroundExecutorService;
 import org.robolectric.util.Scheduler;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static org.robolectric.Robolectric.newInstanceOf;
 import static org.robolectric.Robolectric.shadowOf;
@@ -42,6 +52,16 @@ import static org.robolectric.Robolectric.shadowOf;
 @Implements(Application.class)
 public class ShadowApplication extends ShadowContextWrapper {
     private static final Map<String, String> SYSTEM_SERVICE_MAP = new HashMap<String, String>();
+    private static final String TAG = "ShadowApplication";
+    private static final Wrapper[] NO_RECEIVERS = new Wrapper[0];
+    private static final Comparator<Wrapper> BY_DESCENDING_PRIORITY = new Comparator<Wrapper>() {
+        @Override
+        public int compare(Wrapper a, Wrapper b) {
+            int priorityA = a.intentFilter.getPriority();
+            int priorityB = b.intentFilter.getPriority();
+            return priorityA > priorityB ? -1 : (priorityA == priorityB ? 0 : 1);
+        }
+    };
 
     static {
         // note that these are different!
@@ -82,10 +102,14 @@ public class ShadowApplication extends ShadowContextWrapper {
     private List<Intent> broadcastIntents = new ArrayList<Intent>();
     private List<ServiceConnection> unboundServiceConnections = new ArrayList<ServiceConnection>();
     private List<Wrapper> registeredReceivers = new ArrayList<Wrapper>();
+    // copy-on-write arrays, so a broadcast can iterate over one while its receivers register and unregister others
+    private Map<String, Wrapper[]> receiversByAction = new HashMap<String, Wrapper[]>();
+    private Map<BroadcastReceiver, List<Wrapper>> wrappersByReceiver = new IdentityHashMap<BroadcastReceiver, List<Wrapper>>();
     private Map<String, Intent> stickyIntents = new HashMap<String, Intent>();
     private FakeHttpLayer fakeHttpLayer = new FakeHttpLayer();
     private Looper mainLooper = ShadowLooper.myLooper();
-    private Scheduler backgroundScheduler = new Scheduler();
+    private Scheduler backgroundScheduler = ShadowLooper.newScheduler();
+    private RobolectricBackgroundExecutorService backgroundExecutorService = new RobolectricBackgroundExecutorService();
     private Map<String, Map<String, Object>> sharedPreferenceMap = new HashMap<String, Map<String, Object>>();
     private ArrayList<Toast> shownToasts = new ArrayList<Toast>();
     private PowerManager.WakeLock latestWakeLock;
@@ -132,6 +156,22 @@ public class ShadowApplication extends ShadowContextWrapper {
         return backgroundScheduler;
     }
 
+    /**
+     * Returns the executor {@code AsyncTask}s run on; unless it's been replaced, it runs them on the
+     * {@link #getBackgroundScheduler() background scheduler}.
+     */
+    public RobolectricBackgroundExecutorService getBackgroundExecutorService() {
+        return backgroundExecutorService;
+    }
+
+    /**
+     * Lets {@code AsyncTask}s run on real threads, e.g. with
+     * {@link RobolectricBackgroundExecutorService#withRealThreads(int)}.
+     */
+    public void setBackgroundExecutorService(RobolectricBackgroundExecutorService backgroundExecutorService) {
+        this.backgroundExecutorService = backgroundExecutorService;
+    }
+
     @Override
     @Implementation
     public Context getApplicationContext() {
@@ -340,8 +380,10 @@ public class ShadowApplication extends ShadowContextWrapper {
     }
 
     /**
-     * Broadcasts the {@code Intent} by iterating through the registered receivers, invoking their filters, and calling
-     * {@code onRecieve(Application, Intent)} as appropriate. Does not enqueue the {@code Intent} for later inspection.
+     * Broadcasts the {@code Intent} to the registered receivers whose filters match it, in the order they were
+     * registered, calling {@code onRecieve(Application, Intent)} on each. Only receivers registered for the intent's
+     * action are considered, and their filters must also match its categories and data as on Android. Does not
+     * enqueue the {@code Intent} for later inspection.
      *
      * @param intent the {@code Intent} to broadcast
      *               todo: enqueue the Intent for later inspection
@@ -350,16 +392,59 @@ public class ShadowApplication extends ShadowContextWrapper {
     @Implementation
     public void sendBroadcast(Intent intent) {
         broadcastIntents.add(intent);
-		
-        List<Wrapper> copy = new ArrayList<Wrapper>();
-        copy.addAll(registeredReceivers);
-        for (Wrapper wrapper : copy) {
-            if (wrapper.intentFilter.matchAction(intent.getAction())) {
+
+        for (Wrapper wrapper : candidatesFor(intent)) {
+            if (wrapper.matches(intent)) {
                 wrapper.broadcastReceiver.onReceive(realApplication, intent);
             }
         }
     }
-	
+
+    @Override
+    @Implementation
+    public void sendOrderedBroadcast(Intent intent, String receiverPermission) {
+        sendOrderedBroadcast(intent, receiverPermission, null, null, 0, null, null);
+    }
+
+    /**
+     * Delivers the {@code Intent} to the matching receivers one at a time, highest {@code IntentFilter} priority
+     * first (registration order among equal priorities), until one of them calls {@code abortBroadcast()}. The
+     * {@code resultReceiver}, if any, gets it last whether or not it was aborted. Permissions, the scheduler and the
+     * initial result aren't simulated.
+     */
+    @Override
+    @Implementation
+    public void sendOrderedBroadcast(Intent intent, String receiverPermission, BroadcastReceiver resultReceiver,
+                                     Handler scheduler, int initialCode, String initialData, Bundle initialExtras) {
+        broadcastIntents.add(intent);
+
+        List<Wrapper> receivers = new ArrayList<Wrapper>();
+        for (Wrapper wrapper : candidatesFor(intent)) {
+            if (wrapper.matches(intent)) {
+                receivers.add(wrapper);
+            }
+        }
+        Collections.sort(receivers, BY_DESCENDING_PRIORITY);
+
+        for (Wrapper wrapper : receivers) {
+            ShadowBroadcastReceiver shadowReceiver = shadowOf(wrapper.broadcastReceiver);
+            shadowReceiver.clearAbortBroadcast();
+            wrapper.broadcastReceiver.onReceive(realApplication, intent);
+            if (shadowReceiver.getAbortBroadcast()) {
+                shadowReceiver.clearAbortBroadcast();
+                break;
+            }
+        }
+        if (resultReceiver != null) {
+            resultReceiver.onReceive(realApplication, intent);
+        }
+    }
+
+    private Wrapper[] candidatesFor(Intent intent) {
+        Wrapper[] candidates = receiversByAction.get(intent.getAction());
+        return candidates == null ? NO_RECEIVERS : candidates;
+    }
+
     public List<Intent> getBroadcastIntents() {
         return broadcastIntents;
     }
@@ -383,19 +468,35 @@ public class ShadowApplication extends ShadowContextWrapper {
 
     Intent registerReceiverWithContext(BroadcastReceiver receiver, IntentFilter filter, Context context) {
         if (receiver != null) {
-            registeredReceivers.add(new Wrapper(receiver, filter, context));
+            Wrapper wrapper = new Wrapper(receiver, filter, context);
+            registeredReceivers.add(wrapper);
+
+            List<Wrapper> wrappers = wrappersByReceiver.get(receiver);
+            if (wrappers == null) {
+                wrappersByReceiver.put(receiver, wrappers = new ArrayList<Wrapper>(1));
+            }
+            wrappers.add(wrapper);
+
+            for (String action : actionsOf(filter)) {
+                Wrapper[] existing = receiversByAction.get(action);
+                Wrapper[] updated;
+                if (existing == null) {
+                    updated = new Wrapper[] {wrapper};
+                } else {
+                    updated = Arrays.copyOf(existing, existing.length + 1);
+                    updated[existing.length] = wrapper;
+                }
+                receiversByAction.put(action, updated);
+            }
         }
         return getStickyIntent(filter);
     }
 
     private Intent getStickyIntent(IntentFilter filter) {
-        for (Intent stickyIntent : stickyIntents.values()) {
-            String action = null;
-            for (int i = 0; i < filter.countActions(); i++) {
-                action = filter.getAction(i);
-                if (stickyIntent.getAction().equals(action)) {
-                    return stickyIntent;
-                }
+        for (String action : actionsOf(filter)) {
+            Intent stickyIntent = stickyIntents.get(action);
+            if (stickyIntent != null && matches(filter, stickyIntent)) {
+                return stickyIntent;
             }
         }
 
@@ -405,18 +506,42 @@ public class ShadowApplication extends ShadowContextWrapper {
     @Override
     @Implementation
     public void unregisterReceiver(BroadcastReceiver broadcastReceiver) {
-        boolean found = false;
-        Iterator<Wrapper> iterator = registeredReceivers.iterator();
-        while (iterator.hasNext()) {
-            Wrapper wrapper = iterator.next();
-            if (wrapper.broadcastReceiver == broadcastReceiver) {
-                iterator.remove();
-                found = true;
+        List<Wrapper> wrappers = wrappersByReceiver.remove(broadcastReceiver);
+        if (wrappers == null) {
+            throw new IllegalArgumentException("Receiver not registered: " + broadcastReceiver);
+        }
+
+        for (Wrapper wrapper : wrappers) {
+            registeredReceivers.remove(wrapper);
+            for (String action : actionsOf(wrapper.intentFilter)) {
+                Wrapper[] existing = receiversByAction.get(action);
+                if (existing == null) continue;
+                List<Wrapper> remaining = new ArrayList<Wrapper>(Arrays.asList(existing));
+                remaining.remove(wrapper);
+                if (remaining.isEmpty()) {
+                    receiversByAction.remove(action);
+                } else {
+                    receiversByAction.put(action, remaining.toArray(new Wrapper[remaining.size()]));
+                }
             }
         }
-        if (!found) {
-            throw new IllegalArgumentException("Receiver not registered: " + broadcastReceiver);
+    }
+
+    /**
+     * The filter's distinct actions, so a filter listing an action twice is still only indexed once under it.
+     */
+    private static Set<String> actionsOf(IntentFilter filter) {
+        Set<String> actions = new LinkedHashSet<String>();
+        for (int i = 0; i < filter.countActions(); i++) {
+            actions.add(filter.getAction(i));
         }
+        return actions;
+    }
+
+    private static boolean matches(IntentFilter filter, Intent intent) {
+        Uri data = intent.getData();
+        return filter.match(intent.getAction(), intent.getType(), data == null ? null : data.getScheme(), data,
+                intent.getCategories(), TAG) >= 0;
     }
 
     /**
@@ -457,8 +582,8 @@ public class ShadowApplication extends ShadowContextWrapper {
     }
 
     public boolean hasReceiverForIntent(Intent intent) {
-        for (Wrapper wrapper : registeredReceivers) {
-            if (wrapper.intentFilter.matchAction(intent.getAction())) {
+        for (Wrapper wrapper : candidatesFor(intent)) {
+            if (wrapper.matches(intent)) {
                 return true;
             }
         }
@@ -467,8 +592,8 @@ public class ShadowApplication extends ShadowContextWrapper {
 
     public List<BroadcastReceiver> getReceiversForIntent(Intent intent) {
         ArrayList<BroadcastReceiver> broadcastReceivers = new ArrayList<BroadcastReceiver>();
-        for (Wrapper wrapper : registeredReceivers) {
-            if (wrapper.intentFilter.matchAction(intent.getAction())) {
+        for (Wrapper wrapper : candidatesFor(intent)) {
+            if (wrapper.matches(intent)) {
                 broadcastReceivers.add(wrapper.getBroadcastReceiver());
             }
         }
@@ -612,5 +737,9 @@ public class ShadowApplication extends ShadowContextWrapper {
         public Context getContext() {
             return context;
         }
+
+        boolean matches(Intent intent) {
+            return ShadowApplication.matches(intentFilter, intent);
+        }
     }
 }
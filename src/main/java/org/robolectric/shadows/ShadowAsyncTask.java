@@ -6,6 +6,7 @@ import org.robolectric.Robolectric;
 import org.robolectric.internal.Implementation;
 import org.robolectric.internal.Implements;
 import org.robolectric.internal.RealObject;
+import org.robolectric.util.RobolectricBackgroundExecutorService;
 
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
@@ -22,7 +23,7 @@ public class ShadowAsyncTask<Params, Progress, Result> {
     
     private final FutureTask<Result> future;
     private final BackgroundWorker worker;
-    private AsyncTask.Status status = AsyncTask.Status.PENDING;
+    private volatile AsyncTask.Status status = AsyncTask.Status.PENDING;
     
 	public ShadowAsyncTask() {
 		worker = new BackgroundWorker();
@@ -80,11 +81,17 @@ public class ShadowAsyncTask<Params, Progress, Result> {
 
         worker.params = params;
 
-        Robolectric.getBackgroundScheduler().post(new Runnable() {
+        Runnable runFuture = new Runnable() {
             @Override public void run() {
             	future.run();
             }
-        });
+        };
+        RobolectricBackgroundExecutorService executorService = Robolectric.getShadowApplication().getBackgroundExecutorService();
+        if (executorService.usesRealThreads()) {
+            executorService.execute(runFuture);
+        } else {
+            Robolectric.getBackgroundScheduler().post(runFuture);
+        }
 
         return realAsyncTask;
     }
@@ -5,24 +5,45 @@ import org.robolectric.Robolectric;
 import org.robolectric.internal.Implementation;
 import org.robolectric.internal.Implements;
 import org.robolectric.internal.RealObject;
+import org.robolectric.util.PixelBuffer;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.Buffer;
 
 import static org.robolectric.Robolectric.shadowOf;
 
 @SuppressWarnings({"UnusedDeclaration"})
 @Implements(Bitmap.class)
 public class ShadowBitmap {
+    private static boolean rasterEnabled;
+
     @RealObject private Bitmap realBitmap;
 
     private int width;
     private int height;
     private Bitmap.Config config;
     private boolean mutable;
-    private String description = "";
+    private StringBuilder description = new StringBuilder();
     private int loadedFromResourceId = -1;
     private boolean recycled = false;
+    private PixelBuffer pixels;
+
+    /**
+     * Non-Android accessor. Turns on real pixel storage: from then on bitmaps keep their pixels, {@code getPixel()} and
+     * friends read and write them, and canvases draw into them. Off by default; {@link #reset()} turns it off again.
+     */
+    public static void setRasterEnabled(boolean enabled) {
+        rasterEnabled = enabled;
+    }
+
+    public static boolean isRasterEnabled() {
+        return rasterEnabled;
+    }
+
+    public static void reset() {
+        rasterEnabled = false;
+    }
 
     @Implementation
     public boolean compress(Bitmap.CompressFormat format, int quality, OutputStream stream) {
@@ -43,6 +64,7 @@ public class ShadowBitmap {
         shadowBitmap.setWidth(width);
         shadowBitmap.setHeight(height);
         shadowBitmap.setConfig(config);
+        shadowBitmap.setMutable(true);
         return scaledBitmap;
     }
 
@@ -56,20 +78,28 @@ public class ShadowBitmap {
     @Implementation
     public static Bitmap createScaledBitmap(Bitmap src, int dstWidth, int dstHeight, boolean filter) {
         Bitmap scaledBitmap = Robolectric.newInstanceOf(Bitmap.class);
+        ShadowBitmap shadowSrc = shadowOf(src);
         ShadowBitmap shadowBitmap = shadowOf(scaledBitmap);
-        shadowBitmap.appendDescription(shadowOf(src).getDescription());
-        shadowBitmap.appendDescription(" scaled to " + dstWidth + " x " + dstHeight);
+        shadowBitmap.description.append(shadowSrc.description)
+                .append(" scaled to ").append(dstWidth).append(" x ").append(dstHeight);
         if (filter) {
             shadowBitmap.appendDescription(" with filter " + filter);
         }
         shadowBitmap.setWidth(dstWidth);
         shadowBitmap.setHeight(dstHeight);
+
+        PixelBuffer srcPixels = shadowSrc.getPixelBuffer();
+        PixelBuffer dstPixels = shadowBitmap.getPixelBuffer();
+        if (srcPixels != null && dstPixels != null) {
+            dstPixels.draw(srcPixels, 0, 0, srcPixels.getWidth(), srcPixels.getHeight(), 0, 0, dstWidth, dstHeight);
+        }
         return scaledBitmap;
     }
 
     @Implementation
     public void recycle() {
         recycled = true;
+        pixels = null;
     }
 
     @Implementation
@@ -104,15 +134,133 @@ public class ShadowBitmap {
     }
 
     public void appendDescription(String s) {
-        description += s;
+        description.append(s);
     }
 
     public void setDescription(String s) {
-        description = s;
+        description.setLength(0);
+        description.append(s);
     }
 
     public String getDescription() {
-        return description;
+        return description.toString();
+    }
+
+    boolean hasDescription() {
+        return description.length() != 0;
+    }
+
+    /**
+     * Non-Android accessor.
+     *
+     * @return this bitmap's pixels, allocated on first use; null unless {@link #setRasterEnabled(boolean) raster mode}
+     *     is on
+     */
+    public PixelBuffer getPixelBuffer() {
+        if (pixels == null && rasterEnabled && !recycled) {
+            pixels = new PixelBuffer(width, height);
+        }
+        return pixels;
+    }
+
+    @Implementation
+    public int getPixel(int x, int y) {
+        PixelBuffer buffer = getPixelBuffer();
+        if (buffer == null) return 0;
+        checkPixelAccess(x, y);
+        return buffer.get(x, y);
+    }
+
+    @Implementation
+    public void setPixel(int x, int y, int color) {
+        PixelBuffer buffer = getPixelBuffer();
+        if (buffer == null) return;
+        checkMutable("setPixel");
+        checkPixelAccess(x, y);
+        buffer.set(x, y, color);
+    }
+
+    @Implementation
+    public void getPixels(int[] pixels, int offset, int stride, int x, int y, int width, int height) {
+        PixelBuffer buffer = getPixelBuffer();
+        if (buffer == null || width == 0 || height == 0) return;
+        checkPixelsAccess(x, y, width, height, offset, stride, pixels);
+        buffer.getPixels(pixels, offset, stride, x, y, width, height);
+    }
+
+    @Implementation
+    public void setPixels(int[] pixels, int offset, int stride, int x, int y, int width, int height) {
+        PixelBuffer buffer = getPixelBuffer();
+        if (buffer == null) return;
+        checkMutable("setPixels");
+        if (width == 0 || height == 0) return;
+        checkPixelsAccess(x, y, width, height, offset, stride, pixels);
+        buffer.setPixels(pixels, offset, stride, x, y, width, height);
+    }
+
+    @Implementation
+    public void copyPixelsToBuffer(Buffer dst) {
+        PixelBuffer buffer = getPixelBuffer();
+        if (buffer != null) buffer.copyTo(dst, format(config));
+    }
+
+    @Implementation
+    public void copyPixelsFromBuffer(Buffer src) {
+        PixelBuffer buffer = getPixelBuffer();
+        if (buffer != null) buffer.copyFrom(src, format(config));
+    }
+
+    @Implementation
+    public void eraseColor(int color) {
+        PixelBuffer buffer = getPixelBuffer();
+        if (buffer == null) return;
+        checkMutable("eraseColor");
+        buffer.erase(color);
+    }
+
+    /**
+     * Reported from the size and config whether or not {@link #setRasterEnabled(boolean) raster mode} is on, so
+     * buffers sized from it fit {@link #copyPixelsToBuffer(Buffer)}.
+     */
+    @Implementation
+    public final int getRowBytes() {
+        return width * format(config).bytesPerPixel;
+    }
+
+    @Implementation
+    public final int getByteCount() {
+        return getRowBytes() * height;
+    }
+
+    private static PixelBuffer.Format format(Bitmap.Config config) {
+        if (config == Bitmap.Config.ALPHA_8) return PixelBuffer.Format.ALPHA_8;
+        if (config == Bitmap.Config.RGB_565) return PixelBuffer.Format.RGB_565;
+        if (config == Bitmap.Config.ARGB_4444) return PixelBuffer.Format.ARGB_4444;
+        return PixelBuffer.Format.ARGB_8888;
+    }
+
+    private void checkMutable(String method) {
+        if (!mutable) throw new IllegalStateException("Can't call " + method + "() on an immutable bitmap");
+    }
+
+    private void checkPixelAccess(int x, int y) {
+        if (x < 0) throw new IllegalArgumentException("x must be >= 0");
+        if (y < 0) throw new IllegalArgumentException("y must be >= 0");
+        if (x >= width) throw new IllegalArgumentException("x must be < bitmap.width()");
+        if (y >= height) throw new IllegalArgumentException("y must be < bitmap.height()");
+    }
+
+    private void checkPixelsAccess(int x, int y, int width, int height, int offset, int stride, int[] pixels) {
+        checkPixelAccess(x, y);
+        if (width < 0) throw new IllegalArgumentException("width must be >= 0");
+        if (height < 0) throw new IllegalArgumentException("height must be >= 0");
+        if (x + width > this.width) throw new IllegalArgumentException("x + width must be <= bitmap.width()");
+        if (y + height > this.height) throw new IllegalArgumentException("y + height must be <= bitmap.height()");
+        if (Math.abs(stride) < width) throw new IllegalArgumentException("abs(stride) must be >= width");
+        int lastScanline = offset + (height - 1) * stride;
+        if (offset < 0 || offset + width > pixels.length || lastScanline < 0 || lastScanline + width > pixels.length) {
+            throw new ArrayIndexOutOfBoundsException();
+        }
     }
 
     public static Bitmap create(String name) {
@@ -133,6 +281,7 @@ public class ShadowBitmap {
     }
 
     public void setWidth(int width) {
+        if (pixels != null && width != this.width) pixels = null;
         this.width = width;
     }
 
@@ -142,6 +291,7 @@ public class ShadowBitmap {
     }
 
     public void setHeight(int height) {
+        if (pixels != null && height != this.height) pixels = null;
         this.height = height;
     }
 
@@ -159,7 +309,7 @@ public class ShadowBitmap {
 
         if (height != that.height) return false;
         if (width != that.width) return false;
-        if (description != null ? !description.equals(that.description) : that.description != null) return false;
+        if (!getDescription().equals(that.getDescription())) return false;
 
         return true;
     }
@@ -168,7 +318,7 @@ public class ShadowBitmap {
     public int hashCode() {
         int result = width;
         result = 31 * result + height;
-        result = 31 * result + (description != null ? description.hashCode() : 0);
+        result = 31 * result + getDescription().hashCode();
         return result;
     }
 
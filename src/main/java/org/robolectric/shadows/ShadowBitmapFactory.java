@@ -6,11 +6,22 @@ import android.graphics.BitmapFactory;
 import android.graphics.Point;
 import android.graphics.Rect;
 import android.net.Uri;
+import org.robolectric.AndroidManifest;
 import org.robolectric.Robolectric;
 import org.robolectric.internal.Implementation;
 import org.robolectric.internal.Implements;
+import org.robolectric.res.ResName;
+import org.robolectric.res.ResourcePath;
+import org.robolectric.util.DecodedImage;
+import org.robolectric.util.DecodedImageCache;
 import org.robolectric.util.Join;
+import org.robolectric.util.PixelBuffer;
+import org.robolectric.util.Util;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
@@ -26,10 +37,40 @@ import static org.robolectric.Robolectric.shadowOf;
 @Implements(BitmapFactory.class)
 public class ShadowBitmapFactory {
     private static Map<String, Point> widthAndHeightMap = new HashMap<String, Point>();
+    private static final Map<Integer, File> resourceFiles = new HashMap<Integer, File>();
+    // shared by all tests in the JVM, so assets aren't decoded again by every test; bounded by the pixels' memory
+    private static final DecodedImageCache decodedImages = new DecodedImageCache();
+    private static boolean decodingEnabled;
+
+    /**
+     * Non-Android accessor. Turns on reading the image bytes: PNG and JPEG files, resources, streams and byte arrays
+     * then get their real dimensions (and, in {@link ShadowBitmap#setRasterEnabled(boolean) raster mode}, their real
+     * pixels), and {@code inJustDecodeBounds} returns null as it does on a device. Anything else still falls back to
+     * the width and height hints. Off by default; {@link #reset()} turns it off again.
+     */
+    public static void setDecodingEnabled(boolean enabled) {
+        decodingEnabled = enabled;
+    }
+
+    public static boolean isDecodingEnabled() {
+        return decodingEnabled;
+    }
+
+    static DecodedImageCache getDecodedImageCache() {
+        return decodedImages;
+    }
 
     @Implementation
     public static Bitmap decodeResource(Resources res, int id, BitmapFactory.Options options) {
-        Bitmap bitmap = create("resource:" + getResourceName(id), options);
+        String name = "resource:" + getResourceName(id);
+        Bitmap bitmap = null;
+        File file = decodingEnabled ? getResourceFile(id) : null;
+        byte[] data = file != null ? readFile(file) : null;
+        if (data != null) {
+            bitmap = decode(name, data, 0, data.length, options);
+            if (bitmap == null) return null;
+        }
+        if (bitmap == null) bitmap = create(name, options);
         shadowOf(bitmap).setLoadedFromResourceId(id);
         return bitmap;
     }
@@ -45,11 +86,15 @@ public class ShadowBitmapFactory {
 
     @Implementation
     public static Bitmap decodeFile(String pathName) {
-        return create("file:" + pathName);
+        return decodeFile(pathName, null);
     }
 
     @Implementation
     public static Bitmap decodeFile(String pathName, BitmapFactory.Options options) {
+        byte[] data = decodingEnabled ? readFile(new File(pathName)) : null;
+        if (data != null) {
+            return decode("file:" + pathName, data, 0, data.length, options);
+        }
         return create("file:" + pathName, options);
     }
 
@@ -60,7 +105,12 @@ public class ShadowBitmapFactory {
 
     @Implementation
     public static Bitmap decodeStream(InputStream is, Rect outPadding, BitmapFactory.Options opts) {
-        return create(is.toString().replaceFirst("stream for ", ""), opts);
+        String name = is.toString().replaceFirst("stream for ", "");
+        byte[] data = decodingEnabled ? readStream(is) : null;
+        if (data != null) {
+            return decode(name, data, 0, data.length, opts);
+        }
+        return create(name, opts);
     }
 
     @Implementation
@@ -81,8 +131,52 @@ public class ShadowBitmapFactory {
         if (offset != 0 || length != data.length) {
             desc += " bytes " + offset + ".." + length;
         }
+        if (decodingEnabled) {
+            return decode(desc, data, offset, length, opts);
+        }
         return create(desc, opts);
     }
+
+    /**
+     * Sizes the bitmap from the encoded image, if {@code data} holds a PNG or JPEG; otherwise falls back to
+     * {@link #create(String, BitmapFactory.Options)}.
+     */
+    private static Bitmap decode(String name, byte[] data, int offset, int length, BitmapFactory.Options options) {
+        DecodedImage image = decodedImages.get(data, offset, length);
+        if (image == null) return create(name, options);
+        if (options == null) options = new BitmapFactory.Options();
+
+        // like the platform decoders, only use powers of two
+        int sampleSize = options.inSampleSize > 1 ? Integer.highestOneBit(options.inSampleSize) : 1;
+        int width = Math.max(image.width / sampleSize, 1);
+        int height = Math.max(image.height / sampleSize, 1);
+        options.outWidth = width;
+        options.outHeight = height;
+        options.outMimeType = image.mimeType;
+        if (options.inJustDecodeBounds) return null;
+
+        Bitmap bitmap = Robolectric.newInstanceOf(Bitmap.class);
+        ShadowBitmap shadowBitmap = shadowOf(bitmap);
+        describe(shadowBitmap, name, options);
+        shadowBitmap.setWidth(width);
+        shadowBitmap.setHeight(height);
+        shadowBitmap.setConfig(options.inPreferredConfig != null ? options.inPreferredConfig : Bitmap.Config.ARGB_8888);
+        shadowBitmap.setMutable(options.inMutable);
+
+        PixelBuffer pixelBuffer = shadowBitmap.getPixelBuffer();
+        int[] pixels = pixelBuffer != null ? decodedImages.getPixels(image, data, offset, length) : null;
+        if (pixels != null) {
+            int[] row = new int[width];
+            for (int y = 0; y < height; y++) {
+                int sourceRow = y * sampleSize * image.width;
+                for (int x = 0; x < width; x++) {
+                    row[x] = pixels[sourceRow + x * sampleSize];
+                }
+                pixelBuffer.setPixels(row, 0, width, 0, y, width, 1);
+            }
+        }
+        return bitmap;
+    }
     
     static Bitmap create(String name) {
         return create(name, null);
@@ -93,13 +187,7 @@ public class ShadowBitmapFactory {
         
         Bitmap bitmap = Robolectric.newInstanceOf(Bitmap.class);
         ShadowBitmap shadowBitmap = shadowOf(bitmap);
-        shadowBitmap.appendDescription("Bitmap for " + name);
-
-        String optionsString = stringify(options);
-        if (optionsString.length() > 0) {
-            shadowBitmap.appendDescription(" with options ");
-            shadowBitmap.appendDescription(optionsString);
-        }
+        describe(shadowBitmap, name, options);
 
         Point widthAndHeight = widthAndHeightMap.get(name);
         if (widthAndHeight == null) {
@@ -136,6 +224,86 @@ public class ShadowBitmapFactory {
         widthAndHeightMap.put("file:" + file, new Point(width, height));
     }
 
+    private static void describe(ShadowBitmap shadowBitmap, String name, BitmapFactory.Options options) {
+        shadowBitmap.appendDescription("Bitmap for " + name);
+
+        String optionsString = stringify(options);
+        if (optionsString.length() > 0) {
+            shadowBitmap.appendDescription(" with options ");
+            shadowBitmap.appendDescription(optionsString);
+        }
+    }
+
+    private static File getResourceFile(int id) {
+        if (resourceFiles.containsKey(id)) return resourceFiles.get(id);
+
+        File file = null;
+        ResName resName = shadowOf(Robolectric.application).getResourceLoader().getResourceIndex().getResName(id);
+        AndroidManifest appManifest = shadowOf(Robolectric.application).getAppManifest();
+        if (resName != null && appManifest != null) {
+            for (ResourcePath resourcePath : appManifest.getIncludedResourcePaths()) {
+                if (!resourcePath.getPackageName().equals(resName.namespace)) continue;
+                file = findImageFile(resourcePath.resourceBase, resName);
+                if (file != null) break;
+            }
+        }
+        resourceFiles.put(id, file);
+        return file;
+    }
+
+    /**
+     * Looks in the unqualified {@code drawable} directory first, then in the qualified ones.
+     */
+    private static File findImageFile(File resourceBase, ResName resName) {
+        File[] dirs = resourceBase.listFiles();
+        if (dirs == null) return null;
+        File found = null;
+        for (File dir : dirs) {
+            String dirName = dir.getName();
+            if (!dirName.equals(resName.type) && !dirName.startsWith(resName.type + "-")) continue;
+            File[] files = dir.listFiles();
+            if (files == null) continue;
+            for (File file : files) {
+                String fileName = file.getName();
+                int dotIndex = fileName.indexOf('.');
+                if (dotIndex < 0 || !fileName.substring(0, dotIndex).equals(resName.name)) continue;
+                if (fileName.endsWith(".xml")) continue;
+                if (dirName.equals(resName.type)) return file;
+                if (found == null) found = file;
+            }
+        }
+        return found;
+    }
+
+    private static byte[] readFile(File file) {
+        if (!file.isFile()) return null;
+        try {
+            return Util.readBytes(new FileInputStream(file));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads what's left of the stream, leaving it open; returns null if it can't be read, as with the placeholder
+     * streams {@link ShadowContentResolver} hands out.
+     */
+    private static byte[] readStream(InputStream is) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        try {
+            int count;
+            while ((count = is.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+        } catch (IOException e) {
+            return null;
+        } catch (UnsupportedOperationException e) {
+            return null;
+        }
+        return out.toByteArray();
+    }
+
     private static String stringify(BitmapFactory.Options options) {
         if (options == null) return "";
         List<String> opts = new ArrayList<String>();
@@ -148,5 +316,7 @@ public class ShadowBitmapFactory {
 
     public static void reset() {
         widthAndHeightMap.clear();
+        resourceFiles.clear();
+        decodingEnabled = false;
     }
 }
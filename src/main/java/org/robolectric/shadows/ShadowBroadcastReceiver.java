@@ -0,0 +1,29 @@
+package org.robolectric.shadows;
+
+import android.content.BroadcastReceiver;
+import org.robolectric.internal.Implementation;
+import org.robolectric.internal.Implements;
+
+/**
+ * Shadow for {@code BroadcastReceiver} which lets a receiver abort an ordered broadcast sent through
+ * {@link ShadowApplication#sendOrderedBroadcast}.
+ */
+@Implements(BroadcastReceiver.class)
+public class ShadowBroadcastReceiver {
+    private boolean abortBroadcast;
+
+    @Implementation
+    public void abortBroadcast() {
+        abortBroadcast = true;
+    }
+
+    @Implementation
+    public boolean getAbortBroadcast() {
+        return abortBroadcast;
+    }
+
+    @Implementation
+    public void clearAbortBroadcast() {
+        abortBroadcast = false;
+    }
+}
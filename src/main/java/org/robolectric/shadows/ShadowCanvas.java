@@ -7,8 +7,10 @@ import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.Rect;
+import android.graphics.RectF;
 import org.robolectric.internal.Implementation;
 import org.robolectric.internal.Implements;
+import org.robolectric.util.PixelBuffer;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -81,12 +83,39 @@ public class ShadowCanvas {
     @Implementation
     public void drawColor(int color) {
         appendDescription("draw color " + color);
+
+        PixelBuffer raster = raster();
+        if (raster != null) raster.fill(color);
+    }
+
+    @Implementation
+    public void drawRect(float left, float top, float right, float bottom, Paint paint) {
+        PixelBuffer raster = raster();
+        if (raster != null) {
+            raster.fillRect(mapX(left), mapY(top), mapX(right), mapY(bottom), paint.getColor());
+        }
+    }
+
+    @Implementation
+    public void drawRect(Rect rect, Paint paint) {
+        drawRect(rect.left, rect.top, rect.right, rect.bottom, paint);
+    }
+
+    @Implementation
+    public void drawRect(RectF rect, Paint paint) {
+        drawRect(rect.left, rect.top, rect.right, rect.bottom, paint);
     }
 
     @Implementation
     public void drawBitmap(Bitmap bitmap, float left, float top, Paint paint) {
         describeBitmap(bitmap, paint);
 
+        PixelBuffer raster = raster();
+        PixelBuffer source = shadowOf(bitmap).getPixelBuffer();
+        if (raster != null && source != null) {
+            raster.draw(source, scaleX, scaleY, mapX(left), mapY(top));
+        }
+
         int x = (int) (left + translateX);
         int y = (int) (top + translateY);
         if (x != 0 || y != 0) {
@@ -107,6 +136,13 @@ public class ShadowCanvas {
                 ") with height=" + dst.height() +
                 " and width=" + dst.width() +
                 " taken from " + src.toString());
+
+        PixelBuffer raster = raster();
+        PixelBuffer source = shadowOf(bitmap).getPixelBuffer();
+        if (raster != null && source != null) {
+            raster.draw(source, src.left, src.top, src.right, src.bottom,
+                    mapX(dst.left), mapY(dst.top), mapX(dst.right), mapY(dst.bottom));
+        }
     }
 
     @Implementation
@@ -114,6 +150,14 @@ public class ShadowCanvas {
         describeBitmap(bitmap, paint);
 
         appendDescription(" transformed by matrix");
+
+        PixelBuffer raster = raster();
+        PixelBuffer source = shadowOf(bitmap).getPixelBuffer();
+        if (raster != null && source != null) {
+            ShadowMatrix shadowMatrix = shadowOf(matrix);
+            raster.draw(source, scaleX * shadowMatrix.getScaleX(), scaleY * shadowMatrix.getScaleY(),
+                    mapX(shadowMatrix.getTransX()), mapY(shadowMatrix.getTransY()));
+        }
     }
 
     @Implementation
@@ -138,11 +182,27 @@ public class ShadowCanvas {
     }
 
     private void separateLines() {
-        if (getDescription().length() != 0) {
+        if (shadowOf(targetBitmap).hasDescription()) {
             appendDescription("\n");
         }
     }
 
+    /**
+     * @return the target bitmap's pixels, or null unless {@link ShadowBitmap#setRasterEnabled(boolean) raster mode}
+     *     is on
+     */
+    private PixelBuffer raster() {
+        return shadowOf(targetBitmap).getPixelBuffer();
+    }
+
+    private float mapX(float x) {
+        return x * scaleX + translateX;
+    }
+
+    private float mapY(float y) {
+        return y * scaleY + translateY;
+    }
+
     public int getPathPaintHistoryCount() {
         return pathPaintEvents.size();
     }
@@ -1,17 +1,45 @@
 package org.robolectric.shadows;
 
 import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentValues;
 import android.content.Context;
+import android.content.OperationApplicationException;
+import android.net.Uri;
 import org.robolectric.Robolectric;
 import org.robolectric.internal.Implementation;
 import org.robolectric.internal.Implements;
+import org.robolectric.internal.RealObject;
+
+import java.util.ArrayList;
 
 @Implements(ContentProvider.class)
 public class ShadowContentProvider {
+	@RealObject private ContentProvider realContentProvider;
 
 	@Implementation
 	public final Context getContext() {
 		return Robolectric.application;
 	}
 
+	@Implementation
+	public int bulkInsert(Uri uri, ContentValues[] values) {
+		int numValues = values.length;
+		for (int i = 0; i < numValues; i++) {
+			realContentProvider.insert(uri, values[i]);
+		}
+		return numValues;
+	}
+
+	@Implementation
+	public ContentProviderResult[] applyBatch(ArrayList<ContentProviderOperation> operations)
+			throws OperationApplicationException {
+		int numOperations = operations.size();
+		ContentProviderResult[] results = new ContentProviderResult[numOperations];
+		for (int i = 0; i < numOperations; i++) {
+			results[i] = operations.get(i).apply(realContentProvider, results, i);
+		}
+		return results;
+	}
 }
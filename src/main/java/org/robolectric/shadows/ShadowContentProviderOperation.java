@@ -1,13 +1,19 @@
 package org.robolectric.shadows;
 
+import android.content.ContentProvider;
 import android.content.ContentProviderOperation;
 import android.content.ContentProviderOperation.Builder;
+import android.content.ContentProviderResult;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.content.OperationApplicationException;
 import android.net.Uri;
 import org.robolectric.Robolectric;
 import org.robolectric.internal.Implementation;
 import org.robolectric.internal.Implements;
 
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 
 @Implements(ContentProviderOperation.class)
@@ -95,4 +101,88 @@ public class ShadowContentProviderOperation {
     public int getWithValueBackReference(String key) {
         return withValueBackReferences.get(key);
     }
+
+    public Map<String, Integer> getWithValueBackReferences() {
+        return withValueBackReferences;
+    }
+
+    /**
+     * Runs this operation against {@code provider}, resolving value back references against the results of the
+     * operations before it in the same batch, the way {@code ContentProvider.applyBatch()} does.
+     */
+    @Implementation
+    public ContentProviderResult apply(ContentProvider provider, ContentProviderResult[] backRefs, int numBackRefs)
+            throws OperationApplicationException {
+        String selection = null;
+        String[] selectionArgs = null;
+        Iterator<Map.Entry<String, String[]>> selectionIterator = selections.entrySet().iterator();
+        if (selectionIterator.hasNext()) {
+            Map.Entry<String, String[]> entry = selectionIterator.next();
+            selection = entry.getKey();
+            selectionArgs = entry.getValue();
+        }
+
+        if (isInsert) {
+            Uri newUri = provider.insert(uri, resolveValues(backRefs, numBackRefs));
+            if (newUri == null) {
+                throw new OperationApplicationException("insert failed");
+            }
+            return new ContentProviderResult(newUri);
+        }
+
+        int count;
+        if (isDelete) {
+            count = provider.delete(uri, selection, selectionArgs);
+        } else if (isUpdate) {
+            count = provider.update(uri, resolveValues(backRefs, numBackRefs), selection, selectionArgs);
+        } else {
+            throw new IllegalStateException("bad type, neither insert, update nor delete: " + uri);
+        }
+        return new ContentProviderResult(count);
+    }
+
+    private ContentValues resolveValues(ContentProviderResult[] backRefs, int numBackRefs)
+            throws OperationApplicationException {
+        ContentValues contentValues = new ContentValues();
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            put(contentValues, entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<String, Integer> entry : withValueBackReferences.entrySet()) {
+            int index = entry.getValue();
+            if (index >= numBackRefs) {
+                throw new OperationApplicationException("asked for back ref " + index
+                        + " but there are only " + numBackRefs + " back refs");
+            }
+            ContentProviderResult backRef = backRefs[index];
+            Long value = backRef.uri != null ? ContentUris.parseId(backRef.uri) : backRef.count.longValue();
+            contentValues.put(entry.getKey(), value);
+        }
+        return contentValues;
+    }
+
+    private static void put(ContentValues contentValues, String key, Object value) {
+        if (value == null) {
+            contentValues.putNull(key);
+        } else if (value instanceof String) {
+            contentValues.put(key, (String) value);
+        } else if (value instanceof Byte) {
+            contentValues.put(key, (Byte) value);
+        } else if (value instanceof Short) {
+            contentValues.put(key, (Short) value);
+        } else if (value instanceof Integer) {
+            contentValues.put(key, (Integer) value);
+        } else if (value instanceof Long) {
+            contentValues.put(key, (Long) value);
+        } else if (value instanceof Float) {
+            contentValues.put(key, (Float) value);
+        } else if (value instanceof Double) {
+            contentValues.put(key, (Double) value);
+        } else if (value instanceof Boolean) {
+            contentValues.put(key, (Boolean) value);
+        } else if (value instanceof byte[]) {
+            contentValues.put(key, (byte[]) value);
+        } else {
+            throw new IllegalArgumentException("bad value type: " + value.getClass().getName());
+        }
+    }
 }
@@ -6,6 +6,7 @@ import android.content.ContentProviderOperation;
 import android.content.ContentProviderResult;
 import android.content.ContentResolver;
 import android.content.ContentValues;
+import android.content.OperationApplicationException;
 import android.content.PeriodicSync;
 import android.database.ContentObserver;
 import android.database.Cursor;
@@ -196,10 +197,20 @@ public class ShadowContentResolver {
         notifyChange(uri, observer, false);
     }
 
+    /**
+     * Hands the whole batch to the provider registered for {@code authority}, if there is one; otherwise the
+     * operations are recorded for {@link #getContentProviderOperations(String)} and the canned results are returned.
+     */
     @Implementation
-    public ContentProviderResult[] applyBatch(String authority, ArrayList<ContentProviderOperation> operations) {
-        contentProviderOperations.put(authority, operations);
-        return contentProviderResults;
+    public ContentProviderResult[] applyBatch(String authority, ArrayList<ContentProviderOperation> operations)
+            throws OperationApplicationException {
+        ContentProvider provider = providers.get(authority);
+        if (provider != null) {
+            return provider.applyBatch(operations);
+        } else {
+            contentProviderOperations.put(authority, operations);
+            return contentProviderResults;
+        }
     }
 
     @Implementation
@@ -289,8 +300,15 @@ public class ShadowContentResolver {
         }
     }
 
+    /**
+     * Routes every Uri under {@code authority} to {@code provider}. Like the {@code android:authorities} manifest
+     * attribute, {@code authority} may list several authorities separated by semicolons.
+     */
     public static void registerProvider(String authority, ContentProvider provider) {
-        providers.put(authority, provider);
+        for (String name : authority.split(";")) {
+            name = name.trim();
+            if (name.length() > 0) providers.put(name, provider);
+        }
     }
 
     public static Status getStatus(Account account, String authority) {
@@ -100,6 +100,18 @@ abstract public class ShadowContext {
         return attributeSet;
     }
 
+    public RoboAttributeSet createAttributeSet(RoboAttributeSet.Index index) {
+        if (index.getResourceLoader() != getResourceLoader()) {
+            return createAttributeSet(index.getAttributes(), index.getViewClass());
+        }
+
+        RoboAttributeSet attributeSet = new RoboAttributeSet(index);
+        if (isStrictI18n()) {
+            attributeSet.validateStrictI18n();
+        }
+        return attributeSet;
+    }
+
     @Implementation
     public File getCacheDir() {
         CACHE_DIR.mkdirs();
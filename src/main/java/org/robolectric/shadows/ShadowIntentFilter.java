@@ -1,6 +1,7 @@
 package org.robolectric.shadows;
 
 import android.content.IntentFilter;
+import android.net.Uri;
 import org.robolectric.internal.Implementation;
 import org.robolectric.internal.Implements;
 
@@ -30,6 +31,8 @@ public class ShadowIntentFilter {
     List<String> schemes = new ArrayList<String>();
     List<IntentFilter.AuthorityEntry> authoritites = new ArrayList<IntentFilter.AuthorityEntry>();
     List<String> categories = new ArrayList<String>();
+    List<String> types = new ArrayList<String>();
+    int priority;
     
     public void __constructor__(String action) {
         actions.add(action);
@@ -37,6 +40,17 @@ public class ShadowIntentFilter {
 
     public void __constructor__(String action, String dataType) {
         actions.add(action);
+        addDataType(dataType);
+    }
+
+    @Implementation
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
+
+    @Implementation
+    public int getPriority() {
+        return priority;
     }
 
     @Implementation
@@ -64,6 +78,152 @@ public class ShadowIntentFilter {
         return actions.contains(action);
     }
 
+    /**
+     * Unlike Android, doesn't check that the type is well formed.
+     */
+    @Implementation
+    public void addDataType(String type) {
+        int slash = type.indexOf('/');
+        if (slash > 0 && type.length() == slash + 2 && type.charAt(slash + 1) == '*') {
+            type = type.substring(0, slash);
+        }
+        if (!types.contains(type)) {
+            types.add(type);
+        }
+    }
+
+    @Implementation
+    public boolean hasDataType(String type) {
+        return type != null && findMimeType(type);
+    }
+
+    @Implementation
+    public int countDataTypes() {
+        return types.size();
+    }
+
+    @Implementation
+    public String getDataType(int index) {
+        return types.get(index);
+    }
+
+    @Implementation
+    public int countDataSchemes() {
+        return schemes.size();
+    }
+
+    @Implementation
+    public int countDataAuthorities() {
+        return authoritites.size();
+    }
+
+    @Implementation
+    public int countCategories() {
+        return categories.size();
+    }
+
+    /**
+     * Follows {@code IntentFilter.match()}: the action has to be one of the filter's, the data has to match its types,
+     * schemes and authorities, and every one of the intent's categories has to be one of the filter's. Paths aren't
+     * recorded by this shadow, so they're not checked.
+     */
+    @Implementation
+    public int match(String action, String type, String scheme, Uri data, Set<String> categories, String logTag) {
+        if (action != null && !matchAction(action)) {
+            return IntentFilter.NO_MATCH_ACTION;
+        }
+
+        int dataMatch = matchData(type, scheme, data);
+        if (dataMatch < 0) {
+            return dataMatch;
+        }
+
+        if (categories != null) {
+            for (String category : categories) {
+                if (!this.categories.contains(category)) {
+                    return IntentFilter.NO_MATCH_CATEGORY;
+                }
+            }
+        }
+        return dataMatch;
+    }
+
+    @Implementation
+    public int matchData(String type, String scheme, Uri data) {
+        if (types.isEmpty() && schemes.isEmpty()) {
+            return type == null && data == null
+                    ? IntentFilter.MATCH_CATEGORY_EMPTY + IntentFilter.MATCH_ADJUSTMENT_NORMAL
+                    : IntentFilter.NO_MATCH_DATA;
+        }
+
+        int match = IntentFilter.MATCH_CATEGORY_EMPTY;
+        if (!schemes.isEmpty()) {
+            if (!schemes.contains(scheme != null ? scheme : "")) {
+                return IntentFilter.NO_MATCH_DATA;
+            }
+            match = IntentFilter.MATCH_CATEGORY_SCHEME;
+            if (!authoritites.isEmpty()) {
+                if (data == null || !matchAuthority(data)) {
+                    return IntentFilter.NO_MATCH_DATA;
+                }
+                match = IntentFilter.MATCH_CATEGORY_HOST;
+            }
+        } else if (scheme != null && !"".equals(scheme) && !"content".equals(scheme) && !"file".equals(scheme)) {
+            return IntentFilter.NO_MATCH_DATA;
+        }
+
+        if (!types.isEmpty()) {
+            if (type == null || !findMimeType(type)) {
+                return IntentFilter.NO_MATCH_TYPE;
+            }
+            match = IntentFilter.MATCH_CATEGORY_TYPE;
+        } else if (type != null) {
+            return IntentFilter.NO_MATCH_TYPE;
+        }
+
+        return match + IntentFilter.MATCH_ADJUSTMENT_NORMAL;
+    }
+
+    private boolean matchAuthority(Uri data) {
+        String host = data.getHost();
+        for (IntentFilter.AuthorityEntry authority : authoritites) {
+            if (host != null && (host.equals(authority.getHost())
+                    || (authority.getHost().startsWith("*") && host.endsWith(authority.getHost().substring(1))))) {
+                if (authority.getPort() < 0 || authority.getPort() == data.getPort()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Wildcards work both ways, as in Android: a filter for {@code image/*} (stored as {@code image}) matches
+     * {@code image/png}, and a filter for {@code image/png} matches an intent typed {@code image/*}.
+     */
+    private boolean findMimeType(String type) {
+        if (types.contains(type) || types.contains("*") || types.contains("*/*")) {
+            return true;
+        }
+
+        int slash = type.indexOf('/');
+        if (slash <= 0) {
+            return false;
+        }
+        String baseType = type.substring(0, slash);
+        if (types.contains(baseType)) {
+            return true;
+        }
+        if (type.length() == slash + 2 && type.charAt(slash + 1) == '*') {
+            for (String filterType : types) {
+                if (filterType.startsWith(baseType + "/")) {
+                    return true;
+                }
+            }
+        }
+        return "*".equals(baseType);
+    }
+
     @Implementation
     public void addDataAuthority(String host, String port) {
         authoritites.add(new IntentFilter.AuthorityEntry(host, port));
@@ -125,7 +285,8 @@ public class ShadowIntentFilter {
         ShadowIntentFilter that = (ShadowIntentFilter) o;
 
         return actions.equals( that.actions ) && categories.equals( that.categories )
-        		&& schemes.equals( that.schemes ) && authoritites.equals( that.authoritites );
+        		&& schemes.equals( that.schemes ) && authoritites.equals( that.authoritites )
+        		&& types.equals( that.types );
     }
 
     @Override @Implementation
@@ -135,6 +296,7 @@ public class ShadowIntentFilter {
         result = 31 * result + categories.hashCode();
         result = 31 * result + schemes.hashCode();
         result = 31 * result + authoritites.hashCode();
+        result = 31 * result + types.hashCode();
         return result;
     }
 }
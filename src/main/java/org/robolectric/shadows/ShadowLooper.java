@@ -6,6 +6,7 @@ import org.robolectric.internal.Implementation;
 import org.robolectric.internal.Implements;
 import org.robolectric.internal.RealObject;
 import org.robolectric.util.Scheduler;
+import org.robolectric.util.VirtualClock;
 
 import static org.robolectric.Robolectric.shadowOf;
 
@@ -19,7 +20,8 @@ import static org.robolectric.Robolectric.shadowOf;
 @Implements(Looper.class)
 public class ShadowLooper {
     private static ThreadLocal<Looper> looperForThread = makeThreadLocalLoopers();
-    private Scheduler scheduler = new Scheduler();
+    private static VirtualClock virtualClock = new VirtualClock();
+    private Scheduler scheduler = newScheduler();
     private Thread myThread = Thread.currentThread();
     private @RealObject Looper realObject;
 
@@ -36,6 +38,24 @@ public class ShadowLooper {
 
     public static synchronized void resetThreadLoopers() {
         looperForThread = makeThreadLocalLoopers();
+        virtualClock = new VirtualClock();
+    }
+
+    /**
+     * Returns the clock shared by every looper's scheduler and the background scheduler, which can move time forward
+     * for all of them at once.
+     */
+    public static synchronized VirtualClock getVirtualClock() {
+        return virtualClock;
+    }
+
+    /**
+     * Creates a scheduler which follows the {@link #getVirtualClock() virtual clock}.
+     */
+    public static Scheduler newScheduler() {
+        Scheduler scheduler = new Scheduler();
+        getVirtualClock().register(scheduler);
+        return scheduler;
     }
 
     @Implementation
@@ -9,156 +9,563 @@ import org.robolectric.internal.Implementation;
 import org.robolectric.internal.Implements;
 import org.robolectric.internal.RealObject;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+/**
+ * Shadows the {@code android.os.Parcel} class.
+ * <p/>
+ * Values are written into a growable byte array the way the native parcel lays them out: little-endian, every value
+ * padded to 4 bytes, strings as a length followed by UTF-16 chars and a terminator, and -1 for null strings and
+ * arrays. Parcelables are flattened through their own {@code writeToParcel} and read back through their
+ * {@code CREATOR}, and Serializables are written as serialized bytes. Binders, Bundles and other framework
+ * Parcelables, whose {@code writeToParcel} isn't shadowed, are kept by reference in a side table, the way the native
+ * parcel keeps binder objects, and the data only holds their index. A parcel holding any of them can't be
+ * marshalled.
+ * <p/>
+ * As on the native parcel, reads and writes share one position, so what was written has to be rewound to with
+ * {@code setDataPosition(0)} before it can be read back.
+ */
 @Implements(Parcel.class)
 @SuppressWarnings("unchecked")
 public class ShadowParcel {
-    private ArrayList parcelData = new ArrayList();
-    private int index = 0;
+    private static final int POOL_SIZE = 6;
+    private static final int MAX_POOLED_CAPACITY = 64 * 1024;
+    private static final Parcel[] pool = new Parcel[POOL_SIZE];
+
+    // type tags for writeValue(), as in android.os.Parcel
+    private static final int VAL_NULL = -1;
+    private static final int VAL_STRING = 0;
+    private static final int VAL_INTEGER = 1;
+    private static final int VAL_MAP = 2;
+    private static final int VAL_BUNDLE = 3;
+    private static final int VAL_PARCELABLE = 4;
+    private static final int VAL_SHORT = 5;
+    private static final int VAL_LONG = 6;
+    private static final int VAL_FLOAT = 7;
+    private static final int VAL_DOUBLE = 8;
+    private static final int VAL_BOOLEAN = 9;
+    private static final int VAL_LIST = 11;
+    private static final int VAL_BYTEARRAY = 13;
+    private static final int VAL_STRINGARRAY = 14;
+    private static final int VAL_IBINDER = 15;
+    private static final int VAL_INTARRAY = 18;
+    private static final int VAL_LONGARRAY = 19;
+    private static final int VAL_BYTE = 20;
+    private static final int VAL_SERIALIZABLE = 21;
+
+    private byte[] data = new byte[64];
+    private int dataSize;
+    private int position;
+    private final List<Object> objects = new ArrayList<Object>();
 
     @RealObject
     private Parcel realParcel;
 
     @Implementation
     public static Parcel obtain() {
+        synchronized (pool) {
+            for (int i = 0; i < POOL_SIZE; i++) {
+                Parcel parcel = pool[i];
+                if (parcel != null) {
+                    pool[i] = null;
+                    return parcel;
+                }
+            }
+        }
         return Robolectric.newInstanceOf(Parcel.class);
     }
 
+    /**
+     * Empties the parcel and returns it to the pool {@link #obtain()} takes from.
+     */
     @Implementation
-    public void writeString(String str) {
-        if (str == null) {
-            return;
+    public void recycle() {
+        dataSize = 0;
+        position = 0;
+        objects.clear();
+        if (data.length > MAX_POOLED_CAPACITY) data = new byte[64];
+
+        synchronized (pool) {
+            for (int i = 0; i < POOL_SIZE; i++) {
+                if (pool[i] == realParcel) return;
+            }
+            for (int i = 0; i < POOL_SIZE; i++) {
+                if (pool[i] == null) {
+                    pool[i] = realParcel;
+                    return;
+                }
+            }
+        }
+    }
+
+    public static void reset() {
+        synchronized (pool) {
+            Arrays.fill(pool, null);
         }
-        parcelData.add(str);
+    }
+
+    @Implementation
+    public int dataSize() {
+        return dataSize;
+    }
+
+    @Implementation
+    public int dataAvail() {
+        return Math.max(dataSize - position, 0);
+    }
+
+    @Implementation
+    public int dataPosition() {
+        return position;
+    }
+
+    @Implementation
+    public int dataCapacity() {
+        return data.length;
+    }
+
+    @Implementation
+    public void setDataSize(int size) {
+        ensureCapacity(size);
+        dataSize = size;
+        if (position > size) position = size;
+    }
+
+    @Implementation
+    public void setDataPosition(int pos) {
+        if (pos < 0) throw new IllegalArgumentException("position must be >= 0: " + pos);
+        position = pos;
+    }
+
+    @Implementation
+    public void setDataCapacity(int size) {
+        ensureCapacity(size);
+    }
+
+    @Implementation
+    public byte[] marshall() {
+        if (!objects.isEmpty()) {
+            throw new RuntimeException("Tried to marshall a Parcel that contained Binder objects.");
+        }
+        return Arrays.copyOf(data, dataSize);
+    }
+
+    /**
+     * Replaces the contents with {@code length} bytes of {@code data}, leaving the position at the end like the native
+     * parcel does, so they have to be rewound to with {@code setDataPosition(0)} before reading.
+     */
+    @Implementation
+    public void unmarshall(byte[] data, int offset, int length) {
+        objects.clear();
+        this.data = new byte[Math.max(length, 64)];
+        System.arraycopy(data, offset, this.data, 0, length);
+        dataSize = length;
+        position = length;
     }
 
     @Implementation
     public void writeInt(int i) {
-        parcelData.add(i);
+        int pos = grow(4);
+        data[pos] = (byte) i;
+        data[pos + 1] = (byte) (i >> 8);
+        data[pos + 2] = (byte) (i >> 16);
+        data[pos + 3] = (byte) (i >> 24);
     }
 
     @Implementation
     public void writeLong(long i) {
-        parcelData.add(i);
+        writeInt((int) i);
+        writeInt((int) (i >>> 32));
     }
 
     @Implementation
     public void writeFloat(float f) {
-        parcelData.add(f);
+        writeInt(Float.floatToRawIntBits(f));
     }
 
     @Implementation
     public void writeDouble(double f) {
-        parcelData.add(f);
+        writeLong(Double.doubleToRawLongBits(f));
     }
 
     @Implementation
-    @SuppressWarnings("unchecked")
     public void writeByte(byte b) {
-        parcelData.add(b);
-    }
-
-    @Implementation
-    public void writeStrongBinder(IBinder binder) {
-        if (binder == null) {
-            return;
-        }
-        parcelData.add(binder);
+        writeInt(b);
     }
 
     @Implementation
-    public final void writeMap(Map map) {
-        if (map == null) {
+    public void writeString(String str) {
+        if (str == null) {
             writeInt(-1);
             return;
         }
-        Set<Map.Entry<String,Object>> entries = map.entrySet();
-        writeInt(entries.size());
-        for (Map.Entry<String,Object> e : entries) {
-            parcelData.add(e.getKey());
-            parcelData.add(e.getValue());
+        int length = str.length();
+        writeInt(length);
+        int pos = grow(pad((length + 1) * 2));
+        for (int i = 0; i < length; i++) {
+            char c = str.charAt(i);
+            data[pos++] = (byte) c;
+            data[pos++] = (byte) (c >> 8);
         }
+        // the terminator and the padding
+        Arrays.fill(data, pos, position, (byte) 0);
     }
 
     @Implementation
-    public String readString() {
-        return index < parcelData.size() ? (String) parcelData.get(index++) : null;
+    public int readInt() {
+        if (dataSize - position < 4) return 0;
+        int pos = position;
+        position += 4;
+        return (data[pos] & 0xff) | (data[pos + 1] & 0xff) << 8 | (data[pos + 2] & 0xff) << 16 | data[pos + 3] << 24;
     }
 
     @Implementation
-    public int readInt() {
-        return index < parcelData.size() ? (Integer) parcelData.get(index++) : 0;
+    public long readLong() {
+        if (dataSize - position < 8) return 0;
+        long low = readInt() & 0xffffffffL;
+        return low | (long) readInt() << 32;
     }
 
     @Implementation
     public float readFloat() {
-        return index < parcelData.size() ? (Float) parcelData.get(index++) : 0;
+        return Float.intBitsToFloat(readInt());
     }
 
     @Implementation
     public double readDouble() {
-        return index < parcelData.size() ? (Double) parcelData.get(index++) : 0;
+        return Double.longBitsToDouble(readLong());
     }
 
     @Implementation
     public byte readByte() {
-        return index < parcelData.size() ? (Byte) parcelData.get(index++) : 0;
+        return (byte) readInt();
     }
 
     @Implementation
-    public long readLong() {
-        return index < parcelData.size() ? (Long) parcelData.get(index++) : 0;
+    public String readString() {
+        if (dataSize - position < 4) return null;
+        int length = readInt();
+        if (length < 0) return null;
+        int size = pad((length + 1) * 2);
+        if (dataSize - position < size) return null;
+
+        char[] chars = new char[length];
+        int pos = position;
+        for (int i = 0; i < length; i++, pos += 2) {
+            chars[i] = (char) ((data[pos] & 0xff) | (data[pos + 1] & 0xff) << 8);
+        }
+        position += size;
+        return new String(chars);
     }
 
     @Implementation
-    public Bundle readBundle() {
-        return index < parcelData.size() ? (Bundle) parcelData.get(index++) : null;
+    public void writeByteArray(byte[] b) {
+        writeByteArray(b, 0, b != null ? b.length : 0);
+    }
+
+    @Implementation
+    public void writeByteArray(byte[] b, int offset, int len) {
+        if (b == null) {
+            writeInt(-1);
+            return;
+        }
+        if (offset < 0 || len < 0 || offset + len > b.length) throw new ArrayIndexOutOfBoundsException();
+        writeInt(len);
+        int pos = grow(pad(len));
+        System.arraycopy(b, offset, data, pos, len);
+        Arrays.fill(data, pos + len, position, (byte) 0);
+    }
+
+    @Implementation
+    public byte[] createByteArray() {
+        int n = readInt();
+        if (n < 0 || dataSize - position < pad(n)) return null;
+        byte[] val = Arrays.copyOfRange(data, position, position + n);
+        position += pad(n);
+        return val;
+    }
+
+    @Implementation
+    public void readByteArray(byte[] val) {
+        byte[] read = createByteArray();
+        if (read == null || val.length != read.length) throw new RuntimeException("bad array lengths");
+        System.arraycopy(read, 0, val, 0, read.length);
+    }
+
+    @Implementation
+    public void writeStrongBinder(IBinder binder) {
+        writeObject(binder);
     }
 
     @Implementation
     public IBinder readStrongBinder() {
-        return index < parcelData.size() ? (IBinder) parcelData.get(index++) : null;
+        return (IBinder) readObject();
+    }
+
+    @Implementation
+    public void writeBundle(Bundle bundle) {
+        writeObject(bundle);
+    }
+
+    @Implementation
+    public Bundle readBundle() {
+        return (Bundle) readObject();
+    }
+
+    @Implementation
+    public Bundle readBundle(ClassLoader loader) {
+        return readBundle();
+    }
+
+    /**
+     * Writes the class name and then lets the Parcelable flatten itself, except for framework Parcelables, whose
+     * {@code writeToParcel} isn't shadowed; those are kept by reference.
+     */
+    @Implementation
+    public void writeParcelable(Parcelable p, int flags) {
+        if (p == null) {
+            writeString(null);
+            return;
+        }
+        String name = p.getClass().getName();
+        writeString(name);
+        if (isFramework(name)) {
+            writeObject(p);
+        } else {
+            p.writeToParcel(realParcel, flags);
+        }
     }
 
     @Implementation
-    public final HashMap readHashMap(ClassLoader loader)
-    {
+    public Parcelable readParcelable(ClassLoader cl) {
+        String name = readString();
+        if (name == null) return null;
+        if (isFramework(name)) return (Parcelable) readObject();
+
+        Parcelable.Creator creator;
+        try {
+            Class<?> parcelableClass = Class.forName(name, true, cl != null ? cl : ShadowParcel.class.getClassLoader());
+            creator = (Parcelable.Creator) parcelableClass.getField("CREATOR").get(null);
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException("ClassNotFoundException when unmarshalling: " + name, e);
+        } catch (NoSuchFieldException e) {
+            throw new RuntimeException("Parcelable protocol requires a Parcelable.Creator object called CREATOR on class "
+                    + name, e);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("IllegalAccessException when unmarshalling: " + name, e);
+        }
+        if (creator == null) {
+            throw new RuntimeException("Parcelable protocol requires a Parcelable.Creator object called CREATOR on class "
+                    + name);
+        }
+        return (Parcelable) creator.createFromParcel(realParcel);
+    }
+
+    @Implementation
+    public void writeSerializable(Serializable s) {
+        if (s == null) {
+            writeString(null);
+            return;
+        }
+        String name = s.getClass().getName();
+        writeString(name);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            ObjectOutputStream out = new ObjectOutputStream(bytes);
+            out.writeObject(s);
+            out.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Parcelable encountered IOException writing serializable object (name = "
+                    + name + ")", e);
+        }
+        writeByteArray(bytes.toByteArray());
+    }
+
+    @Implementation
+    public Serializable readSerializable() {
+        String name = readString();
+        if (name == null) return null;
+
+        byte[] bytes = createByteArray();
+        try {
+            ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes)) {
+                @Override
+                protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+                    try {
+                        return Class.forName(desc.getName(), false, ShadowParcel.class.getClassLoader());
+                    } catch (ClassNotFoundException e) {
+                        return super.resolveClass(desc);
+                    }
+                }
+            };
+            return (Serializable) in.readObject();
+        } catch (IOException e) {
+            throw new RuntimeException("Parcelable encountered IOException reading a Serializable object (name = "
+                    + name + ")", e);
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException("Parcelable encountered ClassNotFoundException reading a Serializable object "
+                    + "(name = " + name + ")", e);
+        }
+    }
+
+    @Implementation
+    public final void writeMap(Map map) {
+        if (map == null) {
+            writeInt(-1);
+            return;
+        }
+        Set<Map.Entry<Object, Object>> entries = map.entrySet();
+        writeInt(entries.size());
+        for (Map.Entry<Object, Object> e : entries) {
+            writeValue(e.getKey());
+            writeValue(e.getValue());
+        }
+    }
+
+    @Implementation
+    public final HashMap readHashMap(ClassLoader loader) {
         int count = readInt();
         if (count < 0) {
             return null;
         }
         HashMap map = new HashMap(count);
         for (int i = 0; i < count; ++i) {
-            Object key = parcelData.get(index++);
-            Object value = parcelData.get(index++);
+            Object key = readValue(loader);
+            Object value = readValue(loader);
             map.put(key, value);
         }
         return map;
     }
 
     @Implementation
-    public Bundle readBundle(ClassLoader loader) {
-        return readBundle();
+    public final void writeList(List val) {
+        if (val == null) {
+            writeInt(-1);
+            return;
+        }
+        int n = val.size();
+        writeInt(n);
+        for (int i = 0; i < n; i++) {
+            writeValue(val.get(i));
+        }
     }
 
     @Implementation
-    public void writeBundle(Bundle bundle) {
-        parcelData.add(bundle);
+    public final ArrayList readArrayList(ClassLoader loader) {
+        int n = readInt();
+        if (n < 0) {
+            return null;
+        }
+        ArrayList l = new ArrayList(n);
+        while (n-- > 0) {
+            l.add(readValue(loader));
+        }
+        return l;
     }
 
     @Implementation
-    public void writeParcelable(Parcelable p, int flags) {
-        parcelData.add(p);
+    public final void writeValue(Object v) {
+        if (v == null) {
+            writeInt(VAL_NULL);
+        } else if (v instanceof String) {
+            writeInt(VAL_STRING);
+            writeString((String) v);
+        } else if (v instanceof Integer) {
+            writeInt(VAL_INTEGER);
+            writeInt((Integer) v);
+        } else if (v instanceof Map) {
+            writeInt(VAL_MAP);
+            writeMap((Map) v);
+        } else if (v instanceof Bundle) {
+            writeInt(VAL_BUNDLE);
+            writeBundle((Bundle) v);
+        } else if (v instanceof Parcelable) {
+            writeInt(VAL_PARCELABLE);
+            writeParcelable((Parcelable) v, 0);
+        } else if (v instanceof Short) {
+            writeInt(VAL_SHORT);
+            writeInt((Short) v);
+        } else if (v instanceof Long) {
+            writeInt(VAL_LONG);
+            writeLong((Long) v);
+        } else if (v instanceof Float) {
+            writeInt(VAL_FLOAT);
+            writeFloat((Float) v);
+        } else if (v instanceof Double) {
+            writeInt(VAL_DOUBLE);
+            writeDouble((Double) v);
+        } else if (v instanceof Boolean) {
+            writeInt(VAL_BOOLEAN);
+            writeInt((Boolean) v ? 1 : 0);
+        } else if (v instanceof List) {
+            writeInt(VAL_LIST);
+            writeList((List) v);
+        } else if (v instanceof byte[]) {
+            writeInt(VAL_BYTEARRAY);
+            writeByteArray((byte[]) v);
+        } else if (v instanceof String[]) {
+            writeInt(VAL_STRINGARRAY);
+            writeStringArray((String[]) v);
+        } else if (v instanceof IBinder) {
+            writeInt(VAL_IBINDER);
+            writeStrongBinder((IBinder) v);
+        } else if (v instanceof int[]) {
+            writeInt(VAL_INTARRAY);
+            writeIntArray((int[]) v);
+        } else if (v instanceof long[]) {
+            writeInt(VAL_LONGARRAY);
+            writeLongArray((long[]) v);
+        } else if (v instanceof Byte) {
+            writeInt(VAL_BYTE);
+            writeInt((Byte) v);
+        } else if (v instanceof Serializable) {
+            writeInt(VAL_SERIALIZABLE);
+            writeSerializable((Serializable) v);
+        } else {
+            throw new RuntimeException("Parcel: unable to marshal value " + v);
+        }
     }
 
     @Implementation
-    public Parcelable readParcelable(ClassLoader cl) {
-        return index < parcelData.size() ? (Parcelable) parcelData.get(index++) : null;
+    public final Object readValue(ClassLoader loader) {
+        int type = readInt();
+        switch (type) {
+            case VAL_NULL: return null;
+            case VAL_STRING: return readString();
+            case VAL_INTEGER: return readInt();
+            case VAL_MAP: return readHashMap(loader);
+            case VAL_BUNDLE: return readBundle(loader);
+            case VAL_PARCELABLE: return readParcelable(loader);
+            case VAL_SHORT: return (short) readInt();
+            case VAL_LONG: return readLong();
+            case VAL_FLOAT: return readFloat();
+            case VAL_DOUBLE: return readDouble();
+            case VAL_BOOLEAN: return readInt() == 1;
+            case VAL_LIST: return readArrayList(loader);
+            case VAL_BYTEARRAY: return createByteArray();
+            case VAL_STRINGARRAY: return createStringArray();
+            case VAL_IBINDER: return readStrongBinder();
+            case VAL_INTARRAY: return createIntArray();
+            case VAL_LONGARRAY: return createLongArray();
+            case VAL_BYTE: return readByte();
+            case VAL_SERIALIZABLE: return readSerializable();
+            default:
+                int off = position - 4;
+                throw new RuntimeException("Parcel " + realParcel + ": Unmarshalling unknown type code " + type
+                        + " at offset " + off);
+        }
     }
 
     @Implementation
@@ -172,12 +579,29 @@ public class ShadowParcel {
 
     @Implementation
     public void writeFloatArray(float[] val) {
+        if (val == null) {
+            writeInt(-1);
+            return;
+        }
         writeInt(val.length);
         for (float f : val) writeFloat(f);
     }
 
+    @Implementation
+    public float[] createFloatArray() {
+        int n = readInt();
+        if (n < 0 || n > dataAvail() / 4) return null;
+        float[] val = new float[n];
+        for (int i = 0; i < n; i++) val[i] = readFloat();
+        return val;
+    }
+
     @Implementation
     public void writeDoubleArray(double[] val) {
+        if (val == null) {
+            writeInt(-1);
+            return;
+        }
         writeInt(val.length);
         for (double f : val) writeDouble(f);
     }
@@ -191,8 +615,21 @@ public class ShadowParcel {
         }
     }
 
+    @Implementation
+    public double[] createDoubleArray() {
+        int n = readInt();
+        if (n < 0 || n > dataAvail() / 8) return null;
+        double[] val = new double[n];
+        for (int i = 0; i < n; i++) val[i] = readDouble();
+        return val;
+    }
+
     @Implementation
     public void writeIntArray(int[] val) {
+        if (val == null) {
+            writeInt(-1);
+            return;
+        }
         writeInt(val.length);
         for (int f : val) writeInt(f);
     }
@@ -206,8 +643,21 @@ public class ShadowParcel {
         }
     }
 
+    @Implementation
+    public int[] createIntArray() {
+        int n = readInt();
+        if (n < 0 || n > dataAvail() / 4) return null;
+        int[] val = new int[n];
+        for (int i = 0; i < n; i++) val[i] = readInt();
+        return val;
+    }
+
     @Implementation
     public void writeLongArray(long[] val) {
+        if (val == null) {
+            writeInt(-1);
+            return;
+        }
         writeInt(val.length);
         for (long f : val) writeLong(f);
     }
@@ -221,8 +671,21 @@ public class ShadowParcel {
         }
     }
 
+    @Implementation
+    public long[] createLongArray() {
+        int n = readInt();
+        if (n < 0 || n > dataAvail() / 8) return null;
+        long[] val = new long[n];
+        for (int i = 0; i < n; i++) val[i] = readLong();
+        return val;
+    }
+
     @Implementation
     public void writeStringArray(String[] val) {
+        if (val == null) {
+            writeInt(-1);
+            return;
+        }
         writeInt(val.length);
         for (String f : val) writeString(f);
     }
@@ -249,7 +712,7 @@ public class ShadowParcel {
             return null;
         }
     }
-    
+
     @Implementation
     public void writeStringList(List<String> strings) {
         if (strings == null) {
@@ -338,12 +801,68 @@ public class ShadowParcel {
         }
     }
 
+    /**
+     * @deprecated use {@link #dataPosition()}
+     */
+    @Deprecated
     public int getIndex() {
-        return index;
+        return position;
     }
 
+    /**
+     * The parcel no longer keeps the values written to it, only their bytes, so there's nothing to return.
+     *
+     * @deprecated rewind with {@code setDataPosition(0)} and read the values back, or compare {@link #marshall()}
+     * or {@link #dataSize()}; this will be removed in the next release
+     * @throws UnsupportedOperationException always
+     */
+    @Deprecated
     public List getParcelData() {
-        return parcelData;
+        throw new UnsupportedOperationException("Parcels are kept as bytes now; call setDataPosition(0) and read the"
+                + " values back, or use marshall() or dataSize() instead of getParcelData()");
+    }
+
+    // framework classes run shadow code only, and no shadow flattens a Parcelable
+    private static boolean isFramework(String className) {
+        return className.startsWith("android.") && !className.startsWith("android.support.");
+    }
+
+    private void writeObject(Object object) {
+        if (object == null) {
+            writeInt(-1);
+            return;
+        }
+        writeInt(objects.size());
+        objects.add(object);
+    }
+
+    private Object readObject() {
+        if (dataSize - position < 4) return null;
+        int index = readInt();
+        return index >= 0 && index < objects.size() ? objects.get(index) : null;
     }
 
+    /**
+     * Makes room for {@code length} more bytes at the current position.
+     *
+     * @return the position to write them at
+     */
+    private int grow(int length) {
+        int pos = position;
+        int end = pos + length;
+        ensureCapacity(end);
+        position = end;
+        if (end > dataSize) dataSize = end;
+        return pos;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > data.length) {
+            data = Arrays.copyOf(data, Math.max(capacity, data.length * 2));
+        }
+    }
+
+    private static int pad(int length) {
+        return (length + 3) & ~3;
+    }
 }
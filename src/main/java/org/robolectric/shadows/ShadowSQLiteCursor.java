@@ -3,15 +3,11 @@ package org.robolectric.shadows;
 import android.database.sqlite.SQLiteCursor;
 import org.robolectric.internal.Implementation;
 import org.robolectric.internal.Implements;
+import org.robolectric.util.ResultSetWindows;
 
-import java.sql.Clob;
-import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
-import java.sql.Statement;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Simulates an Android Cursor object, by wrapping a JDBC ResultSet.
@@ -20,6 +16,7 @@ import java.util.Map;
 public class ShadowSQLiteCursor extends ShadowAbstractCursor {
 
     private ResultSet resultSet;
+    private ResultSetWindows windows;
     
     
     /**
@@ -100,63 +97,43 @@ public class ShadowSQLiteCursor extends ShadowAbstractCursor {
     @Implementation
     public byte[] getBlob(int columnIndex) {
     	checkPosition();
-        return (byte[]) this.currentRow.get(getColumnNames()[columnIndex]);
+        return (byte[]) windows.getObject(currentRowNumber, columnIndex);
     }
 
     @Implementation
     public String getString(int columnIndex) {
         checkPosition();
-        Object value = this.currentRow.get(getColumnNames()[columnIndex]);
-        if (value instanceof Clob) {
-            try {
-                return ((Clob) value).getSubString(1, (int)((Clob) value).length());
-            } catch (SQLException x) {
-                throw new RuntimeException(x);
-            }
-        } else {
-            return (String)value;
-        }
+        return windows.getString(currentRowNumber, columnIndex);
     }
 	
 	@Implementation
 	public short getShort(int columnIndex) {
 		checkPosition();
-		Object o =this.currentRow.get(getColumnNames()[columnIndex]);
-    	if (o==null) return 0;
-        return new Short(o.toString());
+		return (short) windows.getLong(currentRowNumber, columnIndex);
 	}
 	
     @Implementation
     public int getInt(int columnIndex) {
     	checkPosition();
-    	Object o =this.currentRow.get(getColumnNames()[columnIndex]);
-    	if (o==null) return 0;
-        return new Integer(o.toString());
+    	return (int) windows.getLong(currentRowNumber, columnIndex);
     }
 
     @Implementation
     public long getLong(int columnIndex) {
     	checkPosition();
-    	Object o =this.currentRow.get(getColumnNames()[columnIndex]);
-    	if (o==null) return 0;
-        return new Long(o.toString());
+    	return windows.getLong(currentRowNumber, columnIndex);
     }
 
     @Implementation
     public float getFloat(int columnIndex) {
     	checkPosition();
-    	Object o =this.currentRow.get(getColumnNames()[columnIndex]);
-    	if (o==null) return 0;
-        return new Float(o.toString());
-        
+    	return (float) windows.getDouble(currentRowNumber, columnIndex);
     }
 
     @Implementation
     public double getDouble(int columnIndex) {
     	checkPosition();
-    	Object o =this.currentRow.get(getColumnNames()[columnIndex]);
-    	if (o==null) return 0;
-    	return new Double(o.toString());
+    	return windows.getDouble(currentRowNumber, columnIndex);
     }
     
     private void checkPosition() {
@@ -174,8 +151,7 @@ public class ShadowSQLiteCursor extends ShadowAbstractCursor {
         try {
             resultSet.close();
             resultSet = null;
-            rows = null;
-            currentRow = null;
+            windows = null;
         } catch (SQLException e) {
             throw new RuntimeException("SQL exception in close", e);
         }
@@ -188,8 +164,7 @@ public class ShadowSQLiteCursor extends ShadowAbstractCursor {
 
     @Implementation
     public boolean isNull(int columnIndex) {
-        Object o = this.currentRow.get(getColumnNames()[columnIndex]);
-        return o == null;
+        return windows.isNull(currentRowNumber, columnIndex);
     }
 
     /**
@@ -213,50 +188,29 @@ public class ShadowSQLiteCursor extends ShadowAbstractCursor {
     }    
     
     /**
-     * loads a row's values
-     * @param rs
-     * @return
-     * @throws SQLException
+     * Reads all of the rows into {@link ResultSetWindows} in one pass over {@code result}. SQLite result sets are
+     * forward-only, so, like Android's first {@code fillWindow()}, the whole result has to be read up front for
+     * {@code getCount()} and {@code moveToPrevious()} to work.
+     *
+     * @param sql unused; the rows come from {@code result} itself rather than running the query a second time
      */
-    private Map<String,Object> fillRowValues(ResultSet rs) throws SQLException {
-    	Map<String,Object> row = new HashMap<String,Object>();
-    	for (String s : getColumnNames()) {
-			  row.put(s, rs.getObject(s));
-    	}
-    	return row;
-    }
-    private void fillRows(String sql, Connection connection) throws SQLException {
-    	//ResultSets in SQLite\Android are only TYPE_FORWARD_ONLY. Android caches results in the WindowedCursor to allow moveToPrevious() to function.
-    	//Robolectric will have to cache the results too. In the rows map.
-    	Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
-        ResultSet rs = statement.executeQuery(sql);
-        int count = 0;
-        if (rs.next()) {  
-        	     do {
-        	    	Map<String,Object> row = fillRowValues(rs);
-         	    	rows.put(count, row);
-        	    	count++;
-        	     } while (rs.next());  
-        	 } else {  
-        		 rs.close(); 
-        	 } 
-        
-        rowCount = count;
-        
-    }
-    
     public void setResultSet(ResultSet result, String sql) {
         this.resultSet = result;
         rowCount = 0;
 
-        //Cache all rows.  Caching rows should be thought of as a simple replacement for ShadowCursorWindow
         if (resultSet != null) {
         	cacheColumnNames(resultSet);
         	try {
-        		fillRows(sql, result.getStatement().getConnection());
+        		windows = new ResultSetWindows(resultSet);
 			} catch (SQLException e) {
 			    throw new RuntimeException("SQL exception in setResultSet", e);
 			}
+        	rowCount = windows.getRowCount();
         }
     }
+
+    @Override
+    protected void setPosition(int pos) {
+        currentRowNumber = pos;
+    }
 }
@@ -16,17 +16,21 @@ import org.robolectric.internal.Implementation;
 import org.robolectric.internal.Implements;
 import org.robolectric.internal.RealObject;
 import org.robolectric.util.DatabaseConfig;
+import org.robolectric.util.PreparedStatementCache;
 import org.robolectric.util.SQLite.*;
 
+import java.io.File;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.WeakHashMap;
 import java.util.concurrent.locks.ReentrantLock;
@@ -39,18 +43,34 @@ import static org.robolectric.util.SQLite.*;
  * Shadow for {@code SQLiteDatabase} that simulates the movement of a {@code Cursor} through database tables.
  * Implemented as a wrapper around an embedded SQL database, accessed via JDBC.  The JDBC connection is
  * made available to test cases for use in fixture setup and assertions.
+ *
+ * Databases opened with the same path share a connection until the last of them is closed, along with its
+ * transaction, batched inserts and lock, so that one of them beginning a transaction is seen by the others. They're
+ * kept in memory unless {@link #setDatabaseDirectory(File)} has been called, and a new one starts out as a copy of
+ * the path's template if one has been saved with {@link #saveAsTemplate()}.
  */
 @Implements(SQLiteDatabase.class)
 public class ShadowSQLiteDatabase  {
     @RealObject	SQLiteDatabase realSQLiteDatabase;
-    private static Connection connection;
-    private final ReentrantLock mLock = new ReentrantLock(true);
+    private static final String MEMORY_DB_PATH = ":memory:";
+    private static final Map<String, SharedConnection> sharedConnections = new HashMap<String, SharedConnection>();
+    // every open connection, including the private ones of in-memory databases, so reset() can close them all
+    private static final Set<SharedConnection> openConnections = new HashSet<SharedConnection>();
+    private static final Map<String, File> templates = new HashMap<String, File>();
+    private static File databaseDirectory;
+
+    private String path;
+    private SharedConnection sharedConnection;
+    private Connection connection;
+    private PreparedStatementCache statementCache;
+    private boolean createdEmpty;
+    private ReentrantLock mLock = new ReentrantLock(true);
     private boolean mLockingEnabled = true;
     private WeakHashMap<SQLiteClosable, Object> mPrograms;
-    private Transaction transaction;
     private boolean throwOnInsert;
     private Set<Cursor> cursors = new HashSet<Cursor>();
     private List<String> querySql = new ArrayList<String>();
+    private boolean batchInserts;
 
     @Implementation
     public void setLockingEnabled(boolean lockingEnabled) {
@@ -71,10 +91,127 @@ public class ShadowSQLiteDatabase  {
         this.throwOnInsert = throwOnInsert;
     }
 
+    /**
+     * When set, inserts made inside a transaction are queued with JDBC {@code addBatch()} and only executed when the
+     * outermost transaction ends or when anything else touches the database. Since the row id isn't known until then,
+     * batched inserts return 0 rather than the id, and constraint violations surface when the batch is executed.
+     */
+    public void setBatchInserts(boolean batchInserts) {
+        flushBatch();
+        this.batchInserts = batchInserts;
+    }
+
     @Implementation
     public static SQLiteDatabase openDatabase(String path, SQLiteDatabase.CursorFactory factory, int flags) {
-        connection = DatabaseConfig.getMemoryConnection();
-        return newInstanceOf(SQLiteDatabase.class);
+        SQLiteDatabase database = newInstanceOf(SQLiteDatabase.class);
+        shadowOf(database).open(path);
+        return database;
+    }
+
+    private void open(String path) {
+        synchronized (sharedConnections) {
+            SharedConnection shared = isMemoryPath(path) ? null : sharedConnections.get(path);
+            boolean connected = shared == null;
+            if (connected) {
+                shared = new SharedConnection(path);
+                if (!isMemoryPath(path)) sharedConnections.put(path, shared);
+                openConnections.add(shared);
+            }
+            shared.references++;
+
+            this.path = path;
+            this.sharedConnection = shared;
+            this.connection = shared.connection;
+            this.statementCache = shared.statementCache;
+            this.mLock = shared.lock;
+            this.createdEmpty = connected && shared.isNew && !shared.fromTemplate;
+        }
+    }
+
+    /**
+     * Keeps databases opened from now on in files under {@code directory}, so their contents outlive the connection;
+     * pass null to go back to in-memory databases. Databases opened with a null or {@code ":memory:"} path are always
+     * kept in memory.
+     */
+    public static void setDatabaseDirectory(File directory) {
+        databaseDirectory = directory;
+    }
+
+    public static File getDatabaseDirectory() {
+        return databaseDirectory;
+    }
+
+    /**
+     * Saves a copy of this database; from now on, every database opened with the same path starts out as a copy of
+     * it rather than empty, which is much quicker than running the same {@code SQLiteOpenHelper.onCreate()} in every
+     * test. With {@link org.robolectric.util.SQLiteMap} the copy is made page by page with SQLite's backup API.
+     * Templates are kept until {@link #clearTemplates()} is called.
+     */
+    public void saveAsTemplate() {
+        if (!isOpen()) throw new IllegalStateException("database not open");
+        if (isMemoryPath(path)) throw new IllegalStateException("in-memory databases can't be templates");
+        flushBatch();
+
+        try {
+            File template = File.createTempFile("robolectric-template", ".db");
+            template.deleteOnExit();
+            DatabaseConfig.backup(connection, template);
+            synchronized (sharedConnections) {
+                File previous = templates.put(path, template);
+                if (previous != null) previous.delete();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("IO exception in saveAsTemplate", e);
+        } catch (SQLException e) {
+            throw new RuntimeException("SQL exception in saveAsTemplate", e);
+        }
+    }
+
+    public static void clearTemplates() {
+        synchronized (sharedConnections) {
+            for (File template : templates.values()) {
+                template.delete();
+            }
+            templates.clear();
+        }
+    }
+
+    /**
+     * @return true if this database was created as a copy of a template saved with {@link #saveAsTemplate()}
+     */
+    public boolean isFromTemplate() {
+        return sharedConnection != null && sharedConnection.fromTemplate;
+    }
+
+    /**
+     * @return true if opening this database created it empty, so that its schema still has to be set up; false if
+     * it was already open, already on disk, or copied from a template
+     */
+    public boolean isCreatedEmpty() {
+        return createdEmpty;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Closes every database left open and goes back to in-memory databases. Templates are kept, so that they can be
+     * reused by later tests.
+     */
+    public static void reset() {
+        synchronized (sharedConnections) {
+            for (SharedConnection shared : openConnections) {
+                shared.close();
+            }
+            openConnections.clear();
+            sharedConnections.clear();
+            databaseDirectory = null;
+        }
+    }
+
+    private static boolean isMemoryPath(String path) {
+        return path == null || MEMORY_DB_PATH.equals(path);
     }
 
     @Implementation
@@ -113,13 +250,21 @@ public class ShadowSQLiteDatabase  {
 
         try {
             SQLStringAndBindings sqlInsertString = buildInsertString(table, initialValues, conflictAlgorithm);
-            PreparedStatement insert = connection.prepareStatement(sqlInsertString.sql, Statement.RETURN_GENERATED_KEYS);
-            Iterator<Object> columns = sqlInsertString.columnValues.iterator();
-            int i = 1;
-            long result = -1;
-            while (columns.hasNext()) {
-                insert.setObject(i++, columns.next());
+            if (batchInserts && inTransaction()) {
+                PreparedStatement insert = statementCache.prepare(sqlInsertString.sql);
+                if (insert != sharedConnection.pendingBatch) {
+                    flushBatch();
+                }
+                bind(insert, sqlInsertString.columnValues);
+                insert.addBatch();
+                sharedConnection.pendingBatch = insert;
+                return 0;
             }
+
+            flushBatch();
+            PreparedStatement insert = statementCache.prepareReturningGeneratedKeys(sqlInsertString.sql);
+            bind(insert, sqlInsertString.columnValues);
+            long result = -1;
             insert.executeUpdate();
             ResultSet resultSet = insert.getGeneratedKeys();
             if (resultSet.next()) {
@@ -145,6 +290,7 @@ public class ShadowSQLiteDatabase  {
         String sql = SQLiteQueryBuilder.buildQueryString(distinct, table,
                 columns, where, groupBy, having, orderBy, limit);
         querySql.add(sql);
+        flushBatch();
 
         ResultSet resultSet;
         try {
@@ -176,16 +322,12 @@ public class ShadowSQLiteDatabase  {
 
     @Implementation
     public int update(String table, ContentValues values, String whereClause, String[] whereArgs) {
-        SQLStringAndBindings sqlUpdateString = buildUpdateString(table, values, whereClause, whereArgs);
+        SQLStringAndBindings sqlUpdateStatement = buildUpdateStatement(table, values, whereClause, whereArgs);
+        flushBatch();
 
         try {
-            PreparedStatement statement = connection.prepareStatement(sqlUpdateString.sql);
-            Iterator<Object> columns = sqlUpdateString.columnValues.iterator();
-            int i = 1;
-            while (columns.hasNext()) {
-                statement.setObject(i++, columns.next());
-            }
-
+            PreparedStatement statement = statementCache.prepare(sqlUpdateStatement.sql);
+            bind(statement, sqlUpdateStatement.columnValues);
             return statement.executeUpdate();
         } catch (SQLException e) {
             throw new RuntimeException("SQL exception in update", e);
@@ -194,10 +336,13 @@ public class ShadowSQLiteDatabase  {
 
     @Implementation
     public int delete(String table, String whereClause, String[] whereArgs) {
-        String sql = buildDeleteString(table, whereClause, whereArgs);
+        SQLStringAndBindings sqlDeleteStatement = buildDeleteStatement(table, whereClause, whereArgs);
+        flushBatch();
 
         try {
-            return connection.prepareStatement(sql).executeUpdate();
+            PreparedStatement statement = statementCache.prepare(sqlDeleteStatement.sql);
+            bind(statement, sqlDeleteStatement.columnValues);
+            return statement.executeUpdate();
         } catch (SQLException e) {
             throw new RuntimeException("SQL exception in delete", e);
         }
@@ -208,6 +353,7 @@ public class ShadowSQLiteDatabase  {
         if (!isOpen()) {
             throw new IllegalStateException("database not open");
         }
+        flushBatch();
 
         try {
             String scrubbedSql = DatabaseConfig.getScrubSQL(sql);
@@ -298,11 +444,16 @@ public class ShadowSQLiteDatabase  {
         if (!isOpen()) {
             return;
         }
-        try {
-            connection.close();
+        flushBatch();
+        synchronized (sharedConnections) {
+            if (--sharedConnection.references == 0) {
+                sharedConnection.close();
+                openConnections.remove(sharedConnection);
+                if (sharedConnections.get(path) == sharedConnection) sharedConnections.remove(path);
+            }
+            sharedConnection = null;
             connection = null;
-        } catch (SQLException e) {
-            throw new RuntimeException("SQL exception in close", e);
+            statementCache = null;
         }
     }
 
@@ -314,10 +465,10 @@ public class ShadowSQLiteDatabase  {
             throw new RuntimeException("SQL exception in beginTransaction", e);
         }
         
-        if (transaction == null) {
-          transaction = new Transaction();
+        if (sharedConnection.transaction == null) {
+          sharedConnection.transaction = new Transaction();
         } else {
-          transaction = new Transaction(transaction);
+          sharedConnection.transaction = new Transaction(sharedConnection.transaction);
         }
     }
 
@@ -325,7 +476,9 @@ public class ShadowSQLiteDatabase  {
     public void setTransactionSuccessful() {
         if (!isOpen()) {
             throw new IllegalStateException("connection is not opened");
-        } else if (transaction.success) {
+        }
+        Transaction transaction = sharedConnection.transaction;
+        if (transaction.success) {
             throw new IllegalStateException("transaction already successfully");
         }
         transaction.success = true;
@@ -333,27 +486,37 @@ public class ShadowSQLiteDatabase  {
 
     @Implementation
     public void endTransaction() {
+      Transaction transaction = sharedConnection.transaction;
       if (transaction.parent != null) {
           transaction.parent.descendantsSuccess &= transaction.success;
-          transaction = transaction.parent;
+          sharedConnection.transaction = transaction.parent;
       } else {
+          boolean success = transaction.success && transaction.descendantsSuccess;
+          sharedConnection.transaction = null;
           try {
-              if (transaction.success && transaction.descendantsSuccess) {
+              if (success) {
+                  try {
+                      flushBatch();
+                  } catch (android.database.SQLException e) {
+                      connection.rollback();
+                      connection.setAutoCommit(true);
+                      throw e;
+                  }
                   connection.commit();
               } else {
+                  discardBatch();
                   connection.rollback();
               }
                     connection.setAutoCommit(true);
           } catch (SQLException e) {
               throw new RuntimeException("SQL exception in beginTransaction", e);
           }
-          transaction = null;
       }
     }
 
     @Implementation
     public boolean inTransaction() {
-        return transaction != null;
+        return sharedConnection != null && sharedConnection.transaction != null;
     }
 
     /**
@@ -361,6 +524,7 @@ public class ShadowSQLiteDatabase  {
      * @return
      */
     public boolean isTransactionSuccess() {
+        Transaction transaction = sharedConnection == null ? null : sharedConnection.transaction;
         return transaction != null && transaction.success && transaction.descendantsSuccess;
     }
 
@@ -371,11 +535,13 @@ public class ShadowSQLiteDatabase  {
      * @return the connection
      */
     public Connection getConnection() {
+        flushBatch();
         return connection;
     }
 
     @Implementation
     public SQLiteStatement compileStatement(String sql) throws SQLException {
+        flushBatch();
         lock();
         String scrubbedSql = DatabaseConfig.getScrubSQL(sql);
         try {
@@ -423,6 +589,75 @@ public class ShadowSQLiteDatabase  {
         return querySql;
     }
 
+    private static void bind(PreparedStatement statement, List<Object> values) throws SQLException {
+        for (int i = 0; i < values.size(); i++) {
+            statement.setObject(i + 1, values.get(i));
+        }
+    }
+
+    private void flushBatch() {
+        if (sharedConnection == null || sharedConnection.pendingBatch == null) return;
+        PreparedStatement batch = sharedConnection.pendingBatch;
+        sharedConnection.pendingBatch = null;
+        try {
+            batch.executeBatch();
+        } catch (SQLException e) {
+            throw new android.database.SQLException(e.getLocalizedMessage());
+        }
+    }
+
+    private void discardBatch() throws SQLException {
+        if (sharedConnection == null || sharedConnection.pendingBatch == null) return;
+        PreparedStatement batch = sharedConnection.pendingBatch;
+        sharedConnection.pendingBatch = null;
+        batch.clearBatch();
+    }
+
+    /**
+     * The connection behind every open database with the same path, and the state that goes with it.
+     */
+    private static class SharedConnection {
+        final Connection connection;
+        final PreparedStatementCache statementCache;
+        final ReentrantLock lock = new ReentrantLock(true);
+        final boolean isNew;
+        final boolean fromTemplate;
+        int references;
+        Transaction transaction;
+        PreparedStatement pendingBatch;
+        private boolean closed;
+
+        SharedConnection(String path) {
+            File file = isMemoryPath(path) || databaseDirectory == null ? null : new File(databaseDirectory, path);
+            isNew = file == null || !DatabaseConfig.databaseExists(file);
+            if (file != null) file.getAbsoluteFile().getParentFile().mkdirs();
+
+            connection = file == null ? DatabaseConfig.getMemoryConnection() : DatabaseConfig.getFileConnection(file);
+            statementCache = new PreparedStatementCache(connection);
+
+            File template = isNew && !isMemoryPath(path) ? templates.get(path) : null;
+            if (template != null) {
+                try {
+                    DatabaseConfig.restore(connection, template);
+                } catch (SQLException e) {
+                    throw new RuntimeException("SQL exception restoring template for " + path, e);
+                }
+            }
+            fromTemplate = template != null;
+        }
+
+        void close() {
+            if (closed) return;
+            closed = true;
+            statementCache.close();
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                throw new RuntimeException("SQL exception in close", e);
+            }
+        }
+    }
+
     private static class Transaction {
         final Transaction parent;
         boolean success;
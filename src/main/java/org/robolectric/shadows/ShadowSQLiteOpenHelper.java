@@ -8,6 +8,8 @@ import org.robolectric.internal.Implementation;
 import org.robolectric.internal.Implements;
 import org.robolectric.internal.RealObject;
 
+import static org.robolectric.Robolectric.shadowOf;
+
 /**
  * Shadow for {@code SQLiteOpenHelper}.  Provides basic support for retrieving
  * databases and partially implements the subclass contract.  (Currently,
@@ -38,8 +40,7 @@ public class ShadowSQLiteOpenHelper {
     @Implementation
     public synchronized SQLiteDatabase getReadableDatabase() {
         if (database == null) {
-            database = SQLiteDatabase.openDatabase("path", null, 0);
-            realHelper.onCreate(database);
+            openDatabase();
         }
 
         realHelper.onOpen(database);
@@ -49,14 +50,25 @@ public class ShadowSQLiteOpenHelper {
     @Implementation
     public synchronized SQLiteDatabase getWritableDatabase() {
         if (database == null) {
-            database = SQLiteDatabase.openDatabase("path", null, 0);
-            realHelper.onCreate(database);
+            openDatabase();
         }
 
         realHelper.onOpen(database);
         return database;
     }
 
+    /**
+     * Opens the database named after the helper (an in-memory one if the name is null), and only calls
+     * {@code onCreate()} if it was created empty: a database that's already open or on disk, or that was copied from
+     * a template, already has its schema.
+     */
+    private void openDatabase() {
+        database = SQLiteDatabase.openDatabase(name, null, 0);
+        if (shadowOf(database).isCreatedEmpty()) {
+            realHelper.onCreate(database);
+        }
+    }
+
     @Implementation
     public String getDatabaseName() {
         return name;
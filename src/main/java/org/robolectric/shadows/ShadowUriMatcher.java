@@ -5,7 +5,6 @@ import android.net.Uri;
 import org.robolectric.internal.Implementation;
 import org.robolectric.internal.Implements;
 
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 
@@ -31,85 +30,73 @@ public class ShadowUriMatcher {
 
 	@Implementation
 	public void addURI(String authority, String path, int code) {
-		MatchNode authNode = rootNode.map.get(authority);
-		if (authNode == null) {
-			authNode = new MatchNode(rootNode.code);
-			rootNode.map.put(authority, authNode);
+		MatchNode node = rootNode.map.get(authority);
+		if (node == null) {
+			node = new MatchNode(rootNode.code);
+			rootNode.map.put(authority, node);
 		}
 
-		String[] segments = path.split("/");
-		addNodes(authNode, Arrays.asList(segments), code);
+		if (path != null) {
+			if (path.startsWith("/")) path = path.substring(1);
+			if (path.length() > 0) {
+				for (String segment : path.split("/")) {
+					node = childFor(node, segment);
+				}
+			}
+		}
+		node.code = code;
 	}
 
+	/**
+	 * Walks the trie one path segment at a time; an exact segment wins over {@code #}, which wins over {@code *}.
+	 */
 	@Implementation
 	public int match(Uri uri) {
-		String auth = uri.getAuthority();
-		List<String> segments = uri.getPathSegments();
-
-		if (!rootNode.map.containsKey(auth)) {
-			return rootNode.code;
-		}
+		MatchNode node = rootNode.map.get(uri.getAuthority());
+		if (node == null) return rootNode.code;
 
-		return matchSegments(rootNode.map.get(auth), segments);
-	}
-
-	private int matchSegments(MatchNode node, List<String> segments) {
-		if (segments.isEmpty()) return node.code;
-		String segment = segments.get(0);
-		segments = segments.subList(1, segments.size());
-
-		if (node.map.containsKey(segment)) {
-			return matchSegments(node.map.get(segment), segments);
-		}
-		if (node.number != null) {
-			long id;
-			try {
-				id = Long.parseLong(segment);
-				if (id >= 0) {
-					return matchSegments(node.number, segments);
-				}
+		List<String> segments = uri.getPathSegments();
+		int size = segments.size();
+		for (int i = 0; i < size; i++) {
+			String segment = segments.get(i);
+			MatchNode next = node.map.get(segment);
+			if (next == null && node.number != null && isNumber(segment)) {
+				next = node.number;
 			}
-			catch (NumberFormatException e) {}
-		}
-		if (node.text != null) {
-			return matchSegments(node.text, segments);
+			if (next == null) {
+				next = node.text;
+			}
+			if (next == null) return rootNode.code;
+			node = next;
 		}
-
-		return rootNode.code;
+		return node.code;
 	}
 
-	private void addNodes(MatchNode baseNode, List<String> segments, int code) {
-		MatchNode nextNode = null;
-		String segment = segments.get(0);
-
+	private MatchNode childFor(MatchNode node, String segment) {
+		MatchNode child;
 		if (segment.equals("#")) {
-			nextNode = baseNode.number;
-			if (nextNode == null) {
-				nextNode = new MatchNode(rootNode.code);
-				baseNode.number = nextNode;
-			}
-		}
-		else if (segment.equals("*")) {
-			nextNode = baseNode.text;
-			if (nextNode == null) {
-				nextNode = new MatchNode(rootNode.code);
-				baseNode.text = nextNode;
-			}
-		}
-		else {
-			nextNode = baseNode.map.get(segment);
-			if (nextNode == null) {
-				nextNode = new MatchNode(rootNode.code);
-				baseNode.map.put(segment, nextNode);
+			child = node.number;
+			if (child == null) node.number = child = new MatchNode(rootNode.code);
+		} else if (segment.equals("*")) {
+			child = node.text;
+			if (child == null) node.text = child = new MatchNode(rootNode.code);
+		} else {
+			child = node.map.get(segment);
+			if (child == null) {
+				child = new MatchNode(rootNode.code);
+				node.map.put(segment, child);
 			}
 		}
+		return child;
+	}
 
-		if (segments.size() > 1) {
-			addNodes(nextNode, segments.subList(1, segments.size()), code);
-		}
-		else {
-			nextNode.code = code;
+	private static boolean isNumber(String segment) {
+		int length = segment.length();
+		if (length == 0) return false;
+		for (int i = 0; i < length; i++) {
+			char c = segment.charAt(i);
+			if (c < '0' || c > '9') return false;
 		}
+		return true;
 	}
-
 }
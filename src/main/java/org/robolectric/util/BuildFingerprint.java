@@ -0,0 +1,69 @@
+package org.robolectric.util;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.security.CodeSource;
+
+/**
+ * Identifies the build of Robolectric that's running, so that on-disk caches can tell when they were written by a
+ * different one.
+ *
+ * For a jar, that's its path, size and modification time, plus its {@code Implementation-Version} if it has one. For
+ * a classes directory (e.g. when running Robolectric's own tests), it's the path and the newest modification time of
+ * any file in it.
+ */
+public class BuildFingerprint {
+    private static String fingerprint;
+
+    public static synchronized String get() {
+        if (fingerprint == null) {
+            fingerprint = compute();
+        }
+        return fingerprint;
+    }
+
+    private static String compute() {
+        StringBuilder buf = new StringBuilder();
+        Package pkg = BuildFingerprint.class.getPackage();
+        if (pkg != null && pkg.getImplementationVersion() != null) {
+            buf.append(pkg.getImplementationVersion());
+        }
+
+        File location = codeSourceLocation();
+        if (location == null) {
+            // nothing on disk to compare against, so never trust a cache from another JVM
+            return buf.append('|').append(System.nanoTime()).toString();
+        }
+        buf.append('|').append(location.getAbsolutePath());
+        if (location.isDirectory()) {
+            buf.append('|').append(newestModificationTime(location));
+        } else {
+            buf.append('|').append(location.length()).append('|').append(location.lastModified());
+        }
+        return buf.toString();
+    }
+
+    private static File codeSourceLocation() {
+        CodeSource codeSource = BuildFingerprint.class.getProtectionDomain().getCodeSource();
+        URL url = codeSource == null ? null : codeSource.getLocation();
+        if (url == null || !"file".equals(url.getProtocol())) return null;
+        try {
+            return new File(url.toURI());
+        } catch (URISyntaxException e) {
+            return null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static long newestModificationTime(File dir) {
+        long newest = dir.lastModified();
+        File[] files = dir.listFiles();
+        if (files == null) return newest;
+        for (File file : files) {
+            newest = Math.max(newest, file.isDirectory() ? newestModificationTime(file) : file.lastModified());
+        }
+        return newest;
+    }
+}
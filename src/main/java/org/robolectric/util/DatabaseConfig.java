@@ -1,5 +1,6 @@
 package org.robolectric.util;
 
+import java.io.File;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Inherited;
 import java.lang.annotation.Retention;
@@ -8,15 +9,28 @@ import java.lang.annotation.Target;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 
 public class DatabaseConfig {
+    private static final int SCRUBBED_SQL_CACHE_SIZE = 256;
+
     private static DatabaseMap dbMap = null;
     private static boolean isLoaded = false;
+    private static final Map<String, String> scrubbedSql = new LinkedHashMap<String, String>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > SCRUBBED_SQL_CACHE_SIZE;
+        }
+    };
 
     public static void setDatabaseMap(DatabaseMap map) {
         dbMap = map;
         isLoaded = false; //make sure to reset isLoaded or mixing databases in a test suite will fail.
+        synchronized (scrubbedSql) {
+            scrubbedSql.clear();
+        }
     }
 
     public static DatabaseMap getDatabaseMap() {
@@ -73,14 +87,73 @@ public class DatabaseConfig {
     }
 
     /**
-     * Makes any edits necessary in the SQL string for it to be compatible with the database in use.
+     * Gets a connection to a database stored in {@code file}, creating it if need be. Will load DB Driver if not
+     * already loaded.
+     *
+     * @return Connection to the file-backed database.
+     * @throws UnsupportedOperationException if the database map isn't a {@link FileDatabaseMap}
+     */
+    public static Connection getFileConnection(File file) {
+        if (!isMapLoaded()) LoadSQLiteDriver();
+        try {
+            return DriverManager.getConnection(fileDatabaseMap().getConnectionString(file));
+        } catch (SQLException e) {
+            throw new CannotLoadDatabaseMapDriverException("Error in DatabaseConfig, could not retrieve connection to database in " + file, e);
+        }
+    }
+
+    /**
+     * @return true if there's already a database stored in {@code file}; the database may keep it in files named
+     * after it rather than in {@code file} itself
+     * @throws UnsupportedOperationException if the database map isn't a {@link FileDatabaseMap}
+     */
+    public static boolean databaseExists(File file) {
+        return fileDatabaseMap().exists(file);
+    }
+
+    /**
+     * Copies the whole of the database behind {@code connection} into {@code file}.
+     *
+     * @throws UnsupportedOperationException if the database map isn't a {@link FileDatabaseMap}
+     */
+    public static void backup(Connection connection, File file) throws SQLException {
+        fileDatabaseMap().backup(connection, file);
+    }
+
+    /**
+     * Replaces the contents of the database behind {@code connection} with a copy saved by {@link #backup}.
+     *
+     * @throws UnsupportedOperationException if the database map isn't a {@link FileDatabaseMap}
+     */
+    public static void restore(Connection connection, File file) throws SQLException {
+        fileDatabaseMap().restore(connection, file);
+    }
+
+    private static FileDatabaseMap fileDatabaseMap() {
+        if (isMapNull()) throw new NullDatabaseMapException("No database map set!");
+        if (!(dbMap instanceof FileDatabaseMap)) {
+            throw new UnsupportedOperationException(dbMap.getClass().getName() + " doesn't support file-backed databases");
+        }
+        return (FileDatabaseMap) dbMap;
+    }
+
+    /**
+     * Makes any edits necessary in the SQL string for it to be compatible with the database in use. The scrubbed
+     * SQL is remembered for the most recently used statements, since the same ones come through over and over.
      *
      * @return
      * @throws SQLException
      */
     public static String getScrubSQL(String sql) throws SQLException {
         if (isMapNull()) throw new NullDatabaseMapException("No database map set!");
-        return dbMap.getScrubSQL(sql);
+        synchronized (scrubbedSql) {
+            String scrubbed = scrubbedSql.get(sql);
+            if (scrubbed == null) {
+                scrubbed = dbMap.getScrubSQL(sql);
+                scrubbedSql.put(sql, scrubbed);
+            }
+            return scrubbed;
+        }
     }
 
     public static String getSelectLastInsertIdentity() {
@@ -105,6 +178,19 @@ public class DatabaseConfig {
         int getResultSetType();
     }
 
+    /**
+     * A {@link DatabaseMap} for a database which can also be kept in a file, and copied to and from one.
+     */
+    public interface FileDatabaseMap extends DatabaseMap {
+        String getConnectionString(File file);
+
+        boolean exists(File file);
+
+        void backup(Connection connection, File file) throws SQLException;
+
+        void restore(Connection connection, File file) throws SQLException;
+    }
+
     public static class NullDatabaseMapException extends RuntimeException {
         private static final long serialVersionUID = -4580960157495617424L;
 
@@ -0,0 +1,120 @@
+package org.robolectric.util;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+/**
+ * Dimensions of an encoded PNG or JPEG image, read from its header, plus its pixels, which are decoded through
+ * {@link ImageIO} the first time they are asked for. The encoded bytes aren't kept; pass them in again to decode.
+ */
+public class DecodedImage {
+    public static final String PNG = "image/png";
+    public static final String JPEG = "image/jpeg";
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+
+    public final int width;
+    public final int height;
+    public final String mimeType;
+
+    String key;
+    private int[] pixels;
+    private boolean pixelsDecoded;
+
+    private DecodedImage(int width, int height, String mimeType) {
+        this.width = width;
+        this.height = height;
+        this.mimeType = mimeType;
+    }
+
+    /**
+     * @return the image's dimensions, or null if the bytes don't start with a PNG or JPEG header
+     */
+    public static DecodedImage readBounds(byte[] data, int offset, int length) {
+        int end = offset + length;
+        if (startsWith(data, offset, end, PNG_SIGNATURE)) {
+            // the IHDR chunk comes first: 4 byte length, "IHDR", then width and height
+            if (end - offset < 24) return null;
+            return create(readInt(data, offset + 16), readInt(data, offset + 20), PNG);
+        }
+        if (end - offset >= 2 && (data[offset] & 0xff) == 0xff && (data[offset + 1] & 0xff) == 0xd8) {
+            return readJpegBounds(data, offset, end);
+        }
+        return null;
+    }
+
+    /**
+     * Decodes the pixels from the same bytes the image was read from, the first time it's called.
+     *
+     * @return the pixels as ARGB colors, row by row, or null if {@link ImageIO} can't decode the image
+     */
+    public synchronized int[] getPixels(byte[] data, int offset, int length) {
+        if (!pixelsDecoded) {
+            try {
+                BufferedImage image = ImageIO.read(new ByteArrayInputStream(data, offset, length));
+                if (image != null && image.getWidth() == width && image.getHeight() == height) {
+                    pixels = image.getRGB(0, 0, width, height, null, 0, width);
+                }
+            } catch (IOException ignored) {
+            }
+            pixelsDecoded = true;
+        }
+        return pixels;
+    }
+
+    /**
+     * @return how much memory the decoded pixels take, or 0 if they haven't been decoded
+     */
+    public synchronized long getPixelBytes() {
+        return pixels == null ? 0 : pixels.length * 4L;
+    }
+
+    private static DecodedImage readJpegBounds(byte[] data, int offset, int end) {
+        int i = offset + 2;
+        while (i + 3 < end) {
+            if ((data[i] & 0xff) != 0xff) return null;
+            int marker = data[i + 1] & 0xff;
+            if (marker == 0xff) {
+                i++;
+                continue;
+            }
+            if (marker == 0x01 || (marker >= 0xd0 && marker <= 0xd8)) {
+                i += 2;
+                continue;
+            }
+            if (marker == 0xd9 || marker == 0xda) return null;
+
+            int segmentLength = (data[i + 2] & 0xff) << 8 | (data[i + 3] & 0xff);
+            boolean startOfFrame = marker >= 0xc0 && marker <= 0xcf
+                    && marker != 0xc4 && marker != 0xc8 && marker != 0xcc;
+            if (startOfFrame) {
+                if (i + 9 > end) return null;
+                int height = (data[i + 5] & 0xff) << 8 | (data[i + 6] & 0xff);
+                int width = (data[i + 7] & 0xff) << 8 | (data[i + 8] & 0xff);
+                return create(width, height, JPEG);
+            }
+            i += 2 + segmentLength;
+        }
+        return null;
+    }
+
+    private static DecodedImage create(int width, int height, String mimeType) {
+        if (width <= 0 || height <= 0) return null;
+        return new DecodedImage(width, height, mimeType);
+    }
+
+    private static boolean startsWith(byte[] data, int offset, int end, byte[] prefix) {
+        if (end - offset < prefix.length) return false;
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[offset + i] != prefix[i]) return false;
+        }
+        return true;
+    }
+
+    private static int readInt(byte[] data, int offset) {
+        return (data[offset] & 0xff) << 24 | (data[offset + 1] & 0xff) << 16
+                | (data[offset + 2] & 0xff) << 8 | (data[offset + 3] & 0xff);
+    }
+}
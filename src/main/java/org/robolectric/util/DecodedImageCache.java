@@ -0,0 +1,109 @@
+package org.robolectric.util;
+
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Least-recently-used cache of {@link DecodedImage}s keyed on a digest of the encoded bytes, so the same asset isn't
+ * parsed and decoded again every time a test loads it, whatever file, resource or stream it came from. It's bounded by
+ * the memory its decoded pixels take rather than by the number of images.
+ */
+public class DecodedImageCache {
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+
+    // charged for every image, decoded or not, so header-only entries can't pile up without bound
+    private static final long ENTRY_BYTES = 256;
+
+    private final LinkedHashMap<String, DecodedImage> images = new LinkedHashMap<String, DecodedImage>(16, 0.75f, true);
+    private final long maxBytes;
+    private long bytes;
+    private long hitCount;
+
+    public DecodedImageCache() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    public DecodedImageCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return the image the bytes encode, or null if they aren't a PNG or JPEG image
+     */
+    public synchronized DecodedImage get(byte[] data, int offset, int length) {
+        String key = digest(data, offset, length);
+        DecodedImage image = images.get(key);
+        if (image != null) {
+            hitCount++;
+        } else {
+            image = DecodedImage.readBounds(data, offset, length);
+            if (image != null) {
+                image.key = key;
+                images.put(key, image);
+                bytes += ENTRY_BYTES;
+                trim();
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Decodes the image's pixels from {@code data}, the bytes it was read from, and charges them to the cache.
+     *
+     * @return the pixels as ARGB colors, row by row, or null if they can't be decoded
+     */
+    public synchronized int[] getPixels(DecodedImage image, byte[] data, int offset, int length) {
+        long before = image.getPixelBytes();
+        int[] pixels = image.getPixels(data, offset, length);
+        if (images.get(image.key) == image) {
+            bytes += image.getPixelBytes() - before;
+            trim();
+        }
+        return pixels;
+    }
+
+    public synchronized int size() {
+        return images.size();
+    }
+
+    /**
+     * @return the memory charged for the cached images: their decoded pixels plus a little for each image
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return how many times {@link #get(byte[], int, int)} found the image already in the cache
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized void clear() {
+        images.clear();
+        bytes = 0;
+    }
+
+    private void trim() {
+        Iterator<DecodedImage> eldest = images.values().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            DecodedImage image = eldest.next();
+            eldest.remove();
+            bytes -= ENTRY_BYTES + image.getPixelBytes();
+        }
+    }
+
+    private static String digest(byte[] data, int offset, int length) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(data, offset, length);
+            return new BigInteger(1, digest.digest()).toString(16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -1,12 +1,15 @@
 package org.robolectric.util;
 
+import java.io.File;
+import java.sql.Connection;
 import java.sql.Driver;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 
 
-public class H2Map implements DatabaseConfig.DatabaseMap {
+public class H2Map implements DatabaseConfig.FileDatabaseMap {
 
     @Override
     public String getDriverClassName() {
@@ -18,6 +21,41 @@ public class H2Map implements DatabaseConfig.DatabaseMap {
         return "jdbc:h2:mem:";
     }
 
+    @Override
+    public String getConnectionString(File file) {
+        return "jdbc:h2:file:" + file.getAbsolutePath();
+    }
+
+    /**
+     * H2 keeps the database in {@code <file>.h2.db} rather than in the file itself.
+     */
+    @Override
+    public boolean exists(File file) {
+        return new File(file.getAbsolutePath() + ".h2.db").exists();
+    }
+
+    /**
+     * H2 has no page-level backup, so this writes out a SQL script which {@link #restore} replays.
+     */
+    @Override
+    public void backup(Connection connection, File file) throws SQLException {
+        execute(connection, "SCRIPT TO '" + file.getAbsolutePath() + "'");
+    }
+
+    @Override
+    public void restore(Connection connection, File file) throws SQLException {
+        execute(connection, "RUNSCRIPT FROM '" + file.getAbsolutePath() + "'");
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        Statement statement = connection.createStatement();
+        try {
+            statement.execute(sql);
+        } finally {
+            statement.close();
+        }
+    }
+
     /**
      * Maps the SQL to the H2 Implementation
      *
@@ -0,0 +1,319 @@
+package org.robolectric.util;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Raster of non-premultiplied ARGB colors held in a direct buffer, row by row, for the bitmap and canvas shadows.
+ * Drawing blends with source-over and samples the nearest source pixel; there is no anti-aliasing or filtering.
+ */
+public class PixelBuffer {
+    private final int width;
+    private final int height;
+    private final IntBuffer pixels;
+
+    public PixelBuffer(int width, int height) {
+        if (width < 0 || height < 0) throw new IllegalArgumentException(width + " x " + height);
+        this.width = width;
+        this.height = height;
+        this.pixels = ByteBuffer.allocateDirect(width * height * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int get(int x, int y) {
+        return pixels.get(y * width + x);
+    }
+
+    public void set(int x, int y, int color) {
+        pixels.put(y * width + x, color);
+    }
+
+    public void getPixels(int[] dst, int offset, int stride, int x, int y, int w, int h) {
+        for (int row = 0; row < h; row++) {
+            pixels.position((y + row) * width + x);
+            pixels.get(dst, offset + row * stride, w);
+        }
+        pixels.rewind();
+    }
+
+    public void setPixels(int[] src, int offset, int stride, int x, int y, int w, int h) {
+        for (int row = 0; row < h; row++) {
+            pixels.position((y + row) * width + x);
+            pixels.put(src, offset + row * stride, w);
+        }
+        pixels.rewind();
+    }
+
+    /**
+     * In-memory layouts of a pixel, one per bitmap config.
+     */
+    public enum Format {
+        /** R, G, B, A bytes. */
+        ARGB_8888(4),
+        /** A little-endian short: red in the top 5 bits, green in the middle 6 and blue in the low 5. */
+        RGB_565(2),
+        /** A little-endian short of 4-bit channels: red in the top nibble, then green, blue and alpha. */
+        ARGB_4444(2),
+        /** The alpha byte alone. */
+        ALPHA_8(1);
+
+        public final int bytesPerPixel;
+
+        Format(int bytesPerPixel) {
+            this.bytesPerPixel = bytesPerPixel;
+        }
+    }
+
+    /**
+     * Copies every pixel into {@code dst} in the {@link Format#ARGB_8888} layout.
+     */
+    public void copyTo(Buffer dst) {
+        copyTo(dst, Format.ARGB_8888);
+    }
+
+    /**
+     * Copies every pixel into {@code dst}, starting at its position, as the raw bytes of the given layout, the way a
+     * bitmap copies its memory: a {@link ShortBuffer} or {@link IntBuffer} gets those bytes packed little-endian, so an
+     * {@code ARGB_8888} copy into an {@link IntBuffer} reads back as ABGR, as it does on a device.
+     */
+    public void copyTo(Buffer dst, Format format) {
+        int count = width * height;
+        byte[] bytes = new byte[count * format.bytesPerPixel];
+        for (int i = 0, b = 0; i < count; i++) {
+            int color = pixels.get(i);
+            switch (format) {
+                case ARGB_8888:
+                    bytes[b++] = (byte) (color >> 16);
+                    bytes[b++] = (byte) (color >> 8);
+                    bytes[b++] = (byte) color;
+                    bytes[b++] = (byte) (color >>> 24);
+                    break;
+                case RGB_565:
+                    int rgb = (color >> 19 & 0x1f) << 11 | (color >> 10 & 0x3f) << 5 | (color >> 3 & 0x1f);
+                    bytes[b++] = (byte) rgb;
+                    bytes[b++] = (byte) (rgb >> 8);
+                    break;
+                case ARGB_4444:
+                    int argb = (color >> 20 & 0xf) << 12 | (color >> 12 & 0xf) << 8 | (color >> 4 & 0xf) << 4
+                            | (color >>> 28);
+                    bytes[b++] = (byte) argb;
+                    bytes[b++] = (byte) (argb >> 8);
+                    break;
+                case ALPHA_8:
+                    bytes[b++] = (byte) (color >>> 24);
+                    break;
+            }
+        }
+
+        if (dst instanceof ByteBuffer) {
+            checkRemaining(dst, 1, bytes.length);
+            ((ByteBuffer) dst).put(bytes);
+        } else if (dst instanceof ShortBuffer) {
+            ShortBuffer shorts = (ShortBuffer) dst;
+            checkRemaining(shorts, 2, bytes.length);
+            for (int b = 0; b < bytes.length; b += 2) {
+                shorts.put((short) ((bytes[b] & 0xff) | byteAt(bytes, b + 1) << 8));
+            }
+        } else if (dst instanceof IntBuffer) {
+            IntBuffer ints = (IntBuffer) dst;
+            checkRemaining(ints, 4, bytes.length);
+            for (int b = 0; b < bytes.length; b += 4) {
+                ints.put((bytes[b] & 0xff) | byteAt(bytes, b + 1) << 8 | byteAt(bytes, b + 2) << 16
+                        | byteAt(bytes, b + 3) << 24);
+            }
+        } else {
+            throw new RuntimeException("unsupported Buffer subclass");
+        }
+    }
+
+    /**
+     * Reads the pixels from {@code src} in the {@link Format#ARGB_8888} layout.
+     */
+    public void copyFrom(Buffer src) {
+        copyFrom(src, Format.ARGB_8888);
+    }
+
+    /**
+     * The reverse of {@link #copyTo(Buffer, Format)}. Channels the layout drops come back opaque (or, for
+     * {@code ALPHA_8}, black), and narrower channels are widened by repeating their high bits.
+     */
+    public void copyFrom(Buffer src, Format format) {
+        int count = width * height;
+        byte[] bytes = new byte[count * format.bytesPerPixel];
+        if (src instanceof ByteBuffer) {
+            checkRemaining(src, 1, bytes.length);
+            ((ByteBuffer) src).get(bytes);
+        } else if (src instanceof ShortBuffer) {
+            ShortBuffer shorts = (ShortBuffer) src;
+            checkRemaining(shorts, 2, bytes.length);
+            for (int b = 0; b < bytes.length; b += 2) {
+                short value = shorts.get();
+                bytes[b] = (byte) value;
+                if (b + 1 < bytes.length) bytes[b + 1] = (byte) (value >> 8);
+            }
+        } else if (src instanceof IntBuffer) {
+            IntBuffer ints = (IntBuffer) src;
+            checkRemaining(ints, 4, bytes.length);
+            for (int b = 0; b < bytes.length; b += 4) {
+                int value = ints.get();
+                for (int j = 0; j < 4 && b + j < bytes.length; j++) {
+                    bytes[b + j] = (byte) (value >> (8 * j));
+                }
+            }
+        } else {
+            throw new RuntimeException("unsupported Buffer subclass");
+        }
+
+        for (int i = 0, b = 0; i < count; i++) {
+            int color = 0;
+            switch (format) {
+                case ARGB_8888:
+                    int r = bytes[b++] & 0xff, g = bytes[b++] & 0xff, bl = bytes[b++] & 0xff, a = bytes[b++] & 0xff;
+                    color = a << 24 | r << 16 | g << 8 | bl;
+                    break;
+                case RGB_565:
+                    int rgb = (bytes[b++] & 0xff) | (bytes[b++] & 0xff) << 8;
+                    color = 0xff000000 | widen(rgb >> 11, 5) << 16 | widen(rgb >> 5 & 0x3f, 6) << 8
+                            | widen(rgb & 0x1f, 5);
+                    break;
+                case ARGB_4444:
+                    int argb = (bytes[b++] & 0xff) | (bytes[b++] & 0xff) << 8;
+                    color = widen(argb & 0xf, 4) << 24 | widen(argb >> 12, 4) << 16 | widen(argb >> 8 & 0xf, 4) << 8
+                            | widen(argb >> 4 & 0xf, 4);
+                    break;
+                case ALPHA_8:
+                    color = (bytes[b++] & 0xff) << 24;
+                    break;
+            }
+            pixels.put(i, color);
+        }
+    }
+
+    /**
+     * Replaces every pixel with {@code color}, without blending.
+     */
+    public void erase(int color) {
+        int count = width * height;
+        for (int i = 0; i < count; i++) {
+            pixels.put(i, color);
+        }
+    }
+
+    /**
+     * Blends {@code color} over every pixel.
+     */
+    public void fill(int color) {
+        fillRect(0, 0, width, height, color);
+    }
+
+    /**
+     * Blends {@code color} over the pixels whose centers fall inside the given rectangle.
+     */
+    public void fillRect(float left, float top, float right, float bottom, int color) {
+        int x0 = firstPixel(Math.min(left, right)), x1 = firstPixel(Math.max(left, right));
+        int y0 = firstPixel(Math.min(top, bottom)), y1 = firstPixel(Math.max(top, bottom));
+        x0 = Math.max(x0, 0);
+        y0 = Math.max(y0, 0);
+        x1 = Math.min(x1, width);
+        y1 = Math.min(y1, height);
+        boolean opaque = color >>> 24 == 0xff;
+        for (int y = y0; y < y1; y++) {
+            int rowStart = y * width;
+            for (int x = x0; x < x1; x++) {
+                int i = rowStart + x;
+                pixels.put(i, opaque ? color : srcOver(pixels.get(i), color));
+            }
+        }
+    }
+
+    /**
+     * Blends {@code src} scaled by ({@code scaleX}, {@code scaleY}) and then moved by ({@code dx}, {@code dy}).
+     */
+    public void draw(PixelBuffer src, float scaleX, float scaleY, float dx, float dy) {
+        draw(src, 0, 0, src.width, src.height, dx, dy, dx + src.width * scaleX, dy + src.height * scaleY);
+    }
+
+    /**
+     * Blends the {@code src} pixels in [srcLeft, srcRight) x [srcTop, srcBottom) stretched over the given destination
+     * rectangle; a destination whose right is left of its left (or bottom above its top) flips the image. Parts of the
+     * source rectangle outside {@code src} are left undrawn.
+     */
+    public void draw(PixelBuffer src, int srcLeft, int srcTop, int srcRight, int srcBottom,
+                     float dstLeft, float dstTop, float dstRight, float dstBottom) {
+        if (srcLeft >= srcRight || srcTop >= srcBottom || dstLeft == dstRight || dstTop == dstBottom) return;
+
+        int x0 = Math.max(firstPixel(Math.min(dstLeft, dstRight)), 0);
+        int x1 = Math.min(firstPixel(Math.max(dstLeft, dstRight)), width);
+        int y0 = Math.max(firstPixel(Math.min(dstTop, dstBottom)), 0);
+        int y1 = Math.min(firstPixel(Math.max(dstTop, dstBottom)), height);
+        if (x0 >= x1 || y0 >= y1) return;
+
+        int[] columns = new int[x1 - x0];
+        for (int x = x0; x < x1; x++) {
+            columns[x - x0] = sample(x, dstLeft, dstRight, srcLeft, srcRight);
+        }
+        for (int y = y0; y < y1; y++) {
+            int srcY = sample(y, dstTop, dstBottom, srcTop, srcBottom);
+            if (srcY < 0 || srcY >= src.height) continue;
+            int srcRowStart = srcY * src.width;
+            int rowStart = y * width;
+            for (int x = x0; x < x1; x++) {
+                int srcX = columns[x - x0];
+                if (srcX < 0 || srcX >= src.width) continue;
+                int color = src.pixels.get(srcRowStart + srcX);
+                int i = rowStart + x;
+                pixels.put(i, srcOver(pixels.get(i), color));
+            }
+        }
+    }
+
+    /**
+     * Blends a non-premultiplied {@code src} color over {@code dst}.
+     */
+    public static int srcOver(int dst, int src) {
+        int srcAlpha = src >>> 24;
+        if (srcAlpha == 0xff) return src;
+        if (srcAlpha == 0) return dst;
+
+        int dstWeight = (dst >>> 24) * (0xff - srcAlpha) / 0xff;
+        int alpha = srcAlpha + dstWeight;
+        int red = ((src >> 16 & 0xff) * srcAlpha + (dst >> 16 & 0xff) * dstWeight) / alpha;
+        int green = ((src >> 8 & 0xff) * srcAlpha + (dst >> 8 & 0xff) * dstWeight) / alpha;
+        int blue = ((src & 0xff) * srcAlpha + (dst & 0xff) * dstWeight) / alpha;
+        return alpha << 24 | red << 16 | green << 8 | blue;
+    }
+
+    private static int firstPixel(float edge) {
+        return (int) Math.ceil(edge - 0.5f);
+    }
+
+    private static int sample(int dst, float dstStart, float dstEnd, int srcStart, int srcEnd) {
+        float fraction = (dst + 0.5f - dstStart) / (dstEnd - dstStart);
+        int src = srcStart + (int) Math.floor(fraction * (srcEnd - srcStart));
+        return Math.min(Math.max(src, srcStart), srcEnd - 1);
+    }
+
+    private static int widen(int value, int bits) {
+        return value << (8 - bits) | value >> (2 * bits - 8);
+    }
+
+    private static int byteAt(byte[] bytes, int index) {
+        return index < bytes.length ? bytes[index] & 0xff : 0;
+    }
+
+    private static void checkRemaining(Buffer buffer, int bytesPerElement, int neededBytes) {
+        if ((long) buffer.remaining() * bytesPerElement < neededBytes) {
+            throw new RuntimeException("Buffer not large enough for pixels");
+        }
+    }
+}
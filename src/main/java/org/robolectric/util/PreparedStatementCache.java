@@ -0,0 +1,83 @@
+package org.robolectric.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least-recently-used cache of the {@link PreparedStatement}s prepared on one connection, keyed on their SQL. The
+ * database shadows build the same handful of INSERT/UPDATE/DELETE shapes over and over, and preparing them is most of
+ * what a bulk insert costs. Statements pushed out of the cache are closed.
+ *
+ * Callers must bind every parameter before each execution, since a cached statement keeps the last bindings.
+ */
+public class PreparedStatementCache {
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private final Connection connection;
+    private final LinkedHashMap<String, PreparedStatement> statements;
+
+    public PreparedStatementCache(Connection connection) {
+        this(connection, DEFAULT_CAPACITY);
+    }
+
+    public PreparedStatementCache(Connection connection, final int capacity) {
+        this.connection = connection;
+        this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= capacity) return false;
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    public PreparedStatement prepare(String sql) throws SQLException {
+        return prepare(sql, false);
+    }
+
+    public PreparedStatement prepareReturningGeneratedKeys(String sql) throws SQLException {
+        return prepare(sql, true);
+    }
+
+    private PreparedStatement prepare(String sql, boolean returnGeneratedKeys) throws SQLException {
+        String key = returnGeneratedKeys ? "+keys:" + sql : sql;
+        PreparedStatement statement = statements.get(key);
+        if (statement == null) {
+            statement = returnGeneratedKeys
+                    ? connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+                    : connection.prepareStatement(sql);
+            statements.put(key, statement);
+        }
+        return statement;
+    }
+
+    public int size() {
+        return statements.size();
+    }
+
+    public boolean isFor(Connection connection) {
+        return this.connection == connection;
+    }
+
+    /**
+     * Closes every cached statement; the connection itself is left open.
+     */
+    public void close() {
+        for (PreparedStatement statement : statements.values()) {
+            closeQuietly(statement);
+        }
+        statements.clear();
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {
+        }
+    }
+}
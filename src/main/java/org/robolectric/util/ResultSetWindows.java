@@ -0,0 +1,164 @@
+package org.robolectric.util;
+
+import java.sql.Clob;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Copy of a JDBC {@link ResultSet}, read in a single forward pass into fixed-size windows of column arrays, much like
+ * Android's {@code CursorWindow}. Integer and floating point values are kept in primitive arrays, so reading them
+ * doesn't box; everything else is kept as the object the driver handed back, except that CLOBs are read into Strings.
+ *
+ * The conversions follow the ones the cursor shadow did on its per-row maps: {@code getLong()} on a String parses it,
+ * {@code getLong()} on a NULL returns 0.
+ */
+public class ResultSetWindows {
+    public static final int DEFAULT_WINDOW_SIZE = 1024;
+
+    private static final byte NULL = 0;
+    private static final byte LONG = 1;
+    private static final byte DOUBLE = 2;
+    private static final byte OBJECT = 3;
+
+    private final int windowShift;
+    private final int windowMask;
+    private final int columnCount;
+    private final List<Column[]> windows = new ArrayList<Column[]>();
+    private int rowCount;
+
+    public ResultSetWindows(ResultSet resultSet) throws SQLException {
+        this(resultSet, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Reads every remaining row of {@code resultSet}; the result set is left positioned after the last row.
+     *
+     * @param windowSize rows per window, must be a power of two
+     */
+    public ResultSetWindows(ResultSet resultSet, int windowSize) throws SQLException {
+        if (windowSize <= 0 || Integer.bitCount(windowSize) != 1) {
+            throw new IllegalArgumentException("window size must be a power of two: " + windowSize);
+        }
+        windowShift = Integer.numberOfTrailingZeros(windowSize);
+        windowMask = windowSize - 1;
+        columnCount = resultSet.getMetaData().getColumnCount();
+
+        Column[] window = null;
+        while (resultSet.next()) {
+            int offset = rowCount & windowMask;
+            if (offset == 0) {
+                window = new Column[columnCount];
+                for (int i = 0; i < columnCount; i++) window[i] = new Column(windowSize);
+                windows.add(window);
+            }
+            for (int i = 0; i < columnCount; i++) {
+                window[i].set(offset, resultSet.getObject(i + 1));
+            }
+            rowCount++;
+        }
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    public boolean isNull(int row, int column) {
+        return column(row, column).types[row & windowMask] == NULL;
+    }
+
+    public long getLong(int row, int column) {
+        Column c = column(row, column);
+        int offset = row & windowMask;
+        switch (c.types[offset]) {
+            case LONG: return c.longs[offset];
+            case DOUBLE: return (long) c.doubles[offset];
+            case OBJECT: return Long.parseLong(c.objects[offset].toString());
+            default: return 0;
+        }
+    }
+
+    public double getDouble(int row, int column) {
+        Column c = column(row, column);
+        int offset = row & windowMask;
+        switch (c.types[offset]) {
+            case LONG: return c.longs[offset];
+            case DOUBLE: return c.doubles[offset];
+            case OBJECT: return Double.parseDouble(c.objects[offset].toString());
+            default: return 0;
+        }
+    }
+
+    public String getString(int row, int column) {
+        Column c = column(row, column);
+        int offset = row & windowMask;
+        switch (c.types[offset]) {
+            case LONG: return Long.toString(c.longs[offset]);
+            case DOUBLE: return Double.toString(c.doubles[offset]);
+            case OBJECT: return (String) c.objects[offset];
+            default: return null;
+        }
+    }
+
+    /**
+     * @return the value as stored; integers come back as {@link Long} and floating point values as {@link Double}
+     */
+    public Object getObject(int row, int column) {
+        Column c = column(row, column);
+        int offset = row & windowMask;
+        switch (c.types[offset]) {
+            case LONG: return c.longs[offset];
+            case DOUBLE: return c.doubles[offset];
+            case OBJECT: return c.objects[offset];
+            default: return null;
+        }
+    }
+
+    private Column column(int row, int column) {
+        if (row < 0 || row >= rowCount) throw new IndexOutOfBoundsException(row + " " + rowCount);
+        return windows.get(row >>> windowShift)[column];
+    }
+
+    /**
+     * One column of one window. The value arrays are only allocated once a value of their kind shows up, so a
+     * column of strings doesn't carry an unused long[] and double[] around.
+     */
+    private static class Column {
+        final byte[] types;
+        long[] longs;
+        double[] doubles;
+        Object[] objects;
+
+        Column(int size) {
+            types = new byte[size];
+        }
+
+        void set(int offset, Object value) throws SQLException {
+            if (value == null) {
+                types[offset] = NULL;
+            } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                if (longs == null) longs = new long[types.length];
+                longs[offset] = ((Number) value).longValue();
+                types[offset] = LONG;
+            } else if (value instanceof Double || value instanceof Float) {
+                if (doubles == null) doubles = new double[types.length];
+                // go through the decimal string so a REAL 1.1 reads back as 1.1 from getDouble(), not 1.100000023841858
+                doubles[offset] = value instanceof Float ? Double.parseDouble(value.toString()) : (Double) value;
+                types[offset] = DOUBLE;
+            } else {
+                if (objects == null) objects = new Object[types.length];
+                if (value instanceof Clob) {
+                    Clob clob = (Clob) value;
+                    value = clob.getSubString(1, (int) clob.length());
+                }
+                objects[offset] = value;
+                types[offset] = OBJECT;
+            }
+        }
+    }
+}
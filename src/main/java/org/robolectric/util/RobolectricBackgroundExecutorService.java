@@ -9,42 +9,80 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * By default, runs tasks on Robolectric's background {@link Scheduler}, so they only run when the test says so.
+ *
+ * Created with {@link #withRealThreads(int)}, runs them on a fixed pool of real threads instead, for tests that want
+ * CPU-heavy work (parsing, crypto, images) to actually run in parallel. Then it's a complete {@link ExecutorService},
+ * and anything thrown by a task passed to {@link #execute(Runnable)} is rethrown on the UI thread scheduler, the same
+ * way {@code AsyncTask} delivers its results.
+ */
 public class RobolectricBackgroundExecutorService implements ExecutorService {
+    private final ExecutorService threadPool;
+
+    public RobolectricBackgroundExecutorService() {
+        this(null);
+    }
+
+    private RobolectricBackgroundExecutorService(ExecutorService threadPool) {
+        this.threadPool = threadPool;
+    }
+
+    /**
+     * Creates an executor backed by {@code threadCount} real daemon threads. Shut it down when you're done with it;
+     * {@link Robolectric#reset()} does so for the application's background executor.
+     */
+    public static RobolectricBackgroundExecutorService withRealThreads(int threadCount) {
+        if (threadCount < 1) throw new IllegalArgumentException("need at least one thread, not " + threadCount);
+        return new RobolectricBackgroundExecutorService(new ThreadPoolExecutor(threadCount, threadCount,
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), new BackgroundThreadFactory()));
+    }
+
+    public boolean usesRealThreads() {
+        return threadPool != null;
+    }
+
     @Override
     public void shutdown() {
-        throw new UnsupportedOperationException();
+        threadPool().shutdown();
     }
 
     @Override
     public List<Runnable> shutdownNow() {
-        throw new UnsupportedOperationException();
+        return threadPool().shutdownNow();
     }
 
     @Override
     public boolean isShutdown() {
-        throw new UnsupportedOperationException();
+        return threadPool().isShutdown();
     }
 
     @Override
     public boolean isTerminated() {
-        throw new UnsupportedOperationException();
+        return threadPool().isTerminated();
     }
 
     @Override
     public boolean awaitTermination(long l, TimeUnit timeUnit) throws InterruptedException {
-        throw new UnsupportedOperationException();
+        return threadPool().awaitTermination(l, timeUnit);
     }
 
     @Override
     public <T> Future<T> submit(Callable<T> tCallable) {
+        if (threadPool != null) return threadPool.submit(tCallable);
         return schedule(new FutureTask<T>(tCallable));
     }
 
     @Override
     public <T> Future<T> submit(Runnable runnable, T t) {
+        if (threadPool != null) return threadPool.submit(runnable, t);
         return schedule(new FutureTask<T>(runnable, t));
     }
 
@@ -66,27 +104,69 @@ public class RobolectricBackgroundExecutorService implements ExecutorService {
 
     @Override
     public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> callables) throws InterruptedException {
-        throw new UnsupportedOperationException();
+        return threadPool().invokeAll(callables);
     }
 
     @Override
     public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> callables, long l, TimeUnit timeUnit) throws InterruptedException {
-        throw new UnsupportedOperationException();
+        return threadPool().invokeAll(callables, l, timeUnit);
     }
 
     @Override
     public <T> T invokeAny(Collection<? extends Callable<T>> callables) throws InterruptedException, ExecutionException {
-        throw new UnsupportedOperationException();
+        return threadPool().invokeAny(callables);
     }
 
     @Override
     public <T> T invokeAny(Collection<? extends Callable<T>> callables, long l, TimeUnit timeUnit) throws InterruptedException, ExecutionException, TimeoutException {
-        throw new UnsupportedOperationException();
+        return threadPool().invokeAny(callables, l, timeUnit);
     }
 
     @Override
-    public void execute(Runnable runnable) {
-        submit(runnable);
+    public void execute(final Runnable runnable) {
+        if (threadPool == null) {
+            submit(runnable);
+            return;
+        }
+
+        final Scheduler uiThreadScheduler = Robolectric.getUiThreadScheduler();
+        threadPool.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    runnable.run();
+                } catch (final Throwable t) {
+                    uiThreadScheduler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            throw new RuntimeException("background task failed", t);
+                        }
+                    });
+                }
+            }
+        });
     }
-}
 
+    private ExecutorService threadPool() {
+        if (threadPool == null) {
+            throw new UnsupportedOperationException("only supported by executors created with withRealThreads()");
+        }
+        return threadPool;
+    }
+
+    private static class BackgroundThreadFactory implements ThreadFactory {
+        private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+        private final int poolNumber = POOL_NUMBER.incrementAndGet();
+        private final AtomicInteger threadNumber = new AtomicInteger();
+        private final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "robolectric-background-" + poolNumber + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setContextClassLoader(contextClassLoader);
+            return thread;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import android.database.sqlite.SQLiteException;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
@@ -111,7 +112,73 @@ public class SQLite {
      * @return where clause
      */
     public static String buildWhereClause(String selection, String[] selectionArgs) throws SQLiteException {
+        checkWhereArgs(selection, selectionArgs);
+
         String whereClause = selection;
+        if (selectionArgs != null) {
+            for (String selectionArg : selectionArgs) {
+                whereClause = whereClause.replaceFirst("\\?", "'" + selectionArg + "'");
+            }
+        }
+        return whereClause;
+    }
+
+    /**
+     * Create a SQL UPDATE statement which, unlike {@link #buildUpdateString}, leaves the placeholders in
+     * {@code whereClause} alone and binds {@code whereArgs} after the column values, so the SQL only
+     * depends on the table, the columns and the where clause.
+     *
+     * @param table       table name
+     * @param values      column name/value pairs
+     * @param whereClause SQL where clause fragment
+     * @param whereArgs   Array of values for the args in whereClause
+     * @return update statement
+     */
+    public static SQLStringAndBindings buildUpdateStatement(String table, ContentValues values, String whereClause, String[] whereArgs) {
+        SQLStringAndBindings columnAssignmentsClause = buildColumnAssignmentsClause(values);
+        StringBuilder sb = new StringBuilder();
+        sb.append("UPDATE ");
+        sb.append(table);
+        sb.append(" SET ");
+        sb.append(columnAssignmentsClause.sql);
+
+        List<Object> bindings = columnAssignmentsClause.columnValues;
+        appendWhere(sb, bindings, whereClause, whereArgs);
+        return new SQLStringAndBindings(sb.toString(), bindings);
+    }
+
+    /**
+     * Create a SQL DELETE statement which, unlike {@link #buildDeleteString}, binds {@code whereArgs}
+     * instead of writing them into the SQL.
+     *
+     * @param table       table name
+     * @param whereClause SQL where clause fragment
+     * @param whereArgs   Array of values for the args in whereClause
+     * @return delete statement
+     */
+    public static SQLStringAndBindings buildDeleteStatement(String table, String whereClause, String[] whereArgs) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("DELETE FROM ");
+        sb.append(table);
+
+        List<Object> bindings = new ArrayList<Object>();
+        appendWhere(sb, bindings, whereClause, whereArgs);
+        return new SQLStringAndBindings(sb.toString(), bindings);
+    }
+
+    private static void appendWhere(StringBuilder sb, List<Object> bindings, String whereClause, String[] whereArgs) {
+        if (whereClause != null) {
+            checkWhereArgs(whereClause, whereArgs);
+            sb.append(" WHERE ");
+            sb.append(whereClause);
+            if (whereArgs != null) {
+                bindings.addAll(Arrays.asList(whereArgs));
+            }
+        }
+        sb.append(";");
+    }
+
+    private static void checkWhereArgs(String selection, String[] selectionArgs) throws SQLiteException {
         int argsNeeded = 0;
         int args = 0;
 
@@ -125,14 +192,11 @@ public class SQLite {
                 } else {
                     args++;
                 }
-                whereClause = whereClause.replaceFirst("\\?", "'" + selectionArgs[x] + "'");
             }
         }
         if (argsNeeded != args) {
             throw new SQLiteException("bind or column index out of range: count of selectionArgs does not match count of (?) placeholders for given sql statement!");
         }
-
-        return whereClause;
     }
 
    /**
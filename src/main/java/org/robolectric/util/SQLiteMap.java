@@ -1,8 +1,12 @@
 package org.robolectric.util;
 
+import java.io.File;
+import java.sql.Connection;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 
-public class SQLiteMap implements DatabaseConfig.DatabaseMap {
+public class SQLiteMap implements DatabaseConfig.FileDatabaseMap {
 
     public String getDriverClassName() {
         return "org.sqlite.JDBC";
@@ -12,6 +16,34 @@ public class SQLiteMap implements DatabaseConfig.DatabaseMap {
         return "jdbc:sqlite::memory:";
     }
 
+    public String getConnectionString(File file) {
+        return "jdbc:sqlite:" + file.getAbsolutePath();
+    }
+
+    public boolean exists(File file) {
+        return file.exists();
+    }
+
+    /**
+     * Uses the driver's own backup command, which copies the database page by page.
+     */
+    public void backup(Connection connection, File file) throws SQLException {
+        executeUpdate(connection, "backup to " + file.getAbsolutePath());
+    }
+
+    public void restore(Connection connection, File file) throws SQLException {
+        executeUpdate(connection, "restore from " + file.getAbsolutePath());
+    }
+
+    private static void executeUpdate(Connection connection, String sql) throws SQLException {
+        Statement statement = connection.createStatement();
+        try {
+            statement.executeUpdate(sql);
+        } finally {
+            statement.close();
+        }
+    }
+
     public String getScrubSQL(String sql) {
         return sql;
     }
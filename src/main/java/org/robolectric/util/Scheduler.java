@@ -1,12 +1,13 @@
 package org.robolectric.util;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
 import java.util.List;
-import java.util.ListIterator;
+import java.util.Map;
 
 public class Scheduler {
-    private List<PostedRunnable> postedRunnables = new ArrayList<PostedRunnable>();
+    private final RunnableQueue postedRunnables = new RunnableQueue();
     private long currentTime = 0;
     private boolean paused = false;
     private Thread associatedThread = Thread.currentThread();
@@ -31,8 +32,7 @@ public class Scheduler {
 
     public synchronized void postDelayed(Runnable runnable, long delayMillis) {
         if ((!isConstantlyIdling && (paused || delayMillis > 0)) || Thread.currentThread() != associatedThread) {
-            postedRunnables.add(new PostedRunnable(runnable, currentTime + delayMillis));
-            Collections.sort(postedRunnables);
+            postedRunnables.add(runnable, currentTime + delayMillis, false);
         } else {
             runnable.run();
         }
@@ -44,20 +44,14 @@ public class Scheduler {
 
     public synchronized void postAtFrontOfQueue(Runnable runnable) {
         if (paused || Thread.currentThread() != associatedThread) {
-            postedRunnables.add(0, new PostedRunnable(runnable, currentTime));
+            postedRunnables.add(runnable, currentTime, true);
         } else {
             runnable.run();
         }
     }
 
     public synchronized void remove(Runnable runnable) {
-        ListIterator<PostedRunnable> iterator = postedRunnables.listIterator();
-        while (iterator.hasNext()) {
-            PostedRunnable next = iterator.next();
-            if (next.runnable == runnable) {
-                iterator.remove();
-            }
-        }
+        postedRunnables.remove(runnable);
     }
 
     public synchronized boolean advanceToLastPostedRunnable() {
@@ -65,7 +59,7 @@ public class Scheduler {
             return false;
         }
 
-        return advanceTo(postedRunnables.get(postedRunnables.size() - 1).scheduledTime);
+        return advanceTo(postedRunnables.lastScheduledTime());
     }
 
     public synchronized boolean advanceToNextPostedRunnable() {
@@ -73,7 +67,7 @@ public class Scheduler {
             return false;
         }
 
-        return advanceTo(postedRunnables.get(0).scheduledTime);
+        return advanceTo(postedRunnables.peek().scheduledTime);
     }
 
     public synchronized boolean advanceBy(long intervalMs) {
@@ -101,7 +95,7 @@ public class Scheduler {
             return false;
         }
 
-        PostedRunnable postedRunnable = postedRunnables.remove(0);
+        PostedRunnable postedRunnable = postedRunnables.poll();
         currentTime = postedRunnable.scheduledTime;
         postedRunnable.run();
         return true;
@@ -113,7 +107,7 @@ public class Scheduler {
         }
 
         while (howMany > 0) {
-            PostedRunnable postedRunnable = postedRunnables.remove(0);
+            PostedRunnable postedRunnable = postedRunnables.poll();
             currentTime = postedRunnable.scheduledTime;
             postedRunnable.run();
             howMany--;
@@ -125,6 +119,22 @@ public class Scheduler {
         return postedRunnables.size();
     }
 
+    /**
+     * @return the time the next task is scheduled for, or {@link Long#MAX_VALUE} if there aren't any
+     */
+    public synchronized long getNextScheduledTime() {
+        return enqueuedTaskCount() > 0 ? postedRunnables.peek().scheduledTime : Long.MAX_VALUE;
+    }
+
+    /**
+     * Moves the clock forward without running anything; used by {@link VirtualClock} to keep schedulers in step.
+     */
+    synchronized void advanceClockTo(long time) {
+        if (time > currentTime) {
+            currentTime = time;
+        }
+    }
+
     public synchronized boolean areAnyRunnable() {
         return nextTaskIsScheduledBefore(currentTime);
     }
@@ -143,18 +153,24 @@ public class Scheduler {
         isConstantlyIdling = shouldIdleConstantly;
     }
 
-    class PostedRunnable implements Comparable<PostedRunnable> {
-        Runnable runnable;
-        long scheduledTime;
+    static class PostedRunnable implements Comparable<PostedRunnable> {
+        final Runnable runnable;
+        final long scheduledTime;
+        final long sequence;
+        int heapIndex;
 
-        PostedRunnable(Runnable runnable, long scheduledTime) {
+        PostedRunnable(Runnable runnable, long scheduledTime, long sequence) {
             this.runnable = runnable;
             this.scheduledTime = scheduledTime;
+            this.sequence = sequence;
         }
 
         @Override
         public int compareTo(PostedRunnable postedRunnable) {
-            return (int) (scheduledTime - postedRunnable.scheduledTime);
+            if (scheduledTime != postedRunnable.scheduledTime) {
+                return scheduledTime < postedRunnable.scheduledTime ? -1 : 1;
+            }
+            return sequence < postedRunnable.sequence ? -1 : (sequence == postedRunnable.sequence ? 0 : 1);
         }
 
         public void run() {
@@ -162,7 +178,124 @@ public class Scheduler {
         }
     }
 
+    /**
+     * Binary heap of posted runnables, ordered by time and then by when they were posted, so runnables due at the same
+     * time run first-in, first-out. Runnables posted at the front of the queue get negative sequence numbers.
+     */
+    static class RunnableQueue {
+        private PostedRunnable[] heap = new PostedRunnable[16];
+        private int size;
+        private long nextSequence = 0;
+        private long nextFrontSequence = -1;
+        private final Map<Runnable, List<PostedRunnable>> byRunnable = new IdentityHashMap<Runnable, List<PostedRunnable>>();
+
+        void add(Runnable runnable, long scheduledTime, boolean atFront) {
+            PostedRunnable postedRunnable = new PostedRunnable(runnable, scheduledTime,
+                    atFront ? nextFrontSequence-- : nextSequence++);
+            if (size == heap.length) heap = Arrays.copyOf(heap, size * 2);
+            heap[size] = postedRunnable;
+            postedRunnable.heapIndex = size;
+            siftUp(size++);
+
+            List<PostedRunnable> sameRunnable = byRunnable.get(runnable);
+            if (sameRunnable == null) {
+                // usually polled in the order they were posted, so removing from the head is cheap
+                sameRunnable = new LinkedList<PostedRunnable>();
+                byRunnable.put(runnable, sameRunnable);
+            }
+            sameRunnable.add(postedRunnable);
+        }
+
+        PostedRunnable peek() {
+            return size == 0 ? null : heap[0];
+        }
+
+        PostedRunnable poll() {
+            if (size == 0) return null;
+            PostedRunnable first = heap[0];
+            removeAt(0);
+            forget(first);
+            return first;
+        }
+
+        void remove(Runnable runnable) {
+            List<PostedRunnable> sameRunnable = byRunnable.remove(runnable);
+            if (sameRunnable == null) return;
+            for (PostedRunnable postedRunnable : sameRunnable) {
+                removeAt(postedRunnable.heapIndex);
+            }
+        }
+
+        long lastScheduledTime() {
+            long last = Long.MIN_VALUE;
+            for (int i = 0; i < size; i++) {
+                last = Math.max(last, heap[i].scheduledTime);
+            }
+            return last;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void clear() {
+            Arrays.fill(heap, 0, size, null);
+            size = 0;
+            byRunnable.clear();
+        }
+
+        private void forget(PostedRunnable postedRunnable) {
+            List<PostedRunnable> sameRunnable = byRunnable.get(postedRunnable.runnable);
+            if (sameRunnable.size() == 1) {
+                byRunnable.remove(postedRunnable.runnable);
+            } else {
+                sameRunnable.remove(postedRunnable);
+            }
+        }
+
+        private void removeAt(int i) {
+            PostedRunnable last = heap[--size];
+            heap[size] = null;
+            if (i == size) return;
+
+            heap[i] = last;
+            last.heapIndex = i;
+            siftDown(i);
+            if (heap[i] == last) siftUp(i);
+        }
+
+        private void siftUp(int i) {
+            PostedRunnable postedRunnable = heap[i];
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heap[parent].compareTo(postedRunnable) <= 0) break;
+                place(heap[parent], i);
+                i = parent;
+            }
+            place(postedRunnable, i);
+        }
+
+        private void siftDown(int i) {
+            PostedRunnable postedRunnable = heap[i];
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                int right = child + 1;
+                if (right < size && heap[right].compareTo(heap[child]) < 0) child = right;
+                if (postedRunnable.compareTo(heap[child]) <= 0) break;
+                place(heap[child], i);
+                i = child;
+            }
+            place(postedRunnable, i);
+        }
+
+        private void place(PostedRunnable postedRunnable, int i) {
+            heap[i] = postedRunnable;
+            postedRunnable.heapIndex = i;
+        }
+    }
+
     private boolean nextTaskIsScheduledBefore(long endingTime) {
-        return enqueuedTaskCount() > 0 && postedRunnables.get(0).scheduledTime <= endingTime;
+        return enqueuedTaskCount() > 0 && postedRunnables.peek().scheduledTime <= endingTime;
     }
 }
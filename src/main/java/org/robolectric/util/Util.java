@@ -45,4 +45,18 @@ public class Util {
         }
         return f;
     }
+
+    /**
+     * Takes away everyone else's access to a directory, for caches whose contents get loaded back as classes or
+     * objects and so mustn't be writable by other users.
+     */
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    public static void makeOwnerOnly(File dir) {
+        dir.setReadable(false, false);
+        dir.setWritable(false, false);
+        dir.setExecutable(false, false);
+        dir.setReadable(true, true);
+        dir.setWritable(true, true);
+        dir.setExecutable(true, true);
+    }
 }
@@ -0,0 +1,112 @@
+package org.robolectric.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One clock for all of a test's {@link Scheduler}s (the main looper, the background scheduler, and any other loopers),
+ * so time can be moved forward for all of them at once. Tasks run in timestamp order across schedulers, and every
+ * scheduler's clock is brought up to a task's time before it runs, so anything it posts elsewhere is relative to the
+ * right time. Tasks due at the same time on different schedulers run in the order the schedulers were registered.
+ *
+ * Tasks are run on the calling thread, the same as {@link Scheduler#advanceBy(long)}.
+ */
+public class VirtualClock {
+    private final List<Scheduler> schedulers = new ArrayList<Scheduler>();
+    private long currentTime = 0;
+
+    public synchronized long getCurrentTime() {
+        return currentTime;
+    }
+
+    /**
+     * Starts keeping the scheduler in step with this clock, moving its time forward to the clock's if it's behind.
+     */
+    public synchronized void register(Scheduler scheduler) {
+        if (!schedulers.contains(scheduler)) {
+            schedulers.add(scheduler);
+            scheduler.advanceClockTo(currentTime);
+        }
+    }
+
+    public synchronized void unregister(Scheduler scheduler) {
+        schedulers.remove(scheduler);
+    }
+
+    /**
+     * Runs every task due by the given time on any scheduler, in timestamp order, then moves every scheduler's clock to
+     * that time.
+     *
+     * @return the number of tasks run
+     */
+    public int advanceTo(long endingTime) {
+        int runCount = 0;
+        while (true) {
+            Scheduler next = null;
+            long nextTime = Long.MAX_VALUE;
+            for (Scheduler scheduler : schedulers()) {
+                long time = scheduler.getNextScheduledTime();
+                if (time < nextTime) {
+                    next = scheduler;
+                    nextTime = time;
+                }
+            }
+            if (next == null || nextTime > endingTime) break;
+
+            advanceClocksTo(nextTime);
+            if (next.runOneTask()) runCount++;
+        }
+
+        advanceClocksTo(endingTime);
+        return runCount;
+    }
+
+    /**
+     * @return the number of tasks run
+     */
+    public int advanceBy(long intervalMillis) {
+        return advanceTo(getCurrentTime() + intervalMillis);
+    }
+
+    /**
+     * Runs every task that's due now on any scheduler, including ones they post for now, without moving the clock.
+     *
+     * @return the number of tasks run
+     */
+    public int idle() {
+        return advanceTo(getCurrentTime());
+    }
+
+    /**
+     * Runs tasks in timestamp order, moving the clock forward as it goes, until no scheduler has anything left to run.
+     * Tasks which keep posting more tasks will keep this going forever.
+     *
+     * @return the number of tasks run
+     */
+    public int runUntilIdle() {
+        int runCount = 0;
+        while (true) {
+            long nextTime = Long.MAX_VALUE;
+            for (Scheduler scheduler : schedulers()) {
+                nextTime = Math.min(nextTime, scheduler.getNextScheduledTime());
+            }
+            if (nextTime == Long.MAX_VALUE) return runCount;
+
+            runCount += advanceTo(Math.max(nextTime, getCurrentTime()));
+        }
+    }
+
+    private void advanceClocksTo(long time) {
+        synchronized (this) {
+            if (time > currentTime) currentTime = time;
+        }
+        for (Scheduler scheduler : schedulers()) {
+            scheduler.advanceClockTo(time);
+        }
+    }
+
+    // tasks are run without holding our lock, since they may create loopers which register themselves
+    private synchronized Scheduler[] schedulers() {
+        return schedulers.toArray(new Scheduler[schedulers.size()]);
+    }
+}
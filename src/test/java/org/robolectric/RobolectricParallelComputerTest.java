@@ -0,0 +1,79 @@
+package org.robolectric;
+
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.junit.runners.model.InitializationError;
+import org.robolectric.bytecode.Setup;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.util.TestUtil.resourceFile;
+
+public class RobolectricParallelComputerTest {
+    public static class StateHolder {
+        public static CountDownLatch running;
+        public static Map<String, ClassLoader> classLoaders;
+    }
+
+    @Test
+    public void shouldRunClassesConcurrentlyInSeparateUniverses() throws Exception {
+        StateHolder.running = new CountDownLatch(2);
+        StateHolder.classLoaders = Collections.synchronizedMap(new HashMap<String, ClassLoader>());
+
+        Result result = new JUnitCore().run(Request.classes(new RobolectricParallelComputer(2), FirstClass.class, SecondClass.class));
+
+        assertTrue(result.getFailures().toString(), result.wasSuccessful());
+        assertThat(result.getRunCount()).isEqualTo(2);
+        assertThat(StateHolder.classLoaders.get("first")).isNotSameAs(StateHolder.classLoaders.get("second"));
+    }
+
+    @RunWith(Runner.class)
+    public static class FirstClass {
+        @Test public void recordUniverse() throws Exception {
+            recordUniverseAndWaitForOtherClass("first");
+        }
+    }
+
+    @RunWith(Runner.class)
+    public static class SecondClass {
+        @Test public void recordUniverse() throws Exception {
+            recordUniverseAndWaitForOtherClass("second");
+        }
+    }
+
+    private static void recordUniverseAndWaitForOtherClass(String name) throws InterruptedException {
+        StateHolder.classLoaders.put(name, Robolectric.class.getClassLoader());
+        assertThat(Robolectric.application).isNotNull();
+
+        StateHolder.running.countDown();
+        assertTrue("other class never started", StateHolder.running.await(30, TimeUnit.SECONDS));
+    }
+
+    public static class Runner extends RobolectricTestRunner {
+        public Runner(Class<?> testClass) throws InitializationError {
+            super(testClass);
+        }
+
+        @Override public Setup createSetup() {
+            return new Setup() {
+                @Override public boolean shouldAcquire(String name) {
+                    if (name.equals(StateHolder.class.getName())) return false;
+                    return super.shouldAcquire(name);
+                }
+            };
+        }
+
+        @Override protected AndroidManifest createAppManifest() {
+            return new AndroidManifest(resourceFile("TestAndroidManifest.xml"), resourceFile("res"), resourceFile("assets"));
+        }
+    }
+}
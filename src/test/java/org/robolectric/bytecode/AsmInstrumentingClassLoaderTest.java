@@ -1,9 +1,25 @@
 package org.robolectric.bytecode;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.robolectric.test.TemporaryFolder;
+import org.robolectric.util.BuildFingerprint;
 import org.robolectric.util.Transcript;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
 public class AsmInstrumentingClassLoaderTest extends InstrumentingClassLoaderTestBase {
+    @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     protected ClassLoader createClassLoader(Setup setup) throws ClassNotFoundException {
         return new AsmInstrumentingClassLoader(setup);
     }
@@ -32,4 +48,98 @@ public class AsmInstrumentingClassLoaderTest extends InstrumentingClassLoaderTes
 
         transcript.assertEventsSoFar("find foo.AClass");
     }
+
+    @Test public void shouldReuseInstrumentedBytesFromPersistentCache() throws Exception {
+        final Transcript transcript = new Transcript();
+        File cacheDir = temporaryFolder.newFolder("instrumented-classes");
+
+        InstrumentedClassCache cache = new InstrumentedClassCache(cacheDir) {
+            @Override public byte[] get(String key) {
+                byte[] bytes = super.get(key);
+                transcript.add(bytes == null ? "miss" : "hit");
+                return bytes;
+            }
+
+            @Override public void put(String key, byte[] classBytes) {
+                transcript.add("put");
+                super.put(key, classBytes);
+            }
+        };
+
+        new AsmInstrumentingClassLoader(new Setup(), cache).loadClass(AnExampleClass.class.getName());
+        transcript.assertEventsSoFar("miss", "put");
+
+        Class<?> exampleClass = new AsmInstrumentingClassLoader(new Setup(), cache).loadClass(AnExampleClass.class.getName());
+        transcript.assertEventsSoFar("hit");
+        assertNotNull(exampleClass.getField(AsmInstrumentingClassLoader.CLASS_HANDLER_DATA_FIELD_NAME));
+    }
+
+    @Test public void shouldInstrumentAgainWhenCachedBytesAreCorrupt() throws Exception {
+        final Transcript transcript = new Transcript();
+        InstrumentedClassCache cache = new InstrumentedClassCache(temporaryFolder.newFolder("instrumented-classes")) {
+            @Override public byte[] get(String key) {
+                transcript.add("corrupt");
+                return new byte[]{(byte) 0xca, (byte) 0xfe, (byte) 0xba, (byte) 0xbe, 0, 0};
+            }
+
+            @Override public void remove(String key) {
+                transcript.add("remove");
+                super.remove(key);
+            }
+
+            @Override public void put(String key, byte[] classBytes) {
+                transcript.add("put");
+                super.put(key, classBytes);
+            }
+        };
+
+        Class<?> exampleClass = new AsmInstrumentingClassLoader(new Setup(), cache).loadClass(AnExampleClass.class.getName());
+        transcript.assertEventsSoFar("corrupt", "remove", "put");
+        assertNotNull(exampleClass.getField(AsmInstrumentingClassLoader.CLASS_HANDLER_DATA_FIELD_NAME));
+    }
+
+    @Test public void shouldNotShareCachedBytesBetweenDifferentSetups() throws Exception {
+        final Transcript transcript = new Transcript();
+        InstrumentedClassCache cache = new InstrumentedClassCache(temporaryFolder.newFolder("instrumented-classes")) {
+            @Override public byte[] get(String key) {
+                byte[] bytes = super.get(key);
+                transcript.add(bytes == null ? "miss" : "hit");
+                return bytes;
+            }
+        };
+
+        new AsmInstrumentingClassLoader(new Setup(), cache).loadClass(AnExampleClass.class.getName());
+        new AsmInstrumentingClassLoader(new Setup() {}, cache).loadClass(AnExampleClass.class.getName());
+        transcript.assertEventsSoFar("miss", "miss");
+    }
+
+    @Test public void configurationFingerprintShouldCoverTheBuildAndTheInstrumentationConfig() throws Exception {
+        String fingerprint = new AsmInstrumentingClassLoader(new Setup()).configurationFingerprint();
+        assertEquals(fingerprint, new AsmInstrumentingClassLoader(new Setup()).configurationFingerprint());
+        assertThat(fingerprint).contains(BuildFingerprint.get());
+
+        Setup remappingSetup = new Setup() {
+            @Override public Map<String, String> classNameTranslations() {
+                return Collections.singletonMap("a.B", "c.D");
+            }
+        };
+        assertThat(new AsmInstrumentingClassLoader(remappingSetup).configurationFingerprint()).isNotEqualTo(fingerprint);
+    }
+
+    @Test public void shouldRecordSignaturesOfInstrumentedMethodsByMethodId() throws Exception {
+        Class<?> exampleClass = new AsmInstrumentingClassLoader(new Setup()).loadClass(AnExampleClass.class.getName());
+
+        List<String> signatures = new ArrayList<String>();
+        for (MethodSignature signature : MethodSignature.allFor(exampleClass)) {
+            signatures.add(signature.toString());
+        }
+        assertThat(signatures).contains("normalMethod(java.lang.String, int)", "__constructor__()");
+    }
+
+    @Test public void shouldParseMethodSignatures() throws Exception {
+        MethodSignature signature = MethodSignature.parse("foo(I[Ljava/lang/String;J)Ljava/lang/CharSequence;");
+        assertEquals("foo", signature.methodName);
+        assertArrayEquals(new String[]{"int", "java.lang.String[]", "long"}, signature.paramTypes);
+        assertEquals("java.lang.CharSequence", signature.returnType);
+    }
 }
@@ -0,0 +1,67 @@
+package org.robolectric.bytecode;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.robolectric.test.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class InstrumentedClassCacheTest {
+    @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private InstrumentedClassCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        cache = new InstrumentedClassCache(temporaryFolder.newFolder("cache"));
+    }
+
+    @Test
+    public void keyShouldDependOnClassBytesAndConfiguration() throws Exception {
+        byte[] bytes = {1, 2, 3};
+        String key = cache.keyFor("a.B", bytes, "config");
+        assertEquals(key, cache.keyFor("a.B", new byte[]{1, 2, 3}, "config"));
+        assertFalse(key.equals(cache.keyFor("a.B", new byte[]{1, 2, 4}, "config")));
+        assertFalse(key.equals(cache.keyFor("a.B", bytes, "other config")));
+        assertFalse(key.equals(cache.keyFor("a.C", bytes, "config")));
+    }
+
+    @Test
+    public void shouldReturnNullForMissingEntries() throws Exception {
+        assertNull(cache.get(cache.keyFor("a.B", new byte[]{1}, "config")));
+    }
+
+    @Test
+    public void shouldPersistEntriesAcrossInstances() throws Exception {
+        String key = cache.keyFor("a.B", new byte[]{1}, "config");
+        cache.put(key, new byte[]{4, 5, 6});
+
+        InstrumentedClassCache otherCache = new InstrumentedClassCache(cache.getCacheDir());
+        assertArrayEquals(new byte[]{4, 5, 6}, otherCache.get(key));
+    }
+
+    @Test
+    public void shouldNotLeaveTempFilesBehind() throws Exception {
+        String key = cache.keyFor("a.B", new byte[]{1}, "config");
+        cache.put(key, new byte[]{4, 5, 6});
+        cache.put(key, new byte[]{4, 5, 6});
+
+        File[] subdirs = cache.getCacheDir().listFiles();
+        assertEquals(1, subdirs.length);
+        assertEquals(1, subdirs[0].listFiles().length);
+    }
+
+    @Test
+    public void shouldForgetRemovedEntries() throws Exception {
+        String key = cache.keyFor("a.B", new byte[]{1}, "config");
+        cache.put(key, new byte[]{4, 5, 6});
+        cache.remove(key);
+        assertNull(cache.get(key));
+    }
+}
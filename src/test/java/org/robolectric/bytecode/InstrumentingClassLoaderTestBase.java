@@ -476,6 +476,24 @@ abstract public class InstrumentingClassLoaderTestBase { // don't end in "Test"
             return "response from " + buf.toString();
         }
 
+        @Override
+        public Object methodInvoked(Class clazz, int methodId, Object instance, Object[] params) throws Throwable {
+            MethodSignature signature = MethodSignature.forMethodId(clazz, methodId);
+            return methodInvoked(clazz, signature.methodName, instance, signature.paramTypes, params);
+        }
+
+        @Override
+        public long primitiveMethodInvoked(Class clazz, int methodId, Object instance, long arg0, long arg1, long arg2) throws Throwable {
+            MethodSignature signature = MethodSignature.forMethodId(clazz, methodId);
+            Class<?>[] paramClasses = new Class<?>[signature.paramTypes.length];
+            for (int i = 0; i < paramClasses.length; i++) {
+                paramClasses[i] = RoboType.findPrimitiveClass(signature.paramTypes[i]);
+            }
+            Object[] params = PrimitiveValues.decode(paramClasses, arg0, arg1, arg2);
+            Object result = methodInvoked(clazz, signature.methodName, instance, signature.paramTypes, params);
+            return PrimitiveValues.encode(result, RoboType.findPrimitiveClass(signature.returnType));
+        }
+
         @Override
         public Object intercept(String clazzName, String methodName, Object instance, Object[] paramTypes, Object[] params) throws Throwable {
             return null;
@@ -0,0 +1,109 @@
+package org.robolectric.bytecode;
+
+import org.junit.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.GeneratorAdapter;
+
+import java.lang.reflect.Method;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PrimitiveValuesTest {
+    private static final Class<?>[] PRIMITIVE_TYPES = {
+            boolean.class, byte.class, char.class, short.class, int.class, long.class, float.class, double.class
+    };
+
+    @Test
+    public void generatedCodeShouldRoundTripPrimitives() throws Exception {
+        Class<?> roundTripper = generateRoundTripper();
+
+        assertRoundTrips(roundTripper, boolean.class, true, false);
+        assertRoundTrips(roundTripper, byte.class, Byte.MIN_VALUE, (byte) -1, Byte.MAX_VALUE);
+        assertRoundTrips(roundTripper, char.class, Character.MIN_VALUE, 'x', Character.MAX_VALUE);
+        assertRoundTrips(roundTripper, short.class, Short.MIN_VALUE, (short) -1, Short.MAX_VALUE);
+        assertRoundTrips(roundTripper, int.class, Integer.MIN_VALUE, -1, Integer.MAX_VALUE);
+        assertRoundTrips(roundTripper, long.class, Long.MIN_VALUE, -1L, Long.MAX_VALUE);
+        assertRoundTrips(roundTripper, float.class, -1.5f, Float.NaN, Float.NEGATIVE_INFINITY, Float.MIN_VALUE);
+        assertRoundTrips(roundTripper, double.class, -1.5d, Double.NaN, Double.POSITIVE_INFINITY, Double.MIN_VALUE);
+    }
+
+    @Test
+    public void generatedCodeAndReflectiveEncodingShouldAgree() throws Exception {
+        Class<?> roundTripper = generateRoundTripper();
+        assertEquals(PrimitiveValues.encode(-3, int.class), roundTripper.getMethod("encode", int.class).invoke(null, -3));
+        assertEquals(PrimitiveValues.encode(2.5f, float.class), roundTripper.getMethod("encode", float.class).invoke(null, 2.5f));
+        assertEquals(PrimitiveValues.encode(true, boolean.class), roundTripper.getMethod("encode", boolean.class).invoke(null, true));
+    }
+
+    @Test
+    public void encodeShouldConvertBoxedValuesToTheRequestedType() throws Exception {
+        assertEquals(0, PrimitiveValues.encode(null, double.class));
+        assertEquals(456.0, Double.longBitsToDouble(PrimitiveValues.encode(456, double.class)), 0);
+        assertEquals(7, PrimitiveValues.encode(7.9f, int.class));
+    }
+
+    @Test
+    public void decodeShouldBoxEachArgument() throws Exception {
+        assertArrayEquals(new Object[]{true, 'c', 1.5d},
+                PrimitiveValues.decode(new Class<?>[]{boolean.class, char.class, double.class}, 1, 'c', Double.doubleToRawLongBits(1.5d)));
+        assertArrayEquals(new Object[0], PrimitiveValues.decode(new Class<?>[0], 0, 0, 0));
+    }
+
+    @Test
+    public void shouldOnlyEncodeShortPrimitiveSignatures() throws Exception {
+        assertTrue(PrimitiveValues.canEncode(Type.getArgumentTypes("(IJF)V"), Type.VOID_TYPE));
+        assertTrue(PrimitiveValues.canEncode(new Type[0], Type.BOOLEAN_TYPE));
+        assertFalse(PrimitiveValues.canEncode(Type.getArgumentTypes("(IIII)V"), Type.VOID_TYPE));
+        assertFalse(PrimitiveValues.canEncode(Type.getArgumentTypes("(Ljava/lang/String;)V"), Type.VOID_TYPE));
+        assertFalse(PrimitiveValues.canEncode(Type.getArgumentTypes("([I)V"), Type.VOID_TYPE));
+        assertFalse(PrimitiveValues.canEncode(new Type[0], Type.getType(Object.class)));
+    }
+
+    private void assertRoundTrips(Class<?> roundTripper, Class<?> type, Object... values) throws Exception {
+        Method roundTrip = roundTripper.getMethod("roundTrip", type);
+        for (Object value : values) {
+            assertEquals(value, roundTrip.invoke(null, value));
+        }
+    }
+
+    /**
+     * Generates a class with "long encode(T)" and "T roundTrip(T)" methods for each primitive type T.
+     */
+    private Class<?> generateRoundTripper() {
+        final String className = "org.robolectric.bytecode.GeneratedRoundTripper";
+        ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        classWriter.visit(Opcodes.V1_5, Opcodes.ACC_PUBLIC, className.replace('.', '/'), null, "java/lang/Object", null);
+
+        for (Class<?> primitiveType : PRIMITIVE_TYPES) {
+            Type type = Type.getType(primitiveType);
+
+            GeneratorAdapter encode = new GeneratorAdapter(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC,
+                    new org.objectweb.asm.commons.Method("encode", Type.LONG_TYPE, new Type[]{type}), null, null, classWriter);
+            encode.loadArg(0);
+            PrimitiveValues.encode(encode, type);
+            encode.returnValue();
+            encode.endMethod();
+
+            GeneratorAdapter roundTrip = new GeneratorAdapter(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC,
+                    new org.objectweb.asm.commons.Method("roundTrip", type, new Type[]{type}), null, null, classWriter);
+            roundTrip.loadArg(0);
+            PrimitiveValues.encode(roundTrip, type);
+            PrimitiveValues.decode(roundTrip, type);
+            roundTrip.returnValue();
+            roundTrip.endMethod();
+        }
+        classWriter.visitEnd();
+
+        final byte[] bytes = classWriter.toByteArray();
+        return new ClassLoader(getClass().getClassLoader()) {
+            Class<?> define() {
+                return defineClass(className, bytes, 0, bytes.length);
+            }
+        }.define();
+    }
+}
@@ -0,0 +1,76 @@
+package org.robolectric.bytecode;
+
+import android.view.View;
+import android.widget.TextView;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.TestRunners;
+
+/**
+ * Compares shadow method dispatch through generated invokers against reflective dispatch.
+ */
+@RunWith(TestRunners.WithDefaults.class)
+public class ShadowDispatchBenchmark {
+    private static final int WARMUP_CALLS = 100000;
+    private static final int MEASURED_CALLS = 2000000;
+
+    @Test
+    public void viewGetId() throws Exception {
+        final View view = new View(Robolectric.application);
+        view.setId(42);
+
+        compare("ShadowView.getId", new Runnable() {
+            @Override public void run() {
+                view.getId();
+            }
+        });
+    }
+
+    @Test
+    public void textViewGetText() throws Exception {
+        final TextView textView = new TextView(Robolectric.application);
+        textView.setText("some text");
+
+        compare("ShadowTextView.getText", new Runnable() {
+            @Override public void run() {
+                textView.getText();
+            }
+        });
+    }
+
+    @Test
+    public void viewSetVisibility() throws Exception {
+        final View view = new View(Robolectric.application);
+
+        compare("ShadowView.setVisibility", new Runnable() {
+            @Override public void run() {
+                view.setVisibility(View.INVISIBLE);
+            }
+        });
+    }
+
+    private void compare(String name, Runnable call) {
+        ShadowWrangler shadowWrangler = Robolectric.getShadowWrangler();
+        boolean wasUsingGeneratedInvokers = shadowWrangler.useGeneratedInvokers;
+        try {
+            shadowWrangler.useGeneratedInvokers = false;
+            double reflective = callsPerSecond(call);
+            shadowWrangler.useGeneratedInvokers = true;
+            double generated = callsPerSecond(call);
+            System.out.println(String.format("%-28s reflective: %,12.0f calls/sec  generated: %,12.0f calls/sec  (%.2fx)",
+                    name, reflective, generated, generated / reflective));
+        } finally {
+            shadowWrangler.useGeneratedInvokers = wasUsingGeneratedInvokers;
+        }
+    }
+
+    private double callsPerSecond(Runnable call) {
+        for (int i = 0; i < WARMUP_CALLS; i++) call.run();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_CALLS; i++) call.run();
+        long elapsed = System.nanoTime() - start;
+        return MEASURED_CALLS / (elapsed / 1e9);
+    }
+}
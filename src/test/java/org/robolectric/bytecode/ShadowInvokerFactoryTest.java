@@ -0,0 +1,134 @@
+package org.robolectric.bytecode;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class ShadowInvokerFactoryTest {
+    private ShadowInvokerFactory factory;
+
+    @Before
+    public void setUp() throws Exception {
+        factory = new ShadowInvokerFactory();
+    }
+
+    @Test
+    public void shouldInvokeInstanceMethodsWithPrimitiveArgsAndReturnValues() throws Throwable {
+        AShadow shadow = new AShadow();
+        assertNull(factory.getInvoker(AShadow.class.getMethod("setId", int.class)).invoke(shadow, new Object[]{42}));
+        assertEquals(42, factory.getInvoker(AShadow.class.getMethod("getId")).invoke(shadow, new Object[0]));
+    }
+
+    @Test
+    public void shouldInvokeStaticMethodsWithObjectAndArrayArgs() throws Throwable {
+        ShadowInvoker invoker = factory.getInvoker(AShadow.class.getMethod("describe", String.class, long.class, double[].class));
+        assertEquals("thing:5:2", invoker.invoke(null, new Object[]{"thing", 5L, new double[2]}));
+    }
+
+    @Test
+    public void shouldInvokeMethodsWithPrimitiveSignaturesWithoutBoxing() throws Throwable {
+        AShadow shadow = new AShadow();
+        assertEquals(0, factory.getInvoker(AShadow.class.getMethod("setId", int.class)).invokePrimitive(shadow, -42, 0, 0));
+        assertEquals(-42, factory.getInvoker(AShadow.class.getMethod("getId")).invokePrimitive(shadow, 0, 0, 0));
+
+        ShadowInvoker invoker = factory.getInvoker(AShadow.class.getMethod("scale", float.class, boolean.class, long.class));
+        long result = invoker.invokePrimitive(null, Float.floatToRawIntBits(1.5f), 1, 4);
+        assertEquals(-6.0, Double.longBitsToDouble(result), 0);
+    }
+
+    @Test
+    public void shouldNotInvokeMethodsWithObjectSignaturesWithoutBoxing() throws Throwable {
+        ShadowInvoker invoker = factory.getInvoker(AShadow.class.getMethod("describe", String.class, long.class, double[].class));
+        try {
+            invoker.invokePrimitive(null, 0, 0, 0);
+            fail("should have thrown");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void shouldBoxPrimitiveCallsToMethodsReturningWrappers() throws Throwable {
+        ShadowInvoker invoker = factory.getInvoker(AShadow.class.getMethod("sum", int.class, short.class));
+        assertEquals(7L, invoker.invokePrimitive(null, 3, 4, 0));
+
+        invoker = factory.getInvoker(AShadow.class.getMethod("isPositive", double.class));
+        assertEquals(1L, invoker.invokePrimitive(null, Double.doubleToRawLongBits(0.5), 0, 0));
+    }
+
+    @Test
+    public void shouldReuseInvokersForTheSameMethod() throws Exception {
+        assertSame(factory.getInvoker(AShadow.class.getMethod("getId")), factory.getInvoker(AShadow.class.getMethod("getId")));
+    }
+
+    @Test
+    public void shouldThrowExceptionsFromShadowMethodsUnwrapped() throws Throwable {
+        ShadowInvoker invoker = factory.getInvoker(AShadow.class.getMethod("explode"));
+        try {
+            invoker.invoke(new AShadow(), new Object[0]);
+            fail("should have thrown");
+        } catch (IOException e) {
+            assertEquals("boom", e.getMessage());
+            assertThat(e.getStackTrace()[1].getClassName()).contains(ShadowInvokerFactory.GENERATED_CLASS_MARKER);
+        }
+    }
+
+    @Test
+    public void shouldNotGenerateInvokersForInaccessibleMethods() throws Exception {
+        assertNull(factory.getInvoker(AShadow.class.getDeclaredMethod("secret")));
+        assertNull(factory.getInvoker(APrivateShadow.class.getMethod("getId")));
+        assertNotNull(factory.getInvoker(AShadow.class.getMethod("getId")));
+    }
+
+    @SuppressWarnings("UnusedDeclaration")
+    public static class AShadow {
+        private int id;
+
+        public int getId() {
+            return id;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        public static String describe(String name, long count, double[] values) {
+            return name + ":" + count + ":" + values.length;
+        }
+
+        public static double scale(float factor, boolean negate, long value) {
+            return (negate ? -factor : factor) * value;
+        }
+
+        public static Long sum(int a, short b) {
+            return (long) a + b;
+        }
+
+        public static Boolean isPositive(double value) {
+            return value > 0;
+        }
+
+        public void explode() throws IOException {
+            throw new IOException("boom");
+        }
+
+        private String secret() {
+            return "shh";
+        }
+    }
+
+    @SuppressWarnings("UnusedDeclaration")
+    private static class APrivateShadow {
+        public int getId() {
+            return 1;
+        }
+    }
+}
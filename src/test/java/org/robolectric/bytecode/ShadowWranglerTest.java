@@ -137,6 +137,33 @@ public class ShadowWranglerTest {
         assertThat(stackTrace).doesNotContain("java.lang.reflect");
         assertThat(stackTrace).doesNotContain(ShadowWrangler.class.getName() + ".");
         assertThat(stackTrace).doesNotContain(RobolectricInternals.class.getName() + ".");
+        assertThat(stackTrace).doesNotContain(ShadowInvokerFactory.GENERATED_CLASS_MARKER);
+    }
+
+    @Test
+    @Config(shadows = {ShadowFoo.class})
+    public void shouldReuseInvocationPlansForRepeatedCalls() throws Exception {
+        Foo foo = new Foo(name);
+        foo.getName();
+        ShadowWrangler.PlanCacheStats before = Robolectric.getShadowWrangler().getPlanCacheStats();
+
+        foo.getName();
+        foo.getName();
+        ShadowWrangler.PlanCacheStats after = Robolectric.getShadowWrangler().getPlanCacheStats();
+
+        assertEquals(before.misses, after.misses);
+        assertEquals(before.hits + 2, after.hits);
+    }
+
+    @Test
+    @Config(shadows = {ShadowFoo.class})
+    public void shouldEvictInvocationPlansWhenShadowMapChanges() throws Exception {
+        new Foo(name).getName();
+        ShadowWrangler shadowWrangler = Robolectric.getShadowWrangler();
+        long evictionsBefore = shadowWrangler.getPlanCacheStats().evictions;
+
+        shadowWrangler.setShadowMap(new ShadowMap.Builder().addShadowClass(Foo.class, ShadowFoo.class, false).build());
+        assertThat(shadowWrangler.getPlanCacheStats().evictions).isGreaterThan(evictionsBefore);
     }
 
     @Test(expected = I18nException.class)
@@ -0,0 +1,50 @@
+package org.robolectric.res;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class IntMapTest {
+    @Test
+    public void shouldStoreAndReplaceValues() throws Exception {
+        IntMap<String> map = new IntMap<String>();
+        assertNull(map.put(0x7f010001, "a"));
+        assertNull(map.put(0, "zero"));
+        assertEquals("a", map.put(0x7f010001, "b"));
+
+        assertEquals("b", map.get(0x7f010001));
+        assertEquals("zero", map.get(0));
+        assertNull(map.get(0x7f010002));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    public void shouldGrowAndKeepEverything() throws Exception {
+        IntMap<Integer> map = new IntMap<Integer>();
+        for (int i = 0; i < 10000; i++) {
+            map.put(0x7f020000 + i, i);
+        }
+
+        assertEquals(10000, map.size());
+        for (int i = 0; i < 10000; i++) {
+            assertEquals((Integer) i, map.get(0x7f020000 + i));
+        }
+        assertFalse(map.containsKey(0x7f030000));
+        assertEquals(0x7f020000 + 9999, map.maxKey());
+    }
+
+    @Test
+    public void shouldPutAll() throws Exception {
+        IntMap<String> map = new IntMap<String>();
+        map.put(1, "one");
+        IntMap<String> other = new IntMap<String>();
+        other.put(2, "two");
+        map.putAll(other);
+
+        assertTrue(map.containsKey(1));
+        assertEquals("two", map.get(2));
+    }
+}
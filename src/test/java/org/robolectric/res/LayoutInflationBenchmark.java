@@ -0,0 +1,39 @@
+package org.robolectric.res;
+
+import android.app.Activity;
+import android.view.LayoutInflater;
+import android.widget.LinearLayout;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.R;
+import org.robolectric.TestRunners;
+
+/**
+ * Times inflating the biggest test layout over and over, the way an adapter inflates list items. Inflation goes through
+ * cached layout plans and shared attribute indexes, so after the first time it shouldn't touch the resource XML or
+ * scan attribute lists.
+ */
+@RunWith(TestRunners.WithDefaults.class)
+public class LayoutInflationBenchmark {
+    private static final int WARMUP_RUNS = 200;
+    private static final int MEASURED_RUNS = 2000;
+
+    @Test
+    public void inflateMain() throws Exception {
+        Activity activity = new Activity();
+        LayoutInflater inflater = LayoutInflater.from(activity);
+        LinearLayout parent = new LinearLayout(activity);
+
+        long first = System.nanoTime();
+        inflater.inflate(R.layout.main, parent, false);
+        long firstElapsed = System.nanoTime() - first;
+
+        for (int i = 0; i < WARMUP_RUNS; i++) inflater.inflate(R.layout.main, parent, false);
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_RUNS; i++) inflater.inflate(R.layout.main, parent, false);
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println(String.format("first inflation: %.2f ms, then %.1f us per inflation",
+                firstElapsed / 1e6, elapsed / 1e3 / MEASURED_RUNS));
+    }
+}
@@ -0,0 +1,58 @@
+package org.robolectric.res;
+
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.robolectric.util.TestUtil.TEST_PACKAGE;
+import static org.robolectric.util.TestUtil.testResources;
+
+public class PackageResourceLoaderTest {
+    @Test
+    public void shouldLoadSameResourcesWithMultipleThreads() throws Exception {
+        PackageResourceLoader sequential = new PackageResourceLoader(testResources(), null, 1);
+        sequential.initialize();
+        PackageResourceLoader parallel = new PackageResourceLoader(testResources(), null, 4);
+        parallel.initialize();
+
+        assertEquals(sequential.stringResolver.size(), parallel.stringResolver.size());
+        assertEquals(sequential.viewNodes.size(), parallel.viewNodes.size());
+        assertEquals(sequential.drawableNodes.size(), parallel.drawableNodes.size());
+        assertEquals(sequential.menuNodes.size(), parallel.menuNodes.size());
+        assertEquals(sequential.preferenceNodes.size(), parallel.preferenceNodes.size());
+        assertEquals(sequential.xmlDocuments.size(), parallel.xmlDocuments.size());
+        assertEquals(sequential.attrResourceLoader.classEnumToValue, parallel.attrResourceLoader.classEnumToValue);
+
+        ResName hello = new ResName(TEST_PACKAGE, "string", "hello");
+        assertEquals("Hello", parallel.getStringValue(hello, ""));
+        assertEquals("Bonjour", parallel.getStringValue(hello, "fr"));
+
+        ResName differentScreenSizes = new ResName(TEST_PACKAGE, "layout", "different_screen_sizes");
+        for (String qualifiers : new String[]{"", "land", "xlarge"}) {
+            assertEquals(sequential.getLayoutViewNode(differentScreenSizes, qualifiers).getXmlContext().getQualifiers(),
+                    parallel.getLayoutViewNode(differentScreenSizes, qualifiers).getXmlContext().getQualifiers());
+        }
+
+        DrawableNode rainbow = parallel.getDrawableNode(new ResName(TEST_PACKAGE, "drawable", "rainbow"), "xlarge");
+        assertEquals("xlarge", ((DrawableNode.Xml) rainbow).xmlContext.getQualifiers());
+        DrawableNode ninePatch = parallel.getDrawableNode(new ResName(TEST_PACKAGE, "drawable", "nine_patch_drawable"), "");
+        assertThat(((DrawableNode.ImageFile) ninePatch).isNinePatch).isTrue();
+    }
+
+    @Test
+    public void shouldOnlyLoadCategoriesWhichAreAskedFor() throws Exception {
+        PackageResourceLoader resourceLoader = new PackageResourceLoader(testResources());
+        assertThat(resourceLoader.getLoadedCategories()).isEmpty();
+
+        resourceLoader.getStringValue(new ResName(TEST_PACKAGE, "string", "hello"), "");
+        assertThat(resourceLoader.getLoadedCategories()).containsOnly(ResourceCategory.VALUES);
+
+        resourceLoader.getLayoutViewNode(new ResName(TEST_PACKAGE, "layout", "main"), "");
+        assertThat(resourceLoader.getLoadedCategories()).containsOnly(ResourceCategory.VALUES, ResourceCategory.LAYOUTS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRequireAtLeastOneLoadingThread() throws Exception {
+        new PackageResourceLoader(testResources(), null, 0);
+    }
+}
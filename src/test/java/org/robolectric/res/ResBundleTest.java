@@ -2,6 +2,8 @@ package org.robolectric.res;
 
 import org.junit.Test;
 
+import java.io.File;
+
 import static org.junit.Assert.assertEquals;
 
 public class ResBundleTest {
@@ -17,6 +19,27 @@ public class ResBundleTest {
                 "port-notouch-12key"), "en-GB-port-hdpi-notouch-12key").value);
     }
 
+    @Test
+    public void shouldHandleMoreThan64Variants() throws Exception {
+        String[] qualifierses = new String[100];
+        for (int i = 0; i < qualifierses.length; i++) {
+            qualifierses[i] = "v" + i;
+        }
+        assertEquals("v99", ResBundle.pick(asValues(qualifierses), "en-v99").value);
+    }
+
+    @Test
+    public void shouldForgetPickedValuesWhenNewValuesAreAdded() throws Exception {
+        ResBundle<String> bundle = new ResBundle<String>();
+        ResName resName = new ResName("org.robolectric", "string", "hello");
+        bundle.put("string", "hello", "Hello", new XmlLoader.XmlContext("org.robolectric", new File("res/values/strings.xml")));
+        assertEquals("Hello", bundle.get(resName, "fr"));
+
+        bundle.put("string", "hello", "Bonjour", new XmlLoader.XmlContext("org.robolectric", new File("res/values-fr/strings.xml")));
+        assertEquals("Bonjour", bundle.get(resName, "fr"));
+        assertEquals("Hello", bundle.get(resName, ""));
+    }
+
     private ResBundle.Values<String> asValues(String... qualifierses) {
         ResBundle.Values<String> values = new ResBundle.Values<String>();
         for (String qualifiers : qualifierses) {
@@ -62,4 +62,20 @@ public class ResourceExtractorTest {
         assertThat(resourceIndex.getResourceId(new ResName("org.robolectric.lib2", "string", "in_all_libs"))).isEqualTo(R.string.in_all_libs);
         assertThat(resourceIndex.getResourceId(new ResName("org.robolectric.lib3", "string", "in_all_libs"))).isEqualTo(R.string.in_all_libs);
     }
+
+    @Test
+    public void shouldHandBackTheSameInstancesFromEveryLookup() throws Exception {
+        OverlayResourceIndex overlayResourceIndex = new OverlayResourceIndex(
+                "org.robolectric",
+                new ResourceExtractor(testResources()),
+                new ResourceExtractor(lib1Resources()),
+                new ResourceExtractor(lib2Resources()));
+
+        ResName resName = overlayResourceIndex.getResName(R.string.in_all_libs);
+        Integer id = overlayResourceIndex.getResourceId(new ResName("org.robolectric", "string", "in_all_libs"));
+        assertThat(overlayResourceIndex.getResName(R.string.in_all_libs)).isSameAs(resName);
+        assertThat(overlayResourceIndex.getResourceId(new ResName("org.robolectric.lib1", "string", "in_all_libs"))).isSameAs(id);
+        assertThat(overlayResourceIndex.getResourceId(resName)).isSameAs(id);
+        assertThat(overlayResourceIndex.resourceNameToId.get(resName)).isSameAs(id);
+    }
 }
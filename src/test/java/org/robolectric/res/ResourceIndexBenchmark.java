@@ -0,0 +1,54 @@
+package org.robolectric.res;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.robolectric.util.TestUtil.lib1Resources;
+import static org.robolectric.util.TestUtil.testResources;
+
+/**
+ * Times id-to-name and name-to-id lookups against {@link ResourceExtractor} and {@link OverlayResourceIndex}, which is
+ * what the shadows do for just about every resource they touch.
+ */
+public class ResourceIndexBenchmark {
+    private static final int WARMUP_RUNS = 20;
+    private static final int MEASURED_RUNS = 200;
+
+    @Test
+    public void lookups() throws Exception {
+        ResourceExtractor extractor = new ResourceExtractor(testResources());
+        measure("ResourceExtractor", extractor, extractor);
+        measure("OverlayResourceIndex", new OverlayResourceIndex("org.robolectric", extractor, new ResourceExtractor(lib1Resources())), extractor);
+    }
+
+    private void measure(String name, ResourceIndex resourceIndex, ResourceIndex source) {
+        List<ResName> resNames = new ArrayList<ResName>();
+        int[] ids = new int[source.resourceNameToId.size()];
+        for (Map.Entry<ResName, Integer> entry : source.resourceNameToId.entrySet()) {
+            ids[resNames.size()] = entry.getValue();
+            resNames.add(entry.getKey());
+        }
+
+        for (int i = 0; i < WARMUP_RUNS; i++) lookUp(resourceIndex, resNames, ids);
+        long start = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < MEASURED_RUNS; i++) found += lookUp(resourceIndex, resNames, ids);
+        long elapsed = System.nanoTime() - start;
+
+        int lookups = MEASURED_RUNS * ids.length * 2;
+        System.out.println(String.format("%-22s %6.1f ns/lookup  (%d of %d found)",
+                name, (double) elapsed / lookups, found, lookups));
+    }
+
+    private int lookUp(ResourceIndex resourceIndex, List<ResName> resNames, int[] ids) {
+        int found = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (resourceIndex.getResName(ids[i]) != null) found++;
+            if (resourceIndex.getResourceId(resNames.get(i)) != null) found++;
+        }
+        return found;
+    }
+}
@@ -0,0 +1,71 @@
+package org.robolectric.res;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.robolectric.util.TestUtil.systemResources;
+
+/**
+ * Compares loading the SDK's values resources with {@link DocumentLoader} (DOM + XPath) against
+ * {@link StreamingDocumentLoader}.
+ */
+public class ResourceLoadingBenchmark {
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 5;
+
+    @Test
+    public void systemValues() throws Exception {
+        Measurement dom = measure(false);
+        Measurement streaming = measure(true);
+        System.out.println(String.format("DOM:       %6.0f ms  %,14d bytes allocated", dom.millis, dom.allocatedBytes));
+        System.out.println(String.format("streaming: %6.0f ms  %,14d bytes allocated  (%.2fx faster)",
+                streaming.millis, streaming.allocatedBytes, dom.millis / streaming.millis));
+    }
+
+    private Measurement measure(boolean streaming) throws Exception {
+        for (int i = 0; i < WARMUP_RUNS; i++) load(streaming);
+
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_RUNS; i++) load(streaming);
+        long elapsed = System.nanoTime() - start;
+        return new Measurement(elapsed / 1e6 / MEASURED_RUNS, (allocatedBytes() - allocatedBefore) / MEASURED_RUNS);
+    }
+
+    private void load(boolean streaming) throws Exception {
+        XmlLoader[] xmlLoaders = {
+                new ValueResourceLoader(new XResourceLoader.StringResolver(), "bool", false),
+                new ValueResourceLoader(new XResourceLoader.StringResolver(), "color", false),
+                new ValueResourceLoader(new XResourceLoader.StringResolver(), "dimen", false),
+                new ValueResourceLoader(new XResourceLoader.StringResolver(), "integer", true),
+                new PluralResourceLoader(null, new XResourceLoader.PluralsResolver()),
+                new ValueResourceLoader(new XResourceLoader.StringResolver(), "string", true),
+                new AttrResourceLoader()
+        };
+        DocumentLoader documentLoader = streaming ? new StreamingDocumentLoader(xmlLoaders) : new DocumentLoader(xmlLoaders);
+        documentLoader.loadResourceXmlSubDirs(systemResources(), "values");
+    }
+
+    /**
+     * @return bytes allocated by this thread so far, or 0 if the JVM can't tell us
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    private static class Measurement {
+        final double millis;
+        final long allocatedBytes;
+
+        Measurement(double millis, long allocatedBytes) {
+            this.millis = millis;
+            this.allocatedBytes = allocatedBytes;
+        }
+    }
+}
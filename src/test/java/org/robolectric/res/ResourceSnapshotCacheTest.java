@@ -0,0 +1,107 @@
+package org.robolectric.res;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.robolectric.R;
+import org.robolectric.test.TemporaryFolder;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ResourceSnapshotCacheTest {
+    @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private ResourceSnapshotCache cache;
+    private ResourcePath resourcePath;
+    private File layoutFile;
+
+    @Before
+    public void setUp() throws Exception {
+        cache = new ResourceSnapshotCache(temporaryFolder.newFolder("cache"));
+        temporaryFolder.newFile("res/values/strings.xml", "<resources><string name=\"hello\">Hello</string></resources>");
+        layoutFile = temporaryFolder.newFile("res/layout/main.xml", "<LinearLayout/>");
+        temporaryFolder.newFile("res/xml/prefs.xml", "<PreferenceScreen><CheckBoxPreference key=\"check\"/></PreferenceScreen>");
+        resourcePath = new ResourcePath(R.class, new File(temporaryFolder.getRoot(), "res"), null);
+    }
+
+    @Test
+    public void shouldSaveSnapshotWhenResourcesAreLoaded() throws Exception {
+        assertNull(cache.read(resourcePath, ResourceCategory.VALUES));
+
+        ResourceLoader resourceLoader = new PackageResourceLoader(resourcePath, cache);
+        assertEquals("Hello", resourceLoader.getStringValue(new ResName("org.robolectric:string/hello"), ""));
+
+        assertTrue(cache.fileFor(resourcePath, ResourceCategory.VALUES).exists());
+        assertNotNull(cache.read(resourcePath, ResourceCategory.VALUES));
+        assertNull(cache.read(resourcePath, ResourceCategory.LAYOUTS));
+    }
+
+    @Test
+    public void shouldLoadResourcesFromSnapshot() throws Exception {
+        PackageResourceLoader first = new PackageResourceLoader(resourcePath, cache);
+        first.initialize();
+
+        ResourceLoader resourceLoader = new PackageResourceLoader(resourcePath, cache);
+        assertEquals("Hello", resourceLoader.getStringValue(new ResName("org.robolectric:string/hello"), ""));
+        assertEquals("LinearLayout", resourceLoader.getLayoutViewNode(new ResName("org.robolectric:layout/main"), "").getName());
+    }
+
+    @Test
+    public void shouldOnlyInvalidateCategoriesWithChangedFiles() throws Exception {
+        new PackageResourceLoader(resourcePath, cache).initialize();
+        assertTrue(layoutFile.setLastModified(layoutFile.lastModified() + 10000));
+
+        ResourceSnapshot values = cache.read(resourcePath, ResourceCategory.VALUES);
+        assertTrue(values.isUpToDate(ResourceSnapshot.fileTimestamps(resourcePath, "values")));
+        XResourceLoader.StringResolver strings = new XResourceLoader.StringResolver();
+        values.copyTo(new AttrResourceLoader(), new ResBundle<?>[]{
+                new ResBundle<String>(), new ResBundle<String>(), new ResBundle<String>(), new ResBundle<String>(),
+                new XResourceLoader.PluralsResolver(), strings});
+        assertEquals("Hello", strings.resolve(new ResName("org.robolectric:string/hello"), ""));
+
+        ResourceSnapshot layouts = cache.read(resourcePath, ResourceCategory.LAYOUTS);
+        assertFalse(layouts.isUpToDate(ResourceSnapshot.fileTimestamps(resourcePath, "layout")));
+    }
+
+    @Test
+    public void shouldStoreXmlDocumentsAsText() throws Exception {
+        new PackageResourceLoader(resourcePath, cache).initialize();
+
+        ResourceLoader resourceLoader = new PackageResourceLoader(resourcePath, cache);
+        Document document = resourceLoader.getXml(new ResName("org.robolectric:xml/prefs"), "");
+        assertEquals("check", ((Element) document.getDocumentElement().getFirstChild()).getAttribute("key"));
+    }
+
+    @Test
+    public void shouldOnlyAllowResourceAndJdkValueClasses() throws Exception {
+        assertTrue(ResourceSnapshotCache.isAllowed(ResBundle.class.getName()));
+        assertTrue(ResourceSnapshotCache.isAllowed(String[].class.getName()));
+        assertTrue(ResourceSnapshotCache.isAllowed(int[][].class.getName()));
+        assertTrue(ResourceSnapshotCache.isAllowed(java.util.HashMap.class.getName()));
+
+        assertFalse(ResourceSnapshotCache.isAllowed(java.util.Date.class.getName()));
+        assertFalse(ResourceSnapshotCache.isAllowed(Object[].class.getName()));
+        assertFalse(ResourceSnapshotCache.isAllowed(ResourceSnapshotCacheTest.class.getName().replace(".res.", ".")));
+        assertFalse(ResourceSnapshotCache.isAllowed("com.sun.org.apache.xerces.internal.dom.DeferredDocumentImpl"));
+    }
+
+    @Test
+    public void shouldIgnoreUnreadableSnapshots() throws Exception {
+        FileOutputStream out = new FileOutputStream(cache.fileFor(resourcePath, ResourceCategory.VALUES));
+        out.write(new byte[]{1, 2, 3});
+        out.close();
+        assertNull(cache.read(resourcePath, ResourceCategory.VALUES));
+
+        ResourceLoader resourceLoader = new PackageResourceLoader(resourcePath, cache);
+        assertEquals("Hello", resourceLoader.getStringValue(new ResName("org.robolectric:string/hello"), ""));
+    }
+}
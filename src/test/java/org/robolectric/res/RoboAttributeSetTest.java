@@ -11,6 +11,8 @@ import org.robolectric.TestRunners;
 import org.robolectric.shadows.RoboAttributeSet;
 import org.robolectric.util.CustomView;
 
+import java.util.ArrayList;
+
 import static java.util.Arrays.asList;
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.robolectric.util.TestUtil.SYSTEM_PACKAGE;
@@ -162,6 +164,44 @@ public class RoboAttributeSetTest {
         assertThat(roboAttributeSet.getAttributeIntValue(TEST_PACKAGE, "itemType", 0)).isEqualTo(1);
     }
 
+    @Test
+    public void attributeSetsSharingAnIndex_shouldAllSeeTheSameValues() throws Exception {
+        RoboAttributeSet.Index index = new RoboAttributeSet.Index(asList(
+                new Attribute(TEST_PACKAGE + ":attr/itemType", "ungulate", TEST_PACKAGE),
+                new Attribute("android:attr/text", "@string/ok", TEST_PACKAGE)
+        ), resourceLoader, CustomView.class);
+
+        for (int i = 0; i < 2; i++) {
+            roboAttributeSet = new RoboAttributeSet(index);
+            assertThat(roboAttributeSet.getAttributeIntValue(TEST_PACKAGE, "itemType", 0)).isEqualTo(1);
+            assertThat(roboAttributeSet.getAttributeResourceValue("android", "text", 0)).isEqualTo(R.string.ok);
+            assertThat(roboAttributeSet.getAttributeValue("android", "missing")).isNull();
+        }
+    }
+
+    @Test
+    public void put_shouldNotChangeASharedIndex() throws Exception {
+        RoboAttributeSet.Index index = new RoboAttributeSet.Index(new ArrayList<Attribute>(asList(
+                new Attribute("android:attr/text", "@string/ok", TEST_PACKAGE)
+        )), resourceLoader, null);
+
+        roboAttributeSet = new RoboAttributeSet(index);
+        roboAttributeSet.put(TEST_PACKAGE + ":attr/sugarinessPercent", "100", TEST_PACKAGE);
+        assertThat(roboAttributeSet.getAttributeValue(TEST_PACKAGE, "sugarinessPercent")).isEqualTo("100");
+
+        assertThat(index.getAttributes()).hasSize(1);
+        assertThat(new RoboAttributeSet(index).getAttributeValue(TEST_PACKAGE, "sugarinessPercent")).isNull();
+    }
+
+    @Test
+    public void put_shouldMakeNewAttributesVisibleAfterLookups() throws Exception {
+        roboAttributeSet = new RoboAttributeSet(new ArrayList<Attribute>(), resourceLoader, null);
+        assertThat(roboAttributeSet.getAttributeValue(TEST_PACKAGE, "sugarinessPercent")).isNull();
+
+        roboAttributeSet.put(TEST_PACKAGE + ":attr/sugarinessPercent", "100", TEST_PACKAGE);
+        assertThat(roboAttributeSet.getAttributeValue(TEST_PACKAGE, "sugarinessPercent")).isEqualTo("100");
+    }
+
     @Test
     public void getAttributeValue_shouldReturnAttributeAssociatedWithResourceId() throws Exception {
         createTestAttributeSet(new Attribute("ns:attr/textStyle2", "expected value", TEST_PACKAGE));
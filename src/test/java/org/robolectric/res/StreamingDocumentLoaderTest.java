@@ -0,0 +1,96 @@
+package org.robolectric.res;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.robolectric.R;
+import org.robolectric.test.TemporaryFolder;
+
+import java.io.File;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.robolectric.util.TestUtil.testResources;
+
+public class StreamingDocumentLoaderTest {
+    @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void shouldLoadSameValuesAsDocumentLoader() throws Exception {
+        Values dom = new Values();
+        new DocumentLoader(dom.loaders()).loadResourceXmlSubDirs(testResources(), "values");
+        Values streamed = new Values();
+        new StreamingDocumentLoader(streamed.loaders()).loadResourceXmlSubDirs(testResources(), "values");
+
+        for (String name : new String[]{"hello", "greeting", "copy", "only_in_main", "some_html"}) {
+            ResName resName = new ResName(R.class.getPackage().getName(), "string", name);
+            assertEquals(name, dom.strings.resolve(resName, ""), streamed.strings.resolve(resName, ""));
+        }
+        ResName greetings = new ResName(R.class.getPackage().getName(), "string-array", "greetings");
+        assertEquals(dom.strings.resolveArray(greetings, ""), streamed.strings.resolveArray(greetings, ""));
+        ResName zeroToFour = new ResName(R.class.getPackage().getName(), "integer-array", "zero_to_four_int_array");
+        assertEquals(dom.integers.resolveArray(zeroToFour, ""), streamed.integers.resolveArray(zeroToFour, ""));
+
+        assertEquals(dom.attrs.classEnumToValue, streamed.attrs.classEnumToValue);
+        assertEquals(dom.attrs.knownClassEnums, streamed.attrs.knownClassEnums);
+        assertEquals(dom.attrs.enumRefs.keySet(), streamed.attrs.enumRefs.keySet());
+        assertEquals(dom.attrs.enums.keySet(), streamed.attrs.enums.keySet());
+        for (String enumName : dom.attrs.enums.keySet()) {
+            assertEquals(dom.attrs.enums.get(enumName).values, streamed.attrs.enums.get(enumName).values);
+        }
+    }
+
+    @Test
+    public void shouldIncludeTextOfNestedElements() throws Exception {
+        temporaryFolder.newFile("res/values/strings.xml", "<resources xmlns:xliff=\"urn:oasis:names:tc:xliff:document:1.2\">" +
+                "<string name=\"mixed\">Hi <xliff:g id=\"name\">%s</xliff:g>, <![CDATA[<b>]]>welcome</string>" +
+                "<plurals name=\"beers\"><item quantity=\"one\">one <b>beer</b></item><item quantity=\"other\">beers</item></plurals>" +
+                "</resources>");
+        ResourcePath resourcePath = new ResourcePath(R.class, new File(temporaryFolder.getRoot(), "res"), null);
+
+        Values values = new Values();
+        new StreamingDocumentLoader(values.loaders()).loadResourceXmlSubDirs(resourcePath, "values");
+
+        String packageName = R.class.getPackage().getName();
+        assertEquals("Hi %s, <b>welcome", values.strings.resolve(new ResName(packageName, "string", "mixed"), ""));
+        PluralResourceLoader.PluralRules beers = values.plurals.get(new ResName(packageName, "plurals", "beers"), "");
+        assertEquals("one beer", beers.find(1).string);
+        assertEquals("beers", beers.find(5).string);
+    }
+
+    @Test
+    public void shouldOnlyNoteChildlessAttrsAsEnumRefs() throws Exception {
+        temporaryFolder.newFile("res/values/attrs.xml", "<resources>" +
+                "<declare-styleable name=\"View\"><attr name=\"childless\"/><attr name=\"blank\"> </attr>" +
+                "<attr name=\"inline\"><enum name=\"a\" value=\"1\"/><flag name=\"b\" value=\"2\"/></attr></declare-styleable>" +
+                "</resources>");
+        ResourcePath resourcePath = new ResourcePath(R.class, new File(temporaryFolder.getRoot(), "res"), null);
+
+        AttrResourceLoader attrResourceLoader = new AttrResourceLoader();
+        new StreamingDocumentLoader(attrResourceLoader).loadResourceXmlSubDirs(resourcePath, "values");
+
+        assertThat(attrResourceLoader.enumRefs.keySet()).containsOnly("View#org.robolectric:childless");
+        assertEquals("1", attrResourceLoader.classEnumToValue.get("View#org.robolectric:inline#a"));
+        assertEquals("2", attrResourceLoader.classEnumToValue.get("View#org.robolectric:inline#b"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectLoadersWhichNeedADom() throws Exception {
+        new StreamingDocumentLoader(new ViewLoader(new ResBundle<ViewNode>()));
+    }
+
+    private static class Values {
+        final XResourceLoader.StringResolver strings = new XResourceLoader.StringResolver();
+        final XResourceLoader.StringResolver integers = new XResourceLoader.StringResolver();
+        final XResourceLoader.PluralsResolver plurals = new XResourceLoader.PluralsResolver();
+        final AttrResourceLoader attrs = new AttrResourceLoader();
+
+        XmlLoader[] loaders() {
+            return new XmlLoader[]{
+                    new ValueResourceLoader(strings, "string", true),
+                    new ValueResourceLoader(integers, "integer", true),
+                    new PluralResourceLoader(null, plurals),
+                    attrs
+            };
+        }
+    }
+}
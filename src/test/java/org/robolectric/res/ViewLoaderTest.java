@@ -63,6 +63,17 @@ public class ViewLoaderTest {
         assertSame(context, view.getContext());
     }
 
+    @Test
+    public void shouldInflateFreshViewsEachTimeFromTheSameLayout() throws Exception {
+        ViewGroup first = (ViewGroup) inflate("media");
+        ViewGroup second = (ViewGroup) inflate("media");
+
+        assertNotSame(first, second);
+        assertEquals(first.getChildCount(), second.getChildCount());
+        assertNotSame(first.findViewById(R.id.include_id), second.findViewById(R.id.include_id));
+        assertInstanceOf(TextView.class, second.findViewById(R.id.include_id));
+    }
+
     @Test
     public void testChoosesLayoutBasedOnDefaultScreenSize() throws Exception {
         ViewGroup view = (ViewGroup) inflate("different_screen_sizes");
@@ -7,9 +7,11 @@ import org.junit.runner.RunWith;
 import org.robolectric.Robolectric;
 import org.robolectric.TestRunners;
 import org.robolectric.util.Join;
+import org.robolectric.util.RobolectricBackgroundExecutorService;
 import org.robolectric.util.Transcript;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.junit.Assert.*;
@@ -117,6 +119,41 @@ public class AsyncTaskTest {
         assertThat(asyncTask.getStatus()).isEqualTo(AsyncTask.Status.FINISHED);
     }
 
+    @Test
+    public void withRealThreads_shouldRunInBackgroundOnThePoolAndPostResultsToTheUiThread() throws Exception {
+        Robolectric.getShadowApplication().setBackgroundExecutorService(
+                RobolectricBackgroundExecutorService.withRealThreads(1));
+        final Thread testThread = Thread.currentThread();
+        final AtomicReference<Thread> backgroundThread = new AtomicReference<Thread>();
+        final AtomicReference<Thread> postExecuteThread = new AtomicReference<Thread>();
+        AsyncTask<String, String, String> asyncTask = new MyAsyncTask() {
+            @Override protected String doInBackground(String... strings) {
+                backgroundThread.set(Thread.currentThread());
+                return super.doInBackground(strings);
+            }
+
+            @Override protected void onPostExecute(String s) {
+                postExecuteThread.set(Thread.currentThread());
+                super.onPostExecute(s);
+            }
+        };
+
+        asyncTask.execute("a", "b");
+        assertEquals("c", asyncTask.get(5, TimeUnit.SECONDS));
+        assertThat(backgroundThread.get()).isNotNull().isNotSameAs(testThread);
+
+        // the result is posted after get() returns, from the pool thread
+        long deadline = System.currentTimeMillis() + 5000;
+        while (Robolectric.getUiThreadScheduler().enqueuedTaskCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        transcript.assertEventsSoFar("onPreExecute", "doInBackground a, b");
+
+        Robolectric.runUiThreadTasks();
+        transcript.assertEventsSoFar("onPostExecute c");
+        assertThat(postExecuteThread.get()).isSameAs(testThread);
+    }
+
     private class MyAsyncTask extends AsyncTask<String, String, String> {
         @Override protected void onPreExecute() {
             transcript.add("onPreExecute");
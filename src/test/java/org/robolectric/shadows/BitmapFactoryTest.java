@@ -2,6 +2,7 @@ package org.robolectric.shadows;
 
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
+import android.graphics.Color;
 import android.net.Uri;
 import android.provider.MediaStore;
 import org.junit.Test;
@@ -10,6 +11,11 @@ import org.robolectric.R;
 import org.robolectric.Robolectric;
 import org.robolectric.TestRunners;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.InputStream;
 
 import static org.fest.assertions.api.Assertions.assertThat;
@@ -18,6 +24,7 @@ import static org.robolectric.Robolectric.shadowOf;
 
 @RunWith(TestRunners.WithDefaults.class)
 public class BitmapFactoryTest {
+    private static int sharedAssetDecodeCount;
     @Test
     public void decodeResource_shouldSetDescription() throws Exception {
         Bitmap bitmap = BitmapFactory.decodeResource(Robolectric.application.getResources(), R.drawable.an_image);
@@ -177,4 +184,103 @@ public class BitmapFactoryTest {
         assertThat(bm.getWidth()).isEqualTo(1);
         assertThat(bm.getHeight()).isEqualTo(1);
     }
+
+    @Test
+    public void decodeFile_shouldReadRealDimensionsWhenDecoding() throws Exception {
+        ShadowBitmapFactory.setDecodingEnabled(true);
+        File file = writeImage(new BufferedImage(30, 20, BufferedImage.TYPE_INT_ARGB), "png");
+
+        Bitmap bitmap = BitmapFactory.decodeFile(file.getPath());
+        assertEquals("Bitmap for file:" + file.getPath(), shadowOf(bitmap).getDescription());
+        assertThat(bitmap.getWidth()).isEqualTo(30);
+        assertThat(bitmap.getHeight()).isEqualTo(20);
+    }
+
+    @Test
+    public void decodeStream_shouldHonorBoundsAndSampleSizeWhenDecoding() throws Exception {
+        ShadowBitmapFactory.setDecodingEnabled(true);
+        File file = writeImage(new BufferedImage(30, 20, BufferedImage.TYPE_INT_RGB), "jpg");
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        assertThat(BitmapFactory.decodeStream(new FileInputStream(file), null, options)).isNull();
+        assertThat(options.outWidth).isEqualTo(30);
+        assertThat(options.outHeight).isEqualTo(20);
+        assertThat(options.outMimeType).isEqualTo("image/jpeg");
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = 3;
+        Bitmap bitmap = BitmapFactory.decodeStream(new FileInputStream(file), null, options);
+        assertThat(bitmap.getWidth()).isEqualTo(15);
+        assertThat(bitmap.getHeight()).isEqualTo(10);
+    }
+
+    @Test
+    public void decodeResource_shouldReadDrawableFileWhenDecoding() throws Exception {
+        ShadowBitmapFactory.setDecodingEnabled(true);
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = 4;
+
+        Bitmap bitmap = BitmapFactory.decodeResource(Robolectric.application.getResources(), R.drawable.l0_red, options);
+        assertThat(bitmap.getWidth()).isEqualTo(25);
+        assertThat(options.outMimeType).isEqualTo("image/png");
+        assertThat(shadowOf(bitmap).getLoadedFromResourceId()).isEqualTo(R.drawable.l0_red);
+    }
+
+    @Test
+    public void decodeByteArray_shouldReadPixelsWhenDecodingInRasterMode() throws Exception {
+        ShadowBitmapFactory.setDecodingEnabled(true);
+        ShadowBitmap.setRasterEnabled(true);
+        BufferedImage image = new BufferedImage(2, 2, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(1, 1, Color.BLUE);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        byte[] data = out.toByteArray();
+
+        Bitmap bitmap = BitmapFactory.decodeByteArray(data, 0, data.length);
+        assertThat(bitmap.getPixel(1, 1)).isEqualTo(Color.BLUE);
+        assertThat(bitmap.getPixel(0, 1)).isEqualTo(0);
+    }
+
+    @Test
+    public void decodeByteArray_shouldFallBackToHintsForUnknownDataWhenDecoding() throws Exception {
+        ShadowBitmapFactory.setDecodingEnabled(true);
+        String data = "arbitrary bytes";
+        ShadowBitmapFactory.provideWidthAndHeightHints(Uri.parse(data), 123, 456);
+
+        byte[] bytes = data.getBytes();
+        Bitmap bitmap = BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
+        assertThat(bitmap.getWidth()).isEqualTo(123);
+    }
+
+    @Test
+    public void decodeResource_shouldReuseTheDecodedImageFromAnEarlierTest() throws Exception {
+        decodeSharedAsset();
+    }
+
+    @Test
+    public void decodeResource_shouldReuseTheDecodedImageInALaterTest() throws Exception {
+        decodeSharedAsset();
+    }
+
+    /**
+     * Whichever of the two tests above runs second should find the image the first one decoded still cached.
+     */
+    private static void decodeSharedAsset() {
+        ShadowBitmapFactory.setDecodingEnabled(true);
+        long hitCount = ShadowBitmapFactory.getDecodedImageCache().getHitCount();
+        Bitmap bitmap = BitmapFactory.decodeResource(Robolectric.application.getResources(), R.drawable.l7_white);
+        assertThat(bitmap.getWidth()).isEqualTo(100);
+
+        if (sharedAssetDecodeCount++ > 0) {
+            assertThat(ShadowBitmapFactory.getDecodedImageCache().getHitCount()).isEqualTo(hitCount + 1);
+        }
+    }
+
+    private static File writeImage(BufferedImage image, String format) throws Exception {
+        File file = File.createTempFile("image", "." + format);
+        file.deleteOnExit();
+        ImageIO.write(image, format, file);
+        return file;
+    }
 }
@@ -3,6 +3,7 @@ package org.robolectric.shadows;
 import android.graphics.Bitmap;
 import android.graphics.Bitmap.Config;
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.ColorMatrix;
 import android.graphics.ColorMatrixColorFilter;
 import android.graphics.Matrix;
@@ -12,6 +13,9 @@ import org.junit.runner.RunWith;
 import org.robolectric.Robolectric;
 import org.robolectric.TestRunners;
 
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
 import static org.junit.Assert.*;
 import static org.robolectric.Robolectric.shadowOf;
 
@@ -135,4 +139,89 @@ public class BitmapTest {
     	assertEquals(shadowOf(bitmapCopy).getConfig(), Config.ARGB_8888);
     	assertTrue(shadowOf(bitmapCopy).isMutable());
     }
+
+    @Test
+    public void shouldNotStorePixelsUnlessRasterIsEnabled() throws Exception {
+        Bitmap bitmap = Bitmap.createBitmap(2, 2, Config.ARGB_8888);
+        bitmap.setPixel(1, 1, Color.RED);
+
+        assertEquals(0, bitmap.getPixel(1, 1));
+        assertNull(shadowOf(bitmap).getPixelBuffer());
+    }
+
+    @Test
+    public void shouldReadAndWritePixelsInRasterMode() throws Exception {
+        ShadowBitmap.setRasterEnabled(true);
+        Bitmap bitmap = Bitmap.createBitmap(3, 2, Config.ARGB_8888);
+        bitmap.eraseColor(Color.BLUE);
+        bitmap.setPixel(2, 1, Color.RED);
+
+        assertEquals(Color.BLUE, bitmap.getPixel(0, 0));
+        assertEquals(Color.RED, bitmap.getPixel(2, 1));
+
+        int[] pixels = new int[6];
+        bitmap.getPixels(pixels, 0, 3, 0, 0, 3, 2);
+        assertArrayEquals(new int[] {Color.BLUE, Color.BLUE, Color.BLUE, Color.BLUE, Color.BLUE, Color.RED}, pixels);
+
+        // the raw R,G,B,A bytes, which a little-endian IntBuffer reads as ABGR
+        int blue = 0xffff0000, red = 0xff0000ff;
+        IntBuffer buffer = IntBuffer.allocate(6);
+        bitmap.copyPixelsToBuffer(buffer);
+        assertArrayEquals(new int[] {blue, blue, blue, blue, blue, red}, buffer.array());
+        assertEquals(24, bitmap.getByteCount());
+    }
+
+    @Test
+    public void shouldCopyPixelsInTheLayoutOfTheConfig() throws Exception {
+        ShadowBitmap.setRasterEnabled(true);
+        Bitmap bitmap = Bitmap.createBitmap(3, 2, Config.RGB_565);
+        bitmap.eraseColor(Color.RED);
+
+        ByteBuffer buffer = ByteBuffer.allocate(bitmap.getByteCount());
+        bitmap.copyPixelsToBuffer(buffer);
+        assertEquals(12, buffer.position());
+        assertEquals((byte) 0xf8, buffer.get(1));
+
+        Bitmap alpha = Bitmap.createBitmap(3, 2, Config.ALPHA_8);
+        alpha.copyPixelsToBuffer(ByteBuffer.allocate(alpha.getByteCount()));
+    }
+
+    @Test
+    public void shouldNameTheMethodWhenAnImmutableBitmapIsChanged() throws Exception {
+        ShadowBitmap.setRasterEnabled(true);
+        Bitmap bitmap = Bitmap.createBitmap(2, 2, Config.ARGB_8888);
+        shadowOf(bitmap).setMutable(false);
+        try {
+            bitmap.eraseColor(Color.RED);
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("Can't call eraseColor() on an immutable bitmap", e.getMessage());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldCheckPixelBoundsInRasterMode() throws Exception {
+        ShadowBitmap.setRasterEnabled(true);
+        Bitmap.createBitmap(3, 2, Config.ARGB_8888).getPixel(3, 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldNotSetPixelsOnImmutableBitmaps() throws Exception {
+        ShadowBitmap.setRasterEnabled(true);
+        Bitmap bitmap = Bitmap.createBitmap(3, 2, Config.ARGB_8888);
+        shadowOf(bitmap).setMutable(false);
+        bitmap.setPixel(0, 0, Color.RED);
+    }
+
+    @Test
+    public void shouldScalePixelsInRasterMode() throws Exception {
+        ShadowBitmap.setRasterEnabled(true);
+        Bitmap bitmap = Bitmap.createBitmap(2, 1, Config.ARGB_8888);
+        bitmap.setPixel(0, 0, Color.RED);
+        bitmap.setPixel(1, 0, Color.GREEN);
+
+        Bitmap scaled = Bitmap.createScaledBitmap(bitmap, 4, 2, false);
+        assertEquals(Color.RED, scaled.getPixel(1, 1));
+        assertEquals(Color.GREEN, scaled.getPixel(2, 0));
+    }
 }
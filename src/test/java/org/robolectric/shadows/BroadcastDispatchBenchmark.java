@@ -0,0 +1,47 @@
+package org.robolectric.shadows;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.TestRunners;
+
+/**
+ * Times 10k broadcasts to an application with 1k registered receivers spread over 100 actions, so each broadcast has
+ * 10 interested receivers. Only those 10 should be looked at, rather than all 1k.
+ */
+@RunWith(TestRunners.WithDefaults.class)
+public class BroadcastDispatchBenchmark {
+    private static final int RECEIVERS = 1000;
+    private static final int ACTIONS = 100;
+    private static final int BROADCASTS = 10000;
+
+    private int received;
+
+    @Test
+    public void broadcasts() throws Exception {
+        for (int i = 0; i < RECEIVERS; i++) {
+            IntentFilter filter = new IntentFilter("action" + (i % ACTIONS));
+            filter.addCategory("category");
+            Robolectric.application.registerReceiver(new BroadcastReceiver() {
+                @Override public void onReceive(Context context, Intent intent) {
+                    received++;
+                }
+            }, filter);
+        }
+
+        Intent[] intents = new Intent[ACTIONS];
+        for (int i = 0; i < ACTIONS; i++) intents[i] = new Intent("action" + i).addCategory("category");
+
+        for (int i = 0; i < BROADCASTS; i++) Robolectric.application.sendBroadcast(intents[i % ACTIONS]);
+        received = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < BROADCASTS; i++) Robolectric.application.sendBroadcast(intents[i % ACTIONS]);
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println(String.format("%.1f us per broadcast, %d deliveries", elapsed / 1e3 / BROADCASTS, received));
+    }
+}
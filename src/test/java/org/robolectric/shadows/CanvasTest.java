@@ -189,4 +189,30 @@ public class CanvasTest {
         assertEquals("hello", shadowCanvas.getDrawnTextEvent(0).text);
         assertEquals("hello 2", shadowCanvas.getDrawnTextEvent(1).text);
     }
+
+    @Test
+    public void shouldRasterizeIntoTargetBitmapInRasterMode() throws Exception {
+        ShadowBitmap.setRasterEnabled(true);
+        Bitmap target = Bitmap.createBitmap(4, 4, Bitmap.Config.ARGB_8888);
+        Bitmap image = Bitmap.createBitmap(1, 1, Bitmap.Config.ARGB_8888);
+        image.setPixel(0, 0, Color.GREEN);
+        Paint paint = new Paint();
+        paint.setColor(Color.RED);
+
+        Canvas canvas = new Canvas(target);
+        canvas.drawColor(Color.BLUE);
+        canvas.drawRect(new Rect(2, 0, 4, 2), paint);
+        canvas.drawBitmap(image, 0, 3, null);
+        Matrix matrix = new Matrix();
+        matrix.postScale(2, 1, 0, 0);
+        matrix.postTranslate(2, 3);
+        canvas.drawBitmap(image, matrix, null);
+
+        assertThat(target.getPixel(0, 0)).isEqualTo(Color.BLUE);
+        assertThat(target.getPixel(3, 1)).isEqualTo(Color.RED);
+        assertThat(target.getPixel(0, 3)).isEqualTo(Color.GREEN);
+        assertThat(target.getPixel(1, 3)).isEqualTo(Color.BLUE);
+        assertThat(target.getPixel(2, 3)).isEqualTo(Color.GREEN);
+        assertThat(target.getPixel(3, 3)).isEqualTo(Color.GREEN);
+    }
 }
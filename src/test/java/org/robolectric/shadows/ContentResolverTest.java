@@ -6,6 +6,7 @@ import android.content.ContentProvider;
 import android.content.ContentProviderOperation;
 import android.content.ContentProviderResult;
 import android.content.ContentResolver;
+import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Intent;
 import android.content.OperationApplicationException;
@@ -351,6 +352,81 @@ public class ContentResolverTest {
         assertThat(contentResolver.update(unrelated, new ContentValues(), null, null)).isEqualTo(0);
     }
     
+    @Test
+    public void shouldRouteEveryListedAuthorityToTheProvider() throws Exception {
+        RecordingProvider provider = new RecordingProvider();
+        ShadowContentResolver.registerProvider("org.robolectric.one;org.robolectric.two", provider);
+
+        assertThat(ShadowContentResolver.getProvider(Uri.parse("content://org.robolectric.one/a"))).isSameAs(provider);
+        assertThat(ShadowContentResolver.getProvider(Uri.parse("content://org.robolectric.two/b"))).isSameAs(provider);
+        assertThat(ShadowContentResolver.getProvider(Uri.parse("http://org.robolectric.one/a"))).isNull();
+    }
+
+    @Test
+    public void bulkInsert_shouldInsertEveryRowIntoRegisteredProvider() throws Exception {
+        RecordingProvider provider = new RecordingProvider();
+        ShadowContentResolver.registerProvider(AUTHORITY, provider);
+        Uri uri = Uri.parse("content://" + AUTHORITY + "/rows");
+
+        ContentValues[] values = new ContentValues[3];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = new ContentValues();
+            values[i].put("index", i);
+        }
+
+        assertThat(contentResolver.bulkInsert(uri, values)).isEqualTo(3);
+        assertThat(provider.inserted).hasSize(3);
+        assertThat(provider.inserted.get(2).getAsInteger("index")).isEqualTo(2);
+        assertThat(shadowContentResolver.getInsertStatements()).isEmpty();
+    }
+
+    @Test
+    public void applyBatch_shouldApplyOperationsToRegisteredProvider() throws Exception {
+        RecordingProvider provider = new RecordingProvider();
+        ShadowContentResolver.registerProvider(AUTHORITY, provider);
+        Uri uri = Uri.parse("content://" + AUTHORITY + "/rows");
+
+        ArrayList<ContentProviderOperation> operations = new ArrayList<ContentProviderOperation>();
+        operations.add(ContentProviderOperation.newInsert(uri)
+                .withValue("name", "parent")
+                .build());
+        operations.add(ContentProviderOperation.newInsert(uri)
+                .withValue("name", "child")
+                .withValueBackReference("parent_id", 0)
+                .build());
+        operations.add(ContentProviderOperation.newUpdate(uri)
+                .withSelection("name = ?", new String[] { "child" })
+                .withValue("name", "renamed")
+                .build());
+        operations.add(ContentProviderOperation.newDelete(uri)
+                .withSelection("name = ?", new String[] { "parent" })
+                .build());
+
+        ContentProviderResult[] results = contentResolver.applyBatch(AUTHORITY, operations);
+
+        assertThat(results).hasSize(4);
+        assertThat(results[0].uri).isEqualTo(Uri.parse("content://" + AUTHORITY + "/rows/1"));
+        assertThat(results[1].uri).isEqualTo(Uri.parse("content://" + AUTHORITY + "/rows/2"));
+        assertThat(results[2].count).isEqualTo(1);
+        assertThat(results[3].count).isEqualTo(1);
+        assertThat(provider.inserted.get(1).getAsLong("parent_id")).isEqualTo(1L);
+        assertThat(provider.selections).containsExactly("name = ?", "name = ?");
+        assertThat(shadowContentResolver.getContentProviderOperations(AUTHORITY)).isEmpty();
+    }
+
+    @Test(expected = OperationApplicationException.class)
+    public void applyBatch_shouldFailWhenBackReferencePointsAhead() throws Exception {
+        ShadowContentResolver.registerProvider(AUTHORITY, new RecordingProvider());
+        Uri uri = Uri.parse("content://" + AUTHORITY + "/rows");
+
+        ArrayList<ContentProviderOperation> operations = new ArrayList<ContentProviderOperation>();
+        operations.add(ContentProviderOperation.newInsert(uri)
+                .withValueBackReference("parent_id", 1)
+                .build());
+
+        contentResolver.applyBatch(AUTHORITY, operations);
+    }
+
     @Test
     public void shouldRegisterContentObservers() throws Exception {
     	TestContentObserver co = new TestContentObserver(null);
@@ -386,6 +462,33 @@ public class ContentResolverTest {
     }
     
    
+    static class RecordingProvider extends ContentProvider {
+        final List<ContentValues> inserted = new ArrayList<ContentValues>();
+        final List<String> selections = new ArrayList<String>();
+
+        @Override public boolean onCreate() {
+            return true;
+        }
+        @Override public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder) {
+            return null;
+        }
+        @Override public Uri insert(Uri uri, ContentValues values) {
+            inserted.add(values);
+            return ContentUris.withAppendedId(uri, inserted.size());
+        }
+        @Override public int delete(Uri uri, String selection, String[] selectionArgs) {
+            selections.add(selection);
+            return 1;
+        }
+        @Override public int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+            selections.add(selection);
+            return 1;
+        }
+        @Override public String getType(Uri uri) {
+            return null;
+        }
+    }
+
     static class QueryParamTrackingTestCursor extends TestCursor {
         public Uri uri;
         public String[] projection;
@@ -8,6 +8,7 @@ import android.content.Context;
 import android.content.ContextWrapper;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.net.Uri;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -95,6 +96,65 @@ public class ContextWrapperTest {
         new ContextWrapper(Robolectric.application).unregisterReceiver(receiver);
     }
 	
+    @Test
+    public void sendBroadcast_shouldMatchCategoriesAndData() throws Exception {
+        IntentFilter categoryFilter = intentFilter("foo");
+        categoryFilter.addCategory("cat");
+        contextWrapper.registerReceiver(broadcastReceiver("Larry"), categoryFilter);
+
+        IntentFilter schemeFilter = intentFilter("foo");
+        schemeFilter.addDataScheme("package");
+        contextWrapper.registerReceiver(broadcastReceiver("Bob"), schemeFilter);
+
+        contextWrapper.sendBroadcast(new Intent("foo"));
+        transcript.assertEventsSoFar("Larry notified of foo");
+
+        contextWrapper.sendBroadcast(new Intent("foo").addCategory("cat"));
+        transcript.assertEventsSoFar("Larry notified of foo");
+
+        contextWrapper.sendBroadcast(new Intent("foo").addCategory("dog"));
+        transcript.assertNoEventsSoFar();
+
+        contextWrapper.sendBroadcast(new Intent("foo", Uri.parse("package:com.example")));
+        transcript.assertEventsSoFar("Bob notified of foo");
+    }
+
+    @Test
+    public void sendBroadcast_shouldDeliverToReceiversUnregisteredDuringTheBroadcast() throws Exception {
+        final BroadcastReceiver bobReceiver = broadcastReceiver("Bob");
+        contextWrapper.registerReceiver(new BroadcastReceiver() {
+            @Override public void onReceive(Context context, Intent intent) {
+                transcript.add("Larry notified of " + intent.getAction());
+                contextWrapper.unregisterReceiver(bobReceiver);
+            }
+        }, intentFilter("foo"));
+        contextWrapper.registerReceiver(bobReceiver, intentFilter("foo"));
+
+        contextWrapper.sendBroadcast(new Intent("foo"));
+        transcript.assertEventsSoFar("Larry notified of foo", "Bob notified of foo");
+
+        contextWrapper.sendBroadcast(new Intent("foo"));
+        transcript.assertEventsSoFar("Larry notified of foo");
+    }
+
+    @Test
+    public void sendOrderedBroadcast_shouldDeliverByPriorityUntilAborted() throws Exception {
+        contextWrapper.registerReceiver(broadcastReceiver("Larry"), intentFilterWithPriority(0, "foo"));
+        contextWrapper.registerReceiver(broadcastReceiver("Bob"), intentFilterWithPriority(10, "foo"));
+        contextWrapper.registerReceiver(new BroadcastReceiver() {
+            @Override public void onReceive(Context context, Intent intent) {
+                transcript.add("Curly notified of " + intent.getAction());
+                abortBroadcast();
+            }
+        }, intentFilterWithPriority(5, "foo"));
+
+        contextWrapper.sendOrderedBroadcast(new Intent("foo"), null);
+        transcript.assertEventsSoFar("Bob notified of foo", "Curly notified of foo");
+
+        contextWrapper.sendOrderedBroadcast(new Intent("foo"), null, broadcastReceiver("Result"), null, 0, null, null);
+        transcript.assertEventsSoFar("Bob notified of foo", "Curly notified of foo", "Result notified of foo");
+    }
+
 	@Test
 	public void broadcasts_shouldBeLogged() {
 		Intent broadcastIntent = new Intent("foo");
@@ -186,6 +246,12 @@ public class ContextWrapperTest {
         };
     }
 
+    private IntentFilter intentFilterWithPriority(int priority, String... actions) {
+        IntentFilter intentFilter = intentFilter(actions);
+        intentFilter.setPriority(priority);
+        return intentFilter;
+    }
+
     private IntentFilter intentFilter(String... actions) {
         IntentFilter larryIntentFilter = new IntentFilter();
         for (String action : actions) {
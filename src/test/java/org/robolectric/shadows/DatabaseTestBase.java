@@ -3,11 +3,13 @@ package org.robolectric.shadows;
 import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.robolectric.Robolectric;
 
+import java.io.File;
 import java.sql.ResultSet;
 import java.sql.Statement;
 
@@ -604,6 +606,196 @@ public abstract class DatabaseTestBase {
         assertThat(database.inTransaction()).isFalse();
     }
 
+    @Test
+    public void testBatchedInsertsAreWrittenWhenTransactionEnds() throws Exception {
+        shDatabase.setBatchInserts(true);
+        database.beginTransaction();
+        for (int i = 0; i < 10; i++) {
+            assertThat(addPerson(1000 + i, "Person" + i)).isEqualTo(0L);
+        }
+        database.setTransactionSuccessful();
+        database.endTransaction();
+
+        assertThat(countRows("table_name")).isEqualTo(10);
+    }
+
+    @Test
+    public void testBatchedInsertsAreWrittenBeforeQueries() throws Exception {
+        shDatabase.setBatchInserts(true);
+        database.beginTransaction();
+        addChuck();
+        addJulie();
+
+        Cursor cursor = database.query("table_name", new String[]{"id", "name"}, null, null, null, null, "id");
+        assertThat(cursor.getCount()).isEqualTo(2);
+        cursor.moveToLast();
+        assertIdAndName(cursor, 1235L, "Julie");
+        database.endTransaction();
+    }
+
+    @Test
+    public void testBatchedInsertsAreDiscardedOnRollback() throws Exception {
+        shDatabase.setBatchInserts(true);
+        database.beginTransaction();
+        addChuck();
+        database.endTransaction();
+
+        assertThat(countRows("table_name")).isEqualTo(0);
+    }
+
+    @Test
+    public void testInsertsOutsideTransactionsAreNotBatched() throws Exception {
+        shDatabase.setBatchInserts(true);
+
+        assertThat(addChuck()).isEqualTo(1234L);
+        assertThat(countRows("table_name")).isEqualTo(1);
+    }
+
+    @Test
+    public void testUpdateAndDeleteWithWhereArgs() throws Exception {
+        addChuck();
+        addJulie();
+
+        ContentValues values = new ContentValues();
+        values.put("name", "Norris");
+        assertThat(database.update("table_name", values, "name=?", new String[]{"Chuck"})).isEqualTo(1);
+        assertThat(database.update("table_name", values, "name=?", new String[]{"Nobody"})).isEqualTo(0);
+        assertThat(database.delete("table_name", "name=?", new String[]{"Norris"})).isEqualTo(1);
+        assertThat(database.delete("table_name", "name=?", new String[]{"Julie"})).isEqualTo(1);
+        assertThat(countRows("table_name")).isEqualTo(0);
+    }
+
+    @Test
+    public void testDatabasesWithTheSamePathShareAConnection() throws Exception {
+        addChuck();
+        SQLiteDatabase other = SQLiteDatabase.openDatabase("path", null, 0);
+
+        assertThat(shadowOf(other).getConnection()).isSameAs(shDatabase.getConnection());
+        other.close();
+        assertThat(other.isOpen()).isFalse();
+        assertThat(database.isOpen()).isTrue();
+        assertThat(countRows("table_name")).isEqualTo(1);
+    }
+
+    @Test
+    public void testDatabasesWithOtherPathsAreSeparate() throws Exception {
+        addChuck();
+        SQLiteDatabase other = SQLiteDatabase.openDatabase("other_path", null, 0);
+        try {
+            other.execSQL("CREATE TABLE table_name (id INTEGER PRIMARY KEY)");
+            assertThat(other.query("table_name", null, null, null, null, null, null).getCount()).isEqualTo(0);
+        } finally {
+            other.close();
+        }
+    }
+
+    @Test
+    public void testOpeningAPathWithATemplateCopiesIt() throws Exception {
+        addChuck();
+        try {
+            shDatabase.saveAsTemplate();
+            database.close();
+
+            database = SQLiteDatabase.openDatabase("path", null, 0);
+            shDatabase = shadowOf(database);
+            assertThat(shDatabase.isFromTemplate()).isTrue();
+            assertThat(countRows("table_name")).isEqualTo(1);
+
+            addJulie();
+            database.close();
+            database = SQLiteDatabase.openDatabase("path", null, 0);
+            shDatabase = shadowOf(database);
+            assertThat(countRows("table_name")).isEqualTo(1);
+        } finally {
+            ShadowSQLiteDatabase.clearTemplates();
+        }
+    }
+
+    @Test
+    public void testFileBackedDatabasesKeepTheirContents() throws Exception {
+        File directory = File.createTempFile("databases", "");
+        directory.delete();
+        ShadowSQLiteDatabase.setDatabaseDirectory(directory);
+        try {
+            SQLiteDatabase fileDatabase = SQLiteDatabase.openDatabase("file.db", null, 0);
+            fileDatabase.execSQL("CREATE TABLE table_name (id INTEGER PRIMARY KEY, name VARCHAR(255))");
+            fileDatabase.execSQL("INSERT INTO table_name (id, name) VALUES(1234, 'Chuck')");
+            fileDatabase.close();
+
+            fileDatabase = SQLiteDatabase.openDatabase("file.db", null, 0);
+            assertThat(fileDatabase.query("table_name", null, null, null, null, null, null).getCount()).isEqualTo(1);
+            fileDatabase.close();
+        } finally {
+            ShadowSQLiteDatabase.setDatabaseDirectory(null);
+        }
+    }
+
+    @Test
+    public void testDatabasesWithTheSamePathShareATransaction() throws Exception {
+        SQLiteDatabase other = SQLiteDatabase.openDatabase("path", null, 0);
+        try {
+            database.beginTransaction();
+            assertThat(other.inTransaction()).isTrue();
+            addChuck();
+            other.setTransactionSuccessful();
+            other.endTransaction();
+
+            assertThat(database.inTransaction()).isFalse();
+            assertThat(shadowOf(other).getConnection().getAutoCommit()).isTrue();
+            assertThat(countRows("table_name")).isEqualTo(1);
+        } finally {
+            other.close();
+        }
+    }
+
+    @Test
+    public void testResetClosesInMemoryDatabases() throws Exception {
+        SQLiteDatabase memoryDatabase = SQLiteDatabase.openDatabase(null, null, 0);
+        ShadowSQLiteDatabase.reset();
+
+        assertThat(shadowOf(memoryDatabase).getConnection().isClosed()).isTrue();
+        assertThat(shDatabase.getConnection().isClosed()).isTrue();
+    }
+
+    @Test
+    public void testHelpersDontCreateFileBackedDatabasesAgain() throws Exception {
+        File directory = File.createTempFile("databases", "");
+        directory.delete();
+        ShadowSQLiteDatabase.setDatabaseDirectory(directory);
+        try {
+            PeopleOpenHelper helper = new PeopleOpenHelper();
+            helper.getWritableDatabase().execSQL("INSERT INTO people (id, name) VALUES(1234, 'Chuck')");
+            helper.close();
+            assertThat(helper.createCount).isEqualTo(1);
+
+            helper = new PeopleOpenHelper();
+            SQLiteDatabase fileDatabase = helper.getWritableDatabase();
+            assertThat(helper.createCount).isEqualTo(0);
+            assertThat(fileDatabase.query("people", null, null, null, null, null, null).getCount()).isEqualTo(1);
+            helper.close();
+        } finally {
+            ShadowSQLiteDatabase.setDatabaseDirectory(null);
+        }
+    }
+
+    private static class PeopleOpenHelper extends SQLiteOpenHelper {
+        int createCount;
+
+        PeopleOpenHelper() {
+            super(null, "people.db", null, 1);
+        }
+
+        @Override
+        public void onCreate(SQLiteDatabase database) {
+            createCount++;
+            database.execSQL("CREATE TABLE people (id INTEGER PRIMARY KEY, name VARCHAR(255))");
+        }
+
+        @Override
+        public void onUpgrade(SQLiteDatabase database, int oldVersion, int newVersion) {
+        }
+    }
+
     protected long addChuck() {
         return addPerson(1234L, "Chuck");
     }
@@ -619,6 +811,12 @@ public abstract class DatabaseTestBase {
         return database.insert("table_name", null, values);
     }
 
+    protected int countRows(String table) throws Exception {
+        ResultSet resultSet = shDatabase.getConnection().createStatement().executeQuery("SELECT COUNT(*) FROM " + table);
+        assertThat(resultSet.next()).isTrue();
+        return resultSet.getInt(1);
+    }
+
     protected int updateName(long id, String name) {
         ContentValues values = new ContentValues();
         values.put("name", name);
@@ -1,10 +1,14 @@
 package org.robolectric.shadows;
 
 import android.content.IntentFilter;
+import android.net.Uri;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.TestRunners;
 
+import java.util.Arrays;
+import java.util.HashSet;
+
 import static org.fest.assertions.api.Assertions.assertThat;
 
 @RunWith(TestRunners.WithDefaults.class)
@@ -30,4 +34,49 @@ public class IntentFilterTest {
         assertThat(intentFilter.getDataAuthority(1).getHost()).isEqualTo("example.com");
         assertThat(intentFilter.getDataAuthority(1).getPort()).isEqualTo(42);
     }
+
+    @Test
+    public void matchData_shouldOnlyMatchIntentsWithoutDataWhenFilterHasNone() throws Exception {
+        IntentFilter intentFilter = new IntentFilter("action");
+
+        assertThat(intentFilter.matchData(null, null, null)).isGreaterThanOrEqualTo(0);
+        assertThat(intentFilter.matchData("text/plain", null, null)).isEqualTo(IntentFilter.NO_MATCH_TYPE);
+        assertThat(intentFilter.matchData(null, "http", Uri.parse("http://example.com"))).isEqualTo(IntentFilter.NO_MATCH_DATA);
+    }
+
+    @Test
+    public void matchData_shouldMatchSchemesAndAuthorities() throws Exception {
+        IntentFilter intentFilter = new IntentFilter("action");
+        intentFilter.addDataScheme("http");
+        intentFilter.addDataAuthority("example.com", "8080");
+
+        assertThat(intentFilter.matchData(null, "http", Uri.parse("http://example.com:8080/path"))).isGreaterThanOrEqualTo(0);
+        assertThat(intentFilter.matchData(null, "http", Uri.parse("http://example.com:42/path"))).isEqualTo(IntentFilter.NO_MATCH_DATA);
+        assertThat(intentFilter.matchData(null, "ftp", Uri.parse("ftp://example.com:8080/path"))).isEqualTo(IntentFilter.NO_MATCH_DATA);
+    }
+
+    @Test
+    public void matchData_shouldMatchTypesWithWildcards() throws Exception {
+        IntentFilter intentFilter = new IntentFilter("action");
+        intentFilter.addDataType("image/*");
+        intentFilter.addDataType("text/plain");
+
+        assertThat(intentFilter.matchData("image/png", null, null)).isGreaterThanOrEqualTo(0);
+        assertThat(intentFilter.matchData("text/plain", null, null)).isGreaterThanOrEqualTo(0);
+        assertThat(intentFilter.matchData("text/*", null, null)).isGreaterThanOrEqualTo(0);
+        assertThat(intentFilter.matchData("text/html", null, null)).isEqualTo(IntentFilter.NO_MATCH_TYPE);
+        assertThat(intentFilter.matchData(null, null, null)).isEqualTo(IntentFilter.NO_MATCH_TYPE);
+    }
+
+    @Test
+    public void match_shouldRequireEveryIntentCategoryToBeInTheFilter() throws Exception {
+        IntentFilter intentFilter = new IntentFilter("action");
+        intentFilter.addCategory("one");
+        intentFilter.addCategory("two");
+
+        assertThat(intentFilter.match("action", null, null, null, null, "tag")).isGreaterThanOrEqualTo(0);
+        assertThat(intentFilter.match("action", null, null, null, new HashSet<String>(Arrays.asList("one")), "tag")).isGreaterThanOrEqualTo(0);
+        assertThat(intentFilter.match("action", null, null, null, new HashSet<String>(Arrays.asList("one", "three")), "tag")).isEqualTo(IntentFilter.NO_MATCH_CATEGORY);
+        assertThat(intentFilter.match("other", null, null, null, null, "tag")).isEqualTo(IntentFilter.NO_MATCH_ACTION);
+    }
 }
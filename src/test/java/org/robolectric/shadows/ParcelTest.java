@@ -18,6 +18,7 @@ import java.util.List;
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.robolectric.Robolectric.shadowOf;
 
 @RunWith(TestRunners.WithDefaults.class)
 public class ParcelTest {
@@ -34,8 +35,20 @@ public class ParcelTest {
     @Test
     public void testObtain() {
         assertThat(parcel).isNotNull();
-        assertThat(shadowParcel.getIndex()).isEqualTo(0);
-        assertThat(shadowParcel.getParcelData().size()).isEqualTo(0);
+        assertThat(parcel.dataPosition()).isEqualTo(0);
+        assertThat(parcel.dataSize()).isEqualTo(0);
+    }
+
+    @Test
+    public void testObtainReusesRecycledParcels() {
+        parcel.writeInt(1);
+        parcel.recycle();
+
+        Parcel reused = Parcel.obtain();
+        assertThat(reused).isSameAs(parcel);
+        assertThat(reused.dataSize()).isEqualTo(0);
+        assertThat(reused.readInt()).isEqualTo(0);
+        assertThat(Parcel.obtain()).isNotSameAs(parcel);
     }
 
     @Test
@@ -62,15 +75,19 @@ public class ParcelTest {
     public void testReadWriteSingleString() {
         String val = "test";
         parcel.writeString(val);
+        parcel.setDataPosition(0);
         assertThat(parcel.readString()).isEqualTo(val);
     }
 
     @Test
     public void testWriteNullString() {
         parcel.writeString(null);
+        parcel.writeString("after");
+        assertThat(parcel.dataSize()).isEqualTo(20);
+
+        parcel.setDataPosition(0);
         assertThat(parcel.readString()).isNull();
-        assertThat(shadowParcel.getIndex()).isEqualTo(0);
-        assertThat(shadowParcel.getParcelData().size()).isEqualTo(0);
+        assertThat(parcel.readString()).isEqualTo("after");
     }
 
     @Test
@@ -78,6 +95,7 @@ public class ParcelTest {
         for (int i = 0; i < 10; ++i) {
             parcel.writeString(Integer.toString(i));
         }
+        parcel.setDataPosition(0);
         for (int i = 0; i < 10; ++i) {
             assertThat(parcel.readString()).isEqualTo(Integer.toString(i));
         }
@@ -89,6 +107,7 @@ public class ParcelTest {
     public void testReadWriteSingleInt() {
         int val = 5;
         parcel.writeInt(val);
+        parcel.setDataPosition(0);
         assertThat(parcel.readInt()).isEqualTo(val);
     }
 
@@ -97,6 +116,7 @@ public class ParcelTest {
         final int[] ints = {1, 2};
         parcel.writeIntArray(ints);
         final int[] ints2 = new int[ints.length];
+        parcel.setDataPosition(0);
         parcel.readIntArray(ints2);
         assertTrue(Arrays.equals(ints, ints2));
     }
@@ -106,6 +126,7 @@ public class ParcelTest {
         final long[] longs = {1, 2};
         parcel.writeLongArray(longs);
         final long[] longs2 = new long[longs.length];
+        parcel.setDataPosition(0);
         parcel.readLongArray(longs2);
         assertTrue(Arrays.equals(longs, longs2));
     }
@@ -114,6 +135,7 @@ public class ParcelTest {
     public void testReadWriteSingleFloat() {
         float val = 5.2f;
         parcel.writeFloat(val);
+        parcel.setDataPosition(0);
         assertThat(parcel.readFloat()).isEqualTo(val);
     }
 
@@ -122,6 +144,7 @@ public class ParcelTest {
         final float[] floats = {1.1f, 2.0f};
         parcel.writeFloatArray(floats);
         final float[] floats2 = new float[floats.length];
+        parcel.setDataPosition(0);
         parcel.readFloatArray(floats2);
         assertTrue(Arrays.equals(floats, floats2));
     }
@@ -131,6 +154,7 @@ public class ParcelTest {
         final double[] doubles = {1.1f, 2.0f};
         parcel.writeDoubleArray(doubles);
         final double[] doubles2 = new double[doubles.length];
+        parcel.setDataPosition(0);
         parcel.readDoubleArray(doubles2);
         assertTrue(Arrays.equals(doubles, doubles2));
     }
@@ -140,6 +164,7 @@ public class ParcelTest {
         final String[] strings = {"foo", "bar"};
         parcel.writeStringArray(strings);
         final String[] strings2 = new String[strings.length];
+        parcel.setDataPosition(0);
         parcel.readStringArray(strings2);
         assertTrue(Arrays.equals(strings, strings2));
     }
@@ -149,6 +174,7 @@ public class ParcelTest {
         for (int i = 0; i < 10; ++i) {
             parcel.writeInt(i);
         }
+        parcel.setDataPosition(0);
         for (int i = 0; i < 10; ++i) {
             assertThat(parcel.readInt()).isEqualTo(i);
         }
@@ -160,6 +186,7 @@ public class ParcelTest {
     public void testReadWriteSingleByte() {
         byte val = 1;
         parcel.writeByte(val);
+        parcel.setDataPosition(0);
         assertThat(parcel.readByte()).isEqualTo(val);
     }
 
@@ -168,6 +195,7 @@ public class ParcelTest {
         for (byte i = Byte.MIN_VALUE; i < Byte.MAX_VALUE; ++i) {
             parcel.writeByte(i);
         }
+        parcel.setDataPosition(0);
         for (byte i = Byte.MIN_VALUE; i < Byte.MAX_VALUE; ++i) {
             assertThat(parcel.readByte()).isEqualTo(i);
         }
@@ -182,6 +210,7 @@ public class ParcelTest {
             parcel.writeString(Integer.toString(i));
             parcel.writeInt(i);
         }
+        parcel.setDataPosition(0);
         for (int i = 0; i < 10; ++i) {
             assertThat(parcel.readString()).isEqualTo(Integer.toString(i));
             assertThat(parcel.readInt()).isEqualTo(i);
@@ -191,24 +220,27 @@ public class ParcelTest {
         assertThat(parcel.readInt()).isEqualTo(0);
     }
 
-    @Test(expected = ClassCastException.class)
+    @Test
     public void testWriteStringReadInt() {
         String val = "test";
         parcel.writeString(val);
-        parcel.readInt();
+        parcel.setDataPosition(0);
+        assertThat(parcel.readInt()).isEqualTo(val.length());
     }
 
-    @Test(expected = ClassCastException.class)
+    @Test
     public void testWriteIntReadString() {
         int val = 9;
         parcel.writeInt(val);
-        parcel.readString();
+        parcel.setDataPosition(0);
+        assertThat(parcel.readString()).isNull();
     }
 
     @Test
     public void testReadWriteSingleLong() {
         long val = 5;
         parcel.writeLong(val);
+        parcel.setDataPosition(0);
         assertThat(parcel.readLong()).isEqualTo(val);
     }
 
@@ -217,6 +249,7 @@ public class ParcelTest {
         for (long i = 0; i < 10; ++i) {
             parcel.writeLong(i);
         }
+        parcel.setDataPosition(0);
         for (long i = 0; i < 10; ++i) {
             assertThat(parcel.readLong()).isEqualTo(i);
         }
@@ -230,6 +263,7 @@ public class ParcelTest {
             parcel.writeString(Long.toString(i));
             parcel.writeLong(i);
         }
+        parcel.setDataPosition(0);
         for (long i = 0; i < 10; ++i) {
             assertThat(parcel.readString()).isEqualTo(Long.toString(i));
             assertThat(parcel.readLong()).isEqualTo(i);
@@ -239,18 +273,20 @@ public class ParcelTest {
         assertThat(parcel.readLong()).isEqualTo(0l);
     }
 
-    @Test(expected = ClassCastException.class)
+    @Test
     public void testWriteStringReadLong() {
-        String val = "test";
+        String val = "te";
         parcel.writeString(val);
-        parcel.readLong();
+        parcel.setDataPosition(0);
+        assertThat(parcel.readLong()).isEqualTo(2L | (long) ('t' | 'e' << 16) << 32);
     }
 
-    @Test(expected = ClassCastException.class)
+    @Test
     public void testWriteLongReadString() {
         long val = 9;
         parcel.writeLong(val);
-        parcel.readString();
+        parcel.setDataPosition(0);
+        assertThat(parcel.readString()).isNull();
     }
 
     @Test
@@ -258,21 +294,79 @@ public class ParcelTest {
         Intent i1 = new Intent("anAction");
         parcel.writeParcelable(i1, 0);
 
+        parcel.setDataPosition(0);
         Intent i2 = parcel.readParcelable(Intent.class.getClassLoader());
         assertEquals(i1, i2);
     }
 
+    @Test
+    public void testParcelablesAreFlattenedThroughTheirCreator() {
+        parcel.writeParcelable(new TestParcelable(7), 0);
+        byte[] bytes = parcel.marshall();
+
+        Parcel other = Parcel.obtain();
+        other.unmarshall(bytes, 0, bytes.length);
+        other.setDataPosition(0);
+        TestParcelable read = other.readParcelable(TestParcelable.class.getClassLoader());
+        assertThat(read.contents).isEqualTo(7);
+        assertThat(other.dataAvail()).isEqualTo(0);
+    }
+
+    @Test
+    public void testReadWriteSerializableValue() {
+        ArrayList<String> list = new ArrayList<String>(Arrays.asList("a", "b"));
+        HashMap<String, Object> original = new HashMap<String, Object>();
+        original.put("date", new java.util.Date(1000));
+        parcel.writeMap(original);
+        parcel.writeSerializable(list);
+        byte[] bytes = parcel.marshall();
+
+        Parcel other = Parcel.obtain();
+        other.unmarshall(bytes, 0, bytes.length);
+        other.setDataPosition(0);
+        assertEquals(original, other.readHashMap(null));
+        assertEquals(list, other.readSerializable());
+    }
+
+    @Test
+    public void testReadsAndWritesShareOnePosition() {
+        parcel.writeInt(1);
+        parcel.writeInt(2);
+        assertThat(parcel.dataPosition()).isEqualTo(8);
+        assertThat(parcel.readInt()).isEqualTo(0);
+
+        parcel.setDataPosition(0);
+        assertThat(parcel.readInt()).isEqualTo(1);
+        assertThat(parcel.dataPosition()).isEqualTo(4);
+        parcel.writeInt(3);
+        assertThat(parcel.dataPosition()).isEqualTo(8);
+        assertThat(parcel.dataSize()).isEqualTo(8);
+
+        parcel.setDataPosition(4);
+        assertThat(parcel.readInt()).isEqualTo(3);
+    }
+
+    @SuppressWarnings("deprecation")
+    @Test(expected = UnsupportedOperationException.class)
+    public void testGetParcelDataIsNoLongerSupported() {
+        parcel.writeInt(1);
+        shadowOf(parcel).getParcelData();
+    }
+
     @Test
     public void testReadWriteBundle() {
         Bundle b1 = new Bundle();
         b1.putString("hello", "world");
         parcel.writeBundle(b1);
+        parcel.setDataPosition(0);
         Bundle b2 = parcel.readBundle();
 
         assertEquals(b1, b2);
         assertEquals("world", b2.getString("hello"));
 
+        parcel.setDataPosition(0);
         parcel.writeBundle(b1);
+        parcel.setDataPosition(0);
         b2 = parcel.readBundle(null /* ClassLoader */);
         assertEquals(b1, b2);
         assertEquals("world", b2.getString("hello"));
@@ -283,6 +377,7 @@ public class ParcelTest {
         parcel.writeInt(2);
         parcel.writeString("str1");
         parcel.writeString("str2");
+        parcel.setDataPosition(0);
         List<String> actual = parcel.createStringArrayList();
         assertEquals(2, actual.size());
         assertEquals("str1", actual.get(0));
@@ -296,6 +391,7 @@ public class ParcelTest {
         normals.add(normal);
 
         parcel.writeTypedList(normals);
+        parcel.setDataPosition(0);
         ArrayList<TestParcelable> rehydrated = parcel.createTypedArrayList(TestParcelable.CREATOR);
 
         assertEquals(1, rehydrated.size());
@@ -309,6 +405,7 @@ public class ParcelTest {
         original.add("str1");
         original.add("str2");
         parcel.writeStringList(original);
+        parcel.setDataPosition(0);
         parcel.readStringList(rehydrated);
         assertEquals(2, rehydrated.size());
         assertEquals("str1", rehydrated.get(0));
@@ -319,6 +416,7 @@ public class ParcelTest {
     public void testReadWriteStrongBinder() throws Exception {
         Binder expected = new Binder();
         parcel.writeStrongBinder(expected);
+        parcel.setDataPosition(0);
         assertEquals(expected, parcel.readStrongBinder());
     }
 
@@ -327,6 +425,7 @@ public class ParcelTest {
         HashMap<String, String> original = new HashMap<String, String>();
         original.put("key", "value");
         parcel.writeMap(original);
+        parcel.setDataPosition(0);
         HashMap<String, String> rehydrated = parcel.readHashMap(null);
 
         assertEquals("value", rehydrated.get("key"));
@@ -339,7 +438,86 @@ public class ParcelTest {
     			"b2"
     	};
     	parcel.writeStringArray(strs);
+    	parcel.setDataPosition(0);
     	String[] newStrs = parcel.createStringArray();
     	assertTrue(Arrays.equals(strs, newStrs));
     }
+
+    @Test
+    public void testDataSizeAndPositionFollowTheNativeLayout() {
+        parcel.writeInt(1);
+        parcel.writeLong(2);
+        parcel.writeString("abc");
+        parcel.writeByteArray(new byte[] {1, 2, 3, 4, 5});
+
+        assertThat(parcel.dataSize()).isEqualTo(4 + 8 + (4 + 8) + (4 + 8));
+        assertThat(parcel.dataPosition()).isEqualTo(parcel.dataSize());
+        assertThat(parcel.dataAvail()).isEqualTo(0);
+
+        parcel.setDataPosition(12);
+        assertThat(parcel.dataAvail()).isEqualTo(24);
+        assertThat(parcel.readString()).isEqualTo("abc");
+        assertThat(parcel.createByteArray()).isEqualTo(new byte[] {1, 2, 3, 4, 5});
+    }
+
+    @Test
+    public void testMarshallIsLittleEndian() {
+        parcel.writeInt(0x01020304);
+        assertThat(parcel.marshall()).isEqualTo(new byte[] {4, 3, 2, 1});
+    }
+
+    @Test
+    public void testMarshallAndUnmarshall() {
+        parcel.writeInt(42);
+        parcel.writeString("hello");
+        parcel.writeStringArray(new String[] {"a", null});
+        parcel.writeDouble(0.25);
+        byte[] bytes = parcel.marshall();
+
+        Parcel other = Parcel.obtain();
+        other.unmarshall(bytes, 0, bytes.length);
+        assertThat(other.dataSize()).isEqualTo(bytes.length);
+        assertThat(other.dataPosition()).isEqualTo(bytes.length);
+
+        other.setDataPosition(0);
+        assertThat(other.readInt()).isEqualTo(42);
+        assertThat(other.readString()).isEqualTo("hello");
+        assertThat(other.createStringArray()).isEqualTo(new String[] {"a", null});
+        assertThat(other.readDouble()).isEqualTo(0.25);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testMarshallFailsWithBinders() {
+        parcel.writeStrongBinder(new Binder());
+        parcel.marshall();
+    }
+
+    @Test
+    public void testWriteNullArrays() {
+        parcel.writeIntArray(null);
+        parcel.writeStringArray(null);
+        parcel.writeByteArray(null);
+
+        parcel.setDataPosition(0);
+        assertThat(parcel.createIntArray()).isNull();
+        assertThat(parcel.createStringArray()).isNull();
+        assertThat(parcel.createByteArray()).isNull();
+    }
+
+    @Test
+    public void testReadWriteMapOfValues() throws Exception {
+        HashMap<String, Object> original = new HashMap<String, Object>();
+        original.put("int", 1);
+        original.put("long", 2L);
+        original.put("boolean", true);
+        original.put("null", null);
+        original.put("list", Arrays.asList("a", "b"));
+        parcel.writeMap(original);
+        byte[] bytes = parcel.marshall();
+
+        Parcel other = Parcel.obtain();
+        other.unmarshall(bytes, 0, bytes.length);
+        other.setDataPosition(0);
+        assertEquals(original, other.readHashMap(null));
+    }
 }
@@ -11,6 +11,7 @@ import org.junit.runner.RunWith;
 import org.robolectric.TestRunners;
 
 import static org.fest.assertions.api.Assertions.assertThat;
+import static org.robolectric.Robolectric.shadowOf;
 
 @RunWith(TestRunners.WithDefaults.class)
 public class SQLiteOpenHelperTest {
@@ -76,6 +77,24 @@ public class SQLiteOpenHelperTest {
         assertThat(database.isOpen()).isFalse();
     }
 
+    @Test
+    public void shouldSkipOnCreateWhenDatabaseIsCopiedFromTemplate() throws Exception {
+        SQLiteDatabase database = helper.getWritableDatabase();
+        database.execSQL("CREATE TABLE table_name (id INTEGER PRIMARY KEY)");
+        try {
+            shadowOf(database).saveAsTemplate();
+            helper.close();
+
+            helper = new TestOpenHelper(null, "path", null, 1);
+            database = helper.getWritableDatabase();
+            assertThat(helper.onCreateCalled).isFalse();
+            assertThat(shadowOf(database).isFromTemplate()).isTrue();
+            assertThat(database.query("table_name", null, null, null, null, null, null).getCount()).isEqualTo(0);
+        } finally {
+            ShadowSQLiteDatabase.clearTemplates();
+        }
+    }
+
     private void assertInitialDB(SQLiteDatabase database) {
         assertDatabaseOpened(database);
         assertThat(helper.onCreateCalled).isTrue();
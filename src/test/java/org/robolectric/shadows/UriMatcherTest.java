@@ -75,6 +75,24 @@ public class UriMatcherTest {
         assertThat(matcher.match(Uri.withAppendedPath(URI, "transport/land/45/type"))).isEqualTo(4);
     }
 
+    @Test public void canMatchAuthorityAndLeadingSlashPaths() {
+        matcher.addURI(AUTH, null, 1);
+        matcher.addURI(AUTH, "/bar/#", 2);
+
+        assertThat(matcher.match(URI)).isEqualTo(1);
+        assertThat(matcher.match(Uri.withAppendedPath(URI, "bar/7"))).isEqualTo(2);
+    }
+
+    @Test public void numberWildcardOnlyMatchesDigits() {
+        matcher.addURI(AUTH, "bar/#", 1);
+        matcher.addURI(AUTH, "bar/*/x", 2);
+
+        assertThat(matcher.match(Uri.withAppendedPath(URI, "bar/12345678901234567890"))).isEqualTo(1);
+        assertThat(matcher.match(Uri.withAppendedPath(URI, "bar/-1"))).isEqualTo(NO_MATCH);
+        assertThat(matcher.match(Uri.withAppendedPath(URI, "bar/+1"))).isEqualTo(NO_MATCH);
+        assertThat(matcher.match(Uri.withAppendedPath(URI, "bar/abc/x"))).isEqualTo(2);
+    }
+
     @Test public void returnsRootCodeForIfNoMatch() {
         matcher.addURI(AUTH, "bar/#", 1);
         assertThat(matcher.match(Uri.withAppendedPath(URI, "cat"))).isEqualTo(NO_MATCH);
@@ -0,0 +1,119 @@
+package org.robolectric.util;
+
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class DecodedImageCacheTest {
+    @Test
+    public void shouldReadPngBoundsAndPixels() throws Exception {
+        BufferedImage source = new BufferedImage(3, 2, BufferedImage.TYPE_INT_ARGB);
+        source.setRGB(2, 1, 0xff00ff00);
+        byte[] png = encode(source, "png");
+
+        DecodedImage image = new DecodedImageCache().get(png, 0, png.length);
+
+        assertThat(image.width).isEqualTo(3);
+        assertThat(image.height).isEqualTo(2);
+        assertThat(image.mimeType).isEqualTo(DecodedImage.PNG);
+        int[] pixels = image.getPixels(png, 0, png.length);
+        assertThat(pixels[5]).isEqualTo(0xff00ff00);
+        assertThat(pixels[0]).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldReadJpegBounds() throws Exception {
+        byte[] jpeg = encode(new BufferedImage(17, 9, BufferedImage.TYPE_INT_RGB), "jpg");
+
+        DecodedImage image = new DecodedImageCache().get(jpeg, 0, jpeg.length);
+
+        assertThat(image.width).isEqualTo(17);
+        assertThat(image.height).isEqualTo(9);
+        assertThat(image.mimeType).isEqualTo(DecodedImage.JPEG);
+        assertThat(image.getPixels(jpeg, 0, jpeg.length)).hasSize(17 * 9);
+    }
+
+    @Test
+    public void shouldReadImagesInsideLargerArrays() throws Exception {
+        byte[] png = encode(new BufferedImage(4, 5, BufferedImage.TYPE_INT_ARGB), "png");
+        byte[] padded = new byte[png.length + 10];
+        System.arraycopy(png, 0, padded, 3, png.length);
+
+        DecodedImage image = new DecodedImageCache().get(padded, 3, png.length);
+
+        assertThat(image.width).isEqualTo(4);
+        assertThat(image.getPixels(padded, 3, png.length)).hasSize(20);
+    }
+
+    @Test
+    public void shouldReturnNullForUnknownOrTruncatedData() throws Exception {
+        DecodedImageCache cache = new DecodedImageCache();
+        byte[] text = "arbitrary bytes".getBytes();
+        byte[] png = encode(new BufferedImage(4, 5, BufferedImage.TYPE_INT_ARGB), "png");
+
+        assertThat(cache.get(text, 0, text.length)).isNull();
+        assertThat(cache.get(png, 0, 12)).isNull();
+        assertThat(cache.get(new byte[] {(byte) 0xff, (byte) 0xd8, (byte) 0xff}, 0, 3)).isNull();
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldShareImagesWithTheSameContent() throws Exception {
+        DecodedImageCache cache = new DecodedImageCache();
+        byte[] png = encode(new BufferedImage(4, 5, BufferedImage.TYPE_INT_ARGB), "png");
+
+        DecodedImage image = cache.get(png, 0, png.length);
+
+        assertThat(cache.get(png.clone(), 0, png.length)).isSameAs(image);
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedImagesOnceTheirPixelsTakeTooMuchMemory() throws Exception {
+        DecodedImageCache cache = new DecodedImageCache(2 * 256 + 20 * 20 * 4);
+        byte[] one = encode(new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB), "png");
+        byte[] two = encode(new BufferedImage(10, 20, BufferedImage.TYPE_INT_ARGB), "png");
+        byte[] three = encode(new BufferedImage(20, 10, BufferedImage.TYPE_INT_ARGB), "png");
+
+        DecodedImage first = cache.get(one, 0, one.length);
+        cache.getPixels(first, one, 0, one.length);
+        DecodedImage second = cache.get(two, 0, two.length);
+        cache.getPixels(second, two, 0, two.length);
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.getBytes()).isEqualTo(2 * 256 + 300 * 4);
+
+        cache.get(one, 0, one.length);
+        DecodedImage third = cache.get(three, 0, three.length);
+        cache.getPixels(third, three, 0, three.length);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.getBytes()).isEqualTo(2 * 256 + 300 * 4);
+        assertThat(cache.get(one, 0, one.length)).isSameAs(first);
+        assertThat(cache.get(two, 0, two.length)).isNotSameAs(second);
+    }
+
+    @Test
+    public void clearShouldDropEverything() throws Exception {
+        DecodedImageCache cache = new DecodedImageCache();
+        byte[] png = encode(new BufferedImage(4, 5, BufferedImage.TYPE_INT_ARGB), "png");
+        DecodedImage image = cache.get(png, 0, png.length);
+        cache.getPixels(image, png, 0, png.length);
+
+        cache.clear();
+
+        assertThat(cache.size()).isEqualTo(0);
+        assertThat(cache.getBytes()).isEqualTo(0);
+        assertThat(cache.get(png, 0, png.length)).isNotSameAs(image);
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+}
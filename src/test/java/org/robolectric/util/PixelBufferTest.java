@@ -0,0 +1,161 @@
+package org.robolectric.util;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class PixelBufferTest {
+    private static final int RED = 0xffff0000;
+    private static final int GREEN = 0xff00ff00;
+    private static final int BLUE = 0xff0000ff;
+
+    @Test
+    public void shouldStartTransparent() throws Exception {
+        PixelBuffer buffer = new PixelBuffer(3, 2);
+
+        assertThat(buffer.getWidth()).isEqualTo(3);
+        assertThat(buffer.getHeight()).isEqualTo(2);
+        assertThat(buffer.get(2, 1)).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldReadAndWriteRegions() throws Exception {
+        PixelBuffer buffer = new PixelBuffer(4, 4);
+        buffer.setPixels(new int[] {RED, GREEN, -1, BLUE, RED, -1}, 0, 3, 1, 1, 2, 2);
+
+        assertThat(buffer.get(1, 1)).isEqualTo(RED);
+        assertThat(buffer.get(2, 2)).isEqualTo(RED);
+        assertThat(buffer.get(3, 1)).isEqualTo(0);
+
+        int[] pixels = new int[5];
+        buffer.getPixels(pixels, 1, 2, 1, 1, 2, 2);
+        assertThat(pixels).isEqualTo(new int[] {0, RED, GREEN, BLUE, RED});
+    }
+
+    @Test
+    public void shouldBlendFillsOverExistingPixels() throws Exception {
+        PixelBuffer buffer = new PixelBuffer(2, 1);
+        buffer.erase(BLUE);
+        buffer.fillRect(0, 0, 1, 1, 0x80ff0000);
+
+        assertThat(buffer.get(0, 0)).isEqualTo(0xff80007f);
+        assertThat(buffer.get(1, 0)).isEqualTo(BLUE);
+
+        buffer.fill(0x00123456);
+        assertThat(buffer.get(1, 0)).isEqualTo(BLUE);
+    }
+
+    @Test
+    public void shouldOnlyFillPixelsWhoseCentersAreInside() throws Exception {
+        PixelBuffer buffer = new PixelBuffer(4, 1);
+        buffer.fillRect(0.6f, -5, 2.5f, 5, RED);
+
+        assertThat(buffer.get(0, 0)).isEqualTo(0);
+        assertThat(buffer.get(1, 0)).isEqualTo(RED);
+        assertThat(buffer.get(2, 0)).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldDrawScaledAndFlipped() throws Exception {
+        PixelBuffer source = new PixelBuffer(2, 1);
+        source.set(0, 0, RED);
+        source.set(1, 0, GREEN);
+
+        PixelBuffer buffer = new PixelBuffer(6, 2);
+        buffer.draw(source, 2, 2, 1, 0);
+        assertThat(row(buffer, 1)).isEqualTo(new int[] {0, RED, RED, GREEN, GREEN, 0});
+
+        buffer.erase(0);
+        buffer.draw(source, 0, 0, 2, 1, 4, 0, 0, 1);
+        assertThat(row(buffer, 0)).isEqualTo(new int[] {GREEN, GREEN, RED, RED, 0, 0});
+        assertThat(row(buffer, 1)).isEqualTo(new int[6]);
+    }
+
+    @Test
+    public void shouldClipDrawingToBothBuffers() throws Exception {
+        PixelBuffer source = new PixelBuffer(3, 1);
+        source.erase(GREEN);
+        source.set(2, 0, BLUE);
+
+        PixelBuffer buffer = new PixelBuffer(2, 1);
+        buffer.draw(source, 1, 1, -1, 0);
+        assertThat(row(buffer, 0)).isEqualTo(new int[] {GREEN, BLUE});
+
+        buffer.erase(0);
+        buffer.draw(source, 1, 0, 5, 1, 0, 0, 2, 1);
+        assertThat(row(buffer, 0)).isEqualTo(new int[] {BLUE, 0});
+    }
+
+    @Test
+    public void shouldRoundTripThroughBuffers() throws Exception {
+        PixelBuffer buffer = new PixelBuffer(2, 1);
+        buffer.set(0, 0, 0x11223344);
+        buffer.set(1, 0, 0x55667788);
+
+        ByteBuffer bytes = ByteBuffer.allocate(8);
+        buffer.copyTo(bytes);
+        assertThat(bytes.array()).isEqualTo(new byte[] {0x22, 0x33, 0x44, 0x11, 0x66, 0x77, (byte) 0x88, 0x55});
+
+        IntBuffer ints = IntBuffer.allocate(2);
+        buffer.copyTo(ints);
+        assertThat(ints.array()).isEqualTo(new int[] {0x11443322, 0x55887766});
+
+        PixelBuffer copy = new PixelBuffer(2, 1);
+        bytes.rewind();
+        copy.copyFrom(bytes);
+        assertThat(row(copy, 0)).isEqualTo(row(buffer, 0));
+
+        copy = new PixelBuffer(2, 1);
+        ints.rewind();
+        copy.copyFrom(ints);
+        assertThat(row(copy, 0)).isEqualTo(row(buffer, 0));
+    }
+
+    @Test
+    public void shouldCopyInTheLayoutOfEachFormat() throws Exception {
+        PixelBuffer buffer = new PixelBuffer(2, 1);
+        buffer.set(0, 0, 0xffff0000);
+        buffer.set(1, 0, 0x800000ff);
+
+        ByteBuffer rgb565 = ByteBuffer.allocate(4);
+        buffer.copyTo(rgb565, PixelBuffer.Format.RGB_565);
+        assertThat(rgb565.array()).isEqualTo(new byte[] {0x00, (byte) 0xf8, 0x1f, 0x00});
+
+        ShortBuffer argb4444 = ShortBuffer.allocate(2);
+        buffer.copyTo(argb4444, PixelBuffer.Format.ARGB_4444);
+        assertThat(argb4444.array()).isEqualTo(new short[] {(short) 0xf00f, 0x00f8});
+
+        ByteBuffer alpha8 = ByteBuffer.allocate(2);
+        buffer.copyTo(alpha8, PixelBuffer.Format.ALPHA_8);
+        assertThat(alpha8.array()).isEqualTo(new byte[] {(byte) 0xff, (byte) 0x80});
+
+        PixelBuffer copy = new PixelBuffer(2, 1);
+        rgb565.rewind();
+        copy.copyFrom(rgb565, PixelBuffer.Format.RGB_565);
+        assertThat(row(copy, 0)).isEqualTo(new int[] {0xffff0000, 0xff0000ff});
+
+        argb4444.rewind();
+        copy.copyFrom(argb4444, PixelBuffer.Format.ARGB_4444);
+        assertThat(row(copy, 0)).isEqualTo(new int[] {0xffff0000, 0x880000ff});
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void shouldRejectBuffersTooSmallForTheFormat() throws Exception {
+        new PixelBuffer(2, 2).copyTo(ShortBuffer.allocate(3), PixelBuffer.Format.RGB_565);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void shouldRejectBuffersThatAreTooSmall() throws Exception {
+        new PixelBuffer(2, 2).copyTo(IntBuffer.allocate(3));
+    }
+
+    private static int[] row(PixelBuffer buffer, int y) {
+        int[] pixels = new int[buffer.getWidth()];
+        buffer.getPixels(pixels, 0, pixels.length, 0, y, pixels.length, 1);
+        return pixels;
+    }
+}
@@ -0,0 +1,61 @@
+package org.robolectric.util;
+
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+/**
+ * Times a bulk insert inside one transaction the way {@code ShadowSQLiteDatabase.insert()} used to do it (preparing
+ * every statement from scratch), through a {@link PreparedStatementCache}, and through the cache with JDBC batching.
+ */
+public class PreparedStatementCacheBenchmark {
+    private static final int ROWS = 20000;
+    private static final int RUNS = 5;
+    private static final String INSERT = "INSERT INTO t (name, value) VALUES (?, ?);";
+
+    @Test
+    public void bulkInserts() throws Exception {
+        DatabaseConfig.setDatabaseMap(new SQLiteMap());
+        for (int run = 0; run < RUNS; run++) {
+            System.out.println(String.format("prepare each %5d ms   cached %5d ms   cached+batched %5d ms",
+                    time(Mode.PREPARE_EACH), time(Mode.CACHED), time(Mode.BATCHED)));
+        }
+    }
+
+    private enum Mode { PREPARE_EACH, CACHED, BATCHED }
+
+    private long time(Mode mode) throws Exception {
+        Connection connection = DatabaseConfig.getMemoryConnection();
+        connection.createStatement().execute("CREATE TABLE t(id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT, value INTEGER)");
+        PreparedStatementCache cache = new PreparedStatementCache(connection);
+
+        long start = System.nanoTime();
+        connection.setAutoCommit(false);
+        for (int i = 0; i < ROWS; i++) {
+            String sql = DatabaseConfig.getScrubSQL(INSERT);
+            PreparedStatement insert;
+            switch (mode) {
+                case PREPARE_EACH: insert = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS); break;
+                case CACHED: insert = cache.prepareReturningGeneratedKeys(sql); break;
+                default: insert = cache.prepare(sql); break;
+            }
+            insert.setObject(1, "name" + i);
+            insert.setObject(2, i);
+            if (mode == Mode.BATCHED) {
+                insert.addBatch();
+            } else {
+                insert.executeUpdate();
+                insert.getGeneratedKeys().close();
+            }
+        }
+        if (mode == Mode.BATCHED) cache.prepare(INSERT).executeBatch();
+        connection.commit();
+        long elapsed = System.nanoTime() - start;
+
+        cache.close();
+        connection.close();
+        return elapsed / 1000000;
+    }
+}
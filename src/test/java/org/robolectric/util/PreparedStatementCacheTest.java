@@ -0,0 +1,74 @@
+package org.robolectric.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class PreparedStatementCacheTest {
+    private Connection connection;
+    private PreparedStatementCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        DatabaseConfig.setDatabaseMap(new SQLiteMap());
+        connection = DatabaseConfig.getMemoryConnection();
+        connection.createStatement().execute("CREATE TABLE t(id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT)");
+        cache = new PreparedStatementCache(connection, 2);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        cache.close();
+        connection.close();
+    }
+
+    @Test
+    public void shouldReuseStatementsForTheSameSql() throws Exception {
+        PreparedStatement statement = cache.prepare("INSERT INTO t (name) VALUES (?)");
+
+        assertThat(cache.prepare("INSERT INTO t (name) VALUES (?)")).isSameAs(statement);
+        assertThat(cache.prepareReturningGeneratedKeys("INSERT INTO t (name) VALUES (?)")).isNotSameAs(statement);
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldReturnGeneratedKeysFromReusedStatements() throws Exception {
+        assertThat(insert("Chuck")).isEqualTo(1L);
+        assertThat(insert("Julie")).isEqualTo(2L);
+    }
+
+    @Test
+    public void shouldCloseLeastRecentlyUsedStatementWhenFull() throws Exception {
+        PreparedStatement first = cache.prepare("SELECT 1");
+        PreparedStatement second = cache.prepare("SELECT 2");
+        cache.prepare("SELECT 1");
+        cache.prepare("SELECT 3");
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.prepare("SELECT 1")).isSameAs(first);
+        assertThat(cache.prepare("SELECT 2")).isNotSameAs(second);
+    }
+
+    @Test
+    public void shouldBeForItsOwnConnectionOnly() throws Exception {
+        assertThat(cache.isFor(connection)).isTrue();
+        assertThat(cache.isFor(null)).isFalse();
+    }
+
+    private long insert(String name) throws Exception {
+        PreparedStatement insert = cache.prepareReturningGeneratedKeys("INSERT INTO t (name) VALUES (?)");
+        insert.setObject(1, name);
+        insert.executeUpdate();
+        ResultSet keys = insert.getGeneratedKeys();
+        assertThat(keys.next()).isTrue();
+        long id = keys.getLong(1);
+        keys.close();
+        return id;
+    }
+}
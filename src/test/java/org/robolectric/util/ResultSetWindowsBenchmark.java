@@ -0,0 +1,106 @@
+package org.robolectric.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Times filling and scanning a 100k row SQLite result, once the way the cursor shadow used to (running the query a
+ * second time and copying every row into a map) and once through {@link ResultSetWindows}.
+ */
+public class ResultSetWindowsBenchmark {
+    private static final int ROWS = 100000;
+    private static final int RUNS = 5;
+    private static final String SQL = "SELECT * FROM t";
+
+    private Connection connection;
+
+    @Before
+    public void setUp() throws Exception {
+        DatabaseConfig.setDatabaseMap(new SQLiteMap());
+        connection = DatabaseConfig.getMemoryConnection();
+        connection.createStatement().execute("CREATE TABLE t(id INTEGER, name TEXT, long_value INTEGER, double_value REAL)");
+        connection.setAutoCommit(false);
+        PreparedStatement insert = connection.prepareStatement("INSERT INTO t VALUES(?, ?, ?, ?)");
+        for (int i = 0; i < ROWS; i++) {
+            insert.setInt(1, i);
+            insert.setString(2, "name" + i);
+            insert.setLong(3, i * 31L);
+            insert.setDouble(4, i / 7.0);
+            insert.addBatch();
+        }
+        insert.executeBatch();
+        connection.commit();
+        connection.setAutoCommit(true);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        connection.close();
+    }
+
+    @Test
+    public void fillAndScan() throws Exception {
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            long rowMapSum = scanRowMaps();
+            long rowMapNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long windowSum = scanWindows();
+            long windowNanos = System.nanoTime() - start;
+
+            if (rowMapSum != windowSum) throw new AssertionError(rowMapSum + " != " + windowSum);
+            System.out.println(String.format("row maps %5d ms   windows %5d ms",
+                    rowMapNanos / 1000000, windowNanos / 1000000));
+        }
+    }
+
+    private long scanRowMaps() throws Exception {
+        ResultSet original = connection.createStatement().executeQuery(SQL);
+        ResultSetMetaData metaData = original.getMetaData();
+        String[] columnNames = new String[metaData.getColumnCount()];
+        for (int i = 0; i < columnNames.length; i++) columnNames[i] = metaData.getColumnName(i + 1).toLowerCase();
+
+        Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        ResultSet rs = statement.executeQuery(SQL);
+        Map<Integer, Map<String, Object>> rows = new HashMap<Integer, Map<String, Object>>();
+        int count = 0;
+        while (rs.next()) {
+            Map<String, Object> row = new HashMap<String, Object>();
+            for (String columnName : columnNames) row.put(columnName, rs.getObject(columnName));
+            rows.put(count++, row);
+        }
+        rs.close();
+        original.close();
+
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> row = rows.get(i);
+            sum += new Long(row.get(columnNames[2]).toString());
+            sum += (long) new Double(row.get(columnNames[3]).toString()).doubleValue();
+        }
+        return sum;
+    }
+
+    private long scanWindows() throws Exception {
+        ResultSet rs = connection.createStatement().executeQuery(SQL);
+        ResultSetWindows windows = new ResultSetWindows(rs);
+        rs.close();
+
+        long sum = 0;
+        for (int i = 0; i < windows.getRowCount(); i++) {
+            sum += windows.getLong(i, 2);
+            sum += (long) windows.getDouble(i, 3);
+        }
+        return sum;
+    }
+}
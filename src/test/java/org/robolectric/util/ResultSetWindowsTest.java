@@ -0,0 +1,85 @@
+package org.robolectric.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class ResultSetWindowsTest {
+    private Connection connection;
+
+    @Before
+    public void setUp() throws Exception {
+        DatabaseConfig.setDatabaseMap(new SQLiteMap());
+        connection = DatabaseConfig.getMemoryConnection();
+        connection.createStatement().execute("CREATE TABLE t(id INTEGER, name TEXT, real_value REAL, blob_value BLOB)");
+
+        PreparedStatement insert = connection.prepareStatement("INSERT INTO t VALUES(?, ?, ?, ?)");
+        for (int i = 0; i < 10; i++) {
+            insert.setInt(1, i);
+            insert.setString(2, i % 3 == 0 ? null : "name" + i);
+            insert.setDouble(3, i + 0.5);
+            insert.setBytes(4, new byte[] {(byte) i});
+            insert.executeUpdate();
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        connection.close();
+    }
+
+    @Test
+    public void shouldReadEveryRowAcrossWindows() throws Exception {
+        ResultSetWindows windows = new ResultSetWindows(query("SELECT * FROM t ORDER BY id"), 4);
+
+        assertThat(windows.getRowCount()).isEqualTo(10);
+        assertThat(windows.getColumnCount()).isEqualTo(4);
+        for (int row = 9; row >= 0; row--) {
+            assertThat(windows.getLong(row, 0)).isEqualTo(row);
+            assertThat(windows.getString(row, 1)).isEqualTo(row % 3 == 0 ? null : "name" + row);
+            assertThat(windows.isNull(row, 1)).isEqualTo(row % 3 == 0);
+            assertThat(windows.getDouble(row, 2)).isEqualTo(row + 0.5);
+            assertThat((byte[]) windows.getObject(row, 3)).isEqualTo(new byte[] {(byte) row});
+        }
+    }
+
+    @Test
+    public void shouldConvertBetweenTypes() throws Exception {
+        ResultSetWindows windows = new ResultSetWindows(query("SELECT id, '42', real_value, name FROM t WHERE id = 3"));
+
+        assertThat(windows.getString(0, 0)).isEqualTo("3");
+        assertThat(windows.getDouble(0, 0)).isEqualTo(3.0);
+        assertThat(windows.getLong(0, 1)).isEqualTo(42L);
+        assertThat(windows.getLong(0, 2)).isEqualTo(3L);
+        assertThat(windows.getLong(0, 3)).isEqualTo(0L);
+        assertThat(windows.getDouble(0, 3)).isEqualTo(0.0);
+    }
+
+    @Test
+    public void shouldHandleEmptyResults() throws Exception {
+        ResultSetWindows windows = new ResultSetWindows(query("SELECT * FROM t WHERE id < 0"));
+
+        assertThat(windows.getRowCount()).isEqualTo(0);
+        assertThat(windows.getColumnCount()).isEqualTo(4);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void shouldThrowForRowsOutOfRange() throws Exception {
+        new ResultSetWindows(query("SELECT * FROM t"), 4).getLong(10, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRequirePowerOfTwoWindowSize() throws Exception {
+        new ResultSetWindows(query("SELECT * FROM t"), 3);
+    }
+
+    private ResultSet query(String sql) throws Exception {
+        return connection.createStatement().executeQuery(sql);
+    }
+}
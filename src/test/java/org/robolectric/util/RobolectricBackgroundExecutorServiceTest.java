@@ -6,8 +6,11 @@ import org.junit.runner.RunWith;
 import org.robolectric.Robolectric;
 import org.robolectric.TestRunners;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 
@@ -72,4 +75,51 @@ public class RobolectricBackgroundExecutorServiceTest {
 
         assertEquals("foo", future.get());
     }
+
+    @Test
+    public void withRealThreads_invokeAllShouldRunTasksOnPoolThreads() throws Exception {
+        RobolectricBackgroundExecutorService realExecutorService = RobolectricBackgroundExecutorService.withRealThreads(2);
+        try {
+            List<Callable<String>> callables = new ArrayList<Callable<String>>();
+            for (int i = 0; i < 4; i++) {
+                callables.add(new Callable<String>() {
+                    @Override public String call() throws Exception {
+                        return Thread.currentThread().getName();
+                    }
+                });
+            }
+
+            for (Future<String> future : realExecutorService.invokeAll(callables)) {
+                assertTrue(future.get().startsWith("robolectric-background-"));
+            }
+        } finally {
+            realExecutorService.shutdown();
+        }
+        assertTrue(realExecutorService.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void withRealThreads_executeShouldRethrowFailuresOnUiThread() throws Exception {
+        Robolectric.pauseMainLooper();
+        RobolectricBackgroundExecutorService realExecutorService = RobolectricBackgroundExecutorService.withRealThreads(1);
+        realExecutorService.execute(new Runnable() {
+            @Override public void run() {
+                throw new IllegalStateException("boom");
+            }
+        });
+        realExecutorService.shutdown();
+        assertTrue(realExecutorService.awaitTermination(10, TimeUnit.SECONDS));
+
+        try {
+            Robolectric.runUiThreadTasks();
+            fail("expected the background failure to be rethrown");
+        } catch (RuntimeException e) {
+            assertEquals("boom", e.getCause().getMessage());
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void invokeAll_shouldOnlyBeSupportedWithRealThreads() throws Exception {
+        executorService.invokeAll(new ArrayList<Callable<String>>());
+    }
 }
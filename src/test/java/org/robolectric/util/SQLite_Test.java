@@ -2,6 +2,7 @@ package org.robolectric.util;
 
 import android.content.ContentValues;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -45,6 +46,26 @@ public class SQLite_Test {
         assertThat(deleteString).isEqualTo("DELETE FROM table_name WHERE id='1234';");
     }
 
+    @Test
+    public void testBuildUpdateStatement() {
+        SQLite.SQLStringAndBindings updateStatement = buildUpdateStatement("table_name", values, "id=?", new String[]{"1234"});
+        assertThat(updateStatement.sql).isEqualTo("UPDATE table_name SET float_value=?, byte_data=?, name=?, int_value=? WHERE id=?;");
+        assertThat(updateStatement.columnValues).hasSize(5);
+        assertThat(updateStatement.columnValues.get(4)).isEqualTo("1234");
+    }
+
+    @Test
+    public void testBuildDeleteStatement() {
+        SQLite.SQLStringAndBindings deleteStatement = buildDeleteStatement("table_name", "id=? AND name=?", new String[]{"1234", "Chuck"});
+        assertThat(deleteStatement.sql).isEqualTo("DELETE FROM table_name WHERE id=? AND name=?;");
+        assertThat(deleteStatement.columnValues).containsExactly("1234", "Chuck");
+    }
+
+    @Test(expected = SQLiteException.class)
+    public void testBuildDeleteStatementChecksArgCount() {
+        buildDeleteStatement("table_name", "id=? AND name=?", new String[]{"1234"});
+    }
+
     @Test
     public void testBuildWhereClause() {
         String whereClause = buildWhereClause("id=? AND name=? AND int_value=?", new String[]{"1234", "Chuck", "33"});
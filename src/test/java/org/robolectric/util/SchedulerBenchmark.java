@@ -0,0 +1,44 @@
+package org.robolectric.util;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Posts 100,000 runnables at random delays, removes some of them, and runs the rest, the way a test that floods a
+ * Handler with messages does.
+ */
+public class SchedulerBenchmark {
+    private static final int RUNNABLE_COUNT = 100000;
+
+    @Test
+    public void postAndRun100k() throws Exception {
+        for (int i = 0; i < 3; i++) run(); // warm up
+        long start = System.nanoTime();
+        int ran = run();
+        long elapsed = System.nanoTime() - start;
+        System.out.println(String.format("%,d runnables posted, %,d run: %.1f ms", RUNNABLE_COUNT, ran, elapsed / 1e6));
+    }
+
+    private int run() {
+        Scheduler scheduler = new Scheduler();
+        scheduler.pause();
+        Random random = new Random(42);
+        final int[] ran = new int[1];
+        Runnable[] runnables = new Runnable[RUNNABLE_COUNT];
+        for (int i = 0; i < RUNNABLE_COUNT; i++) {
+            runnables[i] = new Runnable() {
+                @Override
+                public void run() {
+                    ran[0]++;
+                }
+            };
+            scheduler.postDelayed(runnables[i], random.nextInt(10000));
+        }
+        for (int i = 0; i < RUNNABLE_COUNT; i += 10) {
+            scheduler.remove(runnables[i]);
+        }
+        scheduler.advanceToLastPostedRunnable();
+        return ran[0];
+    }
+}
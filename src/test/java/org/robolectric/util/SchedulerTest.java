@@ -3,6 +3,9 @@ package org.robolectric.util;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.fest.assertions.api.Assertions.assertThat;
 
 public class SchedulerTest {
@@ -116,6 +119,43 @@ public class SchedulerTest {
         assertThat(runnable.wasRun).isFalse();
     }
 
+    @Test
+    public void shouldRunRunnablesDueAtTheSameTimeInTheOrderTheyWerePosted() throws Exception {
+        List<String> dueNow = new ArrayList<String>();
+        for (int i = 0; i < 100; i++) {
+            scheduler.postDelayed(new AddToTranscript("event" + i), (i % 3) * 10);
+            if (i % 3 == 0) dueNow.add("event" + i);
+        }
+
+        scheduler.advanceBy(0);
+        transcript.assertEventsSoFar(dueNow.toArray(new String[dueNow.size()]));
+    }
+
+    @Test
+    public void shouldNotOverflowComparingTimesFarApart() throws Exception {
+        scheduler.postDelayed(new AddToTranscript("later"), Integer.MAX_VALUE + 10L);
+        scheduler.postDelayed(new AddToTranscript("sooner"), 1);
+
+        scheduler.runOneTask();
+        transcript.assertEventsSoFar("sooner");
+    }
+
+    @Test
+    public void removeShouldLeaveTheRestOfTheQueueInOrder() throws Exception {
+        TestRunnable runnable = new TestRunnable();
+        for (int i = 0; i < 10; i++) {
+            scheduler.postDelayed(new AddToTranscript("event" + i), 10 - i);
+            scheduler.postDelayed(runnable, i);
+        }
+        scheduler.remove(runnable);
+        assertThat(scheduler.enqueuedTaskCount()).isEqualTo(10);
+
+        scheduler.advanceToLastPostedRunnable();
+        transcript.assertEventsSoFar("event9", "event8", "event7", "event6", "event5",
+                "event4", "event3", "event2", "event1", "event0");
+        assertThat(runnable.wasRun).isFalse();
+    }
+
     @Test
     public void resetShouldUnPause() throws Exception {
         scheduler.pause();
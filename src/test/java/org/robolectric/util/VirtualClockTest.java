@@ -0,0 +1,105 @@
+package org.robolectric.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class VirtualClockTest {
+    private Transcript transcript;
+    private VirtualClock clock;
+    private Scheduler main;
+    private Scheduler background;
+
+    @Before
+    public void setUp() throws Exception {
+        transcript = new Transcript();
+        clock = new VirtualClock();
+        main = newPausedScheduler();
+        background = newPausedScheduler();
+    }
+
+    @Test
+    public void advanceTo_shouldRunTasksOnAllSchedulersInTimestampOrder() throws Exception {
+        main.postDelayed(new AddToTranscript("main 300"), 300);
+        background.postDelayed(new AddToTranscript("background 100"), 100);
+        main.postDelayed(new AddToTranscript("main 200"), 200);
+        background.postDelayed(new AddToTranscript("background 400"), 400);
+
+        assertThat(clock.advanceTo(300)).isEqualTo(3);
+        transcript.assertEventsSoFar("background 100", "main 200", "main 300");
+
+        assertThat(clock.getCurrentTime()).isEqualTo(300);
+        assertThat(main.getCurrentTime()).isEqualTo(300);
+        assertThat(background.getCurrentTime()).isEqualTo(300);
+        assertThat(background.enqueuedTaskCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void tasksPostingToOtherSchedulers_shouldPostRelativeToTheTimeTheyRanAt() throws Exception {
+        background.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                transcript.add("background 100");
+                main.postDelayed(new AddToTranscript("main 150"), 50);
+            }
+        }, 100);
+        main.postDelayed(new AddToTranscript("main 200"), 200);
+
+        clock.advanceBy(1000);
+        transcript.assertEventsSoFar("background 100", "main 150", "main 200");
+    }
+
+    @Test
+    public void idle_shouldOnlyRunTasksDueNow() throws Exception {
+        main.post(new AddToTranscript("main now"));
+        background.post(new AddToTranscript("background now"));
+        background.postDelayed(new AddToTranscript("background later"), 1);
+
+        assertThat(clock.idle()).isEqualTo(2);
+        transcript.assertEventsSoFar("main now", "background now");
+        assertThat(clock.getCurrentTime()).isEqualTo(0);
+    }
+
+    @Test
+    public void runUntilIdle_shouldRunEverythingIncludingTasksPostedAlongTheWay() throws Exception {
+        main.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                transcript.add("main 1000");
+                background.postDelayed(new AddToTranscript("background 3000"), 2000);
+            }
+        }, 1000);
+
+        assertThat(clock.runUntilIdle()).isEqualTo(2);
+        transcript.assertEventsSoFar("main 1000", "background 3000");
+        assertThat(clock.getCurrentTime()).isEqualTo(3000);
+    }
+
+    @Test
+    public void register_shouldBringNewSchedulersUpToTheCurrentTime() throws Exception {
+        clock.advanceTo(500);
+        Scheduler late = newPausedScheduler();
+        assertThat(late.getCurrentTime()).isEqualTo(500);
+    }
+
+    private Scheduler newPausedScheduler() {
+        Scheduler scheduler = new Scheduler();
+        scheduler.pause();
+        clock.register(scheduler);
+        return scheduler;
+    }
+
+    private class AddToTranscript implements Runnable {
+        private final String event;
+
+        AddToTranscript(String event) {
+            this.event = event;
+        }
+
+        @Override
+        public void run() {
+            transcript.add(event);
+        }
+    }
+}